@@ -0,0 +1,122 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import com.getrosoft.trackingservice.tracking_service.exceptions.InvalidInputException;
+import com.getrosoft.trackingservice.tracking_service.payload.BulkGenerationReport;
+import com.getrosoft.trackingservice.tracking_service.payload.BulkGenerationRequest;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingBulkGenerationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Command-line label run, e.g.
+ * <pre>
+ *     java -jar tracking-service.jar --spring.main.web-application-type=none \
+ *          --tracking.generate.output=labels.csv --tracking.generate.count=1000000 \
+ *          --tracking.generate.lanes=US-IN,US-GB \
+ *          --tracking.generate.customers=550e8400-e29b-41d4-a716-446655440000:acme
+ * </pre>
+ * Numbers are spread evenly over every lane and customer combination. The application exits when
+ * done, with status 1 if the run failed.
+ */
+@Component
+@ConditionalOnProperty("tracking.generate.output")
+public class BulkGenerationRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkGenerationRunner.class);
+
+    private final TrackingBulkGenerationService generationService;
+    private final ConfigurableApplicationContext context;
+    private final String output;
+    private final long count;
+    private final String lanes;
+    private final String customers;
+    private final BigDecimal weight;
+    private final boolean exitWhenDone;
+
+    public BulkGenerationRunner(TrackingBulkGenerationService generationService, ConfigurableApplicationContext context,
+                                @Value("${tracking.generate.output}") String output,
+                                @Value("${tracking.generate.count}") long count,
+                                @Value("${tracking.generate.lanes}") String lanes,
+                                @Value("${tracking.generate.customers}") String customers,
+                                @Value("${tracking.generate.weight:1.0}") BigDecimal weight,
+                                @Value("${tracking.generate.exit-when-done:true}") boolean exitWhenDone) {
+        this.generationService = generationService;
+        this.context = context;
+        this.output = output;
+        this.count = count;
+        this.lanes = lanes;
+        this.customers = customers;
+        this.weight = weight;
+        this.exitWhenDone = exitWhenDone;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode = 0;
+        try {
+            final BulkGenerationReport report = generationService.generate(BulkGenerationRequest.builder()
+                    .output(Paths.get(output))
+                    .count(count)
+                    .lanes(parseLanes(lanes))
+                    .customers(parseCustomers(customers))
+                    .weight(weight)
+                    .build());
+            logger.info("Generated {} tracking numbers into {} in {} s: {} numbers/s, {} MB written, {} redrawn, {} batches retried",
+                    report.getGenerated(), report.getOutput(), String.format("%.1f", report.getDurationSeconds()),
+                    Math.round(report.getNumbersPerSecond()), report.getBytesWritten() / (1024 * 1024),
+                    report.getRedrawn(), report.getRetriedBatches());
+        } catch (RuntimeException e) {
+            logger.error("Label run into {} failed: {}", output, e.getMessage(), e);
+            exitCode = 1;
+        }
+
+        if (exitWhenDone) {
+            final int status = exitCode;
+            System.exit(SpringApplication.exit(context, () -> status));
+        }
+    }
+
+    // "US-IN,US-GB"
+    static List<BulkGenerationRequest.Lane> parseLanes(final String value) {
+        final List<BulkGenerationRequest.Lane> parsed = new ArrayList<>();
+        for (String lane : value.split(",")) {
+            final String[] countries = lane.trim().split("-");
+            if (countries.length != 2) {
+                throw new InvalidInputException("Lanes must look like ORIGIN-DESTINATION: " + lane);
+            }
+            parsed.add(new BulkGenerationRequest.Lane(countries[0], countries[1]));
+        }
+        return parsed;
+    }
+
+    // "<customerId>:<slug>,..."
+    static List<BulkGenerationRequest.Customer> parseCustomers(final String value) {
+        final List<BulkGenerationRequest.Customer> parsed = new ArrayList<>();
+        for (String customer : value.split(",")) {
+            final int separator = customer.indexOf(':');
+            if (separator < 0) {
+                throw new InvalidInputException("Customers must look like CUSTOMER_ID:SLUG: " + customer);
+            }
+            try {
+                parsed.add(new BulkGenerationRequest.Customer(
+                        UUID.fromString(customer.substring(0, separator).trim()), customer.substring(separator + 1).trim()));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidInputException("Invalid customer ID: " + customer, e);
+            }
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,82 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import com.getrosoft.trackingservice.tracking_service.payload.ImportFormat;
+import com.getrosoft.trackingservice.tracking_service.payload.ImportReport;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command-line bulk import, e.g.
+ * <pre>
+ *     java -jar tracking-service.jar --spring.main.web-application-type=none \
+ *          --tracking.import.file=legacy.csv [--tracking.import.job-id=legacy]
+ * </pre>
+ * The format follows the file extension (.csv, anything else is NDJSON) unless
+ * {@code tracking.import.format} is set, and numbers in other carriers' formats are only accepted
+ * with {@code tracking.import.allow-foreign-ids}. The job ID defaults to the file name, so re-running the
+ * same command after a failure resumes from the checkpoint. The application exits when done, with
+ * status 1 if the import failed.
+ */
+@Component
+@ConditionalOnProperty("tracking.import.file")
+public class BulkImportRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportRunner.class);
+
+    private final TrackingImportService importService;
+    private final ConfigurableApplicationContext context;
+    private final Path file;
+    private final String jobId;
+    private final String format;
+    private final boolean allowForeignIds;
+    private final boolean exitWhenDone;
+
+    public BulkImportRunner(TrackingImportService importService, ConfigurableApplicationContext context,
+                            @Value("${tracking.import.file}") String file,
+                            @Value("${tracking.import.job-id:}") String jobId,
+                            @Value("${tracking.import.format:}") String format,
+                            @Value("${tracking.import.allow-foreign-ids:false}") boolean allowForeignIds,
+                            @Value("${tracking.import.exit-when-done:true}") boolean exitWhenDone) {
+        this.importService = importService;
+        this.context = context;
+        this.file = Paths.get(file);
+        this.jobId = jobId.isBlank() ? this.file.getFileName().toString().replaceAll("[^A-Za-z0-9_.-]", "_") : jobId;
+        this.format = format;
+        this.allowForeignIds = allowForeignIds;
+        this.exitWhenDone = exitWhenDone;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        final ImportFormat importFormat = format.isBlank()
+                ? ImportFormat.fromFileName(file.getFileName().toString())
+                : ImportFormat.valueOf(format.toUpperCase());
+
+        final ImportReport report;
+        try (InputStream input = Files.newInputStream(file)) {
+            report = importService.importTrackingNumbers(jobId, input, importFormat, allowForeignIds);
+        }
+        logger.info("Import {} {}: {} inserted, {} duplicates, {} invalid, {} skipped before checkpoint, {} records/s",
+                jobId, report.getState(), report.getInserted(), report.getDuplicates(), report.getInvalid(),
+                report.getSkippedBeforeCheckpoint(), Math.round(report.getRecordsPerSecond()));
+        report.getErrors().forEach(error -> logger.warn("Import {}: {}", jobId, error));
+
+        if (exitWhenDone) {
+            final int exitCode = report.getState() == ImportReport.ImportState.COMPLETED ? 0 : 1;
+            System.exit(SpringApplication.exit(context, () -> exitCode));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import com.getrosoft.trackingservice.tracking_service.utils.Bulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Separate worker pools for creates and lookups. Creates hold a primary connection for their whole
+ * insert, including collision retries, so capping create concurrency below the primary pool size
+ * keeps connections free for lookup misses however many creates are queued.
+ */
+@Configuration
+public class BulkheadConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkheadConfig.class);
+
+    @Bean(destroyMethod = "close")
+    public Bulkhead createBulkhead(MeterRegistry meterRegistry,
+                                   @Value("${tracking.bulkhead.create.max-concurrency:6}") int maxConcurrency,
+                                   @Value("${tracking.bulkhead.create.queue-capacity:200}") int queueCapacity,
+                                   @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        if (maxConcurrency >= connectionPoolSize) {
+            logger.warn("Create bulkhead allows {} concurrent creates with only {} pooled connections; "
+                    + "a create burst can still starve lookups", maxConcurrency, connectionPoolSize);
+        }
+        return new Bulkhead("create", maxConcurrency, queueCapacity, meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public Bulkhead lookupBulkhead(MeterRegistry meterRegistry,
+                                   @Value("${tracking.bulkhead.lookup.max-concurrency:12}") int maxConcurrency,
+                                   @Value("${tracking.bulkhead.lookup.queue-capacity:1000}") int queueCapacity) {
+        return new Bulkhead("lookup", maxConcurrency, queueCapacity, meterRegistry);
+    }
+}
@@ -0,0 +1,35 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound override that sends reads to the primary even inside read-only transactions.
+ * <p>
+ * Routing is decided when the first statement needs a physical connection, so the override only
+ * has to be active around the repository call, not around the whole transaction.
+ */
+public final class DataSourceRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    private DataSourceRouting() {
+    }
+
+    public static <T> T onPrimary(final Supplier<T> action) {
+        final Boolean previous = PRIMARY_FORCED.get();
+        PRIMARY_FORCED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_FORCED.remove();
+            } else {
+                PRIMARY_FORCED.set(previous);
+            }
+        }
+    }
+
+    public static boolean isPrimaryForced() {
+        return Boolean.TRUE.equals(PRIMARY_FORCED.get());
+    }
+}
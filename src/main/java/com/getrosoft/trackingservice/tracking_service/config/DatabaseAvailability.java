@@ -0,0 +1,85 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import com.getrosoft.trackingservice.tracking_service.utils.CircuitBreaker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+/**
+ * Circuit breaker guarding tracking number writes, and the classification of failures that count
+ * against it. Only failures that mean the database cannot be reached or is not answering trip the
+ * circuit; constraint violations and other errors caused by the data do not.
+ * <p>
+ * Repositories translate persistence exceptions into Spring's hierarchy, but work done directly on
+ * the {@code EntityManager} inside a {@code TransactionTemplate} surfaces Hibernate's own exceptions
+ * from {@code flush()}. Both checks therefore translate first, the way a repository would.
+ */
+@Configuration
+public class DatabaseAvailability {
+
+    @Bean
+    public CircuitBreaker trackingWriteCircuitBreaker(final MeterRegistry meterRegistry,
+                                                      @Value("${tracking.spill.failure-threshold:5}") int failureThreshold,
+                                                      @Value("${tracking.spill.open-duration-ms:5000}") long openDurationMillis) {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(failureThreshold, openDurationMillis);
+        Gauge.builder("tracking.db.circuit.open", circuitBreaker,
+                        breaker -> breaker.getState() == CircuitBreaker.State.OPEN ? 1 : 0)
+                .description("1 while tracking number writes are diverted to the spill journal")
+                .register(meterRegistry);
+        return circuitBreaker;
+    }
+
+    private static final HibernateJpaDialect TRANSLATOR = new HibernateJpaDialect();
+
+    public static boolean isOutage(final Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (isOutageType(translate(cause))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the failure is a unique-key violation, such as an insert that lost a race for its
+     * primary key. Other integrity violations (nulls, lengths) are not.
+     */
+    public static boolean isDuplicateKey(final Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof org.hibernate.exception.ConstraintViolationException violation) {
+                return violation.getKind() == org.hibernate.exception.ConstraintViolationException.ConstraintKind.UNIQUE;
+            }
+            if (cause instanceof DuplicateKeyException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Throwable translate(final Throwable failure) {
+        if (failure instanceof RuntimeException runtime) {
+            final RuntimeException translated = TRANSLATOR.translateExceptionIfPossible(runtime);
+            if (translated != null) {
+                return translated;
+            }
+        }
+        return failure;
+    }
+
+    private static boolean isOutageType(final Throwable failure) {
+        return failure instanceof CannotCreateTransactionException
+                || failure instanceof DataAccessResourceFailureException
+                || failure instanceof TransientDataAccessResourceException
+                || failure instanceof QueryTimeoutException
+                || failure instanceof RecoverableDataAccessException;
+    }
+}
@@ -0,0 +1,142 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingStageEvent;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Controls an on-demand Flight Recorder recording through the {@code trackingrecording} endpoint:
+ * <ul>
+ *     <li>the read operation reports the recording's state</li>
+ *     <li>the {@code start} write operation starts a recording bounded by max age and size</li>
+ *     <li>the {@code dump} write operation writes what has been recorded so far to the dump directory</li>
+ *     <li>the delete operation stops and discards the recording</li>
+ * </ul>
+ * The recording uses the JDK's low-overhead "default" settings plus {@link TrackingStageEvent}s
+ * above the configured threshold. Nothing is recorded until a recording is started.
+ * <p>
+ * The endpoint writes files on the host, so it is only exposed over JMX by default and must never
+ * be exposed on the public HTTP port.
+ */
+@Component
+@Endpoint(id = "trackingrecording")
+public class FlightRecorderEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderEndpoint.class);
+
+    private final Path dumpDirectory;
+    private final Duration defaultMaxAge;
+    private final long defaultMaxSizeBytes;
+    private final Duration stageThreshold;
+    private Recording recording;
+
+    public FlightRecorderEndpoint(@Value("${tracking.jfr.dump-directory}") String dumpDirectory,
+                                  @Value("${tracking.jfr.max-age-seconds:600}") long maxAgeSeconds,
+                                  @Value("${tracking.jfr.max-size-mb:100}") long maxSizeMb,
+                                  @Value("${tracking.jfr.stage-threshold-ms:0}") long stageThresholdMillis) {
+        this.dumpDirectory = Paths.get(dumpDirectory);
+        this.defaultMaxAge = Duration.ofSeconds(maxAgeSeconds);
+        this.defaultMaxSizeBytes = maxSizeMb * 1024 * 1024;
+        this.stageThreshold = Duration.ofMillis(stageThresholdMillis);
+    }
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        final Map<String, Object> status = new LinkedHashMap<>();
+        if (recording == null) {
+            status.put("state", "NOT_STARTED");
+            return status;
+        }
+        status.put("state", recording.getState());
+        status.put("startTime", recording.getStartTime());
+        status.put("maxAge", recording.getMaxAge());
+        status.put("maxSizeBytes", recording.getMaxSize());
+        status.put("sizeBytes", recording.getSize());
+        return status;
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> control(@Selector String action, @Nullable Long maxAgeSeconds,
+                                                    @Nullable Long maxSizeMb) {
+        switch (action) {
+            case "start" -> this.start(maxAgeSeconds != null ? Duration.ofSeconds(maxAgeSeconds) : defaultMaxAge,
+                    maxSizeMb != null ? maxSizeMb * 1024 * 1024 : defaultMaxSizeBytes);
+            case "dump" -> {
+                final Map<String, Object> status = this.status();
+                status.put("file", this.dump().toString());
+                return status;
+            }
+            default -> throw new InvalidEndpointRequestException("Unknown recording action: " + action,
+                    "Expected start or dump");
+        }
+        return this.status();
+    }
+
+    @PreDestroy
+    @DeleteOperation
+    public synchronized void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private void start(final Duration maxAge, final long maxSizeBytes) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return;
+        }
+        this.stop();
+        try {
+            final Recording newRecording = new Recording(Configuration.getConfiguration("default"));
+            newRecording.setName("tracking-service");
+            newRecording.setToDisk(true);
+            newRecording.setMaxAge(maxAge);
+            newRecording.setMaxSize(maxSizeBytes);
+            newRecording.enable(TrackingStageEvent.class).withThreshold(stageThreshold);
+            newRecording.start();
+            recording = newRecording;
+            logger.info("Started flight recording (maxAge={}, maxSizeBytes={})", maxAge, maxSizeBytes);
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Unable to load the default recording configuration", e);
+        }
+    }
+
+    private Path dump() {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            throw new InvalidEndpointRequestException("No flight recording is running", "Start a recording first");
+        }
+        try {
+            Files.createDirectories(dumpDirectory);
+            final Path file = dumpDirectory.resolve("tracking-" + Instant.now().toEpochMilli() + ".jfr");
+            recording.dump(file);
+            logger.info("Dumped flight recording to {}", file);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to dump flight recording", e);
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.getrosoft.trackingservice.tracking_service.config;
 
+import com.getrosoft.trackingservice.tracking_service.exceptions.DomainException;
 import com.getrosoft.trackingservice.tracking_service.exceptions.DuplicateTrackingNumberException;
+import com.getrosoft.trackingservice.tracking_service.exceptions.EventBufferFullException;
 import com.getrosoft.trackingservice.tracking_service.exceptions.InvalidInputException;
+import com.getrosoft.trackingservice.tracking_service.exceptions.ServiceUnavailableException;
 import com.getrosoft.trackingservice.tracking_service.exceptions.TrackingIdNotFoundException;
 import com.getrosoft.trackingservice.tracking_service.exceptions.TrackingNumberGenerationException;
 import com.getrosoft.trackingservice.tracking_service.payload.ErrorResponse;
+import com.getrosoft.trackingservice.tracking_service.utils.LogRateLimiter;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
@@ -26,12 +31,23 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-
+/**
+ * The one place request failures are logged; services and controllers throw without logging.
+ * Expected {@link DomainException}s are logged at WARN without a stack trace, anything else at
+ * ERROR with one. Each exception type gets at most {@code tracking.logging.error-lines-per-second}
+ * lines a second, so a burst of bad requests or an outage cannot flood the log.
+ */
 @ControllerAdvice
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    private final LogRateLimiter logRateLimiter;
+
+    public GlobalExceptionHandler(@Value("${tracking.logging.error-lines-per-second:20}") int errorLinesPerSecond) {
+        this.logRateLimiter = new LogRateLimiter(errorLinesPerSecond);
+    }
+
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex,
                                                                   HttpHeaders headers,
@@ -48,67 +64,93 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
     @ExceptionHandler(ConstraintViolationException.class)
     public ResponseEntity<Map<String, String>> handleConstraintViolation(ConstraintViolationException ex) {
-        Map<String, String> errors = new HashMap<>();
-        for (ConstraintViolation<?> violation : ex.getConstraintViolations()) {
-            String fieldName = violation.getPropertyPath().toString();
-            String errorMessage = violation.getMessage();
-            errors.put(fieldName, errorMessage);
-        }
-        logger.warn("Validation failed: {}", errors);
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
+        final ResponseEntity<Map<String, String>> response = constraintViolationResponse(ex);
+        this.logExpected("Validation failed: {}", response.getBody(), ex);
+        return response;
     }
 
     @ExceptionHandler(InvalidInputException.class)
     public ResponseEntity<?> handleInvalidInputException(InvalidInputException ex) {
-        logger.warn("Invalid input: {}", ex.getMessage());
+        this.logExpected("Invalid input: {}", ex.getMessage(), ex);
+        if (!ex.getFieldErrors().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getFieldErrors());
+        }
         Throwable rootCause = this.findRootCause(ex);
         if (rootCause instanceof ConstraintViolationException) {
-            return handleConstraintViolation((ConstraintViolationException) rootCause);
+            return constraintViolationResponse((ConstraintViolationException) rootCause);
         }
         return createErrorResponse("Invalid Input Error", ex.getMessage(), HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler(TrackingNumberGenerationException.class)
     public ResponseEntity<?> handleTrackingNumberGenerationException(TrackingNumberGenerationException ex) {
-        logger.error("Tracking number generation failed: {}", ex.getMessage(), ex);
+        this.logUnexpected("Tracking number generation failed: {}", ex);
         Throwable rootCause = this.findRootCause(ex);
         if (rootCause instanceof ConstraintViolationException) {
-            return handleConstraintViolation((ConstraintViolationException) rootCause);
+            return constraintViolationResponse((ConstraintViolationException) rootCause);
         }
         return createErrorResponse("Tracking Number Generation Error", ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
     @ExceptionHandler(DuplicateTrackingNumberException.class)
     public ResponseEntity<ErrorResponse> handleDuplicateTrackingNumberException(DuplicateTrackingNumberException ex) {
-        logger.error("Duplicate tracking number detected: {}", ex.getMessage(), ex);
+        this.logExpected("Duplicate tracking number detected: {}", ex.getMessage(), ex);
         return createErrorResponse("Duplicate Tracking Number Error", ex.getMessage(), HttpStatus.CONFLICT);
     }
 
     @ExceptionHandler(TrackingIdNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleTrackingIdNotFoundException(TrackingIdNotFoundException ex) {
-        logger.error("Tracking ID not found: {}", ex.getMessage());
+        this.logExpected("Tracking ID not found: {}", ex.getMessage(), ex);
         return createErrorResponse("Tracking ID not found", ex.getMessage(), HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(EventBufferFullException.class)
+    public ResponseEntity<ErrorResponse> handleEventBufferFullException(EventBufferFullException ex) {
+        this.logExpected("Rejecting tracking events: {}", ex.getMessage(), ex);
+        final ErrorResponse errorResponse = new ErrorResponse(LocalDateTime.now(), ex.getMessage(), "Service Busy", HttpStatus.SERVICE_UNAVAILABLE.value());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleServiceUnavailableException(ServiceUnavailableException ex) {
+        this.logExpected("Rejecting request: {}", ex.getMessage(), ex);
+        final ErrorResponse errorResponse = new ErrorResponse(LocalDateTime.now(), ex.getMessage(), "Service Unavailable", HttpStatus.SERVICE_UNAVAILABLE.value());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(errorResponse);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<String> handleIllegalArgumentException(IllegalArgumentException ex) {
+        this.logExpected("Illegal argument: {}", ex.getMessage(), ex);
         return ResponseEntity.badRequest().body(ex.getMessage());
     }
 
     @ExceptionHandler(Exception.class)
     public ResponseEntity<?> handleGeneralException(Exception ex) {
-        logger.error("Unhandled exception occurred: {}", ex.getMessage(), ex);
-
         // Check for ConstraintViolationException wrapped inside other exceptions
         Throwable rootCause = findRootCause(ex);
         if (rootCause instanceof ConstraintViolationException) {
             return handleConstraintViolation((ConstraintViolationException) rootCause);
         }
 
+        this.logUnexpected("Unhandled exception occurred: {}", ex);
         return createErrorResponse("Internal Server Error", ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    private ResponseEntity<Map<String, String>> constraintViolationResponse(ConstraintViolationException ex) {
+        Map<String, String> errors = new HashMap<>();
+        for (ConstraintViolation<?> violation : ex.getConstraintViolations()) {
+            String fieldName = violation.getPropertyPath().toString();
+            String errorMessage = violation.getMessage();
+            errors.put(fieldName, errorMessage);
+        }
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
+    }
+
     private Throwable findRootCause(Throwable throwable) {
         Throwable rootCause = throwable;
         while (rootCause.getCause() != null && rootCause != rootCause.getCause()) {
@@ -117,6 +159,31 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return rootCause;
     }
 
+    // Expected failures: the message says everything, so no stack trace
+    private void logExpected(final String format, final Object detail, final Exception ex) {
+        final long suppressed = logRateLimiter.tryAcquire(ex.getClass());
+        if (suppressed == LogRateLimiter.SUPPRESSED) {
+            return;
+        }
+        if (suppressed > 0) {
+            logger.warn(format + " ({} similar lines suppressed)", detail, suppressed);
+        } else {
+            logger.warn(format, detail);
+        }
+    }
+
+    private void logUnexpected(final String format, final Exception ex) {
+        final long suppressed = logRateLimiter.tryAcquire(ex.getClass());
+        if (suppressed == LogRateLimiter.SUPPRESSED) {
+            return;
+        }
+        if (suppressed > 0) {
+            logger.error(format + " ({} similar lines suppressed)", ex.getMessage(), suppressed, ex);
+        } else {
+            logger.error(format, ex.getMessage(), ex);
+        }
+    }
+
     private ResponseEntity<ErrorResponse> createErrorResponse(final String error, final String message, final HttpStatus status) {
         final ErrorResponse errorResponse = new ErrorResponse(LocalDateTime.now(), message, error, status.value());
         return new ResponseEntity<>(errorResponse, status);
@@ -0,0 +1,43 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import com.getrosoft.trackingservice.tracking_service.service.IssuanceStatisticsService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Rolling issuance counts at {@code /actuator/trackingissuance}, and for a single customer at
+ * {@code /actuator/trackingissuance/{customerId}}.
+ */
+@Component
+@Endpoint(id = "trackingissuance")
+public class IssuanceStatisticsEndpoint {
+
+    private static final int DEFAULT_TOP_CUSTOMERS = 20;
+
+    private final IssuanceStatisticsService issuanceStatistics;
+
+    public IssuanceStatisticsEndpoint(IssuanceStatisticsService issuanceStatistics) {
+        this.issuanceStatistics = issuanceStatistics;
+    }
+
+    @ReadOperation
+    public Map<String, Object> issuance(@Nullable Integer topCustomers) {
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("total", issuanceStatistics.total());
+        report.put("lanes", issuanceStatistics.byLane());
+        report.put("topCustomers", issuanceStatistics.topCustomers(topCustomers != null ? topCustomers : DEFAULT_TOP_CUSTOMERS));
+        return report;
+    }
+
+    @ReadOperation
+    public Object customer(@Selector UUID customerId) {
+        return issuanceStatistics.forCustomer(customerId);
+    }
+}
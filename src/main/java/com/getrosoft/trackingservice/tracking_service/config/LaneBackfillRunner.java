@@ -0,0 +1,124 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import com.getrosoft.trackingservice.tracking_service.utils.CountryCodeRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Backfills the lane ID of tracking numbers written before rows stored one, e.g.
+ * <pre>
+ *     java -jar tracking-service.jar --spring.main.web-application-type=none \
+ *          --tracking.reference.backfill-lanes=true
+ * </pre>
+ * The middle step of the lane migration: the running release writes both the country columns and
+ * the lane ID and reads either, so this runs while the service is serving traffic, once no instance
+ * of an earlier release is still writing rows without a lane ID. The table is walked in primary key
+ * order, one range of rows per statement, so every read and update uses the primary key index and
+ * no statement holds row locks for long. Re-running only touches rows still without a lane ID.
+ * <p>
+ * Rows whose codes the registry does not know get {@link CountryCodeRegistry#UNKNOWN_LANE} and are
+ * listed; they keep reading their stored codes. The country columns are dropped by a later release
+ * once a run reports no such rows.
+ */
+@Component
+@ConditionalOnProperty(name = "tracking.reference.backfill-lanes", havingValue = "true")
+public class LaneBackfillRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(LaneBackfillRunner.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConfigurableApplicationContext context;
+    private final int batchSize;
+    private final boolean exitWhenDone;
+
+    public LaneBackfillRunner(JdbcTemplate jdbcTemplate, ConfigurableApplicationContext context,
+                              @Value("${tracking.reference.backfill-batch-size:10000}") int batchSize,
+                              @Value("${tracking.reference.exit-when-done:true}") boolean exitWhenDone) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.context = context;
+        this.batchSize = batchSize;
+        this.exitWhenDone = exitWhenDone;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode = 0;
+        try {
+            exitCode = this.backfill() ? 0 : 1;
+        } catch (DataAccessException e) {
+            logger.error("Lane backfill failed: {}", e.getMessage(), e);
+            exitCode = 1;
+        }
+
+        if (exitWhenDone) {
+            final int status = exitCode;
+            System.exit(SpringApplication.exit(context, () -> status));
+        }
+    }
+
+    /**
+     * @return whether every row now has the lane ID of a known lane
+     */
+    boolean backfill() {
+        String lastTrackingNumber = "";
+        long scanned = 0;
+        long updated = 0;
+        long unknown = 0;
+        List<Map<String, Object>> rows;
+        do {
+            rows = jdbcTemplate.queryForList("select tracking_number, origin_country_id, destination_country_id, lane_id"
+                    + " from tracking_number where tracking_number > ? order by tracking_number limit " + batchSize,
+                    lastTrackingNumber);
+            final List<Object[]> updates = new ArrayList<>();
+            for (Map<String, Object> row : rows) {
+                final String trackingNumber = (String) row.get("tracking_number");
+                final Number storedLaneId = (Number) row.get("lane_id");
+                if (storedLaneId != null) {
+                    unknown += storedLaneId.intValue() == CountryCodeRegistry.UNKNOWN_LANE ? 1 : 0;
+                    continue;
+                }
+                final String origin = (String) row.get("origin_country_id");
+                final String destination = (String) row.get("destination_country_id");
+                final int laneId;
+                if (CountryCodeRegistry.isKnown(origin) && CountryCodeRegistry.isKnown(destination)) {
+                    laneId = CountryCodeRegistry.laneId(origin, destination);
+                } else {
+                    logger.warn("Tracking number {} has an unknown lane {}-{}; it keeps its stored codes",
+                            trackingNumber, origin, destination);
+                    laneId = CountryCodeRegistry.UNKNOWN_LANE;
+                    unknown++;
+                }
+                updates.add(new Object[]{laneId, trackingNumber});
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate("update tracking_number set lane_id = ? where tracking_number = ? and lane_id is null",
+                        updates);
+                updated += updates.size();
+            }
+            scanned += rows.size();
+            if (!rows.isEmpty()) {
+                lastTrackingNumber = (String) rows.get(rows.size() - 1).get("tracking_number");
+            }
+        } while (rows.size() == batchSize);
+        logger.info("Backfilled lane IDs of {} of {} rows", updated, scanned);
+
+        if (unknown > 0) {
+            logger.error("{} rows have unknown country codes; keep the country columns until they are fixed", unknown);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,48 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which successful requests get an INFO log line. Each endpoint logs roughly one in
+ * {@code tracking.logging.success-sample-rate.<endpoint>} successes, falling back to
+ * {@code tracking.logging.success-sample-rate}; a rate of 1 logs every request. Errors are never
+ * sampled. Sampling uses a thread-local random draw so the hot path shares no counter.
+ */
+@Component
+public class LogSampler {
+
+    private final Environment environment;
+    private final int defaultRate;
+
+    public LogSampler(Environment environment,
+                      @Value("${tracking.logging.success-sample-rate:1}") int defaultRate) {
+        this.environment = environment;
+        this.defaultRate = Math.max(1, defaultRate);
+    }
+
+    public Sampler forEndpoint(final String endpoint) {
+        final Integer rate = environment.getProperty("tracking.logging.success-sample-rate." + endpoint, Integer.class);
+        return new Sampler(rate != null ? Math.max(1, rate) : defaultRate);
+    }
+
+    public static final class Sampler {
+
+        private final int rate;
+
+        private Sampler(int rate) {
+            this.rate = rate;
+        }
+
+        public boolean shouldLog() {
+            return rate == 1 || ThreadLocalRandom.current().nextInt(rate) == 0;
+        }
+
+        public int getRate() {
+            return rate;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single auto-configured data source with a primary plus read replicas when
+ * {@code tracking.datasource.routing.enabled=true}. Transactions marked read-only (which includes
+ * Spring Data's query methods) read from a replica; everything else uses the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tracking.datasource.routing.enabled", havingValue = "true")
+public class ReadReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        final HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReadReplicaRoutingDataSource readReplicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${tracking.datasource.replicas.urls}") List<String> replicaUrls,
+            @Value("${tracking.datasource.replicas.username:${spring.datasource.username:}}") String username,
+            @Value("${tracking.datasource.replicas.password:${spring.datasource.password:}}") String password,
+            @Value("${tracking.datasource.replicas.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${tracking.datasource.replicas.connection-timeout-ms:1000}") long connectionTimeoutMillis) {
+        final List<DataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            final HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(replicaUrls.get(i).trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setMaximumPoolSize(maximumPoolSize);
+            // Fail over to another replica quickly instead of queueing on a dead one
+            replica.setConnectionTimeout(connectionTimeoutMillis);
+            replica.setInitializationFailTimeout(-1);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        final ReadReplicaRoutingDataSource routingDataSource = new ReadReplicaRoutingDataSource(primaryDataSource, replicas);
+        Gauge.builder("tracking.datasource.replicas.healthy", routingDataSource, ReadReplicaRoutingDataSource::healthyReplicaCount)
+                .register(meterRegistry);
+        return routingDataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadReplicaRoutingDataSource readReplicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readReplicaRoutingDataSource);
+    }
+
+    @Bean
+    public ReplicaHealthCheck replicaHealthCheck(ReadReplicaRoutingDataSource readReplicaRoutingDataSource) {
+        return new ReplicaHealthCheck(readReplicaRoutingDataSource);
+    }
+
+    public static class ReplicaHealthCheck {
+
+        private final ReadReplicaRoutingDataSource routingDataSource;
+
+        ReplicaHealthCheck(ReadReplicaRoutingDataSource routingDataSource) {
+            this.routingDataSource = routingDataSource;
+        }
+
+        @Scheduled(fixedDelayString = "${tracking.datasource.replicas.health-check-interval-ms:5000}")
+        public void checkReplicaHealth() {
+            routingDataSource.checkReplicaHealth();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections for read-only transactions to a pool of replicas and everything else to the
+ * primary.
+ * <p>
+ * Replicas are used round-robin. A replica that fails to hand out a connection is marked down and
+ * skipped until {@link #checkReplicaHealth()} sees it answer again; when no replica is usable the
+ * read falls back to the primary. Must be wrapped in a lazy connection proxy so the read-only flag
+ * of the transaction is known by the time a connection is requested.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReplicaRoutingDataSource.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReadReplicaRoutingDataSource(final DataSource primary, final List<DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + i, replicas.get(i)));
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return this.connect(null, null);
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        return this.connect(username, password);
+    }
+
+    public void checkReplicaHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    replica.markUp();
+                } else {
+                    replica.markDown("connection failed validation");
+                }
+            } catch (SQLException e) {
+                replica.markDown(e.getMessage());
+            }
+        }
+    }
+
+    public int healthyReplicaCount() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    // The primary is owned by the caller; only the replica pools are closed here
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            closeIfPossible(replica.dataSource);
+        }
+    }
+
+    private Connection connect(final String username, final String password) throws SQLException {
+        if (!replicas.isEmpty() && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !DataSourceRouting.isPrimaryForced()) {
+            final int size = replicas.size();
+            final int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+            for (int i = 0; i < size; i++) {
+                final Replica replica = replicas.get((start + i) % size);
+                if (!replica.healthy) {
+                    continue;
+                }
+                try {
+                    return open(replica.dataSource, username, password);
+                } catch (SQLException e) {
+                    replica.markDown(e.getMessage());
+                }
+            }
+        }
+        return open(primary, username, password);
+    }
+
+    private static Connection open(final DataSource dataSource, final String username, final String password) throws SQLException {
+        return username == null ? dataSource.getConnection() : dataSource.getConnection(username, password);
+    }
+
+    private static void closeIfPossible(final DataSource dataSource) throws Exception {
+        if (dataSource instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(final String name, final DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private void markDown(final String reason) {
+            if (healthy) {
+                logger.warn("Read replica {} marked down: {}", name, reason);
+            }
+            healthy = false;
+        }
+
+        private void markUp() {
+            if (!healthy) {
+                logger.info("Read replica {} is healthy again", name);
+            }
+            healthy = true;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers tracking numbers created by this instance for a short window so that reading them
+ * back is pinned to the primary instead of a replica that may not have caught up yet.
+ * Only active when replica routing is enabled.
+ */
+@Component
+public class ReadYourWritesWindow {
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+
+    public ReadYourWritesWindow(@Value("${tracking.datasource.routing.enabled:false}") boolean enabled,
+                                @Value("${tracking.datasource.read-your-writes-window-ms:2000}") long windowMillis) {
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+
+    public void recordWrite(final String key) {
+        if (enabled) {
+            recentWrites.put(key, System.nanoTime() + windowNanos);
+        }
+    }
+
+    public boolean isRecentlyWritten(final String key) {
+        if (!enabled) {
+            return false;
+        }
+        final Long expiresAt = recentWrites.get(key);
+        return expiresAt != null && expiresAt - System.nanoTime() > 0;
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.datasource.read-your-writes-window-ms:2000}")
+    public void evictExpired() {
+        if (recentWrites.isEmpty()) {
+            return;
+        }
+        final long now = System.nanoTime();
+        recentWrites.values().removeIf(expiresAt -> expiresAt - now <= 0);
+    }
+}
@@ -0,0 +1,35 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import com.getrosoft.trackingservice.tracking_service.service.TrackingCapacityPlanner;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the capacity planner's per-segment projections at {@code /actuator/trackingcapacity}.
+ */
+@Component
+@Endpoint(id = "trackingcapacity")
+public class TrackingCapacityEndpoint {
+
+    private static final int DEFAULT_LIMIT = 50;
+
+    private final TrackingCapacityPlanner capacityPlanner;
+
+    public TrackingCapacityEndpoint(TrackingCapacityPlanner capacityPlanner) {
+        this.capacityPlanner = capacityPlanner;
+    }
+
+    @ReadOperation
+    public Map<String, Object> capacity(@Nullable Integer limit) {
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("trackedSegments", capacityPlanner.trackedSegmentCount());
+        report.put("segmentsOverThreshold", capacityPlanner.segmentsOverThresholdCount());
+        report.put("segments", capacityPlanner.projections(limit != null ? limit : DEFAULT_LIMIT));
+        return report;
+    }
+}
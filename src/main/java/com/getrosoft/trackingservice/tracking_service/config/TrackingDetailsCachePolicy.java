@@ -0,0 +1,37 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import com.getrosoft.trackingservice.tracking_service.payload.Status;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long browsers and CDNs may reuse a tracking-details response without revalidating, by
+ * shipment status. Delivered and failed shipments no longer change; shipments in flight are
+ * revalidated often so new scans show up quickly.
+ */
+@Component
+public class TrackingDetailsCachePolicy {
+
+    private final CacheControl finalStatus;
+    private final CacheControl inTransit;
+    private final CacheControl pending;
+
+    public TrackingDetailsCachePolicy(@Value("${tracking.http.cache.final-max-age-seconds:86400}") long finalMaxAgeSeconds,
+                                      @Value("${tracking.http.cache.in-transit-max-age-seconds:60}") long inTransitMaxAgeSeconds,
+                                      @Value("${tracking.http.cache.pending-max-age-seconds:30}") long pendingMaxAgeSeconds) {
+        this.finalStatus = CacheControl.maxAge(finalMaxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+        this.inTransit = CacheControl.maxAge(inTransitMaxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+        this.pending = CacheControl.maxAge(pendingMaxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+    }
+
+    public CacheControl cacheControlFor(final Status status) {
+        return switch (status) {
+            case DELIVERED, FAILED -> finalStatus;
+            case PENDING -> pending;
+            default -> inTransit;
+        };
+    }
+}
@@ -0,0 +1,177 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import com.getrosoft.trackingservice.tracking_service.payload.CapturedRequest;
+import com.getrosoft.trackingservice.tracking_service.utils.TrafficCaptureWriter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Captures tracking number requests (parameters, latency and response status) to a binary file in
+ * {@code tracking.capture.directory} for replay with {@link TrafficReplayRunner}. Off unless
+ * {@code tracking.capture.enabled=true}.
+ * <p>
+ * A request costs a sampling draw, a few parameter reads and a non-blocking enqueue; the file is
+ * written by a background thread and records are dropped rather than delaying requests. For the
+ * asynchronous controller methods the record is taken when the async request completes, so the
+ * latency and status are what the client saw. An async request that timed out or failed without an
+ * error status is recorded as 503 or 500. Latency is server-side, from this filter to the completed
+ * response; it excludes the network and any queueing in front of the server.
+ */
+@Component
+@ConditionalOnProperty(name = "tracking.capture.enabled", havingValue = "true")
+public class TrafficCaptureFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficCaptureFilter.class);
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final TrafficCaptureWriter writer;
+    private final double sampleRate;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public TrafficCaptureFilter(MeterRegistry meterRegistry,
+                                @Value("${tracking.capture.directory}") String directory,
+                                @Value("${tracking.capture.sample-rate:1.0}") double sampleRate,
+                                @Value("${tracking.capture.buffer-capacity:65536}") int bufferCapacity,
+                                @Value("${tracking.capture.max-file-mb:512}") long maxFileMb) throws IOException {
+        final Path captureDirectory = Paths.get(directory);
+        Files.createDirectories(captureDirectory);
+        final Path file = captureDirectory.resolve(
+                "capture-" + LocalDateTime.now(ZoneOffset.UTC).format(FILE_TIMESTAMP) + "-" + ProcessHandle.current().pid() + ".bin");
+        this.writer = new TrafficCaptureWriter(file, bufferCapacity, maxFileMb * 1024 * 1024);
+        this.sampleRate = sampleRate;
+
+        FunctionCounter.builder("tracking.capture.recorded", writer, TrafficCaptureWriter::getWritten)
+                .description("Requests written to the traffic capture file")
+                .register(meterRegistry);
+        FunctionCounter.builder("tracking.capture.dropped", writer, TrafficCaptureWriter::getDropped)
+                .description("Sampled requests not captured because the writer was behind or the file was full")
+                .register(meterRegistry);
+        logger.info("Capturing {} of tracking requests to {}", sampleRate, file);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        final CapturedRequest.Endpoint endpoint = endpointOf(request);
+        return endpoint == null || !endpoint.getMethod().equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        final CapturedRequest.Endpoint endpoint = endpointOf(request);
+        final List<String> names = endpoint.getParameterNames();
+        final String[] parameters = new String[names.size()];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = request.getParameter(names.get(i));
+        }
+        final long startedAt = System.nanoTime();
+
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, response);
+            completed = true;
+        } finally {
+            if (completed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CaptureListener(endpoint, startedAt, response, parameters));
+            } else {
+                // An exception escaping the chain becomes a 500 in the container
+                this.record(endpoint, startedAt, completed ? response.getStatus() : HttpServletResponse.SC_INTERNAL_SERVER_ERROR, parameters);
+            }
+        }
+    }
+
+    private void record(final CapturedRequest.Endpoint endpoint, final long startedAt, final int status, final String[] parameters) {
+        final long finishedAt = System.nanoTime();
+        writer.offer(new CapturedRequest(endpoint, writer.offsetMicros(startedAt),
+                TimeUnit.NANOSECONDS.toMicros(finishedAt - startedAt), status, parameters));
+    }
+
+    // The container calls onComplete after onTimeout or onError too, so that is where the record is taken
+    private final class CaptureListener implements AsyncListener {
+
+        private final CapturedRequest.Endpoint endpoint;
+        private final long startedAt;
+        private final HttpServletResponse response;
+        private final String[] parameters;
+        private volatile int failureStatus;
+
+        private CaptureListener(CapturedRequest.Endpoint endpoint, long startedAt, HttpServletResponse response,
+                                String[] parameters) {
+            this.endpoint = endpoint;
+            this.startedAt = startedAt;
+            this.response = response;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            final int status = response.getStatus();
+            // Error handling usually sets a status; if it did not, the client saw the failure, not a 200
+            record(endpoint, startedAt, failureStatus != 0 && status < 400 ? failureStatus : status, parameters);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failureStatus = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failureStatus = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // A re-dispatch that starts async again must keep its listener
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    private static CapturedRequest.Endpoint endpointOf(final HttpServletRequest request) {
+        return CapturedRequest.Endpoint.forPath(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    // Called by both the servlet container and Spring
+    @Override
+    public void destroy() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.error("Failed to close traffic capture {}: {}", writer.getFile(), e.getMessage());
+        }
+        logger.info("Traffic capture {} closed: {} requests recorded, {} dropped",
+                writer.getFile(), writer.getWritten(), writer.getDropped());
+    }
+}
@@ -0,0 +1,112 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import com.getrosoft.trackingservice.tracking_service.payload.ReplayReport;
+import com.getrosoft.trackingservice.tracking_service.utils.TrafficCaptureFormat;
+import com.getrosoft.trackingservice.tracking_service.utils.TrafficReplayer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Command-line replay of a traffic capture against a running instance, e.g.
+ * <pre>
+ *     java -jar tracking-service.jar --spring.main.web-application-type=none \
+ *          --tracking.replay.file=capture.bin --tracking.replay.target=http://localhost:8080 \
+ *          [--tracking.replay.speed=10] [--tracking.replay.output=build-a.bin]
+ * </pre>
+ * Logs latency percentiles and status counts per endpoint next to those recorded in the capture.
+ * A capture file holds server-side latency, so the replay's latency from sending is logged as well;
+ * see {@link TrafficReplayer}. The outcomes can be saved as a capture file themselves; replaying that
+ * file against another build compares the two builds on identical, client-side timings.
+ */
+@Component
+@ConditionalOnProperty("tracking.replay.file")
+public class TrafficReplayRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficReplayRunner.class);
+
+    private final ConfigurableApplicationContext context;
+    private final Path file;
+    private final URI target;
+    private final double speed;
+    private final int maxInFlight;
+    private final Duration requestTimeout;
+    private final String output;
+    private final boolean exitWhenDone;
+
+    public TrafficReplayRunner(ConfigurableApplicationContext context,
+                               @Value("${tracking.replay.file}") String file,
+                               @Value("${tracking.replay.target:http://localhost:8080}") String target,
+                               @Value("${tracking.replay.speed:1.0}") double speed,
+                               @Value("${tracking.replay.max-in-flight:256}") int maxInFlight,
+                               @Value("${tracking.replay.timeout-ms:10000}") long timeoutMillis,
+                               @Value("${tracking.replay.output:}") String output,
+                               @Value("${tracking.replay.exit-when-done:true}") boolean exitWhenDone) {
+        this.context = context;
+        this.file = Paths.get(file);
+        this.target = URI.create(target);
+        this.speed = speed;
+        this.maxInFlight = maxInFlight;
+        this.requestTimeout = Duration.ofMillis(timeoutMillis);
+        this.output = output;
+        this.exitWhenDone = exitWhenDone;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        final TrafficCaptureFormat.Capture capture = TrafficCaptureFormat.read(file);
+        logger.info("Replaying {} requests from {} against {} at {}x", capture.requests().size(), file, target, speed);
+
+        final HttpClient client = HttpClient.newBuilder().connectTimeout(requestTimeout).build();
+        final TrafficReplayer.Replay replay = new TrafficReplayer(client, target, speed, maxInFlight, requestTimeout)
+                .replay(capture.requests());
+        final ReplayReport report = replay.report();
+        logger.info("Replayed {} requests in {} s, {} without a response",
+                report.getRequests(), String.format("%.1f", report.getDurationSeconds()), report.getTransportErrors());
+        long missingOnTarget = 0;
+        for (ReplayReport.EndpointComparison endpoint : report.getEndpoints()) {
+            final ReplayReport.LatencySummary baseline = endpoint.getBaselineLatency();
+            final ReplayReport.LatencySummary due = endpoint.getReplayLatency();
+            final ReplayReport.LatencySummary sent = endpoint.getReplayResponseLatency();
+            logger.info("{}: {} requests, latency ms baseline/replay from due/replay from sent "
+                            + "p50 {}/{}/{} p90 {}/{}/{} p99 {}/{}/{} max {}/{}/{}",
+                    endpoint.getEndpoint().getPath(), endpoint.getRequests(),
+                    millis(baseline.p50Micros()), millis(due.p50Micros()), millis(sent.p50Micros()),
+                    millis(baseline.p90Micros()), millis(due.p90Micros()), millis(sent.p90Micros()),
+                    millis(baseline.p99Micros()), millis(due.p99Micros()), millis(sent.p99Micros()),
+                    millis(baseline.maxMicros()), millis(due.maxMicros()), millis(sent.maxMicros()));
+            logger.info("{}: statuses baseline {} replay {}, changed {}, missing on target {}", endpoint.getEndpoint().getPath(),
+                    endpoint.getBaselineStatuses(), endpoint.getReplayStatuses(), endpoint.getChangedOutcomes(),
+                    endpoint.getMissingOnTarget());
+            missingOnTarget += endpoint.getMissingOnTarget();
+        }
+        if (missingOnTarget > 0) {
+            logger.warn("{} captured tracking numbers are not on {}; load them with a bulk import to compare their lookups",
+                    missingOnTarget, target);
+        }
+
+        if (!output.isBlank()) {
+            TrafficCaptureFormat.write(Paths.get(output), System.currentTimeMillis(), replay.outcomes());
+            logger.info("Replay outcomes written to {}", output);
+        }
+        if (exitWhenDone) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+
+    private static String millis(final long micros) {
+        return String.format("%.1f", micros / 1000.0);
+    }
+}
@@ -0,0 +1,79 @@
+package com.getrosoft.trackingservice.tracking_service.controller;
+
+import com.getrosoft.trackingservice.tracking_service.dto.TrackingEventDto;
+import com.getrosoft.trackingservice.tracking_service.exceptions.EventBufferFullException;
+import com.getrosoft.trackingservice.tracking_service.payload.EventIngestionResponse;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingEventService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@Validated
+@RequestMapping("/v1/api/tracking-events")
+@Tag(name = "Tracking Event Service", description = "APIs for ingesting carrier scan events")
+public class TrackingEventController {
+
+    private static final int MAX_BATCH_SIZE = 10_000;
+    // Thrown for every batch while ingestion is behind, so built once
+    private static final EventBufferFullException BUFFER_FULL = new EventBufferFullException("Tracking event buffer is full, retry later");
+
+    private final TrackingEventService service;
+
+    public TrackingEventController(TrackingEventService service) {
+        this.service = service;
+    }
+
+    @Operation(summary = "Ingest a scan event", description = "Queues a single carrier scan event for persistence.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Event accepted",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = EventIngestionResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid event", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Ingestion buffer full, retry later", content = @Content)
+    })
+    @PostMapping
+    public ResponseEntity<EventIngestionResponse> ingestEvent(@Valid @RequestBody TrackingEventDto event) {
+        return this.accept(List.of(event));
+    }
+
+    @Operation(summary = "Ingest a batch of scan events",
+            description = "Queues scan events in order. When the buffer fills up part way, the accepted prefix is kept and the remainder is reported as rejected.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Events accepted, possibly partially",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = EventIngestionResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid events", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Ingestion buffer full, retry later", content = @Content)
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<EventIngestionResponse> ingestEvents(
+            @RequestBody
+            @NotEmpty(message = "Event batch must not be empty")
+            @Size(max = MAX_BATCH_SIZE, message = "Event batch must contain at most 10000 events")
+            List<@Valid TrackingEventDto> events) {
+        return this.accept(events);
+    }
+
+    private ResponseEntity<EventIngestionResponse> accept(final List<TrackingEventDto> events) {
+        final int accepted = service.ingest(events);
+        if (accepted == 0) {
+            throw BUFFER_FULL;
+        }
+        return ResponseEntity.accepted().body(new EventIngestionResponse(accepted, events.size() - accepted));
+    }
+}
@@ -0,0 +1,74 @@
+package com.getrosoft.trackingservice.tracking_service.controller;
+
+import com.getrosoft.trackingservice.tracking_service.payload.ImportFormat;
+import com.getrosoft.trackingservice.tracking_service.payload.ImportReport;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/v1/api/imports")
+@Tag(name = "Tracking Import Service", description = "APIs for bulk importing existing tracking numbers")
+public class TrackingImportController {
+
+    private final TrackingImportService service;
+
+    public TrackingImportController(TrackingImportService service) {
+        this.service = service;
+    }
+
+    @Operation(summary = "Bulk import tracking numbers",
+            description = "Streams CSV (text/csv, with a header row) or NDJSON (application/x-ndjson) records into the database. "
+                    + "Repeating a failed job with the same job ID and input resumes after the last committed line.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportReport.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid job ID or job already running", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Import failed; see the report for the checkpoint",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportReport.class)))
+    })
+    @PostMapping(consumes = {"text/csv", "application/x-ndjson", "application/octet-stream"})
+    public ResponseEntity<ImportReport> importTrackingNumbers(
+            @Parameter(description = "Identifies the import for progress and resume", example = "carrier-x-2024", required = true)
+            @RequestParam String jobId,
+            @Parameter(description = "Input format; defaults to the request content type")
+            @RequestParam(required = false) ImportFormat format,
+            @Parameter(description = "Accept numbers in other carriers' formats (up to 64 letters, digits or '-'); "
+                    + "they are stored but cannot be looked up by tracking ID")
+            @RequestParam(defaultValue = "false") boolean allowForeignIds,
+            HttpServletRequest request) throws IOException {
+
+        final ImportReport report = service.importTrackingNumbers(jobId, request.getInputStream(),
+                format != null ? format : ImportFormat.fromContentType(request.getContentType()), allowForeignIds);
+        final HttpStatus status = report.getState() == ImportReport.ImportState.COMPLETED ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR;
+        return ResponseEntity.status(status).body(report);
+    }
+
+    @Operation(summary = "Import progress", description = "Progress of a running or recently finished import job.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Job found",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportReport.class))),
+            @ApiResponse(responseCode = "404", description = "Unknown job", content = @Content)
+    })
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ImportReport> getProgress(@PathVariable String jobId) {
+        final ImportReport report = service.getProgress(jobId);
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.notFound().build();
+    }
+}
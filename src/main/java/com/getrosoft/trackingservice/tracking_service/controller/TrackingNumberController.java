@@ -1,10 +1,22 @@
 package com.getrosoft.trackingservice.tracking_service.controller;
 
+import com.getrosoft.trackingservice.tracking_service.config.LogSampler;
+import com.getrosoft.trackingservice.tracking_service.config.TrackingDetailsCachePolicy;
+import com.getrosoft.trackingservice.tracking_service.dto.DeliveryEstimate;
+import com.getrosoft.trackingservice.tracking_service.dto.LatestTrackingStatus;
 import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
-import com.getrosoft.trackingservice.tracking_service.payload.Priority;
+import com.getrosoft.trackingservice.tracking_service.exceptions.InvalidInputException;
+import com.getrosoft.trackingservice.tracking_service.exceptions.ServiceUnavailableException;
+import com.getrosoft.trackingservice.tracking_service.exceptions.TrackingIdNotFoundException;
+import com.getrosoft.trackingservice.tracking_service.payload.DecodedTrackingNumber;
 import com.getrosoft.trackingservice.tracking_service.payload.Status;
 import com.getrosoft.trackingservice.tracking_service.payload.TrackingResponse;
+import com.getrosoft.trackingservice.tracking_service.service.DeliveryEstimateService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingEventService;
 import com.getrosoft.trackingservice.tracking_service.service.TrackingNumberService;
+import com.getrosoft.trackingservice.tracking_service.utils.Bulkhead;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingNumberFormat;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingStageEvent;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.Operation;
@@ -16,16 +28,27 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,9 +61,32 @@ public class TrackingNumberController {
     private static final Logger logger = LoggerFactory.getLogger(TrackingNumberController.class);
 
     private final TrackingNumberService service;
+    private final DeliveryEstimateService deliveryEstimateService;
+    private final TrackingEventService trackingEventService;
+    private final LogSampler.Sampler createLogSampler;
+    private final LogSampler.Sampler lookupLogSampler;
+    private final TrackingDetailsCachePolicy cachePolicy;
+    // Creates and lookups run on separate pools so a create burst cannot delay lookups
+    private final Bulkhead createBulkhead;
+    private final Bulkhead lookupBulkhead;
+    private final ServiceUnavailableException createRejected;
+    private final ServiceUnavailableException lookupRejected;
 
-    public TrackingNumberController(TrackingNumberService service) {
+    public TrackingNumberController(TrackingNumberService service, DeliveryEstimateService deliveryEstimateService,
+                                    TrackingEventService trackingEventService, LogSampler logSampler,
+                                    TrackingDetailsCachePolicy cachePolicy, Bulkhead createBulkhead,
+                                    Bulkhead lookupBulkhead) {
         this.service = service;
+        this.deliveryEstimateService = deliveryEstimateService;
+        this.trackingEventService = trackingEventService;
+        this.cachePolicy = cachePolicy;
+        this.createBulkhead = createBulkhead;
+        this.lookupBulkhead = lookupBulkhead;
+        // Thrown on every rejection during an overload, so built once
+        this.createRejected = new ServiceUnavailableException("Too many " + createBulkhead.getName() + " requests in progress");
+        this.lookupRejected = new ServiceUnavailableException("Too many " + lookupBulkhead.getName() + " requests in progress");
+        this.createLogSampler = logSampler.forEndpoint("next-tracking-number");
+        this.lookupLogSampler = logSampler.forEndpoint("tracking-details");
     }
 
     @Operation(summary = "Generate a new tracking number", description = "Creates a new tracking number based on the provided details.")
@@ -49,7 +95,8 @@ public class TrackingNumberController {
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = TrackingResponse.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input parameters", content = @Content),
-            @ApiResponse(responseCode = "500", description = "Server error", content = @Content)
+            @ApiResponse(responseCode = "500", description = "Server error", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Too many creates in progress; retry after the Retry-After delay", content = @Content)
     })
     @GetMapping("/next-tracking-number")
     public CompletableFuture<ResponseEntity<TrackingResponse>> getNextTrackingNumberAsync(
@@ -69,77 +116,214 @@ public class TrackingNumberController {
             @Parameter(description = "Customer slug", example = "example-customer", required = true)
             @RequestParam String customerSlug) {
 
-        logger.info("Received request to generate tracking number with originCountryId={}, destinationCountryId={}, weight={}, customerId={}, customerSlug={}",
-                originCountryId, destinationCountryId, weight, customerId, customerSlug);
-
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // Map incoming request parameters to TrackingNumberDto
-                final TrackingNumberDto requestDto = TrackingNumberDto.builder()
-                        .originCountryId(originCountryId)
-                        .destinationCountryId(destinationCountryId)
-                        .weight(weight)
-                        .customerId(customerId)
-                        .customerSlug(customerSlug)
-                        .build();
-
-                // Call the service layer
-                TrackingNumberDto trackingNumberDto = this.service.createTrackingNumber(requestDto);
-
-                // Build response
-                TrackingResponse response = TrackingResponse.builder()
-                        .trackingNumber(trackingNumberDto.getTrackingNumber())
-                        .createdAt(trackingNumberDto.getCreatedAt())
-                        .status(Status.SUCCESS) // Set status
-                        .estimatedDelivery(LocalDate.now().plusDays(3)) // Calculate estimated delivery
-                        .priority(Priority.STANDARD) // Set priority
-                        .build();
-
-                logger.info("Successfully generated tracking number: {}", response.getTrackingNumber());
-                return ResponseEntity.ok(response);
-            } catch (Exception e) {
-                logger.error("Error generating tracking number", e);
-                throw e; // Global exception handler will catch this
+        return submit(createBulkhead, createRejected, () -> {
+            // Map incoming request parameters to TrackingNumberDto
+            final TrackingNumberDto requestDto = TrackingNumberDto.builder()
+                    .originCountryId(originCountryId)
+                    .destinationCountryId(destinationCountryId)
+                    .weight(weight)
+                    .customerId(customerId)
+                    .customerSlug(customerSlug)
+                    .build();
+
+            // Call the service layer
+            TrackingNumberDto trackingNumberDto = this.service.createTrackingNumber(requestDto);
+
+            // Build response
+            final TrackingStageEvent responseBuild = TrackingStageEvent.start();
+            final DeliveryEstimate estimate = this.estimateFor(trackingNumberDto);
+            TrackingResponse response = TrackingResponse.builder()
+                    .trackingNumber(trackingNumberDto.getTrackingNumber())
+                    .createdAt(trackingNumberDto.getCreatedAt())
+                    .status(Status.SUCCESS) // Set status
+                    .estimatedDelivery(estimatedDeliveryDate(trackingNumberDto, estimate))
+                    .priority(estimate.getPriority())
+                    .build();
+            responseBuild.finish(TrackingStageEvent.RESPONSE_BUILD, response.getTrackingNumber(),
+                    originCountryId, destinationCountryId);
+
+            if (createLogSampler.shouldLog()) {
+                logger.atInfo().setMessage("Generated tracking number")
+                        .addKeyValue("trackingNumber", response.getTrackingNumber())
+                        .addKeyValue("origin", originCountryId)
+                        .addKeyValue("destination", destinationCountryId)
+                        .addKeyValue("customerId", customerId)
+                        .addKeyValue("sampleRate", createLogSampler.getRate())
+                        .log();
             }
+            return ResponseEntity.ok(response);
         });
     }
 
-    @Operation(summary = "Fetch tracking details", description = "Retrieve tracking details for a specific tracking ID.")
+    @Operation(summary = "Fetch tracking details", description = "Retrieve tracking details for a specific tracking ID. "
+            + "Responses carry an ETag; send it back in If-None-Match to get a 304 while nothing has changed.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Tracking details fetched successfully",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = TrackingResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Tracking details unchanged since the given ETag", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Malformed tracking ID or failed check character", content = @Content),
             @ApiResponse(responseCode = "404", description = "Tracking ID not found", content = @Content),
-            @ApiResponse(responseCode = "500", description = "Server error", content = @Content)
+            @ApiResponse(responseCode = "500", description = "Server error", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Too many lookups in progress; retry after the Retry-After delay", content = @Content)
     })
     @GetMapping("/tracking-details")
     public CompletableFuture<ResponseEntity<TrackingResponse>> getTrackingDetailsAsync(
-            @Parameter(description = "Tracking ID to fetch details", example = "TR123456789", required = true)
-            @RequestParam String trackingId) {
+            @Parameter(description = "Tracking ID to fetch details", example = "USIN5555D715O0Z91J", required = true)
+            @RequestParam String trackingId,
+            @Parameter(description = "ETag of a previously fetched response")
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        // Typos, scanner noise and guessed IDs are turned away before any cache or database access
+        requireWellFormed(trackingId);
+        return submit(lookupBulkhead, lookupRejected, () -> {
+            // Shipments without any recorded scan are reported as in transit
+            final LatestTrackingStatus latestStatus = trackingEventService.getLatestStatus(trackingId);
+            final Status status = latestStatus != null ? latestStatus.getStatus() : Status.IN_TRANSIT;
+            // Read before the estimate, so a publish in between can only make the body newer than its tag
+            final long estimatesVersion = deliveryEstimateService.publishedVersion();
+
+            // A conditional request is answered from the creation time alone, before the record is loaded
+            // and mapped; an unknown ID is a 404 whatever If-None-Match says
+            if (ifNoneMatch != null && !ifNoneMatch.isBlank()) {
+                final Instant createdAt = service.findCreatedAt(trackingId)
+                        .orElseThrow(() -> new TrackingIdNotFoundException("Tracking details not found for ID: " + trackingId));
+                final String eTag = trackingDetailsETag(trackingId, createdAt, status, estimatesVersion);
+                if (eTagMatches(ifNoneMatch, eTag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                            .eTag(eTag)
+                            .cacheControl(cachePolicy.cacheControlFor(status))
+                            .<TrackingResponse>build();
+                }
+            }
+
+            // Fetch tracking details from the service layer
+            TrackingNumberDto trackingNumberDto = service.getTrackingDetails(trackingId);
+
+            // Build response
+            final TrackingStageEvent responseBuild = TrackingStageEvent.start();
+            final DeliveryEstimate estimate = this.estimateFor(trackingNumberDto);
+            TrackingResponse response = TrackingResponse.builder()
+                    .trackingNumber(trackingNumberDto.getTrackingNumber())
+                    .createdAt(trackingNumberDto.getCreatedAt())
+                    .status(status)
+                    .estimatedDelivery(estimatedDeliveryDate(trackingNumberDto, estimate))
+                    .priority(estimate.getPriority())
+                    .build();
+            responseBuild.finish(TrackingStageEvent.RESPONSE_BUILD, trackingId,
+                    trackingNumberDto.getOriginCountryId(), trackingNumberDto.getDestinationCountryId());
 
-        logger.info("Received request to fetch tracking details for trackingId={}", trackingId);
-
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // Fetch tracking details from the service layer
-                TrackingNumberDto trackingNumberDto = service.getTrackingDetails(trackingId);
-
-                // Build response
-                TrackingResponse response = TrackingResponse.builder()
-                        .trackingNumber(trackingNumberDto.getTrackingNumber())
-                        .createdAt(trackingNumberDto.getCreatedAt())
-                        .status(Status.IN_TRANSIT) // Set status
-                        .estimatedDelivery(LocalDate.now().plusDays(3)) // Placeholder: replace with actual logic if needed
-                        .priority(Priority.STANDARD) // Placeholder: replace with actual logic if needed
-                        .build();
-
-                logger.info("Successfully fetched tracking details for trackingId={}", trackingId);
-                return ResponseEntity.ok(response);
-            } catch (Exception e) {
-                logger.error("Error fetching tracking details for trackingId={}", trackingId, e);
-                throw e; // Global exception handler will catch this
+            final String eTag = trackingDetailsETag(trackingId, trackingNumberDto.getCreatedAt(), status, estimatesVersion);
+
+            if (lookupLogSampler.shouldLog()) {
+                logger.atInfo().setMessage("Fetched tracking details")
+                        .addKeyValue("trackingId", trackingId)
+                        .addKeyValue("status", response.getStatus())
+                        .addKeyValue("sampleRate", lookupLogSampler.getRate())
+                        .log();
             }
+            return ResponseEntity.ok()
+                    .eTag(eTag)
+                    .cacheControl(cachePolicy.cacheControlFor(status))
+                    .body(response);
         });
     }
 
+    @Operation(summary = "Record a delivery", description = "Records the delivery of a shipment so its transit time feeds the lane's delivery estimates.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Delivery recorded", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid delivery time or malformed tracking ID", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Tracking ID not found", content = @Content)
+    })
+    @PostMapping("/deliveries")
+    public ResponseEntity<Void> recordDelivery(
+            @Parameter(description = "Tracking ID of the delivered shipment", example = "USIN5555D715O0Z91J", required = true)
+            @RequestParam String trackingId,
+            @Parameter(description = "Delivery timestamp in ISO-8601 format; defaults to now", example = "2024-12-07T10:00:00Z")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant deliveredAt) {
+
+        requireWellFormed(trackingId);
+        deliveryEstimateService.recordDelivery(trackingId, deliveredAt != null ? deliveredAt : Instant.now());
+        return ResponseEntity.accepted().build();
+    }
+
+    @Operation(summary = "Decode a tracking number", description = "Reads the lane, weight band and creation "
+            + "day out of a self-describing (version 3) tracking number, and the customer prefix and creation minute "
+            + "out of a version 2 one. Works from the string alone, without any lookup, "
+            + "so the response can be cached indefinitely.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tracking number decoded",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = DecodedTrackingNumber.class))),
+            @ApiResponse(responseCode = "400", description = "Malformed tracking ID, or one issued before the self-describing layout", content = @Content)
+    })
+    @GetMapping("/decode")
+    public ResponseEntity<DecodedTrackingNumber> decodeTrackingNumber(
+            @Parameter(description = "Tracking ID to decode", example = "USIN20SEK1LBWLQ23N", required = true)
+            @RequestParam String trackingId) {
+
+        requireWellFormed(trackingId);
+        try {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                    .body(TrackingNumberFormat.decode(trackingId));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputException(e.getMessage(), e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> submit(final Bulkhead bulkhead, final ServiceUnavailableException rejected,
+                                                   final Supplier<T> task) {
+        try {
+            return bulkhead.supplyAsync(task);
+        } catch (RejectedExecutionException e) {
+            throw rejected;
+        }
+    }
+
+    static void requireWellFormed(final String trackingId) {
+        if (!TrackingNumberFormat.isWellFormed(trackingId)) {
+            throw new InvalidInputException("Malformed tracking ID: " + trackingId);
+        }
+    }
+
+    private DeliveryEstimate estimateFor(final TrackingNumberDto trackingNumberDto) {
+        return deliveryEstimateService.estimate(trackingNumberDto.getOriginCountryId(),
+                trackingNumberDto.getDestinationCountryId(), trackingNumberDto.getWeight());
+    }
+
+    // 64-bit FNV-1a over what the response is built from: the record (its number and creation time,
+    // the rest never changes), the latest scan and the published estimates. Instances with the same
+    // statistics give the same response the same tag
+    static String trackingDetailsETag(final String trackingNumber, final Instant createdAt, final Status status,
+                                      final long estimatesVersion) {
+        final String content = trackingNumber + '|' + createdAt + '|' + status + '|' + Long.toHexString(estimatesVersion);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < content.length(); i++) {
+            hash = (hash ^ content.charAt(i)) * 0x100000001b3L;
+        }
+        return "\"" + Long.toUnsignedString(hash, 36) + "\"";
+    }
+
+    // If-None-Match uses the weak comparison, so W/ prefixes are ignored
+    static boolean eTagMatches(final String ifNoneMatch, final String eTag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static LocalDate estimatedDeliveryDate(final TrackingNumberDto trackingNumberDto, final DeliveryEstimate estimate) {
+        final Instant createdAt = trackingNumberDto.getCreatedAt() != null ? trackingNumberDto.getCreatedAt() : Instant.now();
+        return LocalDate.ofInstant(createdAt, ZoneOffset.UTC).plusDays(estimate.getTransitDays());
+    }
 }
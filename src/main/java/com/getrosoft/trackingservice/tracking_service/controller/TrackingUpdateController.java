@@ -0,0 +1,79 @@
+package com.getrosoft.trackingservice.tracking_service.controller;
+
+import com.getrosoft.trackingservice.tracking_service.dto.LatestTrackingStatus;
+import com.getrosoft.trackingservice.tracking_service.exceptions.InvalidInputException;
+import com.getrosoft.trackingservice.tracking_service.payload.TrackingUpdate;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingEventService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingUpdateService;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingNumberFormat;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/v1/api")
+@Tag(name = "Tracking Update Service", description = "Live tracking updates over server-sent events")
+public class TrackingUpdateController {
+
+    private static final int MAX_TRACKING_IDS = 50;
+
+    private final TrackingUpdateService updateService;
+    private final TrackingEventService eventService;
+
+    public TrackingUpdateController(TrackingUpdateService updateService, TrackingEventService eventService) {
+        this.updateService = updateService;
+        this.eventService = eventService;
+    }
+
+    @Operation(summary = "Subscribe to tracking updates",
+            description = "Streams status changes for the given tracking numbers and/or all shipments of a customer as server-sent events. The current status of each listed tracking number is sent first.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream opened", content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)),
+            @ApiResponse(responseCode = "400", description = "No or too many subscription keys, or a malformed tracking ID", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Subscription limit reached", content = @Content)
+    })
+    @GetMapping(path = "/tracking-updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(
+            @Parameter(description = "Tracking numbers to follow (at most 50)", example = "USIN123456789012")
+            @RequestParam(required = false) List<String> trackingIds,
+            @Parameter(description = "Customer whose shipments to follow", example = "550e8400-e29b-41d4-a716-446655440000")
+            @RequestParam(required = false) UUID customerId) {
+
+        final Set<String> trackingNumbers = trackingIds != null ? new LinkedHashSet<>(trackingIds) : Set.of();
+        if (trackingNumbers.isEmpty() && customerId == null) {
+            throw new InvalidInputException("Either trackingIds or customerId must be provided");
+        }
+        if (trackingNumbers.size() > MAX_TRACKING_IDS) {
+            throw new InvalidInputException("At most " + MAX_TRACKING_IDS + " tracking IDs can be followed per subscription");
+        }
+        for (String trackingNumber : trackingNumbers) {
+            if (!TrackingNumberFormat.isWellFormed(trackingNumber)) {
+                throw new InvalidInputException("Malformed tracking ID: " + trackingNumber);
+            }
+        }
+
+        final List<TrackingUpdate> initialUpdates = new ArrayList<>(trackingNumbers.size());
+        for (String trackingNumber : trackingNumbers) {
+            final LatestTrackingStatus latestStatus = eventService.getLatestStatus(trackingNumber);
+            if (latestStatus != null) {
+                initialUpdates.add(new TrackingUpdate(trackingNumber, latestStatus.getStatus(), latestStatus.getEventTime(), null));
+            }
+        }
+        return updateService.subscribe(trackingNumbers, customerId, initialUpdates);
+    }
+}
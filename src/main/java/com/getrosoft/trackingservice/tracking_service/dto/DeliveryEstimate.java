@@ -0,0 +1,15 @@
+package com.getrosoft.trackingservice.tracking_service.dto;
+
+import com.getrosoft.trackingservice.tracking_service.payload.Priority;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class DeliveryEstimate {
+
+    private final int transitDays;
+    private final Priority priority;
+    // Number of recorded deliveries the estimate is based on; 0 means the default was used
+    private final long sampleCount;
+}
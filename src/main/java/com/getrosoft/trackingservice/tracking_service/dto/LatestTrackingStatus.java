@@ -0,0 +1,19 @@
+package com.getrosoft.trackingservice.tracking_service.dto;
+
+import com.getrosoft.trackingservice.tracking_service.payload.Status;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+@Getter
+@AllArgsConstructor
+public class LatestTrackingStatus {
+
+    private final Status status;
+    private final Instant eventTime;
+
+    public boolean isNewerThan(final LatestTrackingStatus other) {
+        return other == null || !eventTime.isBefore(other.eventTime);
+    }
+}
@@ -0,0 +1,37 @@
+package com.getrosoft.trackingservice.tracking_service.dto;
+
+import com.getrosoft.trackingservice.tracking_service.payload.Status;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TrackingEventDto {
+
+    @Schema(description = "Tracking number the scan belongs to", example = "USIN123456789012")
+    @NotBlank(message = "Tracking number cannot be blank")
+    @Size(max = 32, message = "Tracking number must be at most 32 characters long")
+    private String trackingNumber;
+
+    @Schema(description = "Shipment status reported by the scan", example = "IN_TRANSIT")
+    @NotNull(message = "Status is required")
+    private Status status;
+
+    @Schema(description = "Time of the scan at the carrier", example = "2024-12-05T08:30:00Z")
+    @NotNull(message = "Event time is required")
+    private Instant eventTime;
+
+    @Schema(description = "Scan location", example = "Mumbai Hub")
+    @Size(max = 100, message = "Location must be at most 100 characters long")
+    private String location;
+}
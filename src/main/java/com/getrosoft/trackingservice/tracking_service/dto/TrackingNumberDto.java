@@ -1,5 +1,6 @@
 package com.getrosoft.trackingservice.tracking_service.dto;
 
+import com.getrosoft.trackingservice.tracking_service.utils.CountryCode;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -25,11 +26,13 @@ public class TrackingNumberDto {
     @Schema(description = "Origin country ID", example = "US")
     @NotBlank(message = "Origin country ID cannot be blank")
     @Size(max = 3, message = "Origin country ID must be at most 3 characters long")
+    @CountryCode(message = "Origin country ID must be an ISO 3166 country code")
     private String originCountryId;
 
     @Schema(description = "Destination country ID", example = "IN")
     @NotBlank(message = "Destination country ID cannot be blank")
     @Size(max = 3, message = "Destination country ID must be at most 3 characters long")
+    @CountryCode(message = "Destination country ID must be an ISO 3166 country code")
     private String destinationCountryId;
 
     @Schema(description = "Weight in kilograms", example = "1.5")
@@ -0,0 +1,21 @@
+package com.getrosoft.trackingservice.tracking_service.exceptions;
+
+/**
+ * Base for expected failures that end in a 4xx or 503 response, such as invalid input or an
+ * unknown tracking ID.
+ * <p>
+ * These exceptions carry no stack trace. Filling one in walks the whole thread stack, which under a
+ * burst of bad requests costs more than the request itself, and the exception handler never prints
+ * it. Suppression is disabled and the cause is fixed at construction, so an instance with a
+ * constant message can be created once and thrown from any thread.
+ */
+public abstract class DomainException extends RuntimeException {
+
+    protected DomainException(String message) {
+        super(message, null, false, false);
+    }
+
+    protected DomainException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+}
@@ -1,6 +1,6 @@
 package com.getrosoft.trackingservice.tracking_service.exceptions;
 
-public class DuplicateTrackingNumberException extends RuntimeException {
+public class DuplicateTrackingNumberException extends DomainException {
     public DuplicateTrackingNumberException(String message) {
         super(message);
     }
@@ -0,0 +1,11 @@
+package com.getrosoft.trackingservice.tracking_service.exceptions;
+
+public class EventBufferFullException extends DomainException {
+    public EventBufferFullException(String message) {
+        super(message);
+    }
+
+    public EventBufferFullException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,11 +1,31 @@
 package com.getrosoft.trackingservice.tracking_service.exceptions;
 
-public class InvalidInputException extends RuntimeException {
+import java.util.Collections;
+import java.util.Map;
+
+public class InvalidInputException extends DomainException {
+
+    private final Map<String, String> fieldErrors;
+
     public InvalidInputException(String message) {
         super(message);
+        this.fieldErrors = Collections.emptyMap();
     }
 
     public InvalidInputException(String message, Throwable cause) {
         super(message, cause);
+        this.fieldErrors = Collections.emptyMap();
+    }
+
+    public InvalidInputException(String message, Map<String, String> fieldErrors) {
+        super(message);
+        this.fieldErrors = Collections.unmodifiableMap(fieldErrors);
+    }
+
+    /**
+     * Field name to validation message, empty when the error is not tied to specific fields.
+     */
+    public Map<String, String> getFieldErrors() {
+        return fieldErrors;
     }
 }
@@ -0,0 +1,11 @@
+package com.getrosoft.trackingservice.tracking_service.exceptions;
+
+public class ServiceUnavailableException extends DomainException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+
+    public ServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
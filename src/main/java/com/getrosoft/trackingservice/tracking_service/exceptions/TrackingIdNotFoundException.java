@@ -1,6 +1,6 @@
 package com.getrosoft.trackingservice.tracking_service.exceptions;
 
-public class TrackingIdNotFoundException extends RuntimeException {
+public class TrackingIdNotFoundException extends DomainException {
 
     public TrackingIdNotFoundException(String message) {
         super(message);
@@ -0,0 +1,31 @@
+package com.getrosoft.trackingservice.tracking_service.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Lease on a background job that must run on one instance at a time. The row is only locked while
+ * the lease is taken or renewed, never while the job does its work.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tracking_job_lease")
+public class JobLeaseEntity implements Serializable {
+
+    @Id
+    private String jobName;
+
+    // Instance currently running the job, or null; another instance may take over once the lease expires
+    private String leaseOwner;
+
+    private Instant leasedUntil;
+}
@@ -0,0 +1,37 @@
+package com.getrosoft.trackingservice.tracking_service.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Progress of an outbox relay. The instance that relays holds a lease recorded here; the row itself
+ * is only locked briefly while the lease is taken and renewed, never while events are delivered.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tracking_outbox_checkpoint")
+public class OutboxCheckpointEntity implements Serializable {
+
+    @Id
+    private String relayName;
+
+    private long lastEventId;
+
+    private long relayedCount;
+
+    private Instant updatedAt;
+
+    // Instance currently relaying, or null; another instance may take over once the lease expires
+    private String leaseOwner;
+
+    private Instant leasedUntil;
+}
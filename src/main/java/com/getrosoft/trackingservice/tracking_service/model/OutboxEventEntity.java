@@ -0,0 +1,49 @@
+package com.getrosoft.trackingservice.tracking_service.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Event waiting to be relayed to downstream systems. Written in the same transaction as the change
+ * it describes and deleted once the relay has delivered it.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "tracking_outbox")
+public class OutboxEventEntity implements Serializable {
+
+    // IDENTITY rather than a pooled sequence: pooled blocks would interleave ids from different
+    // instances out of insertion order, and the relay delivers in id order
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String eventType;
+
+    private String trackingNumber;
+
+    private Instant occurredAt;
+
+    // Event body as delivered, already serialized
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+
+    public OutboxEventEntity(String eventType, String trackingNumber, Instant occurredAt, String payload) {
+        this.eventType = eventType;
+        this.trackingNumber = trackingNumber;
+        this.occurredAt = occurredAt;
+        this.payload = payload;
+    }
+}
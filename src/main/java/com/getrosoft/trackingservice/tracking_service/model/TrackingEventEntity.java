@@ -0,0 +1,53 @@
+package com.getrosoft.trackingservice.tracking_service.model;
+
+import com.getrosoft.trackingservice.tracking_service.payload.Status;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Append-only record of a carrier scan. Rows are never updated; the latest status of a shipment is
+ * the row with the greatest event time for its tracking number.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tracking_event", indexes = @Index(name = "idx_tracking_event_number_time", columnList = "trackingNumber, eventTime"))
+public class TrackingEventEntity implements Serializable {
+
+    // Pooled sequence ids keep Hibernate's JDBC insert batching enabled, which IDENTITY would disable
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tracking_event_seq")
+    @SequenceGenerator(name = "tracking_event_seq", sequenceName = "tracking_event_seq", allocationSize = 500)
+    private Long id;
+
+    @Schema(description = "Tracking number", example = "USIN123456789012")
+    private String trackingNumber;
+
+    @Enumerated(EnumType.STRING)
+    @Schema(description = "Reported status", example = "IN_TRANSIT")
+    private Status status;
+
+    @Schema(description = "Time of the scan at the carrier", example = "2024-12-05T08:30:00Z")
+    private Instant eventTime;
+
+    @Schema(description = "Scan location", example = "Mumbai Hub")
+    private String location;
+
+    @Schema(description = "Time the event was accepted by this service", example = "2024-12-05T08:30:01Z")
+    private Instant receivedAt;
+}
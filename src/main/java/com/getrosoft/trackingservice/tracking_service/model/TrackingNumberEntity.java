@@ -1,13 +1,25 @@
 package com.getrosoft.trackingservice.tracking_service.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.getrosoft.trackingservice.tracking_service.utils.CountryCodeRegistry;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import jakarta.validation.constraints.*;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
@@ -15,11 +27,10 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "tracking_number")
-public class TrackingNumberEntity implements Serializable {
+@Table(name = "tracking_number", indexes = @Index(name = "idx_tracking_number_created_at", columnList = "createdAt, trackingNumber"))
+public class TrackingNumberEntity implements Persistable<String>, Serializable {
 
     @Id
     @Schema(description = "Tracking number", example = "TRCK1234567890")
@@ -30,6 +41,14 @@ public class TrackingNumberEntity implements Serializable {
     @NotNull(message = "Created at timestamp is required")
     private Instant createdAt;
 
+    // Compact form of the origin and destination (see CountryCodeRegistry#laneId). Written alongside
+    // the country columns while rows from earlier releases are backfilled; null on rows not yet
+    // backfilled and CountryCodeRegistry#UNKNOWN_LANE on rows whose codes are not ISO 3166 codes
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private Integer laneId;
+
     @Schema(description = "Origin country ID", example = "US")
     @NotBlank(message = "Origin country ID cannot be blank")
     @Size(max = 3, message = "Origin country ID must be at most 3 characters long")
@@ -54,4 +73,68 @@ public class TrackingNumberEntity implements Serializable {
     @NotBlank(message = "Customer slug cannot be blank")
     @Size(max = 50, message = "Customer slug must be at most 50 characters long")
     private String customerSlug;
+
+    // Tracking numbers are assigned, so Spring Data cannot tell a new record from its ID. Without
+    // this flag save() would merge, and the merge would SELECT the row before inserting it.
+    @Transient
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean newRecord = true;
+
+    public TrackingNumberEntity(String trackingNumber, Instant createdAt, String originCountryId, String destinationCountryId,
+                                BigDecimal weight, UUID customerId, String customerSlug) {
+        this.trackingNumber = trackingNumber;
+        this.createdAt = createdAt;
+        this.originCountryId = originCountryId;
+        this.destinationCountryId = destinationCountryId;
+        this.weight = weight;
+        this.customerId = customerId;
+        this.customerSlug = customerSlug;
+    }
+
+    @Override
+    @JsonIgnore
+    public String getId() {
+        return trackingNumber;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return newRecord;
+    }
+
+    // Also normalises alpha-3 and lower-case codes to the alpha-2 codes the lane ID decodes to
+    @PrePersist
+    void encodeLane() {
+        this.laneId = CountryCodeRegistry.laneId(originCountryId, destinationCountryId);
+        this.originCountryId = CountryCodeRegistry.originOf(laneId);
+        this.destinationCountryId = CountryCodeRegistry.destinationOf(laneId);
+    }
+
+    // Reads either representation: the lane ID when it names a known lane, otherwise the stored
+    // codes, and the unknown-country sentinel once those columns are gone
+    @PostLoad
+    void decodeLane() {
+        if (laneId != null && CountryCodeRegistry.isKnownLane(laneId)) {
+            this.originCountryId = CountryCodeRegistry.originOf(laneId);
+            this.destinationCountryId = CountryCodeRegistry.destinationOf(laneId);
+        } else {
+            if (originCountryId == null) {
+                this.originCountryId = CountryCodeRegistry.UNKNOWN_COUNTRY;
+            }
+            if (destinationCountryId == null) {
+                this.destinationCountryId = CountryCodeRegistry.UNKNOWN_COUNTRY;
+            }
+        }
+        this.markNotNew();
+    }
+
+    @PostPersist
+    void markNotNew() {
+        this.newRecord = false;
+    }
 }
@@ -0,0 +1,19 @@
+package com.getrosoft.trackingservice.tracking_service.payload;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class BulkGenerationReport {
+    private String output;
+    private long generated;
+    private long batches;
+    // Numbers drawn again because they were already taken, in the run or in the database
+    private long redrawn;
+    // Batches rolled back and reserved again after a concurrent insert took one of their numbers
+    private long retriedBatches;
+    private long bytesWritten;
+    private double durationSeconds;
+    private double numbersPerSecond;
+}
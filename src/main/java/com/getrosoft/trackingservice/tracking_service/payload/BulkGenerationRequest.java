@@ -0,0 +1,29 @@
+package com.getrosoft.trackingservice.tracking_service.payload;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A label run: {@code count} numbers spread evenly over every lane and customer combination.
+ */
+@Getter
+@Builder
+public class BulkGenerationRequest {
+    private Path output;
+    private long count;
+    private List<Lane> lanes;
+    private List<Customer> customers;
+    // Recorded for every number; pre-printed labels are issued before the parcel is weighed
+    private BigDecimal weight;
+
+    public record Lane(String originCountryId, String destinationCountryId) {
+    }
+
+    public record Customer(UUID customerId, String customerSlug) {
+    }
+}
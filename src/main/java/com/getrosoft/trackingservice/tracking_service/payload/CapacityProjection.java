@@ -0,0 +1,26 @@
+package com.getrosoft.trackingservice.tracking_service.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CapacityProjection {
+
+    // Lane and weight band shared by every number in the segment
+    private final String segment;
+    // Counts cover the current creation day only; each day has its own space
+    private final long issued;
+    private final double space;
+    // Share of today's space already used; also the chance that the next random draw collides
+    private final double occupancy;
+    // Chance that any two of today's issues drew the same number (birthday bound)
+    private final double collisionProbability;
+    private final double expectedRetriesPerIssue;
+    // Issues today whose first draw was already taken
+    private final long collisions;
+    private final double observedCollisionRate;
+    // Issues left before the collision probability reaches the threshold
+    private final long remainingBeforeThreshold;
+    private final boolean overThreshold;
+}
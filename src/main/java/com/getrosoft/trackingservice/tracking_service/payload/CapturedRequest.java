@@ -0,0 +1,50 @@
+package com.getrosoft.trackingservice.tracking_service.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One request captured from live traffic, or its outcome when replayed. Parameters are kept as the
+ * raw strings the client sent, in the order of {@link Endpoint#getParameterNames()}, so invalid
+ * requests replay exactly as they arrived; a parameter the client left out is null.
+ */
+@Getter
+@AllArgsConstructor
+public class CapturedRequest {
+
+    private final Endpoint endpoint;
+    // Start of the request relative to the start of the capture
+    private final long offsetMicros;
+    private final long latencyMicros;
+    private final int status;
+    private final String[] parameters;
+
+    @Getter
+    public enum Endpoint {
+        NEXT_TRACKING_NUMBER("GET", "/v1/api/next-tracking-number",
+                List.of("originCountryId", "destinationCountryId", "weight", "customerId", "customerSlug")),
+        TRACKING_DETAILS("GET", "/v1/api/tracking-details", List.of("trackingId")),
+        DELIVERIES("POST", "/v1/api/deliveries", List.of("trackingId", "deliveredAt"));
+
+        private final String method;
+        private final String path;
+        private final List<String> parameterNames;
+
+        Endpoint(String method, String path, List<String> parameterNames) {
+            this.method = method;
+            this.path = path;
+            this.parameterNames = parameterNames;
+        }
+
+        public static Endpoint forPath(final String path) {
+            for (Endpoint endpoint : values()) {
+                if (endpoint.path.equals(path)) {
+                    return endpoint;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.getrosoft.trackingservice.tracking_service.payload;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * The fields of a self-describing tracking number, read from the string without any lookup.
+ */
+@Getter
+@Builder
+public class DecodedTrackingNumber {
+    private String trackingNumber;
+    private int version;
+    private String originCountryId;
+    private String destinationCountryId;
+    // First two hex digits of the customer ID; version 2 only
+    private String customerPrefix;
+    private int weightBand;
+    private BigDecimal weightBandMinKg;
+    // Exclusive; null for the heaviest, open-ended band
+    private BigDecimal weightBandMaxKg;
+    // Truncated to the day, or to the minute for version 2
+    private Instant createdAt;
+}
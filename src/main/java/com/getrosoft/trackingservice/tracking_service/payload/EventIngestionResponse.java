@@ -0,0 +1,13 @@
+package com.getrosoft.trackingservice.tracking_service.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class EventIngestionResponse {
+
+    private int accepted;
+    // Rejected events are always the tail of the submitted batch, starting at index 'accepted'
+    private int rejected;
+}
@@ -0,0 +1,16 @@
+package com.getrosoft.trackingservice.tracking_service.payload;
+
+public enum ImportFormat {
+    // Header row naming the columns, then one record per line
+    CSV,
+    // One JSON object per line
+    NDJSON;
+
+    public static ImportFormat fromFileName(final String fileName) {
+        return fileName.toLowerCase().endsWith(".csv") ? CSV : NDJSON;
+    }
+
+    public static ImportFormat fromContentType(final String contentType) {
+        return contentType != null && contentType.toLowerCase().startsWith("text/csv") ? CSV : NDJSON;
+    }
+}
@@ -0,0 +1,33 @@
+package com.getrosoft.trackingservice.tracking_service.payload;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+@Getter
+@Builder
+public class ImportReport {
+    private String jobId;
+    private ImportState state;
+    private Instant startedAt;
+    private Instant finishedAt;
+    // Line numbers up to and including this one are committed; a resumed run skips them
+    private long checkpointLine;
+    private long linesRead;
+    private long skippedBeforeCheckpoint;
+    private long inserted;
+    private long duplicates;
+    private long invalid;
+    private double recordsPerSecond;
+    // First few problems, e.g. "line 12: weight: Weight must be at least 0.1"
+    private List<String> errors;
+    private String failure;
+
+    public enum ImportState {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,12 @@
+package com.getrosoft.trackingservice.tracking_service.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class IssuanceCounts {
+    private final long lastMinute;
+    private final long lastHour;
+    private final long lastDay;
+}
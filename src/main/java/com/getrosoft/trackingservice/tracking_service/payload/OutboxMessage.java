@@ -0,0 +1,22 @@
+package com.getrosoft.trackingservice.tracking_service.payload;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Envelope of a relayed event. Delivery is at least once; consumers deduplicate on {@code id}.
+ */
+@Getter
+@AllArgsConstructor
+public class OutboxMessage {
+
+    private final long id;
+    private final String type;
+    private final String trackingNumber;
+    private final Instant occurredAt;
+    @JsonRawValue
+    private final String data;
+}
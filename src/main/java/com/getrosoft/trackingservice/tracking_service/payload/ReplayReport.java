@@ -0,0 +1,63 @@
+package com.getrosoft.trackingservice.tracking_service.payload;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Comparison of a replay against the capture it replayed. The baseline is whatever the capture
+ * file recorded: production traffic, or the outcomes of an earlier replay against another build.
+ */
+@Getter
+@Builder
+public class ReplayReport {
+    private String target;
+    // Replay speed relative to the capture; 0 sends requests back to back
+    private double speed;
+    private long requests;
+    private double durationSeconds;
+    // Requests that got no HTTP response (connection refused, timeout); replayed with status 0
+    private long transportErrors;
+    private List<EndpointComparison> endpoints;
+
+    @Getter
+    @Builder
+    public static class EndpointComparison {
+        private CapturedRequest.Endpoint endpoint;
+        private long requests;
+        // As captured: server-side for a capture file, client-side for saved replay outcomes
+        private LatencySummary baselineLatency;
+        // Client-side, from the moment each request was due
+        private LatencySummary replayLatency;
+        // Client-side, from the moment each request was sent, without waiting for an in-flight slot
+        private LatencySummary replayResponseLatency;
+        private Map<Integer, Long> baselineStatuses;
+        private Map<Integer, Long> replayStatuses;
+        // Requests whose status differs from the baseline, keyed like "200->503", except missingOnTarget
+        private Map<String, Long> changedOutcomes;
+        // Requests that succeeded in the baseline and got a 404: the target does not hold the tracking number
+        private long missingOnTarget;
+    }
+
+    public record LatencySummary(long p50Micros, long p90Micros, long p99Micros, long maxMicros) {
+
+        public static LatencySummary of(final long[] latenciesMicros) {
+            if (latenciesMicros.length == 0) {
+                return new LatencySummary(0, 0, 0, 0);
+            }
+            final long[] sorted = latenciesMicros.clone();
+            Arrays.sort(sorted);
+            return new LatencySummary(percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    sorted[sorted.length - 1]);
+        }
+
+        // Nearest-rank percentile
+        private static long percentile(final long[] sorted, final double quantile) {
+            final int rank = (int) Math.ceil(quantile * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+}
@@ -4,5 +4,6 @@ public enum Status {
     SUCCESS,
     FAILED,
     PENDING,
-    IN_TRANSIT
+    IN_TRANSIT,
+    DELIVERED
 }
@@ -0,0 +1,33 @@
+package com.getrosoft.trackingservice.tracking_service.payload;
+
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Body of the event published when a tracking number is issued. Kept separate from the entity so
+ * the published schema does not change with the table.
+ */
+@Getter
+@AllArgsConstructor
+public class TrackingNumberCreatedEvent {
+
+    public static final String TYPE = "tracking-number.created";
+
+    private final String trackingNumber;
+    private final Instant createdAt;
+    private final String originCountryId;
+    private final String destinationCountryId;
+    private final BigDecimal weight;
+    private final UUID customerId;
+    private final String customerSlug;
+
+    public static TrackingNumberCreatedEvent from(final TrackingNumberEntity record) {
+        return new TrackingNumberCreatedEvent(record.getTrackingNumber(), record.getCreatedAt(), record.getOriginCountryId(),
+                record.getDestinationCountryId(), record.getWeight(), record.getCustomerId(), record.getCustomerSlug());
+    }
+}
@@ -0,0 +1,20 @@
+package com.getrosoft.trackingservice.tracking_service.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+@Getter
+@AllArgsConstructor
+public class TrackingUpdate {
+
+    private final String trackingNumber;
+    private final Status status;
+    private final Instant eventTime;
+    private final String location;
+
+    public boolean isNewerThan(final TrackingUpdate other) {
+        return other == null || !eventTime.isBefore(other.eventTime);
+    }
+}
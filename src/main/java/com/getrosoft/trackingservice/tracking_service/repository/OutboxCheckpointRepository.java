@@ -0,0 +1,23 @@
+package com.getrosoft.trackingservice.tracking_service.repository;
+
+import com.getrosoft.trackingservice.tracking_service.model.OutboxCheckpointEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface OutboxCheckpointRepository extends JpaRepository<OutboxCheckpointEntity, String> {
+
+    // Fails immediately instead of waiting while another instance holds the relay
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "0"))
+    @Query("select c from OutboxCheckpointEntity c where c.relayName = :relayName")
+    Optional<OutboxCheckpointEntity> lockByRelayName(@Param("relayName") String relayName);
+}
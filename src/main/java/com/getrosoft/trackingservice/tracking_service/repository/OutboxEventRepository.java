@@ -0,0 +1,23 @@
+package com.getrosoft.trackingservice.tracking_service.repository;
+
+import com.getrosoft.trackingservice.tracking_service.model.OutboxEventEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, Long> {
+
+    @Query("select e from OutboxEventEntity e order by e.id")
+    List<OutboxEventEntity> findOldest(Pageable pageable);
+
+    @Modifying
+    @Query("delete from OutboxEventEntity e where e.eventType = :eventType and e.trackingNumber in :trackingNumbers")
+    int deleteEvents(@Param("eventType") String eventType, @Param("trackingNumbers") Collection<String> trackingNumbers);
+}
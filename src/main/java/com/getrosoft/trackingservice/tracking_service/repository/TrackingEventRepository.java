@@ -0,0 +1,13 @@
+package com.getrosoft.trackingservice.tracking_service.repository;
+
+import com.getrosoft.trackingservice.tracking_service.model.TrackingEventEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface TrackingEventRepository extends JpaRepository<TrackingEventEntity, Long> {
+
+    Optional<TrackingEventEntity> findFirstByTrackingNumberOrderByEventTimeDesc(String trackingNumber);
+}
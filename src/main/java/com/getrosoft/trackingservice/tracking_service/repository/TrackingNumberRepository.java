@@ -1,9 +1,32 @@
 package com.getrosoft.trackingservice.tracking_service.repository;
 
 import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface TrackingNumberRepository extends JpaRepository<TrackingNumberEntity, String> {
+
+    // Keyset pagination over (createdAt, trackingNumber) so each batch is an index range scan
+    @Query("select t from TrackingNumberEntity t where t.createdAt < :cutoff"
+            + " and (t.createdAt > :afterCreatedAt or (t.createdAt = :afterCreatedAt and t.trackingNumber > :afterTrackingNumber))"
+            + " order by t.createdAt, t.trackingNumber")
+    List<TrackingNumberEntity> findArchivableAfter(@Param("cutoff") Instant cutoff,
+                                                   @Param("afterCreatedAt") Instant afterCreatedAt,
+                                                   @Param("afterTrackingNumber") String afterTrackingNumber,
+                                                   Pageable pageable);
+
+    @Query("select t.createdAt from TrackingNumberEntity t where t.trackingNumber = :trackingNumber")
+    Optional<Instant> findCreatedAtById(@Param("trackingNumber") String trackingNumber);
+
+    @Query("select t.trackingNumber from TrackingNumberEntity t where t.trackingNumber in :trackingNumbers")
+    List<String> findExistingTrackingNumbers(@Param("trackingNumbers") Collection<String> trackingNumbers);
 }
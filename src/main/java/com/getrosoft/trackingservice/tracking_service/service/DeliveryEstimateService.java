@@ -0,0 +1,30 @@
+package com.getrosoft.trackingservice.tracking_service.service;
+
+import com.getrosoft.trackingservice.tracking_service.dto.DeliveryEstimate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public interface DeliveryEstimateService {
+    DeliveryEstimate estimate(String originCountryId, String destinationCountryId, BigDecimal weight);
+
+    /**
+     * Fingerprint of the statistics estimates are currently answered from. It changes whenever a
+     * publish may have changed an estimate, and is the same on instances holding the same statistics.
+     */
+    long publishedVersion();
+
+    /**
+     * Records the delivery of a tracking number. Only the first delivery recorded for a number
+     * counts; repeats, e.g. a retried request or a delivered scan for a number already reported
+     * delivered, are ignored.
+     */
+    void recordDelivery(String trackingId, Instant deliveredAt);
+
+    /**
+     * Records the delivery of a shipment already loaded, with the same deduplication on the
+     * tracking number.
+     */
+    void recordDelivery(String trackingNumber, String originCountryId, String destinationCountryId, BigDecimal weight,
+                        Instant createdAt, Instant deliveredAt);
+}
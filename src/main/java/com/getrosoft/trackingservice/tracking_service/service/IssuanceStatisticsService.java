@@ -0,0 +1,27 @@
+package com.getrosoft.trackingservice.tracking_service.service;
+
+import com.getrosoft.trackingservice.tracking_service.payload.IssuanceCounts;
+
+import java.util.Map;
+import java.util.UUID;
+
+public interface IssuanceStatisticsService {
+    void recordIssued(String originCountryId, String destinationCountryId, UUID customerId);
+
+    IssuanceCounts total();
+
+    /**
+     * Counts by lane, keyed like "US-IN".
+     */
+    Map<String, IssuanceCounts> byLane();
+
+    /**
+     * The customers with the most numbers issued in the last hour, busiest first.
+     */
+    Map<UUID, IssuanceCounts> topCustomers(int limit);
+
+    /**
+     * Counts for one customer; all zero if nothing was issued to them recently.
+     */
+    IssuanceCounts forCustomer(UUID customerId);
+}
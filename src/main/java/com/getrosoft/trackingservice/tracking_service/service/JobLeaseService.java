@@ -0,0 +1,21 @@
+package com.getrosoft.trackingservice.tracking_service.service;
+
+import java.time.Duration;
+
+/**
+ * Coordinates background jobs across instances through a lease row per job in the database.
+ */
+public interface JobLeaseService {
+
+    /**
+     * Takes the lease on the job, or renews it when this instance already holds it.
+     *
+     * @return false while another instance holds an unexpired lease
+     */
+    boolean tryAcquire(String jobName, Duration lease);
+
+    /**
+     * Gives up the lease if this instance holds it, so any instance can run the job straight away.
+     */
+    void release(String jobName);
+}
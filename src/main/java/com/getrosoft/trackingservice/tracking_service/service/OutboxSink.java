@@ -0,0 +1,25 @@
+package com.getrosoft.trackingservice.tracking_service.service;
+
+import com.getrosoft.trackingservice.tracking_service.payload.OutboxMessage;
+
+import java.util.List;
+
+/**
+ * Destination of relayed outbox events, selected with {@code tracking.outbox.sink}.
+ */
+public interface OutboxSink {
+
+    /**
+     * Delivers the batch in order. Returns normally only once the whole batch has been accepted;
+     * any exception makes the relay retry the same batch.
+     */
+    void publish(List<OutboxMessage> batch) throws Exception;
+
+    /**
+     * Whether accepted events survive a restart. The relay deletes events once the sink accepts
+     * them, so it only feeds a non-durable sink when explicitly asked to.
+     */
+    default boolean isDurable() {
+        return true;
+    }
+}
@@ -0,0 +1,21 @@
+package com.getrosoft.trackingservice.tracking_service.service;
+
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+
+import java.util.Optional;
+
+public interface TrackingArchiveService {
+    Optional<TrackingNumberEntity> findArchived(String trackingNumber);
+
+    /**
+     * Whether the tracking number has been issued and archived. Answered from in-memory Bloom
+     * filters for the vast majority of numbers that were never archived.
+     */
+    boolean isArchived(String trackingNumber);
+
+    /**
+     * Moves eligible records to the archive, respecting the configured window and throttling.
+     * Returns the number of records archived.
+     */
+    long archiveEligibleRecords();
+}
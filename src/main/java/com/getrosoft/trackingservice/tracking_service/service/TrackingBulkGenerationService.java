@@ -0,0 +1,12 @@
+package com.getrosoft.trackingservice.tracking_service.service;
+
+import com.getrosoft.trackingservice.tracking_service.payload.BulkGenerationReport;
+import com.getrosoft.trackingservice.tracking_service.payload.BulkGenerationRequest;
+
+public interface TrackingBulkGenerationService {
+    /**
+     * Reserves the requested numbers in the database and writes them to the output file as import
+     * CSV, blocking until done.
+     */
+    BulkGenerationReport generate(BulkGenerationRequest request);
+}
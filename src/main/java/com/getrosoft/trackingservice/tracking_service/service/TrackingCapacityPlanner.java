@@ -0,0 +1,25 @@
+package com.getrosoft.trackingservice.tracking_service.service;
+
+import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
+import com.getrosoft.trackingservice.tracking_service.payload.CapacityProjection;
+
+import java.util.List;
+
+public interface TrackingCapacityPlanner {
+    /**
+     * Records an issued number and whether the first number drawn for it collided.
+     */
+    void recordIssue(TrackingNumberDto request, boolean collided);
+
+    /**
+     * The segments most likely to have seen a collision today first.
+     */
+    List<CapacityProjection> projections(int limit);
+
+    int trackedSegmentCount();
+
+    /**
+     * Segments whose collision probability or observed collision rate today reached the threshold.
+     */
+    long segmentsOverThresholdCount();
+}
@@ -0,0 +1,16 @@
+package com.getrosoft.trackingservice.tracking_service.service;
+
+import com.getrosoft.trackingservice.tracking_service.dto.LatestTrackingStatus;
+import com.getrosoft.trackingservice.tracking_service.dto.TrackingEventDto;
+
+import java.util.List;
+
+public interface TrackingEventService {
+    /**
+     * Queues the events for persistence in order and returns how many were accepted before the
+     * buffer filled up.
+     */
+    int ingest(List<TrackingEventDto> events);
+
+    LatestTrackingStatus getLatestStatus(String trackingNumber);
+}
@@ -0,0 +1,23 @@
+package com.getrosoft.trackingservice.tracking_service.service;
+
+import com.getrosoft.trackingservice.tracking_service.payload.ImportFormat;
+import com.getrosoft.trackingservice.tracking_service.payload.ImportReport;
+
+import java.io.InputStream;
+
+public interface TrackingImportService {
+    /**
+     * Imports existing tracking numbers from the stream, blocking until the input is exhausted.
+     * Running a failed job again with the same ID resumes after the last committed line; a job ID
+     * that completed starts from the beginning.
+     *
+     * @param allowForeignIds whether numbers not issued in this service's formats (another carrier's,
+     *                        say) are accepted; such numbers cannot be looked up by tracking ID
+     */
+    ImportReport importTrackingNumbers(String jobId, InputStream input, ImportFormat format, boolean allowForeignIds);
+
+    /**
+     * Progress of a running or recently finished job, or null if unknown.
+     */
+    ImportReport getProgress(String jobId);
+}
@@ -2,8 +2,17 @@ package com.getrosoft.trackingservice.tracking_service.service;
 
 import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
 
+import java.time.Instant;
+import java.util.Optional;
+
 public interface TrackingNumberService {
     TrackingNumberDto createTrackingNumber(TrackingNumberDto requestDto);
 
     TrackingNumberDto getTrackingDetails(String trackingId);
+
+    /**
+     * Creation time of an issued tracking number, read without loading and mapping the whole
+     * record. Empty if the number was never issued.
+     */
+    Optional<Instant> findCreatedAt(String trackingId);
 }
@@ -0,0 +1,27 @@
+package com.getrosoft.trackingservice.tracking_service.service;
+
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+
+import java.util.Collection;
+
+public interface TrackingOutboxService {
+
+    /**
+     * Adds a tracking-number-created event to the outbox. Must be called inside the transaction
+     * that inserts the record, so the event exists if and only if the record does.
+     */
+    void recordCreated(TrackingNumberEntity record);
+
+    /**
+     * Removes the creation events of records whose insert is being undone. Must be called inside
+     * the transaction that deletes the records. Events the relay has already handed to the sink
+     * cannot be taken back. Returns the number of events removed.
+     */
+    int discardCreated(Collection<String> trackingNumbers);
+
+    /**
+     * Delivers pending events to the sink in batches, oldest first, until the outbox is empty or a
+     * batch fails. Returns the number of events delivered.
+     */
+    int relayPending();
+}
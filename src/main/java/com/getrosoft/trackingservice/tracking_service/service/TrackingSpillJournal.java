@@ -0,0 +1,37 @@
+package com.getrosoft.trackingservice.tracking_service.service;
+
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+
+import java.util.Optional;
+
+/**
+ * Local, fsynced journal for tracking numbers issued while the database is unavailable. Journaled
+ * records are served from memory until they have been replayed into the database.
+ */
+public interface TrackingSpillJournal {
+
+    /**
+     * Durably journals the record. Returns false, without writing anything, if its tracking number
+     * is already journaled.
+     */
+    boolean append(TrackingNumberEntity record);
+
+    boolean isJournaled(String trackingNumber);
+
+    /**
+     * Two characters reserved for this instance inside the numbers it journals, so instances
+     * journaling through the same outage never issue the same number.
+     */
+    String getNodeId();
+
+    Optional<TrackingNumberEntity> findJournaled(String trackingNumber);
+
+    int pendingCount();
+
+    /**
+     * Writes pending records to the database in batches if the circuit allows it. Records that
+     * clash with a different record already in the database are moved to the dead-letter file.
+     * Returns the number of records replayed.
+     */
+    int replayPending();
+}
@@ -0,0 +1,26 @@
+package com.getrosoft.trackingservice.tracking_service.service;
+
+import com.getrosoft.trackingservice.tracking_service.payload.TrackingUpdate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public interface TrackingUpdateService {
+    /**
+     * Opens a server-sent event stream for the given tracking numbers and/or customer. The initial
+     * updates are sent first so subscribers do not need a separate lookup.
+     */
+    SseEmitter subscribe(Set<String> trackingNumbers, UUID customerId, List<TrackingUpdate> initialUpdates);
+
+    /**
+     * Fans updates out to subscribers. {@code customerIds} maps tracking numbers to their customer
+     * and may omit entries when there are no customer subscriptions.
+     */
+    void publish(Collection<TrackingUpdate> updates, Map<String, UUID> customerIds);
+
+    boolean hasCustomerSubscribers();
+}
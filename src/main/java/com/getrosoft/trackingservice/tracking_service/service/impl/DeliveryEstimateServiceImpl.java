@@ -0,0 +1,257 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.getrosoft.trackingservice.tracking_service.dto.DeliveryEstimate;
+import com.getrosoft.trackingservice.tracking_service.exceptions.InvalidInputException;
+import com.getrosoft.trackingservice.tracking_service.exceptions.TrackingIdNotFoundException;
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import com.getrosoft.trackingservice.tracking_service.payload.Priority;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import com.getrosoft.trackingservice.tracking_service.service.DeliveryEstimateService;
+import com.getrosoft.trackingservice.tracking_service.utils.BloomFilter;
+import com.getrosoft.trackingservice.tracking_service.utils.LaneTransitMatrix;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Estimates delivery dates from the transit times actually observed on each lane.
+ * <p>
+ * Estimates are answered from an in-memory {@link LaneTransitMatrix}; the database is only read
+ * when a delivery is recorded by tracking ID. Deliveries update a live matrix, and estimates are
+ * read from a copy republished every publish interval, so an estimate only changes at a publish.
+ * Tracking-details ETags carry the published copy's fingerprint instead of the estimate itself,
+ * which lets a conditional request be answered before the record is loaded. The matrix is
+ * periodically written to disk so a restarted instance starts from the last snapshot instead of
+ * from the defaults.
+ * <p>
+ * A tracking number's delivery counts once, so retried requests and repeated delivered scans do not
+ * skew a lane. Delivered numbers are remembered in two rolling Bloom filters of
+ * {@code dedupe-keys} numbers each, saved with the snapshot: the older filter is dropped when the
+ * newer one fills up, so a repeat is caught as long as it arrives within the last
+ * {@code dedupe-keys} to twice that many deliveries. A false positive drops a genuine delivery,
+ * which at one or two in a hundred does not move the statistics.
+ */
+@Service
+public class DeliveryEstimateServiceImpl implements DeliveryEstimateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryEstimateServiceImpl.class);
+
+    private static final int DELIVERED_MAGIC = 0x444C5631; // "DLV1"
+
+    private final TrackingNumberRepository repository;
+    private final long minSamples;
+    private final int defaultTransitDays;
+    private final Path snapshotPath;
+    private final int maxCountries;
+    private final int dedupeKeys;
+
+    private volatile LaneTransitMatrix matrix;
+    // The copy and its fingerprint are swapped together, so an ETag never pairs one with the other
+    private volatile Published published;
+    private final AtomicBoolean changedSincePublish = new AtomicBoolean();
+
+    // Guarded by this
+    private BloomFilter delivered;
+    private BloomFilter previouslyDelivered;
+    private int deliveredCount;
+
+    public DeliveryEstimateServiceImpl(TrackingNumberRepository repository,
+                                       @Value("${tracking.estimation.max-countries:64}") int maxCountries,
+                                       @Value("${tracking.estimation.min-samples:20}") long minSamples,
+                                       @Value("${tracking.estimation.default-transit-days:3}") int defaultTransitDays,
+                                       @Value("${tracking.estimation.snapshot-path:}") String snapshotPath,
+                                       @Value("${tracking.estimation.dedupe-keys:1000000}") int dedupeKeys) {
+        this.repository = repository;
+        this.maxCountries = maxCountries;
+        this.dedupeKeys = dedupeKeys;
+        this.delivered = BloomFilter.forExpectedKeys(dedupeKeys);
+        this.previouslyDelivered = BloomFilter.forExpectedKeys(dedupeKeys);
+        this.minSamples = minSamples;
+        this.defaultTransitDays = defaultTransitDays;
+        this.snapshotPath = snapshotPath.isBlank() ? null : Paths.get(snapshotPath);
+        this.matrix = new LaneTransitMatrix(maxCountries);
+        this.published = Published.of(matrix.copy());
+    }
+
+    @PostConstruct
+    void loadSnapshot() {
+        if (snapshotPath == null || !Files.exists(snapshotPath)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            final LaneTransitMatrix restored = LaneTransitMatrix.readFrom(in, maxCountries);
+            this.readDelivered(in);
+            this.matrix = restored;
+            this.published = Published.of(restored.copy());
+            logger.info("Restored lane transit statistics from {}", snapshotPath);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable lane transit snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    @Override
+    public DeliveryEstimate estimate(final String originCountryId, final String destinationCountryId, final BigDecimal weight) {
+        final LaneTransitMatrix.TransitStatistics statistics =
+                published.matrix().statistics(originCountryId, destinationCountryId, weight);
+        if (statistics == null || statistics.sampleCount() < minSamples) {
+            return new DeliveryEstimate(defaultTransitDays, Priority.STANDARD, statistics == null ? 0 : statistics.sampleCount());
+        }
+        final int transitDays = (int) Math.max(1, Math.ceil(statistics.meanHours() / 24.0));
+        return new DeliveryEstimate(transitDays, priorityFor(transitDays), statistics.sampleCount());
+    }
+
+    @Override
+    public long publishedVersion() {
+        return published.fingerprint();
+    }
+
+    @Override
+    public void recordDelivery(final String trackingId, final Instant deliveredAt) {
+        final TrackingNumberEntity entity = repository.findById(trackingId)
+                .orElseThrow(() -> new TrackingIdNotFoundException("Tracking details not found for ID: " + trackingId));
+        this.recordDelivery(trackingId, entity.getOriginCountryId(), entity.getDestinationCountryId(), entity.getWeight(),
+                entity.getCreatedAt(), deliveredAt);
+    }
+
+    @Override
+    public void recordDelivery(final String trackingNumber, final String originCountryId, final String destinationCountryId,
+                               final BigDecimal weight, final Instant createdAt, final Instant deliveredAt) {
+        if (deliveredAt.isBefore(createdAt)) {
+            throw new InvalidInputException("Delivery time must not be before the tracking number was created");
+        }
+        if (!this.markDelivered(trackingNumber)) {
+            logger.debug("Ignoring repeated delivery of {}", trackingNumber);
+            return;
+        }
+        final double transitHours = Duration.between(createdAt, deliveredAt).toMinutes() / 60.0;
+        matrix.record(originCountryId, destinationCountryId, weight, transitHours);
+        changedSincePublish.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.estimation.publish-interval-ms:60000}",
+            initialDelayString = "${tracking.estimation.publish-interval-ms:60000}")
+    public void publishStatistics() {
+        if (changedSincePublish.getAndSet(false)) {
+            this.published = Published.of(matrix.copy());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.estimation.snapshot-interval-ms:300000}",
+            initialDelayString = "${tracking.estimation.snapshot-interval-ms:300000}")
+    @PreDestroy
+    public void writeSnapshot() {
+        if (snapshotPath == null) {
+            return;
+        }
+        Path temp = null;
+        try {
+            final Path parent = snapshotPath.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            temp = Files.createTempFile(parent, snapshotPath.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                matrix.writeTo(out);
+                this.writeDelivered(out);
+            }
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Wrote lane transit snapshot to {}", snapshotPath);
+        } catch (IOException e) {
+            logger.warn("Failed to write lane transit snapshot to {}: {}", snapshotPath, e.getMessage());
+            // Each attempt writes a new temp file, so a failed one would otherwise stay behind for good
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException deleteFailure) {
+                    logger.debug("Unable to delete {}: {}", temp, deleteFailure.getMessage());
+                }
+            }
+        }
+    }
+
+    // False if the number's delivery was already recorded
+    private synchronized boolean markDelivered(final String trackingNumber) {
+        if (delivered.mightContain(trackingNumber) || previouslyDelivered.mightContain(trackingNumber)) {
+            return false;
+        }
+        if (deliveredCount >= dedupeKeys) {
+            previouslyDelivered = delivered;
+            delivered = BloomFilter.forExpectedKeys(dedupeKeys);
+            deliveredCount = 0;
+        }
+        delivered.add(trackingNumber);
+        deliveredCount++;
+        return true;
+    }
+
+    private synchronized void writeDelivered(final DataOutputStream out) throws IOException {
+        out.writeInt(DELIVERED_MAGIC);
+        out.writeInt(deliveredCount);
+        delivered.writeTo(out);
+        previouslyDelivered.writeTo(out);
+    }
+
+    // Snapshots from before deduplication end after the matrix; the filters then start empty
+    private synchronized void readDelivered(final DataInputStream in) throws IOException {
+        final int magic;
+        try {
+            magic = in.readInt();
+        } catch (EOFException e) {
+            return;
+        }
+        if (magic != DELIVERED_MAGIC) {
+            throw new IOException("Unknown section in lane transit snapshot");
+        }
+        final int count = in.readInt();
+        final BloomFilter current = BloomFilter.readFrom(in);
+        final BloomFilter previous = BloomFilter.readFrom(in);
+        this.deliveredCount = count;
+        this.delivered = current;
+        this.previouslyDelivered = previous;
+    }
+
+    private static Priority priorityFor(final int transitDays) {
+        if (transitDays <= 1) {
+            return Priority.OVERNIGHT;
+        }
+        if (transitDays <= 2) {
+            return Priority.EXPRESS;
+        }
+        return Priority.STANDARD;
+    }
+
+    private record Published(LaneTransitMatrix matrix, long fingerprint) {
+
+        // CRC-32 of the snapshot encoding; computed once per publish, not per lookup
+        static Published of(final LaneTransitMatrix matrix) {
+            final CRC32 crc = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(OutputStream.nullOutputStream(), crc))) {
+                matrix.writeTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new Published(matrix, crc.getValue());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.getrosoft.trackingservice.tracking_service.payload.OutboxMessage;
+import com.getrosoft.trackingservice.tracking_service.service.OutboxSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends relayed events to a newline-delimited JSON file, one event per line. A batch is accepted
+ * once it has been forced to disk; a batch retried after a crash may appear twice.
+ */
+@Component
+@ConditionalOnProperty(name = "tracking.outbox.sink", havingValue = "file")
+public class FileOutboxSink implements OutboxSink {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    public FileOutboxSink(ObjectMapper objectMapper,
+                          @Value("${tracking.outbox.file.path:outbox/tracking-events.ndjson}") String path) {
+        this.objectMapper = objectMapper;
+        this.path = Path.of(path);
+    }
+
+    @Override
+    public void publish(final List<OutboxMessage> batch) throws IOException {
+        final StringBuilder lines = new StringBuilder();
+        for (OutboxMessage message : batch) {
+            lines.append(objectMapper.writeValueAsString(message)).append('\n');
+        }
+        final Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            final ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.getrosoft.trackingservice.tracking_service.payload.OutboxMessage;
+import com.getrosoft.trackingservice.tracking_service.service.OutboxSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Posts each relayed batch to a webhook as a JSON array. Any response other than 2xx fails the
+ * batch, so the receiver should only acknowledge once it has stored the events.
+ */
+@Component
+@ConditionalOnProperty(name = "tracking.outbox.sink", havingValue = "http")
+public class HttpOutboxSink implements OutboxSink {
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final URI uri;
+    private final Duration timeout;
+    private final String authorization;
+
+    public HttpOutboxSink(ObjectMapper objectMapper,
+                          @Value("${tracking.outbox.http.url}") String url,
+                          @Value("${tracking.outbox.http.timeout-ms:5000}") long timeoutMillis,
+                          @Value("${tracking.outbox.http.authorization:}") String authorization) {
+        this.objectMapper = objectMapper;
+        this.uri = URI.create(url);
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.authorization = authorization;
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public void publish(final List<OutboxMessage> batch) throws IOException, InterruptedException {
+        final HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(batch)));
+        if (!authorization.isBlank()) {
+            request.header("Authorization", authorization);
+        }
+        final HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Outbox webhook responded with HTTP " + response.statusCode());
+        }
+    }
+}
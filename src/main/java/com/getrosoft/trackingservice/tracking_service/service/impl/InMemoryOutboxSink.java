@@ -0,0 +1,52 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.getrosoft.trackingservice.tracking_service.payload.OutboxMessage;
+import com.getrosoft.trackingservice.tracking_service.service.OutboxSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the most recent relayed events in memory. Stand-in for local development and tests: events
+ * are lost on restart or once more than the capacity arrive, so the relay leaves them in the outbox
+ * table unless {@code tracking.outbox.relay-to-memory} is set.
+ */
+@Component
+@ConditionalOnProperty(name = "tracking.outbox.sink", havingValue = "memory")
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private final int capacity;
+    private final Deque<OutboxMessage> published = new ArrayDeque<>();
+
+    public InMemoryOutboxSink(@Value("${tracking.outbox.memory.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void publish(final List<OutboxMessage> batch) {
+        for (OutboxMessage message : batch) {
+            if (published.size() == capacity) {
+                published.removeFirst();
+            }
+            published.addLast(message);
+        }
+    }
+
+    @Override
+    public boolean isDurable() {
+        return false;
+    }
+
+    public synchronized List<OutboxMessage> getPublished() {
+        return new ArrayList<>(published);
+    }
+
+    public synchronized void clear() {
+        published.clear();
+    }
+}
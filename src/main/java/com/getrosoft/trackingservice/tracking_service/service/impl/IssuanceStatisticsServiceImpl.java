@@ -0,0 +1,168 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.getrosoft.trackingservice.tracking_service.payload.IssuanceCounts;
+import com.getrosoft.trackingservice.tracking_service.service.IssuanceStatisticsService;
+import com.getrosoft.trackingservice.tracking_service.utils.CountryCodeRegistry;
+import com.getrosoft.trackingservice.tracking_service.utils.RollingWindowCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Rolling issuance counts per lane and per customer, kept in process so dashboards never aggregate
+ * the live table. Counts are for this instance only; sum them across instances for fleet totals.
+ * <p>
+ * Lanes are also published to Micrometer as {@code tracking.issued.rolling} gauges tagged with the
+ * lane and window. Only lanes between known countries get a counter, keyed by their alpha-2 codes,
+ * so arbitrary codes from imported or journaled records cannot create tags; such records count
+ * towards the total only. Customers are not published, to keep tag cardinality bounded; at most
+ * {@code tracking.issuance.max-customers} are tracked at a time and idle ones are dropped.
+ */
+@Service
+public class IssuanceStatisticsServiceImpl implements IssuanceStatisticsService {
+
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final IssuanceCounts NONE = new IssuanceCounts(0, 0, 0);
+
+    private final MeterRegistry meterRegistry;
+    private final int maxLanes;
+    private final int maxCustomers;
+    private final WindowedCounter total = new WindowedCounter();
+    private final Map<String, WindowedCounter> lanes = new ConcurrentHashMap<>();
+    private final Map<UUID, WindowedCounter> customers = new ConcurrentHashMap<>();
+
+    public IssuanceStatisticsServiceImpl(MeterRegistry meterRegistry,
+                                         @Value("${tracking.issuance.max-lanes:2000}") int maxLanes,
+                                         @Value("${tracking.issuance.max-customers:10000}") int maxCustomers) {
+        this.meterRegistry = meterRegistry;
+        this.maxLanes = maxLanes;
+        this.maxCustomers = maxCustomers;
+        this.registerGauges(total, "all");
+    }
+
+    @Override
+    public void recordIssued(final String originCountryId, final String destinationCountryId, final UUID customerId) {
+        final long now = System.currentTimeMillis();
+        total.increment(now);
+
+        if (CountryCodeRegistry.isKnown(originCountryId) && CountryCodeRegistry.isKnown(destinationCountryId)) {
+            final String lane = CountryCodeRegistry.canonical(originCountryId) + "-" + CountryCodeRegistry.canonical(destinationCountryId);
+            WindowedCounter laneCounter = lanes.get(lane);
+            if (laneCounter == null) {
+                // Returning null leaves the map unchanged, so the cap holds under concurrent first issues
+                laneCounter = lanes.computeIfAbsent(lane, key -> {
+                    if (lanes.size() >= maxLanes) {
+                        return null;
+                    }
+                    final WindowedCounter counter = new WindowedCounter();
+                    this.registerGauges(counter, key);
+                    return counter;
+                });
+            }
+            if (laneCounter != null) {
+                laneCounter.increment(now);
+            }
+        }
+
+        WindowedCounter customerCounter = customers.get(customerId);
+        if (customerCounter == null) {
+            customerCounter = customers.computeIfAbsent(customerId,
+                    key -> customers.size() >= maxCustomers ? null : new WindowedCounter());
+        }
+        if (customerCounter != null) {
+            customerCounter.increment(now);
+        }
+    }
+
+    @Override
+    public IssuanceCounts total() {
+        return total.counts(System.currentTimeMillis());
+    }
+
+    @Override
+    public Map<String, IssuanceCounts> byLane() {
+        final long now = System.currentTimeMillis();
+        final Map<String, IssuanceCounts> counts = new TreeMap<>();
+        lanes.forEach((lane, counter) -> counts.put(lane, counter.counts(now)));
+        return counts;
+    }
+
+    @Override
+    public Map<UUID, IssuanceCounts> topCustomers(final int limit) {
+        final long now = System.currentTimeMillis();
+        final Map<UUID, IssuanceCounts> top = new LinkedHashMap<>();
+        customers.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().counts(now)))
+                .filter(entry -> entry.getValue().getLastDay() > 0)
+                .sorted(Comparator.comparingLong((Map.Entry<UUID, IssuanceCounts> entry) -> entry.getValue().getLastHour())
+                        .thenComparingLong(entry -> entry.getValue().getLastDay())
+                        .reversed())
+                .limit(limit)
+                .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+
+    @Override
+    public IssuanceCounts forCustomer(final UUID customerId) {
+        final WindowedCounter counter = customers.get(customerId);
+        return counter != null ? counter.counts(System.currentTimeMillis()) : NONE;
+    }
+
+    // Customers with nothing in the last day free their slot; lanes keep their registered gauges.
+    // An issue racing the removal can land on the dropped counter and be lost, which is the price of
+    // keeping creates off the map's bin locks.
+    @Scheduled(fixedDelayString = "${tracking.issuance.prune-interval-ms:600000}")
+    public void pruneIdleCustomers() {
+        final long now = System.currentTimeMillis();
+        customers.forEach((customerId, counter) -> {
+            if (counter.lastDay.sum(now) == 0) {
+                customers.remove(customerId, counter);
+            }
+        });
+    }
+
+    private void registerGauges(final WindowedCounter counter, final String lane) {
+        this.registerGauge(counter, lane, "1m", c -> c.lastMinute.sum(System.currentTimeMillis()));
+        this.registerGauge(counter, lane, "1h", c -> c.lastHour.sum(System.currentTimeMillis()));
+        this.registerGauge(counter, lane, "1d", c -> c.lastDay.sum(System.currentTimeMillis()));
+    }
+
+    private void registerGauge(final WindowedCounter counter, final String lane, final String window,
+                               final ToLongFunction<WindowedCounter> value) {
+        Gauge.builder("tracking.issued.rolling", counter, c -> value.applyAsLong(c))
+                .description("Tracking numbers issued by this instance over the trailing window")
+                .tag("lane", lane)
+                .tag("window", window)
+                .register(meterRegistry);
+    }
+
+    private static final class WindowedCounter {
+
+        // Window edges are accurate to one second, one minute and ten minutes respectively
+        private final RollingWindowCounter lastMinute = new RollingWindowCounter(60, SECOND);
+        private final RollingWindowCounter lastHour = new RollingWindowCounter(60, MINUTE);
+        private final RollingWindowCounter lastDay = new RollingWindowCounter(144, 10 * MINUTE);
+
+        private void increment(final long now) {
+            lastMinute.increment(now);
+            lastHour.increment(now);
+            lastDay.increment(now);
+        }
+
+        private IssuanceCounts counts(final long now) {
+            return new IssuanceCounts(lastMinute.sum(now), lastHour.sum(now), lastDay.sum(now));
+        }
+    }
+}
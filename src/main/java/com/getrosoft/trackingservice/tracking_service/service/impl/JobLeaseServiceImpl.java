@@ -0,0 +1,82 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.getrosoft.trackingservice.tracking_service.model.JobLeaseEntity;
+import com.getrosoft.trackingservice.tracking_service.repository.JobLeaseRepository;
+import com.getrosoft.trackingservice.tracking_service.service.JobLeaseService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+@Service
+public class JobLeaseServiceImpl implements JobLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobLeaseServiceImpl.class);
+
+    private final JobLeaseRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public JobLeaseServiceImpl(JobLeaseRepository repository, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public boolean tryAcquire(final String jobName, final Duration lease) {
+        try {
+            this.ensureLease(jobName);
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> this.claim(jobName, lease)));
+        } catch (PessimisticLockingFailureException e) {
+            logger.debug("Lease on {} is being taken by another instance", jobName);
+            return false;
+        }
+    }
+
+    // Lets any instance run the job straight away; if this fails, the lease simply expires
+    @Override
+    public void release(final String jobName) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> repository.findById(jobName)
+                    .filter(lease -> instanceId.equals(lease.getLeaseOwner()))
+                    .ifPresent(lease -> {
+                        lease.setLeaseOwner(null);
+                        lease.setLeasedUntil(null);
+                    }));
+        } catch (RuntimeException e) {
+            logger.debug("Unable to release the lease on {}: {}", jobName, e.getMessage());
+        }
+    }
+
+    private boolean claim(final String jobName, final Duration lease) {
+        final JobLeaseEntity entity = repository.lockByJobName(jobName)
+                .orElseThrow(() -> new IllegalStateException("Lease row " + jobName + " is missing"));
+        final Instant now = Instant.now();
+        if (entity.getLeaseOwner() != null && !instanceId.equals(entity.getLeaseOwner())
+                && entity.getLeasedUntil() != null && entity.getLeasedUntil().isAfter(now)) {
+            return false;
+        }
+        entity.setLeaseOwner(instanceId);
+        entity.setLeasedUntil(now.plus(lease));
+        return true;
+    }
+
+    // Two instances starting together may both insert the row; the loser keeps the winner's row
+    private void ensureLease(final String jobName) {
+        if (repository.existsById(jobName)) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> repository.saveAndFlush(new JobLeaseEntity(jobName, null, null)));
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Lease row {} was created by another instance", jobName);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import com.getrosoft.trackingservice.tracking_service.service.JobLeaseService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingArchiveService;
+import com.getrosoft.trackingservice.tracking_service.utils.ArchiveSegment;
+import com.getrosoft.trackingservice.tracking_service.utils.ArchiveSegmentIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Moves old tracking records out of the hot table into compressed {@link ArchiveSegment} files.
+ * <p>
+ * The job walks eligible rows in (createdAt, trackingNumber) keyset order, writes each batch as one
+ * segment, and only then deletes the batch from the hot table; a crash in between leaves the rows
+ * in both places, which lookups tolerate. It only runs inside the configured off-peak window and
+ * pauses between batches. A run takes as long as the window allows, so the scheduler only hands it
+ * to the archive's own thread; on the scheduler's single thread it would hold up every other
+ * scheduled job (SSE stall eviction, spill replay, the outbox relay) for hours. Lookups that miss the hot table fall back to the segments through an
+ * {@link ArchiveSegmentIndex}, which answers most misses with one Bloom filter probe per million or
+ * so archived records instead of one per segment, and then the segment's in-memory sparse index.
+ * <p>
+ * When several instances run, the archive directory must be shared storage so every instance sees
+ * every segment; the directory is rescanned periodically to pick up and index segments written
+ * elsewhere. A batch is therefore only deleted from the hot table two rescan intervals after its
+ * segment was written, once every instance has indexed it; deleting sooner would make the records
+ * unreachable on the other instances until their next rescan. The job itself runs on one instance
+ * at a time, under a lease taken through {@link JobLeaseService} and renewed before every batch.
+ */
+@Service
+public class TrackingArchiveServiceImpl implements TrackingArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrackingArchiveServiceImpl.class);
+    private static final String JOB_NAME = "tracking-archive";
+
+    private final TrackingNumberRepository repository;
+    private final JobLeaseService jobLeaseService;
+    private final boolean enabled;
+    private final Path directory;
+    private final Duration maxAge;
+    private final int batchSize;
+    private final long pauseBetweenBatchesMillis;
+    private final int windowStartHour;
+    private final int windowEndHour;
+    private final Duration lease;
+    private final long deleteDelayNanos;
+    private final Clock clock;
+    private final Map<Path, ArchiveSegment> segments = new ConcurrentHashMap<>();
+    private final ArchiveSegmentIndex index;
+    private final AtomicBoolean archiving = new AtomicBoolean();
+    private final ExecutorService archiveExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "tracking-archive");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter archivedCounter;
+    private final Counter archiveLookupCounter;
+
+    public TrackingArchiveServiceImpl(TrackingNumberRepository repository,
+                                      JobLeaseService jobLeaseService,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${tracking.archive.enabled:false}") boolean enabled,
+                                      @Value("${tracking.archive.directory:}") String directory,
+                                      @Value("${tracking.archive.max-age-days:180}") long maxAgeDays,
+                                      @Value("${tracking.archive.batch-size:5000}") int batchSize,
+                                      @Value("${tracking.archive.pause-between-batches-ms:500}") long pauseBetweenBatchesMillis,
+                                      @Value("${tracking.archive.window-start-hour-utc:1}") int windowStartHour,
+                                      @Value("${tracking.archive.window-end-hour-utc:5}") int windowEndHour,
+                                      @Value("${tracking.archive.lease-ms:600000}") long leaseMillis,
+                                      @Value("${tracking.archive.rescan-interval-ms:60000}") long rescanIntervalMillis,
+                                      @Value("${tracking.archive.index-keys-per-filter:1000000}") int indexKeysPerFilter) {
+        this.repository = repository;
+        this.jobLeaseService = jobLeaseService;
+        this.enabled = enabled;
+        this.directory = directory.isBlank() ? null : Paths.get(directory);
+        this.maxAge = Duration.ofDays(maxAgeDays);
+        this.batchSize = batchSize;
+        this.pauseBetweenBatchesMillis = pauseBetweenBatchesMillis;
+        this.windowStartHour = windowStartHour;
+        this.windowEndHour = windowEndHour;
+        this.lease = Duration.ofMillis(leaseMillis);
+        // One interval for the rescan to come round, one for it to finish indexing
+        this.deleteDelayNanos = TimeUnit.MILLISECONDS.toNanos(2 * rescanIntervalMillis);
+        this.index = new ArchiveSegmentIndex(indexKeysPerFilter);
+        this.clock = Clock.systemUTC();
+
+        Gauge.builder("tracking.archive.segments", segments, Map::size).register(meterRegistry);
+        Gauge.builder("tracking.archive.unindexed_segments", index, ArchiveSegmentIndex::pendingCount).register(meterRegistry);
+        this.archivedCounter = meterRegistry.counter("tracking.archive.archived");
+        this.archiveLookupCounter = meterRegistry.counter("tracking.archive.lookups");
+    }
+
+    // Only reads footers, so startup does not wait for the whole archive to be indexed
+    @PostConstruct
+    public void openSegments() {
+        if (directory == null || !Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(ArchiveSegment.FILE_EXTENSION))
+                    .filter(file -> !segments.containsKey(file))
+                    .forEach(this::openSegment);
+        } catch (IOException e) {
+            logger.warn("Failed to scan archive directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.archive.rescan-interval-ms:60000}", initialDelayString = "${tracking.archive.rescan-interval-ms:60000}")
+    public void refreshSegments() {
+        this.openSegments();
+        final int indexed = index.indexPending((segment, e) ->
+                logger.error("Failed to index archive segment {}: {}", segment.getPath(), e.getMessage()));
+        if (indexed > 0) {
+            logger.info("Indexed {} archive segments", indexed);
+        }
+    }
+
+    @Override
+    public Optional<TrackingNumberEntity> findArchived(final String trackingNumber) {
+        if (index.isEmpty()) {
+            return Optional.empty();
+        }
+        for (ArchiveSegment segment : index.candidates(trackingNumber)) {
+            archiveLookupCounter.increment();
+            try {
+                final TrackingNumberEntity record = segment.find(trackingNumber);
+                if (record != null) {
+                    return Optional.of(record);
+                }
+            } catch (IOException e) {
+                logger.error("Failed to read archive segment {}: {}", segment.getPath(), e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean isArchived(final String trackingNumber) {
+        return this.findArchived(trackingNumber).isPresent();
+    }
+
+    @Scheduled(cron = "${tracking.archive.schedule:0 */10 * * * *}", zone = "UTC")
+    public void scheduledArchival() {
+        if (enabled && !archiving.get()) {
+            archiveExecutor.execute(this::archiveEligibleRecords);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        archiveExecutor.shutdownNow();
+    }
+
+    @Override
+    public long archiveEligibleRecords() {
+        if (directory == null) {
+            logger.warn("Archival skipped: tracking.archive.directory is not configured");
+            return 0;
+        }
+        if (!archiving.compareAndSet(false, true)) {
+            return 0;
+        }
+        long archived = 0;
+        final Deque<ArchivedBatch> undeleted = new ArrayDeque<>();
+        try {
+            Files.createDirectories(directory);
+            final Instant cutoff = clock.instant().minus(maxAge);
+            Instant afterCreatedAt = Instant.EPOCH;
+            String afterTrackingNumber = "";
+            // Renewed before every batch, so a stalled instance loses the job to another one
+            while (this.insideWindow()) {
+                if (!jobLeaseService.tryAcquire(JOB_NAME, lease)) {
+                    logger.debug("Archival is running on another instance");
+                    break;
+                }
+                final List<TrackingNumberEntity> batch = repository.findArchivableAfter(cutoff, afterCreatedAt,
+                        afterTrackingNumber, PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                final TrackingNumberEntity last = batch.get(batch.size() - 1);
+                undeleted.add(this.archiveBatch(batch));
+                this.deleteArchived(undeleted, false);
+                archived += batch.size();
+                afterCreatedAt = last.getCreatedAt();
+                afterTrackingNumber = last.getTrackingNumber();
+                if (batch.size() < batchSize) {
+                    break;
+                }
+                TimeUnit.MILLISECONDS.sleep(pauseBetweenBatchesMillis);
+            }
+            this.deleteArchived(undeleted, true);
+        } catch (IOException e) {
+            logger.error("Archival stopped after {} records: {}", archived, e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            jobLeaseService.release(JOB_NAME);
+            archiving.set(false);
+        }
+        if (archived > 0) {
+            logger.info("Archived {} tracking records older than {}", archived, maxAge);
+        }
+        return archived;
+    }
+
+    private ArchivedBatch archiveBatch(final List<TrackingNumberEntity> batch) throws IOException {
+        final TrackingNumberEntity first = batch.get(0);
+        final String fileName = "segment-" + first.getCreatedAt().toEpochMilli() + "-" + first.getTrackingNumber()
+                + ArchiveSegment.FILE_EXTENSION;
+        final ArchiveSegment segment = ArchiveSegment.write(directory.resolve(fileName), batch);
+        // Register before deleting so the records never become unreachable; a rescan that already
+        // picked the file up has queued it for indexing
+        final List<String> trackingNumbers = batch.stream().map(TrackingNumberEntity::getTrackingNumber).toList();
+        if (segments.putIfAbsent(segment.getPath(), segment) == null) {
+            index.add(segment, trackingNumbers);
+        }
+        return new ArchivedBatch(trackingNumbers, System.nanoTime() + deleteDelayNanos);
+    }
+
+    // Deletes the batches every instance has had the chance to index, or waits for all of them
+    private void deleteArchived(final Deque<ArchivedBatch> undeleted, final boolean waitForAll) throws InterruptedException {
+        while (!undeleted.isEmpty()) {
+            final long remainingNanos = undeleted.peek().deletableAtNanos() - System.nanoTime();
+            if (remainingNanos > 0) {
+                if (!waitForAll) {
+                    return;
+                }
+                TimeUnit.NANOSECONDS.sleep(remainingNanos);
+            }
+            final ArchivedBatch batch = undeleted.poll();
+            repository.deleteAllByIdInBatch(batch.trackingNumbers());
+            archivedCounter.increment(batch.trackingNumbers().size());
+        }
+    }
+
+    private record ArchivedBatch(List<String> trackingNumbers, long deletableAtNanos) {
+    }
+
+    private boolean insideWindow() {
+        final int hour = clock.instant().atZone(ZoneOffset.UTC).getHour();
+        return windowStartHour <= windowEndHour
+                ? hour >= windowStartHour && hour < windowEndHour
+                : hour >= windowStartHour || hour < windowEndHour;
+    }
+
+    private void openSegment(final Path file) {
+        try {
+            final ArchiveSegment segment = ArchiveSegment.open(file);
+            if (segments.putIfAbsent(file, segment) == null) {
+                index.addPending(segment);
+            }
+        } catch (IOException e) {
+            logger.error("Skipping unreadable archive segment {}: {}", file, e.getMessage());
+        }
+    }
+}
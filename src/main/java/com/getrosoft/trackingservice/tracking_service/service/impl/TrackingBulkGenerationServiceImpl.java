@@ -0,0 +1,457 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.getrosoft.trackingservice.tracking_service.config.DataSourceRouting;
+import com.getrosoft.trackingservice.tracking_service.config.DatabaseAvailability;
+import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
+import com.getrosoft.trackingservice.tracking_service.exceptions.InvalidInputException;
+import com.getrosoft.trackingservice.tracking_service.exceptions.TrackingNumberGenerationException;
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import com.getrosoft.trackingservice.tracking_service.payload.BulkGenerationReport;
+import com.getrosoft.trackingservice.tracking_service.payload.BulkGenerationRequest;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingArchiveService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingBulkGenerationService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingOutboxService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingSpillJournal;
+import com.getrosoft.trackingservice.tracking_service.utils.CountryCodeRegistry;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingNumberGeneratorUtil;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingNumberRequestValidator;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Generates label runs of millions of tracking numbers without going through the HTTP and
+ * single-record create path.
+ * <p>
+ * The run is cut into batches of {@code batch-size} numbers that a dedicated fork-join pool splits
+ * across its workers. A worker draws a batch, drops numbers already in the database, the archive or
+ * the spill journal, and reserves the rest in one transaction that Hibernate sends as JDBC batches.
+ * If a concurrent insert takes one of the numbers first, the flush fails on the unique key, the
+ * batch rolls back and the whole batch is drawn again, up to five times.
+ * Reserved numbers are encoded into the worker's direct buffer and written to the output with
+ * positional {@link FileChannel} writes at offsets claimed from a shared counter, so workers never
+ * wait on each other for the file. Lines therefore appear in completion order.
+ * <p>
+ * Numbers use the self-describing layout like single creates. A run puts millions of numbers into
+ * one lane, weight band and day, a small fraction of the 36^8 that layout holds per segment and
+ * day, so draws that hit an issued number stay rare. Each reserved
+ * number gets a creation event in the outbox in the same transaction, unless
+ * {@code publish-events} is off, in which case the output file is the only record of the run.
+ * <p>
+ * If a batch fails, no further batches start. Once the running ones have finished, every number
+ * written to the output so far is deleted again, together with its creation event if the relay has
+ * not delivered it yet, and the output file is removed, so a failed run leaves nothing reserved and
+ * can simply be started again.
+ */
+@Service
+public class TrackingBulkGenerationServiceImpl implements TrackingBulkGenerationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrackingBulkGenerationServiceImpl.class);
+
+    // Same columns as bulk import, so a run's output can be imported into another environment
+    private static final byte[] HEADER =
+            "trackingNumber,originCountryId,destinationCountryId,weight,customerId,customerSlug,createdAt\n"
+                    .getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_BATCH_ATTEMPTS = 5;
+    private static final int MIN_BUFFER_BYTES = 64 * 1024;
+
+    private final TrackingNumberRepository repository;
+    private final TrackingArchiveService archiveService;
+    private final TrackingSpillJournal spillJournal;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TrackingOutboxService outbox;
+    private final boolean publishEvents;
+    private final int batchSize;
+    private final int parallelism;
+    private final int bufferBytes;
+
+    public TrackingBulkGenerationServiceImpl(TrackingNumberRepository repository,
+                                             TrackingArchiveService archiveService,
+                                             TrackingSpillJournal spillJournal,
+                                             EntityManager entityManager,
+                                             PlatformTransactionManager transactionManager,
+                                             TrackingOutboxService outbox,
+                                             @Value("${tracking.generate.publish-events:true}") boolean publishEvents,
+                                             @Value("${tracking.generate.batch-size:5000}") int batchSize,
+                                             @Value("${tracking.generate.parallelism:0}") int parallelism,
+                                             @Value("${tracking.generate.buffer-kb:4096}") int bufferKb,
+                                             @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        this.repository = repository;
+        this.archiveService = archiveService;
+        this.spillJournal = spillJournal;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.outbox = outbox;
+        this.publishEvents = publishEvents;
+        this.batchSize = batchSize;
+        // Each worker holds a connection while it reserves, so more workers than connections only queue
+        this.parallelism = parallelism > 0 ? parallelism
+                : Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), connectionPoolSize));
+        this.bufferBytes = Math.max(MIN_BUFFER_BYTES, bufferKb * 1024);
+    }
+
+    @Override
+    public BulkGenerationReport generate(final BulkGenerationRequest request) {
+        final List<Combination> combinations = combinationsOf(request);
+        final long batches = (request.getCount() + batchSize - 1) / batchSize;
+        logger.info("Generating {} tracking numbers over {} lane and customer combinations into {} ({} batches, {} workers)",
+                request.getCount(), combinations.size(), request.getOutput(), batches, parallelism);
+
+        final long startedAt = System.nanoTime();
+        Run run = null;
+        try (FileChannel channel = FileChannel.open(request.getOutput(), CREATE, TRUNCATE_EXISTING, WRITE)) {
+            run = new Run(request.getCount(), combinations, channel);
+            writeFully(channel, ByteBuffer.wrap(HEADER), 0);
+            final ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new BatchRange(run, 0, batches));
+            } finally {
+                // A failed batch surfaces before its siblings finish; wait so the cleanup sees them all
+                pool.shutdown();
+                awaitTermination(pool);
+            }
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            if (run != null) {
+                run.failed = true;
+                this.releaseWritten(request, run);
+            }
+            if (e instanceof IOException io) {
+                throw new UncheckedIOException("Unable to write " + request.getOutput() + ": " + e.getMessage(), io);
+            }
+            throw (RuntimeException) e;
+        }
+
+        final double seconds = (System.nanoTime() - startedAt) / 1e9;
+        return BulkGenerationReport.builder()
+                .output(request.getOutput().toString())
+                .generated(run.generated.sum())
+                .batches(batches)
+                .redrawn(run.redrawn.sum())
+                .retriedBatches(run.retriedBatches.sum())
+                .bytesWritten(run.position.get())
+                .durationSeconds(seconds)
+                .numbersPerSecond(seconds > 0 ? run.generated.sum() / seconds : 0)
+                .build();
+    }
+
+    private void generateBatch(final Run run, final long batch) {
+        if (run.failed) {
+            return;
+        }
+        final long firstIndex = batch * batchSize;
+        final int size = (int) Math.min(batchSize, run.count - firstIndex);
+        final Instant createdAt = Instant.now();
+        try {
+            final List<TrackingNumberEntity> reserved = this.reserve(run, firstIndex, size, createdAt);
+            try {
+                this.write(run, reserved, createdAt);
+            } catch (RuntimeException e) {
+                // Part of the batch may be missing from the output, so release it here
+                this.delete(reserved.stream().map(TrackingNumberEntity::getTrackingNumber).toList());
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            run.failed = true;
+            throw e;
+        }
+        run.generated.add(size);
+    }
+
+    // Deletes every number the output lists; if that fails too, the output is kept as the record of what is reserved
+    private void releaseWritten(final BulkGenerationRequest request, final Run run) {
+        long released = 0;
+        try (BufferedReader reader = Files.newBufferedReader(request.getOutput(), StandardCharsets.UTF_8)) {
+            reader.readLine(); // Header
+            final List<String> chunk = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // A region claimed by a batch whose write failed reads back as NULs before the next line
+                int start = 0;
+                while (start < line.length() && line.charAt(start) == 0) {
+                    start++;
+                }
+                final int comma = line.indexOf(',', start);
+                if (comma <= start) {
+                    continue;
+                }
+                chunk.add(line.substring(start, comma));
+                if (chunk.size() == batchSize) {
+                    released += this.delete(chunk);
+                    chunk.clear();
+                }
+            }
+            released += this.delete(chunk);
+            Files.delete(request.getOutput());
+            logger.warn("Label run into {} failed; released {} reserved numbers and removed the output", request.getOutput(), released);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Label run into {} failed and its reserved numbers could not be released; the numbers listed in "
+                    + "the output remain reserved: {}", request.getOutput(), e.getMessage(), e);
+        }
+    }
+
+    private int delete(final List<String> trackingNumbers) {
+        if (!trackingNumbers.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                outbox.discardCreated(trackingNumbers);
+                repository.deleteAllByIdInBatch(trackingNumbers);
+            });
+        }
+        return trackingNumbers.size();
+    }
+
+    private static void awaitTermination(final ForkJoinPool pool) {
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.info("Waiting for label run batches to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<TrackingNumberEntity> reserve(final Run run, final long firstIndex, final int size, final Instant createdAt) {
+        for (int attempt = 1; ; attempt++) {
+            final Map<String, TrackingNumberEntity> candidates = new LinkedHashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                final Combination combination = run.combinations.get((int) ((firstIndex + i) % run.combinations.size()));
+                this.addUnique(run, candidates, combination, createdAt);
+            }
+            this.replaceTaken(run, candidates, createdAt);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    candidates.values().forEach(entityManager::persist);
+                    if (publishEvents) {
+                        candidates.values().forEach(outbox::recordCreated);
+                    }
+                    entityManager.flush();
+                    entityManager.clear();
+                });
+                return new ArrayList<>(candidates.values());
+            } catch (RuntimeException e) {
+                // The flush is not translated by a repository, so the conflict arrives as Hibernate's exception
+                if (!DatabaseAvailability.isDuplicateKey(e)) {
+                    throw e;
+                }
+                if (attempt >= MAX_BATCH_ATTEMPTS) {
+                    throw new TrackingNumberGenerationException("Batch at index " + firstIndex
+                            + " could not be reserved after " + attempt + " attempts", e);
+                }
+                run.retriedBatches.increment();
+                logger.debug("Batch at index {} collided with a concurrent insert, drawing it again", firstIndex);
+            }
+        }
+    }
+
+    private void addUnique(final Run run, final Map<String, TrackingNumberEntity> candidates,
+                           final Combination combination, final Instant createdAt) {
+        String trackingNumber = combination.draw(createdAt);
+        while (candidates.containsKey(trackingNumber)) {
+            run.redrawn.increment();
+            trackingNumber = combination.draw(createdAt);
+        }
+        candidates.put(trackingNumber, combination.newRecord(trackingNumber, createdAt));
+    }
+
+    // Redraws until no candidate is already issued; only the primary is guaranteed to be current
+    private void replaceTaken(final Run run, final Map<String, TrackingNumberEntity> candidates, final Instant createdAt) {
+        Set<String> toCheck = candidates.keySet();
+        while (!toCheck.isEmpty()) {
+            final Set<String> checking = toCheck;
+            final Set<String> taken = new HashSet<>(DataSourceRouting.onPrimary(
+                    () -> repository.findExistingTrackingNumbers(checking)));
+            for (String trackingNumber : checking) {
+                if (archiveService.isArchived(trackingNumber) || spillJournal.isJournaled(trackingNumber)) {
+                    taken.add(trackingNumber);
+                }
+            }
+            toCheck = new HashSet<>();
+            for (String trackingNumber : taken) {
+                final Combination combination = Combination.of(candidates.remove(trackingNumber));
+                run.redrawn.increment();
+                String replacement = combination.draw(createdAt);
+                while (candidates.containsKey(replacement)) {
+                    run.redrawn.increment();
+                    replacement = combination.draw(createdAt);
+                }
+                candidates.put(replacement, combination.newRecord(replacement, createdAt));
+                toCheck.add(replacement);
+            }
+        }
+    }
+
+    private void write(final Run run, final List<TrackingNumberEntity> records, final Instant createdAt) {
+        final ByteBuffer buffer = run.buffer.get();
+        final byte[] createdAtField = (createdAt.toString() + "\n").getBytes(StandardCharsets.US_ASCII);
+        buffer.clear();
+        for (TrackingNumberEntity record : records) {
+            final byte[] fields = run.csvFields.get(Combination.of(record));
+            final String trackingNumber = record.getTrackingNumber();
+            if (buffer.remaining() < trackingNumber.length() + fields.length + createdAtField.length) {
+                this.flush(run, buffer);
+            }
+            for (int i = 0; i < trackingNumber.length(); i++) {
+                buffer.put((byte) trackingNumber.charAt(i));
+            }
+            buffer.put(fields).put(createdAtField);
+        }
+        this.flush(run, buffer);
+    }
+
+    // Claims a region of the file for the buffered lines and writes them there
+    private void flush(final Run run, final ByteBuffer buffer) {
+        buffer.flip();
+        if (buffer.hasRemaining()) {
+            final long position = run.position.getAndAdd(buffer.remaining());
+            try {
+                writeFully(run.channel, buffer, position);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to write label run output: " + e.getMessage(), e);
+            }
+        }
+        buffer.clear();
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static List<Combination> combinationsOf(final BulkGenerationRequest request) {
+        if (request.getCount() <= 0) {
+            throw new InvalidInputException("Count must be positive");
+        }
+        if (request.getLanes() == null || request.getLanes().isEmpty()
+                || request.getCustomers() == null || request.getCustomers().isEmpty()) {
+            throw new InvalidInputException("At least one lane and one customer are required");
+        }
+        final List<Combination> combinations = new ArrayList<>();
+        for (BulkGenerationRequest.Lane lane : request.getLanes()) {
+            for (BulkGenerationRequest.Customer customer : request.getCustomers()) {
+                final Combination combination = new Combination(lane.originCountryId(), lane.destinationCountryId(),
+                        request.getWeight(), customer.customerId(), customer.customerSlug());
+                final Map<String, String> errors = TrackingNumberRequestValidator.validate(combination.toDto());
+                if (!errors.isEmpty()) {
+                    throw new InvalidInputException("Invalid label run parameters", errors);
+                }
+                // The file lists the alpha-2 codes the numbers and records use
+                combinations.add(new Combination(CountryCodeRegistry.canonical(lane.originCountryId()),
+                        CountryCodeRegistry.canonical(lane.destinationCountryId()),
+                        request.getWeight(), customer.customerId(), customer.customerSlug()));
+            }
+        }
+        return combinations;
+    }
+
+    private final class BatchRange extends RecursiveAction {
+
+        private final Run run;
+        private final long from;
+        private final long to;
+
+        private BatchRange(Run run, long from, long to) {
+            this.run = run;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                generateBatch(run, from);
+                return;
+            }
+            final long middle = (from + to) >>> 1;
+            invokeAll(new BatchRange(run, from, middle), new BatchRange(run, middle, to));
+        }
+    }
+
+    private final class Run {
+
+        private final long count;
+        private final List<Combination> combinations;
+        // Every CSV field after the tracking number except createdAt, per combination
+        private final Map<Combination, byte[]> csvFields = new LinkedHashMap<>();
+        private final FileChannel channel;
+        private final AtomicLong position = new AtomicLong(HEADER.length);
+        private final ThreadLocal<ByteBuffer> buffer = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(bufferBytes));
+        private final LongAdder generated = new LongAdder();
+        private final LongAdder redrawn = new LongAdder();
+        private final LongAdder retriedBatches = new LongAdder();
+        private volatile boolean failed;
+
+        private Run(long count, List<Combination> combinations, FileChannel channel) {
+            this.count = count;
+            this.combinations = combinations;
+            this.channel = channel;
+            combinations.forEach(combination -> csvFields.put(combination, combination.csvFields()));
+        }
+    }
+
+    private record Combination(String originCountryId, String destinationCountryId, BigDecimal weight,
+                               UUID customerId, String customerSlug) {
+
+        private static Combination of(final TrackingNumberEntity record) {
+            return new Combination(record.getOriginCountryId(), record.getDestinationCountryId(), record.getWeight(),
+                    record.getCustomerId(), record.getCustomerSlug());
+        }
+
+        private String draw(final Instant createdAt) {
+            return TrackingNumberGeneratorUtil.generateSelfDescribingTrackingNumber(originCountryId, destinationCountryId,
+                    weight, createdAt);
+        }
+
+        private TrackingNumberEntity newRecord(final String trackingNumber, final Instant createdAt) {
+            return new TrackingNumberEntity(trackingNumber, createdAt, originCountryId, destinationCountryId,
+                    weight, customerId, customerSlug);
+        }
+
+        private TrackingNumberDto toDto() {
+            return new TrackingNumberDto(originCountryId, destinationCountryId, weight, customerId, customerSlug);
+        }
+
+        private byte[] csvFields() {
+            return ("," + csv(originCountryId) + "," + csv(destinationCountryId) + "," + weight.toPlainString()
+                    + "," + customerId + "," + csv(customerSlug) + ",").getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static String csv(final String value) {
+            return value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    ? value
+                    : "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
+import com.getrosoft.trackingservice.tracking_service.payload.CapacityProjection;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingCapacityPlanner;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingNumberFormat;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingNumberGeneratorUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks how full each self-describing segment (lane and weight band) is and warns before
+ * collisions become likely.
+ * <p>
+ * Self-describing numbers carry their creation day, so a segment's space starts empty every day
+ * and only the current day's issues count. With 36^8 numbers per segment and day, the chance that
+ * the next draw collides stays negligible long after the chance that some pair of today's numbers
+ * collided does not, so the threshold applies to the latter: the birthday bound
+ * {@code 1 - exp(-n(n-1) / 2N)} for n issues in a space of N. A threshold of 0.01 is crossed at
+ * about 238,000 issues per segment and day. The observed collision rate, compared against the same
+ * threshold, catches days also being filled by other instances. Crossing either logs a warning
+ * once per segment and day; issuance itself does not change.
+ */
+@Service
+public class TrackingCapacityPlannerImpl implements TrackingCapacityPlanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrackingCapacityPlannerImpl.class);
+
+    private final Map<String, SegmentStatistics> segments = new ConcurrentHashMap<>();
+    private final double space = TrackingNumberGeneratorUtil.selfDescribingLayoutSpacePerDay();
+    private final double collisionThreshold;
+    // Issues per segment and day at which the birthday bound reaches the threshold
+    private final long thresholdIssues;
+    private final long minIssuesForObservedRate;
+    private final int maxSegments;
+    private final long idleNanos;
+    private final Counter thresholdCounter;
+
+    public TrackingCapacityPlannerImpl(MeterRegistry meterRegistry,
+                                       @Value("${tracking.capacity.collision-threshold:0.01}") double collisionThreshold,
+                                       @Value("${tracking.capacity.min-issues-for-observed-rate:20}") long minIssuesForObservedRate,
+                                       @Value("${tracking.capacity.max-segments:100000}") int maxSegments,
+                                       @Value("${tracking.capacity.segment-idle-minutes:1440}") long segmentIdleMinutes) {
+        this.collisionThreshold = collisionThreshold;
+        this.thresholdIssues = (long) Math.ceil(0.5 + Math.sqrt(0.25 - 2 * space * Math.log1p(-collisionThreshold)));
+        this.minIssuesForObservedRate = minIssuesForObservedRate;
+        this.maxSegments = maxSegments;
+        this.idleNanos = TimeUnit.MINUTES.toNanos(segmentIdleMinutes);
+        this.thresholdCounter = meterRegistry.counter("tracking.capacity.threshold.crossings");
+        Gauge.builder("tracking.capacity.segments", segments, Map::size).register(meterRegistry);
+    }
+
+    @Override
+    public void recordIssue(final TrackingNumberDto request, final boolean collided) {
+        final String segment = segmentOf(request);
+        SegmentStatistics statistics = segments.get(segment);
+        if (statistics == null) {
+            if (segments.size() >= maxSegments) {
+                return; // Cold segments beyond the limit are not worth tracking
+            }
+            statistics = segments.computeIfAbsent(segment, key -> new SegmentStatistics());
+        }
+        final long day = currentDay();
+        final WindowSnapshot window = statistics.record(day, collided);
+        if (statistics.overThresholdDay != day && this.exceedsThreshold(window)) {
+            statistics.overThresholdDay = day;
+            thresholdCounter.increment();
+            logger.atWarn().setMessage("Segment reached the tracking number collision threshold for the day")
+                    .addKeyValue("segment", segment)
+                    .addKeyValue("issued", window.issued())
+                    .addKeyValue("collisionProbability", window.collisionProbability(space))
+                    .addKeyValue("observedCollisionRate", window.observedCollisionRate())
+                    .log();
+        }
+    }
+
+    @Override
+    public List<CapacityProjection> projections(final int limit) {
+        final long day = currentDay();
+        return segments.entrySet().stream()
+                .map(entry -> this.project(entry.getKey(), entry.getValue(), day))
+                .sorted(Comparator.comparingDouble(CapacityProjection::getCollisionProbability)
+                        .thenComparingDouble(CapacityProjection::getObservedCollisionRate)
+                        .reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public int trackedSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public long segmentsOverThresholdCount() {
+        final long day = currentDay();
+        return segments.values().stream().filter(statistics -> statistics.overThresholdDay == day).count();
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.capacity.prune-interval-ms:600000}")
+    public void pruneIdleSegments() {
+        final long now = System.nanoTime();
+        segments.values().removeIf(statistics -> now - statistics.lastIssuedNanos > idleNanos);
+    }
+
+    private boolean exceedsThreshold(final WindowSnapshot window) {
+        return window.issued() >= thresholdIssues
+                || (window.issued() >= minIssuesForObservedRate && window.observedCollisionRate() >= collisionThreshold);
+    }
+
+    private CapacityProjection project(final String segment, final SegmentStatistics statistics, final long day) {
+        final WindowSnapshot window = statistics.snapshot(day);
+        final double occupancy = window.occupancy(space);
+        // Each draw collides with probability p, so the expected number of retries is p / (1 - p)
+        final double expectedRetries = occupancy >= 1 ? Double.POSITIVE_INFINITY : occupancy / (1 - occupancy);
+        final long remaining = Math.max(0, thresholdIssues - window.issued());
+        return new CapacityProjection(segment, window.issued(), space, occupancy, window.collisionProbability(space),
+                expectedRetries, window.collisions(), window.observedCollisionRate(),
+                remaining, statistics.overThresholdDay == day);
+    }
+
+    private static long currentDay() {
+        return TrackingNumberFormat.creationDay(Instant.now());
+    }
+
+    private static String segmentOf(final TrackingNumberDto request) {
+        return TrackingNumberGeneratorUtil.selfDescribingLayoutSegment(request.getOriginCountryId(),
+                request.getDestinationCountryId(), request.getWeight());
+    }
+
+    private record WindowSnapshot(long issued, long collisions) {
+
+        private double occupancy(final double space) {
+            return space <= 0 ? 1 : issued / space;
+        }
+
+        private double collisionProbability(final double space) {
+            return space <= 0 ? 1 : -Math.expm1(-issued * (issued - 1.0) / (2 * space));
+        }
+
+        private double observedCollisionRate() {
+            return issued == 0 ? 0 : (double) collisions / issued;
+        }
+    }
+
+    private static final class SegmentStatistics {
+
+        // Issues and collisions in windowDay; guarded by this
+        private long windowDay = -1;
+        private long issued;
+        private long collisions;
+        private volatile long overThresholdDay = -1;
+        private volatile long lastIssuedNanos = System.nanoTime();
+
+        private synchronized WindowSnapshot record(final long day, final boolean collided) {
+            if (day != windowDay) {
+                windowDay = day;
+                issued = 0;
+                collisions = 0;
+            }
+            issued++;
+            if (collided) {
+                collisions++;
+            }
+            lastIssuedNanos = System.nanoTime();
+            return new WindowSnapshot(issued, collisions);
+        }
+
+        private synchronized WindowSnapshot snapshot(final long day) {
+            return day == windowDay ? new WindowSnapshot(issued, collisions) : new WindowSnapshot(0, 0);
+        }
+    }
+}
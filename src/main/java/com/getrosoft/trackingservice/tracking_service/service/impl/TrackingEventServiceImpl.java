@@ -0,0 +1,227 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.getrosoft.trackingservice.tracking_service.dto.LatestTrackingStatus;
+import com.getrosoft.trackingservice.tracking_service.dto.TrackingEventDto;
+import com.getrosoft.trackingservice.tracking_service.exceptions.InvalidInputException;
+import com.getrosoft.trackingservice.tracking_service.model.TrackingEventEntity;
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import com.getrosoft.trackingservice.tracking_service.payload.Status;
+import com.getrosoft.trackingservice.tracking_service.payload.TrackingUpdate;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingEventRepository;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import com.getrosoft.trackingservice.tracking_service.service.DeliveryEstimateService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingEventService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingUpdateService;
+import com.getrosoft.trackingservice.tracking_service.utils.BoundedRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Ingests carrier scan events through a bounded ring buffer drained by a single writer thread.
+ * <p>
+ * Request threads only enqueue, so a burst costs one CAS per event instead of one insert. The
+ * writer persists events in batches, advances the in-memory latest status of every tracking
+ * number it wrote, which is what lookups read, and then hands the batch to live subscribers.
+ * <p>
+ * A lookup that finds no events remembers that too, so repeated lookups of a shipment that has not
+ * been scanned yet do not query the event table each time. The marker sorts before every real
+ * status, so the writer replaces it as soon as it persists the first event for that number.
+ */
+@Service
+public class TrackingEventServiceImpl implements TrackingEventService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrackingEventServiceImpl.class);
+
+    private static final int MAX_PERSIST_ATTEMPTS = 3;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // Cached for tracking numbers without events; older than any event, so any real status replaces it
+    private static final LatestTrackingStatus NO_EVENTS = new LatestTrackingStatus(null, Instant.MIN);
+
+    private final TrackingEventRepository eventRepository;
+    private final TrackingNumberRepository trackingNumberRepository;
+    private final DeliveryEstimateService deliveryEstimateService;
+    private final TrackingUpdateService trackingUpdateService;
+    private final BoundedRingBuffer<TrackingEventEntity> buffer;
+    private final int batchSize;
+    private final int maxTrackedStatuses;
+    private final Map<String, LatestTrackingStatus> latestStatuses = new ConcurrentHashMap<>();
+
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+    private final Counter persistedCounter;
+    private final Counter droppedCounter;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public TrackingEventServiceImpl(TrackingEventRepository eventRepository,
+                                    TrackingNumberRepository trackingNumberRepository,
+                                    DeliveryEstimateService deliveryEstimateService,
+                                    TrackingUpdateService trackingUpdateService,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${tracking.events.buffer-capacity:262144}") int bufferCapacity,
+                                    @Value("${tracking.events.batch-size:1000}") int batchSize,
+                                    @Value("${tracking.events.max-tracked-statuses:1000000}") int maxTrackedStatuses) {
+        this.eventRepository = eventRepository;
+        this.trackingNumberRepository = trackingNumberRepository;
+        this.deliveryEstimateService = deliveryEstimateService;
+        this.trackingUpdateService = trackingUpdateService;
+        this.buffer = new BoundedRingBuffer<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.maxTrackedStatuses = maxTrackedStatuses;
+
+        Gauge.builder("tracking.events.buffer.size", buffer, BoundedRingBuffer::size).register(meterRegistry);
+        this.acceptedCounter = meterRegistry.counter("tracking.events.accepted");
+        this.rejectedCounter = meterRegistry.counter("tracking.events.rejected");
+        this.persistedCounter = meterRegistry.counter("tracking.events.persisted");
+        this.droppedCounter = meterRegistry.counter("tracking.events.dropped");
+    }
+
+    @PostConstruct
+    void startWriter() {
+        running = true;
+        writer = new Thread(this::drainLoop, "tracking-event-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stopWriter() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    @Override
+    public int ingest(final List<TrackingEventDto> events) {
+        final Instant receivedAt = Instant.now();
+        int accepted = 0;
+        for (TrackingEventDto event : events) {
+            final TrackingEventEntity entity = new TrackingEventEntity(null, event.getTrackingNumber(), event.getStatus(),
+                    event.getEventTime(), event.getLocation(), receivedAt);
+            if (!buffer.offer(entity)) {
+                break;
+            }
+            accepted++;
+        }
+        acceptedCounter.increment(accepted);
+        rejectedCounter.increment(events.size() - accepted);
+        return accepted;
+    }
+
+    @Override
+    public LatestTrackingStatus getLatestStatus(final String trackingNumber) {
+        final LatestTrackingStatus cached = latestStatuses.get(trackingNumber);
+        if (cached != null) {
+            return cached != NO_EVENTS ? cached : null;
+        }
+        final LatestTrackingStatus loaded = eventRepository.findFirstByTrackingNumberOrderByEventTimeDesc(trackingNumber)
+                .map(event -> new LatestTrackingStatus(event.getStatus(), event.getEventTime()))
+                .orElse(NO_EVENTS);
+        // Merged like a written status, so an event persisted while the query ran is never hidden
+        this.remember(trackingNumber, loaded);
+        return loaded != NO_EVENTS ? loaded : null;
+    }
+
+    private void drainLoop() {
+        final List<TrackingEventEntity> batch = new ArrayList<>(batchSize);
+        while (running || buffer.size() > 0) {
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                this.persist(batch);
+            } catch (RuntimeException e) {
+                logger.error("Unexpected failure in tracking event writer: {}", e.getMessage(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void persist(final List<TrackingEventEntity> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                eventRepository.saveAll(batch);
+                break;
+            } catch (DataAccessException e) {
+                if (attempt == MAX_PERSIST_ATTEMPTS) {
+                    logger.error("Dropping {} tracking events after {} failed attempts: {}", batch.size(), attempt, e.getMessage());
+                    droppedCounter.increment(batch.size());
+                    return;
+                }
+                logger.warn("Persisting {} tracking events failed (attempt {}), retrying: {}", batch.size(), attempt, e.getMessage());
+                batch.forEach(event -> event.setId(null));
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100L * attempt));
+            }
+        }
+        persistedCounter.increment(batch.size());
+        this.afterPersist(batch);
+    }
+
+    private void afterPersist(final List<TrackingEventEntity> batch) {
+        final List<TrackingUpdate> updates = new ArrayList<>(batch.size());
+        final Map<String, Instant> deliveredAt = new HashMap<>();
+        for (TrackingEventEntity event : batch) {
+            this.remember(event.getTrackingNumber(), new LatestTrackingStatus(event.getStatus(), event.getEventTime()));
+            updates.add(new TrackingUpdate(event.getTrackingNumber(), event.getStatus(), event.getEventTime(), event.getLocation()));
+            if (event.getStatus() == Status.DELIVERED) {
+                deliveredAt.merge(event.getTrackingNumber(), event.getEventTime(), (a, b) -> a.isBefore(b) ? a : b);
+            }
+        }
+
+        // Shipments are only loaded when delivered scans or customer-level subscriptions need them
+        final boolean resolveCustomers = trackingUpdateService.hasCustomerSubscribers();
+        final Map<String, UUID> customerIds = new HashMap<>();
+        if (resolveCustomers || !deliveredAt.isEmpty()) {
+            final Set<String> trackingNumbers = resolveCustomers
+                    ? updates.stream().map(TrackingUpdate::getTrackingNumber).collect(Collectors.toSet())
+                    : deliveredAt.keySet();
+            for (TrackingNumberEntity shipment : trackingNumberRepository.findAllById(trackingNumbers)) {
+                customerIds.put(shipment.getTrackingNumber(), shipment.getCustomerId());
+                final Instant delivered = deliveredAt.get(shipment.getTrackingNumber());
+                if (delivered != null) {
+                    this.recordDelivery(shipment, delivered);
+                }
+            }
+        }
+        trackingUpdateService.publish(updates, customerIds);
+    }
+
+    private void remember(final String trackingNumber, final LatestTrackingStatus status) {
+        if (latestStatuses.size() >= maxTrackedStatuses && !latestStatuses.containsKey(trackingNumber)) {
+            return;
+        }
+        latestStatuses.merge(trackingNumber, status, (current, candidate) -> candidate.isNewerThan(current) ? candidate : current);
+    }
+
+    // Delivered scans are the ground truth for lane transit times
+    private void recordDelivery(final TrackingNumberEntity shipment, final Instant deliveredAt) {
+        try {
+            deliveryEstimateService.recordDelivery(shipment.getTrackingNumber(), shipment.getOriginCountryId(),
+                    shipment.getDestinationCountryId(),
+                    shipment.getWeight(), shipment.getCreatedAt(), deliveredAt);
+        } catch (InvalidInputException e) {
+            logger.debug("Skipping delivery of {} for estimates: {}", shipment.getTrackingNumber(), e.getMessage());
+        }
+    }
+}
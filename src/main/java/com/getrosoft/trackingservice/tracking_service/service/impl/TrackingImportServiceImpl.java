@@ -0,0 +1,449 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.getrosoft.trackingservice.tracking_service.config.DataSourceRouting;
+import com.getrosoft.trackingservice.tracking_service.config.DatabaseAvailability;
+import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
+import com.getrosoft.trackingservice.tracking_service.exceptions.InvalidInputException;
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import com.getrosoft.trackingservice.tracking_service.payload.ImportFormat;
+import com.getrosoft.trackingservice.tracking_service.payload.ImportReport;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import com.getrosoft.trackingservice.tracking_service.service.JobLeaseService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingOutboxService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingArchiveService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingImportService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingSpillJournal;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingImportParser;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingNumberFormat;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingNumberRequestValidator;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Streams existing tracking numbers into the database through a bounded two-stage pipeline.
+ * <p>
+ * A parser thread reads the input and hands chunks of {@code commit-size} records to the importing
+ * thread through a queue of a few chunks, so a slow database pushes back on the reader instead of
+ * buffering the input. Each chunk is validated with the same rules as the create path, deduplicated
+ * within itself, against the database and against the archive, then persisted in one transaction
+ * that Hibernate sends as JDBC batches. Duplicates across chunks are caught by the database check
+ * because earlier chunks are committed first. A number created elsewhere between the check and the
+ * commit fails the chunk's transaction; the chunk is then inserted row by row and such numbers are
+ * counted as duplicates. Each inserted number gets a creation event in the outbox in the same
+ * transaction, unless {@code publish-events} is off for migrations the downstream feed should not see.
+ * <p>
+ * After each commit the last line of the chunk is written to the job's checkpoint file. Running a
+ * failed job again with the same ID and input skips everything up to the checkpoint; the checkpoint
+ * is deleted once the job completes, so a later job may reuse the ID for new input. A job runs on one
+ * instance at a time under a lease taken through {@link JobLeaseService}.
+ */
+@Service
+public class TrackingImportServiceImpl implements TrackingImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrackingImportServiceImpl.class);
+
+    private static final Pattern JOB_ID_PATTERN = Pattern.compile("[A-Za-z0-9_.-]{1,64}");
+    private static final Pattern FOREIGN_ID_PATTERN = Pattern.compile("[A-Za-z0-9-]{1,64}");
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final int MAX_RETAINED_JOBS = 100;
+    private static final String LEASE_PREFIX = "tracking-import:";
+    private static final List<TrackingImportParser.ParsedRecord> END_OF_INPUT = List.of();
+
+    private final TrackingNumberRepository repository;
+    private final TrackingArchiveService archiveService;
+    private final TrackingSpillJournal spillJournal;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final JobLeaseService jobLeaseService;
+    private final TrackingOutboxService outbox;
+    private final boolean publishEvents;
+    private final int commitSize;
+    private final int queueChunks;
+    private final Path checkpointDirectory;
+    private final long progressIntervalNanos;
+    private final Duration lease;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    // Jobs between their running check and registration in jobs; a job ID is in at most one of the two
+    private final Set<String> starting = ConcurrentHashMap.newKeySet();
+
+    public TrackingImportServiceImpl(TrackingNumberRepository repository,
+                                     TrackingArchiveService archiveService,
+                                     TrackingSpillJournal spillJournal,
+                                     EntityManager entityManager,
+                                     PlatformTransactionManager transactionManager,
+                                     ObjectMapper objectMapper,
+                                     JobLeaseService jobLeaseService,
+                                     TrackingOutboxService outbox,
+                                     @Value("${tracking.import.publish-events:true}") boolean publishEvents,
+                                     @Value("${tracking.import.commit-size:1000}") int commitSize,
+                                     @Value("${tracking.import.queue-chunks:4}") int queueChunks,
+                                     @Value("${tracking.import.checkpoint-directory}") String checkpointDirectory,
+                                     @Value("${tracking.import.progress-interval-ms:10000}") long progressIntervalMillis,
+                                     @Value("${tracking.import.lease-ms:600000}") long leaseMillis) {
+        this.repository = repository;
+        this.archiveService = archiveService;
+        this.spillJournal = spillJournal;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.jobLeaseService = jobLeaseService;
+        this.outbox = outbox;
+        this.publishEvents = publishEvents;
+        this.commitSize = commitSize;
+        this.queueChunks = queueChunks;
+        this.checkpointDirectory = Paths.get(checkpointDirectory);
+        this.progressIntervalNanos = Duration.ofMillis(progressIntervalMillis).toNanos();
+        this.lease = Duration.ofMillis(leaseMillis);
+    }
+
+    @Override
+    public ImportReport importTrackingNumbers(final String jobId, final InputStream input, final ImportFormat format,
+                                              final boolean allowForeignIds) {
+        if (jobId == null || !JOB_ID_PATTERN.matcher(jobId).matches()) {
+            throw new InvalidInputException("Job ID must be 1-64 letters, digits, '.', '_' or '-'");
+        }
+        final String leaseName = LEASE_PREFIX + jobId;
+        // Checked before touching the lease: a run of the same job here holds it, and a failed start
+        // must not release it from under that run
+        if (!starting.add(jobId)) {
+            throw new InvalidInputException("Import job " + jobId + " is already running");
+        }
+        final ImportJob job;
+        try {
+            final ImportJob existing = jobs.get(jobId);
+            if (existing != null && existing.state == ImportReport.ImportState.RUNNING) {
+                throw new InvalidInputException("Import job " + jobId + " is already running");
+            }
+            if (!jobLeaseService.tryAcquire(leaseName, lease)) {
+                throw new InvalidInputException("Import job " + jobId + " is already running on another instance");
+            }
+            try {
+                job = new ImportJob(jobId, this.readCheckpoint(jobId), allowForeignIds);
+            } catch (RuntimeException e) {
+                jobLeaseService.release(leaseName);
+                throw e;
+            }
+            jobs.put(jobId, job);
+        } finally {
+            starting.remove(jobId);
+        }
+        this.evictFinishedJobs();
+
+        final BlockingQueue<List<TrackingImportParser.ParsedRecord>> chunks = new ArrayBlockingQueue<>(queueChunks);
+        final Thread parserThread = new Thread(() -> this.parse(job, input, format, chunks), "tracking-import-parser-" + jobId);
+        parserThread.setDaemon(true);
+        parserThread.start();
+
+        logger.info("Import {} started ({}), resuming after line {}", jobId, format, job.checkpointLine);
+        try {
+            List<TrackingImportParser.ParsedRecord> chunk;
+            while ((chunk = chunks.take()) != END_OF_INPUT) {
+                if (!jobLeaseService.tryAcquire(leaseName, lease)) {
+                    throw new IllegalStateException("Lost the lease on import job " + jobId + " to another instance");
+                }
+                this.importChunk(job, chunk);
+                this.reportProgress(job, false);
+            }
+            if (job.parseFailure != null) {
+                throw job.parseFailure;
+            }
+            this.deleteCheckpoint(jobId);
+            job.finish(ImportReport.ImportState.COMPLETED, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish(ImportReport.ImportState.FAILED, "Interrupted");
+        } catch (Exception e) {
+            logger.error("Import {} failed after line {}: {}", jobId, job.checkpointLine, e.getMessage(), e);
+            job.finish(ImportReport.ImportState.FAILED, e.getMessage());
+        } finally {
+            parserThread.interrupt();
+            jobLeaseService.release(leaseName);
+        }
+        this.reportProgress(job, true);
+        return job.report();
+    }
+
+    @Override
+    public ImportReport getProgress(final String jobId) {
+        final ImportJob job = jobs.get(jobId);
+        return job != null ? job.report() : null;
+    }
+
+    private void parse(final ImportJob job, final InputStream input, final ImportFormat format,
+                       final BlockingQueue<List<TrackingImportParser.ParsedRecord>> chunks) {
+        try (TrackingImportParser parser = new TrackingImportParser(
+                new InputStreamReader(input, StandardCharsets.UTF_8), format, objectMapper)) {
+            List<TrackingImportParser.ParsedRecord> chunk = new ArrayList<>(commitSize);
+            TrackingImportParser.ParsedRecord record;
+            while ((record = parser.next()) != null) {
+                job.linesRead = record.lineNumber();
+                if (record.lineNumber() <= job.checkpointLine) {
+                    job.skipped++;
+                    continue;
+                }
+                chunk.add(record);
+                if (chunk.size() == commitSize) {
+                    chunks.put(chunk);
+                    chunk = new ArrayList<>(commitSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                chunks.put(chunk);
+            }
+        } catch (IOException e) {
+            job.parseFailure = new UncheckedIOException("Unable to read import input: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            return; // The importing thread has given up
+        }
+        try {
+            chunks.put(END_OF_INPUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void importChunk(final ImportJob job, final List<TrackingImportParser.ParsedRecord> chunk) {
+        // Validate and deduplicate within the chunk; the first occurrence of a number wins
+        final Map<String, TrackingNumberEntity> candidates = new LinkedHashMap<>(chunk.size() * 2);
+        for (TrackingImportParser.ParsedRecord parsed : chunk) {
+            if (parsed.error() != null) {
+                job.reject(parsed.lineNumber(), parsed.error());
+                continue;
+            }
+            final TrackingNumberDto record = parsed.record();
+            final Map<String, String> errors = TrackingNumberRequestValidator.validate(record);
+            if (record.getTrackingNumber() == null || record.getTrackingNumber().isBlank()) {
+                job.reject(parsed.lineNumber(), "trackingNumber: Tracking number cannot be blank");
+            } else if (!isAcceptedId(job, record.getTrackingNumber())) {
+                job.reject(parsed.lineNumber(), "trackingNumber: Tracking number is not in a supported format");
+            } else if (!errors.isEmpty()) {
+                final Map.Entry<String, String> error = errors.entrySet().iterator().next();
+                job.reject(parsed.lineNumber(), error.getKey() + ": " + error.getValue());
+            } else if (candidates.containsKey(record.getTrackingNumber())) {
+                job.duplicates++;
+            } else {
+                candidates.put(record.getTrackingNumber(), new TrackingNumberEntity(
+                        record.getTrackingNumber(),
+                        record.getCreatedAt() != null ? record.getCreatedAt() : Instant.now(),
+                        record.getOriginCountryId(),
+                        record.getDestinationCountryId(),
+                        record.getWeight(),
+                        record.getCustomerId(),
+                        record.getCustomerSlug()));
+            }
+        }
+
+        // Deduplicate against numbers already issued; only the primary is guaranteed to be current
+        if (!candidates.isEmpty()) {
+            final Set<String> existing = new HashSet<>(DataSourceRouting.onPrimary(
+                    () -> repository.findExistingTrackingNumbers(candidates.keySet())));
+            final int unchecked = candidates.size();
+            candidates.keySet().removeIf(trackingNumber ->
+                    existing.contains(trackingNumber) || archiveService.isArchived(trackingNumber)
+                            || spillJournal.isJournaled(trackingNumber));
+            job.duplicates += unchecked - candidates.size();
+        }
+
+        if (!candidates.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    candidates.values().forEach(entityManager::persist);
+                    if (publishEvents) {
+                        candidates.values().forEach(outbox::recordCreated);
+                    }
+                    entityManager.flush();
+                    entityManager.clear();
+                });
+                job.inserted += candidates.size();
+            } catch (RuntimeException e) {
+                if (!DatabaseAvailability.isDuplicateKey(e)) {
+                    throw e;
+                }
+                entityManager.clear();
+                this.importOneByOne(job, candidates.values());
+            }
+        }
+        job.checkpointLine = chunk.get(chunk.size() - 1).lineNumber();
+        this.writeCheckpoint(job);
+    }
+
+    // Some numbers were created by another writer after the duplicate check
+    private void importOneByOne(final ImportJob job, final Collection<TrackingNumberEntity> records) {
+        for (TrackingNumberEntity record : records) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    entityManager.persist(record);
+                    if (publishEvents) {
+                        outbox.recordCreated(record);
+                    }
+                    entityManager.flush();
+                    entityManager.clear();
+                });
+                job.inserted++;
+            } catch (RuntimeException e) {
+                if (!DatabaseAvailability.isDuplicateKey(e)) {
+                    throw e;
+                }
+                entityManager.clear();
+                job.duplicates++;
+            }
+        }
+    }
+
+    // Lookups reject IDs that are not in this service's formats, so foreign ones are opt-in per job
+    private static boolean isAcceptedId(final ImportJob job, final String trackingNumber) {
+        return TrackingNumberFormat.isWellFormed(trackingNumber)
+                || job.allowForeignIds && FOREIGN_ID_PATTERN.matcher(trackingNumber).matches();
+    }
+
+    private void reportProgress(final ImportJob job, final boolean force) {
+        final long now = System.nanoTime();
+        if (!force && now - job.lastProgressNanos < progressIntervalNanos) {
+            return;
+        }
+        job.lastProgressNanos = now;
+        logger.atInfo().setMessage("Import progress")
+                .addKeyValue("jobId", job.jobId)
+                .addKeyValue("state", job.state)
+                .addKeyValue("checkpointLine", job.checkpointLine)
+                .addKeyValue("inserted", job.inserted)
+                .addKeyValue("duplicates", job.duplicates)
+                .addKeyValue("invalid", job.invalid)
+                .addKeyValue("recordsPerSecond", Math.round(job.recordsPerSecond()))
+                .log();
+    }
+
+    private long readCheckpoint(final String jobId) {
+        final Path file = checkpointDirectory.resolve(jobId + ".checkpoint");
+        try {
+            return Files.exists(file) ? Long.parseLong(Files.readString(file).trim()) : 0;
+        } catch (IOException | NumberFormatException e) {
+            throw new InvalidInputException("Unreadable checkpoint for import job " + jobId + ": " + e.getMessage());
+        }
+    }
+
+    private void writeCheckpoint(final ImportJob job) {
+        try {
+            Files.createDirectories(checkpointDirectory);
+            final Path temp = checkpointDirectory.resolve(job.jobId + ".checkpoint.tmp");
+            Files.writeString(temp, Long.toString(job.checkpointLine));
+            Files.move(temp, checkpointDirectory.resolve(job.jobId + ".checkpoint"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write import checkpoint", e);
+        }
+    }
+
+    private void deleteCheckpoint(final String jobId) {
+        try {
+            Files.deleteIfExists(checkpointDirectory.resolve(jobId + ".checkpoint"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to delete import checkpoint", e);
+        }
+    }
+
+    private void evictFinishedJobs() {
+        if (jobs.size() > MAX_RETAINED_JOBS) {
+            jobs.values().removeIf(job -> job.state != ImportReport.ImportState.RUNNING);
+        }
+    }
+
+    // Written by the importing thread (and linesRead/skipped by the parser), read by progress requests
+    private static final class ImportJob {
+
+        private final String jobId;
+        private final boolean allowForeignIds;
+        private final Instant startedAt = Instant.now();
+        private final long startNanos = System.nanoTime();
+        private final List<String> errors = new ArrayList<>();
+        private volatile ImportReport.ImportState state = ImportReport.ImportState.RUNNING;
+        private volatile Instant finishedAt;
+        private volatile String failure;
+        private volatile RuntimeException parseFailure;
+        private volatile long checkpointLine;
+        private volatile long linesRead;
+        private volatile long skipped;
+        private volatile long inserted;
+        private volatile long duplicates;
+        private volatile long invalid;
+        private long lastProgressNanos = System.nanoTime();
+
+        private ImportJob(String jobId, long checkpointLine, boolean allowForeignIds) {
+            this.jobId = jobId;
+            this.checkpointLine = checkpointLine;
+            this.allowForeignIds = allowForeignIds;
+        }
+
+        private void reject(final long lineNumber, final String error) {
+            invalid++;
+            synchronized (errors) {
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add("line " + lineNumber + ": " + error);
+                }
+            }
+        }
+
+        private void finish(final ImportReport.ImportState finalState, final String failureMessage) {
+            this.failure = failureMessage;
+            this.finishedAt = Instant.now();
+            this.state = finalState;
+        }
+
+        private double recordsPerSecond() {
+            final double seconds = (System.nanoTime() - startNanos) / 1e9;
+            return seconds > 0 ? (inserted + duplicates + invalid) / seconds : 0;
+        }
+
+        private ImportReport report() {
+            final List<String> errorSample;
+            synchronized (errors) {
+                errorSample = List.copyOf(errors);
+            }
+            return ImportReport.builder()
+                    .jobId(jobId)
+                    .state(state)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .checkpointLine(checkpointLine)
+                    .linesRead(linesRead)
+                    .skippedBeforeCheckpoint(skipped)
+                    .inserted(inserted)
+                    .duplicates(duplicates)
+                    .invalid(invalid)
+                    .recordsPerSecond(recordsPerSecond())
+                    .errors(errorSample)
+                    .failure(failure)
+                    .build();
+        }
+    }
+}
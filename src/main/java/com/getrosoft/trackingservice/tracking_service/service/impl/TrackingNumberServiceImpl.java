@@ -1,117 +1,295 @@
 package com.getrosoft.trackingservice.tracking_service.service.impl;
 
+import com.getrosoft.trackingservice.tracking_service.config.DataSourceRouting;
+import com.getrosoft.trackingservice.tracking_service.config.DatabaseAvailability;
+import com.getrosoft.trackingservice.tracking_service.config.ReadYourWritesWindow;
 import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
+import com.getrosoft.trackingservice.tracking_service.exceptions.DomainException;
 import com.getrosoft.trackingservice.tracking_service.exceptions.DuplicateTrackingNumberException;
 import com.getrosoft.trackingservice.tracking_service.exceptions.InvalidInputException;
 import com.getrosoft.trackingservice.tracking_service.exceptions.TrackingIdNotFoundException;
 import com.getrosoft.trackingservice.tracking_service.exceptions.TrackingNumberGenerationException;
 import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
 import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import com.getrosoft.trackingservice.tracking_service.service.IssuanceStatisticsService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingArchiveService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingCapacityPlanner;
 import com.getrosoft.trackingservice.tracking_service.service.TrackingNumberService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingOutboxService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingSpillJournal;
+import com.getrosoft.trackingservice.tracking_service.utils.CircuitBreaker;
+import com.getrosoft.trackingservice.tracking_service.utils.CountryCodeRegistry;
+import com.getrosoft.trackingservice.tracking_service.utils.SingleFlight;
 import com.getrosoft.trackingservice.tracking_service.utils.TrackingNumberGeneratorUtil;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingNumberRequestValidator;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingStageEvent;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Validator;
 import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class TrackingNumberServiceImpl implements TrackingNumberService {
 
     private static final Logger logger = LoggerFactory.getLogger(TrackingNumberServiceImpl.class);
 
+    private static final int MAX_INSERT_ATTEMPTS = 10;
+
     private final TrackingNumberRepository repository;
     private final ModelMapper modelMapper;
     private final Validator validator;
+    // Concurrent lookups of the same tracking ID share one database load and mapping
+    private final SingleFlight<String, TrackingNumberDto> trackingDetailsLoads;
+    private final ReadYourWritesWindow readYourWritesWindow;
+    private final TrackingArchiveService archiveService;
+    private final TrackingCapacityPlanner capacityPlanner;
+    private final IssuanceStatisticsService issuanceStatistics;
+    // Creates go to the spill journal while the circuit around database writes is open
+    private final CircuitBreaker writeCircuitBreaker;
+    private final TrackingSpillJournal spillJournal;
+    // The record and its created event commit together
+    private final TransactionTemplate transactionTemplate;
+    private final TrackingOutboxService outbox;
+    private final boolean fastPathValidation;
 
-    public TrackingNumberServiceImpl(TrackingNumberRepository repository, ModelMapper modelMapper, Validator validator) {
+    public TrackingNumberServiceImpl(TrackingNumberRepository repository, ModelMapper modelMapper, Validator validator,
+                                     MeterRegistry meterRegistry, ReadYourWritesWindow readYourWritesWindow,
+                                     TrackingArchiveService archiveService, TrackingCapacityPlanner capacityPlanner,
+                                     IssuanceStatisticsService issuanceStatistics,
+                                     CircuitBreaker writeCircuitBreaker, TrackingSpillJournal spillJournal,
+                                     PlatformTransactionManager transactionManager, TrackingOutboxService outbox,
+                                     @Value("${tracking.validation.fast-path:true}") boolean fastPathValidation) {
         this.repository = repository;
         this.modelMapper = modelMapper;
         this.validator = validator;
+        this.readYourWritesWindow = readYourWritesWindow;
+        this.archiveService = archiveService;
+        this.capacityPlanner = capacityPlanner;
+        this.issuanceStatistics = issuanceStatistics;
+        this.writeCircuitBreaker = writeCircuitBreaker;
+        this.spillJournal = spillJournal;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.outbox = outbox;
+        this.fastPathValidation = fastPathValidation;
+        this.trackingDetailsLoads = new SingleFlight<>("tracking.lookup", meterRegistry);
     }
 
     public TrackingNumberDto createTrackingNumber(final TrackingNumberDto requestDto) {
         logger.debug("Creating tracking number for {}", requestDto);
 
         try {
+            final TrackingStageEvent validation = TrackingStageEvent.start();
             this.validateTrackingNumberEntity(requestDto);
-            final String trackingNumber = this.generateUniqueTrackingNumber(requestDto);
-
-            final TrackingNumberEntity record = new TrackingNumberEntity(
-                    trackingNumber,
-                    Instant.now(),
-                    requestDto.getOriginCountryId(),
-                    requestDto.getDestinationCountryId(),
-                    requestDto.getWeight(),
-                    requestDto.getCustomerId(),
-                    requestDto.getCustomerSlug()
-            );
-            final TrackingNumberEntity savedRecord = this.repository.save(record);
-            logger.info("Successfully created tracking number: {}", trackingNumber);
-            return this.modelMapper.map(savedRecord, TrackingNumberDto.class);
-        } catch (ConstraintViolationException e) {
-            logger.error("Validation error while persisting tracking number: {}", e.getMessage(), e);
-            throw new InvalidInputException("Validation failed: " + e.getMessage(), e); // Custom exception
-        } catch (IllegalArgumentException e) {
-            logger.error("Invalid input detected: {}", e.getMessage(), e);
-            throw new TrackingNumberGenerationException("Invalid input for tracking number generation", e);
-        } catch (DuplicateTrackingNumberException e) {
-            logger.error("Duplicate tracking number detected: {}", e.getMessage(), e);
+            // Alpha-3 and lower-case codes are accepted, but numbers and records always use upper-case alpha-2
+            final String origin = canonicalCountry("originCountryId", requestDto.getOriginCountryId());
+            final String destination = canonicalCountry("destinationCountryId", requestDto.getDestinationCountryId());
+            requestDto.setOriginCountryId(origin);
+            requestDto.setDestinationCountryId(destination);
+            validation.finish(TrackingStageEvent.VALIDATION, null, origin, destination);
+
+            if (!this.writeCircuitBreaker.allowRequest()) {
+                return this.createJournaled(requestDto, null);
+            }
+
+            TrackingNumberEntity record = null;
+            TrackingNumberEntity savedRecord = null;
+            try {
+                // The number encodes its creation day, so it and the record share one timestamp
+                final Instant createdAt = Instant.now();
+                final TrackingStageEvent generation = TrackingStageEvent.start();
+                String trackingNumber = this.generateTrackingNumber(requestDto, createdAt);
+                generation.finish(TrackingStageEvent.GENERATION, trackingNumber, origin, destination);
+
+                // The primary key is the uniqueness check: a create is a single INSERT, retried with a new
+                // number on a duplicate key. Archived and journaled numbers are not in the table, so they
+                // are checked locally first.
+                int attempt = 0;
+                while (savedRecord == null) {
+                    if (attempt > 0) {
+                        trackingNumber = this.regenerateAfterCollision(requestDto, createdAt, trackingNumber, attempt);
+                    }
+                    attempt++;
+                    if (this.isIssuedLocally(trackingNumber)) {
+                        continue;
+                    }
+                    record = this.newRecord(trackingNumber, requestDto, createdAt);
+                    savedRecord = this.insert(record);
+                }
+                // A retry means the first draw hit a number already taken in the segment's current day
+                capacityPlanner.recordIssue(requestDto, attempt > 1);
+                this.writeCircuitBreaker.recordSuccess();
+            } catch (RuntimeException e) {
+                if (!DatabaseAvailability.isOutage(e)) {
+                    throw e;
+                }
+                this.writeCircuitBreaker.recordFailure();
+                logger.warn("Database unavailable, journaling tracking number locally: {}", e.getMessage());
+                return this.createJournaled(requestDto, record);
+            }
+            final String trackingNumber = savedRecord.getTrackingNumber();
+            this.readYourWritesWindow.recordWrite(trackingNumber);
+            this.issuanceStatistics.recordIssued(origin, destination, requestDto.getCustomerId());
+            logger.atDebug().setMessage("Persisted tracking number").addKeyValue("trackingNumber", trackingNumber).log();
+
+            final TrackingStageEvent mapping = TrackingStageEvent.start();
+            final TrackingNumberDto result = this.modelMapper.map(savedRecord, TrackingNumberDto.class);
+            mapping.finish(TrackingStageEvent.MAPPING, trackingNumber, origin, destination);
+            return result;
+        } catch (DomainException e) {
             throw e;
+        } catch (ConstraintViolationException e) {
+            throw new InvalidInputException("Validation failed: " + e.getMessage(), e);
         } catch (Exception e) {
-            logger.error("Unexpected error occurred: {}", e.getMessage(), e);
+            // Input has been validated by now, so anything else is our failure. Logged once, with this
+            // stack trace, by the exception handler
             throw new TrackingNumberGenerationException("Error generating tracking number", e);
         }
     }
 
+    // A record whose save failed may still have been committed, so its number is journaled as is;
+    // replay recognises it if it did reach the database
+    private TrackingNumberDto createJournaled(final TrackingNumberDto requestDto, final TrackingNumberEntity attempted) {
+        // The node ID keeps other instances' journaled numbers apart and append() this instance's own;
+        // a clash with a number saved before the outage is caught by the replay
+        TrackingNumberEntity record = attempted;
+        while (record == null || !this.spillJournal.append(record)) {
+            final Instant createdAt = Instant.now();
+            final String trackingNumber = TrackingNumberGeneratorUtil.generateJournaledTrackingNumber(
+                    requestDto.getOriginCountryId(), requestDto.getDestinationCountryId(), requestDto.getWeight(),
+                    createdAt, spillJournal.getNodeId());
+            record = archiveService.isArchived(trackingNumber) ? null : this.newRecord(trackingNumber, requestDto, createdAt);
+        }
+        this.issuanceStatistics.recordIssued(record.getOriginCountryId(), record.getDestinationCountryId(), record.getCustomerId());
+        logger.atDebug().setMessage("Journaled tracking number").addKeyValue("trackingNumber", record.getTrackingNumber()).log();
+        return this.modelMapper.map(record, TrackingNumberDto.class);
+    }
+
+    private TrackingNumberEntity newRecord(final String trackingNumber, final TrackingNumberDto requestDto, final Instant createdAt) {
+        return new TrackingNumberEntity(
+                trackingNumber,
+                createdAt,
+                requestDto.getOriginCountryId(),
+                requestDto.getDestinationCountryId(),
+                requestDto.getWeight(),
+                requestDto.getCustomerId(),
+                requestDto.getCustomerSlug()
+        );
+    }
+
     public TrackingNumberDto getTrackingDetails(String trackingId) {
         logger.debug("Fetching tracking details for trackingId={}", trackingId);
+        return trackingDetailsLoads.execute(trackingId, () -> this.loadTrackingDetails(trackingId));
+    }
 
-        return repository.findById(trackingId)
-                .map(trackingEntity -> modelMapper.map(trackingEntity, TrackingNumberDto.class))
-                .orElseThrow(() -> {
-                    logger.error("Tracking details not found for trackingId={}", trackingId);
-                    return new TrackingIdNotFoundException("Tracking details not found for ID: " + trackingId);
-                });
+    @Override
+    public Optional<Instant> findCreatedAt(final String trackingId) {
+        // Same sources in the same order as a full load
+        return spillJournal.findJournaled(trackingId).map(TrackingNumberEntity::getCreatedAt)
+                .or(() -> readYourWritesWindow.isRecentlyWritten(trackingId)
+                        ? DataSourceRouting.onPrimary(() -> repository.findCreatedAtById(trackingId))
+                        : repository.findCreatedAtById(trackingId))
+                .or(() -> archiveService.findArchived(trackingId).map(TrackingNumberEntity::getCreatedAt));
     }
 
-    private String generateUniqueTrackingNumber(TrackingNumberDto requestDto) {
-        logger.debug("Generating unique tracking number...");
-        try {
-            // Step 1: Generate an initial tracking number
-            String trackingNumber = TrackingNumberGeneratorUtil.generateTrackingNumber(
-                    requestDto.getOriginCountryId(),
-                    requestDto.getDestinationCountryId(),
-                    requestDto.getWeight(),
-                    requestDto.getCustomerId(),
-                    requestDto.getCustomerSlug()
-            );
+    private TrackingNumberDto loadTrackingDetails(String trackingId) {
+        // Numbers created moments ago may not have reached the replicas yet
+        final TrackingStageEvent find = TrackingStageEvent.start();
+        // Journaled numbers are not in the database yet and may be looked up while it is down
+        final TrackingNumberEntity record = spillJournal.findJournaled(trackingId)
+                .or(() -> readYourWritesWindow.isRecentlyWritten(trackingId)
+                        ? DataSourceRouting.onPrimary(() -> repository.findById(trackingId))
+                        : repository.findById(trackingId))
+                .or(() -> archiveService.findArchived(trackingId))
+                .orElse(null);
+        if (record == null) {
+            find.finish(TrackingStageEvent.FIND, trackingId, null, null);
+            throw new TrackingIdNotFoundException("Tracking details not found for ID: " + trackingId);
+        }
+        find.finish(TrackingStageEvent.FIND, trackingId, record.getOriginCountryId(), record.getDestinationCountryId());
 
-            // Step 2: Check for collisions and regenerate if needed
-            while (repository.existsById(trackingNumber)) {
-                logger.warn("Collision detected for tracking number: {}. Regenerating...", trackingNumber);
+        final TrackingStageEvent mapping = TrackingStageEvent.start();
+        final TrackingNumberDto result = modelMapper.map(record, TrackingNumberDto.class);
+        mapping.finish(TrackingStageEvent.MAPPING, trackingId, record.getOriginCountryId(), record.getDestinationCountryId());
+        return result;
+    }
 
-                // Use origin and destination codes as the first 4 letters
-                final String originCode = requestDto.getOriginCountryId().toUpperCase().substring(0, Math.min(requestDto.getOriginCountryId().length(), 2));
-                final String destinationCode = requestDto.getDestinationCountryId().toUpperCase().substring(0, Math.min(requestDto.getDestinationCountryId().length(), 2));
+    private String generateTrackingNumber(TrackingNumberDto requestDto, Instant createdAt) {
+        logger.debug("Generating tracking number...");
+        return TrackingNumberGeneratorUtil.generateSelfDescribingTrackingNumber(
+                requestDto.getOriginCountryId(),
+                requestDto.getDestinationCountryId(),
+                requestDto.getWeight(),
+                createdAt
+        );
+    }
+
+    private String regenerateAfterCollision(final TrackingNumberDto requestDto, final Instant createdAt,
+                                            final String collidedNumber, final int attempt) {
+        if (attempt >= MAX_INSERT_ATTEMPTS) {
+            throw new DuplicateTrackingNumberException("No unique tracking number found after " + attempt + " attempts");
+        }
+        final TrackingStageEvent collisionRetry = TrackingStageEvent.start();
+        logger.warn("Collision detected for tracking number: {}. Regenerating...", collidedNumber);
 
-                // Generate the rest using UUID and append
-                String randomPart = UUID.randomUUID().toString().replaceAll("-", "").substring(0, 12).toUpperCase();
-                trackingNumber = originCode + destinationCode + randomPart;
+        // A fresh random part; every field the number describes stays the same
+        final String trackingNumber = this.generateTrackingNumber(requestDto, createdAt);
+        collisionRetry.finish(TrackingStageEvent.COLLISION_RETRY, trackingNumber,
+                requestDto.getOriginCountryId(), requestDto.getDestinationCountryId(), attempt);
+        return trackingNumber;
+    }
+
+    // Returns null if the tracking number is already taken
+    private TrackingNumberEntity insert(final TrackingNumberEntity record) {
+        final TrackingStageEvent save = TrackingStageEvent.start();
+        try {
+            return this.transactionTemplate.execute(status -> {
+                final TrackingNumberEntity saved = this.repository.saveAndFlush(record);
+                this.outbox.recordCreated(saved);
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (DatabaseAvailability.isDuplicateKey(e)) {
+                return null;
             }
+            throw e;
+        } finally {
+            save.finish(TrackingStageEvent.SAVE, record.getTrackingNumber(),
+                    record.getOriginCountryId(), record.getDestinationCountryId());
+        }
+    }
 
-            return trackingNumber;
-        } catch (Exception e) {
-            logger.error("Error generating unique tracking number: {}", e.getMessage(), e);
-            throw new IllegalArgumentException("Unable to generate unique tracking number", e);
+    private boolean isIssuedLocally(final String trackingNumber) {
+        return spillJournal.isJournaled(trackingNumber) || archiveService.isArchived(trackingNumber);
+    }
+
+    // The validator accepts every code the registry knows, so this only fails if the two disagree
+    private static String canonicalCountry(final String field, final String countryId) {
+        try {
+            return CountryCodeRegistry.canonical(countryId);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputException("Validation failed: " + field + ": " + e.getMessage(), Map.of(field, e.getMessage()));
         }
     }
 
     private void validateTrackingNumberEntity(TrackingNumberDto requestDto) {
+        if (fastPathValidation) {
+            final Map<String, String> errors = TrackingNumberRequestValidator.validate(requestDto);
+            if (!errors.isEmpty()) {
+                throw new InvalidInputException("Validation failed: " + errors, errors);
+            }
+            return;
+        }
         var violations = validator.validate(requestDto);
         if (!violations.isEmpty()) {
             StringBuilder errorMessage = new StringBuilder("Validation failed:");
@@ -0,0 +1,241 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.getrosoft.trackingservice.tracking_service.model.OutboxCheckpointEntity;
+import com.getrosoft.trackingservice.tracking_service.model.OutboxEventEntity;
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import com.getrosoft.trackingservice.tracking_service.payload.OutboxMessage;
+import com.getrosoft.trackingservice.tracking_service.payload.TrackingNumberCreatedEvent;
+import com.getrosoft.trackingservice.tracking_service.repository.OutboxCheckpointRepository;
+import com.getrosoft.trackingservice.tracking_service.repository.OutboxEventRepository;
+import com.getrosoft.trackingservice.tracking_service.service.OutboxSink;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingOutboxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Transactional outbox for tracking-number-created events.
+ * <p>
+ * A relay run first takes a lease on the relay's checkpoint row, so only one instance relays at a
+ * time, and reads the oldest events in a short transaction. The events are handed to the sink with
+ * no transaction or connection held, and a second short transaction deletes them and advances the
+ * checkpoint. Deleting delivered rows, rather than only reading past the checkpoint id, means an
+ * event whose transaction commits after a later id was already relayed is still picked up by the
+ * next batch. A batch whose delivery fails stays in the table and is retried from the same events,
+ * so delivery is at least once and in id order except around such late commits. If a relay stalls
+ * past its lease, another instance may deliver the same batch again.
+ * <p>
+ * Events are not relayed to a sink that does not survive a restart unless
+ * {@code tracking.outbox.relay-to-memory} is set; they stay in the table until a durable sink is
+ * configured.
+ */
+@Service
+public class TrackingOutboxServiceImpl implements TrackingOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrackingOutboxServiceImpl.class);
+
+    private static final String RELAY_NAME = TrackingNumberCreatedEvent.TYPE;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final OutboxEventRepository outboxRepository;
+    private final OutboxCheckpointRepository checkpointRepository;
+    private final OutboxSink sink;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final boolean relaying;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final Duration lease;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Counter relayedCounter;
+    private final Counter failedBatchCounter;
+
+    public TrackingOutboxServiceImpl(OutboxEventRepository outboxRepository,
+                                     OutboxCheckpointRepository checkpointRepository,
+                                     OutboxSink sink,
+                                     ObjectMapper objectMapper,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${tracking.outbox.enabled:true}") boolean enabled,
+                                     @Value("${tracking.outbox.relay-to-memory:false}") boolean relayToMemory,
+                                     @Value("${tracking.outbox.batch-size:200}") int batchSize,
+                                     @Value("${tracking.outbox.max-attempts:5}") int maxAttempts,
+                                     @Value("${tracking.outbox.initial-backoff-ms:200}") long initialBackoffMillis,
+                                     @Value("${tracking.outbox.lease-ms:120000}") long leaseMillis) {
+        this.outboxRepository = outboxRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.sink = sink;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.relaying = enabled && (sink.isDurable() || relayToMemory);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.lease = Duration.ofMillis(leaseMillis);
+        this.relayedCounter = meterRegistry.counter("tracking.outbox.relayed");
+        this.failedBatchCounter = meterRegistry.counter("tracking.outbox.failed_batches");
+        if (enabled && !relaying) {
+            logger.warn("Outbox sink {} does not survive a restart; events stay in the outbox table until "
+                    + "tracking.outbox.sink is set to file or http", sink.getClass().getSimpleName());
+        }
+    }
+
+    @Override
+    public void recordCreated(final TrackingNumberEntity record) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            final String payload = objectMapper.writeValueAsString(TrackingNumberCreatedEvent.from(record));
+            outboxRepository.save(new OutboxEventEntity(TrackingNumberCreatedEvent.TYPE, record.getTrackingNumber(),
+                    record.getCreatedAt(), payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize outbox event", e);
+        }
+    }
+
+    @Override
+    public int discardCreated(final Collection<String> trackingNumbers) {
+        if (trackingNumbers.isEmpty()) {
+            return 0;
+        }
+        return outboxRepository.deleteEvents(TrackingNumberCreatedEvent.TYPE, trackingNumbers);
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.outbox.relay-interval-ms:1000}", initialDelayString = "${tracking.outbox.relay-interval-ms:1000}")
+    @Override
+    public int relayPending() {
+        if (!relaying) {
+            return 0;
+        }
+        int relayed = 0;
+        try {
+            this.ensureCheckpoint();
+            List<OutboxMessage> batch;
+            do {
+                batch = transactionTemplate.execute(status -> this.claimBatch());
+                if (batch == null) {
+                    logger.debug("Outbox relay is running on another instance");
+                    return relayed;
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                this.publishWithRetries(batch);
+                final List<OutboxMessage> delivered = batch;
+                transactionTemplate.executeWithoutResult(status -> this.completeBatch(delivered));
+                relayed += batch.size();
+            } while (batch.size() == batchSize);
+            this.releaseLease();
+        } catch (PessimisticLockingFailureException e) {
+            logger.debug("Outbox relay is running on another instance");
+        } catch (RuntimeException e) {
+            failedBatchCounter.increment();
+            logger.warn("Outbox relay stopped after {} events: {}", relayed, e.getMessage(), e);
+            this.releaseLease();
+        }
+        return relayed;
+    }
+
+    // Two instances starting together may both insert the row; the loser keeps the winner's row
+    private void ensureCheckpoint() {
+        if (checkpointRepository.existsById(RELAY_NAME)) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> checkpointRepository.saveAndFlush(
+                    new OutboxCheckpointEntity(RELAY_NAME, 0, 0, Instant.now(), null, null)));
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Outbox checkpoint was created by another instance");
+        }
+    }
+
+    /**
+     * Takes or renews the lease and reads the next batch.
+     *
+     * @return the batch, empty when nothing is pending, or null while another instance holds the lease
+     */
+    private List<OutboxMessage> claimBatch() {
+        final OutboxCheckpointEntity checkpoint = checkpointRepository.lockByRelayName(RELAY_NAME)
+                .orElseThrow(() -> new IllegalStateException("Outbox checkpoint " + RELAY_NAME + " is missing"));
+        final Instant now = Instant.now();
+        if (checkpoint.getLeaseOwner() != null && !instanceId.equals(checkpoint.getLeaseOwner())
+                && checkpoint.getLeasedUntil() != null && checkpoint.getLeasedUntil().isAfter(now)) {
+            return null;
+        }
+        checkpoint.setLeaseOwner(instanceId);
+        checkpoint.setLeasedUntil(now.plus(lease));
+
+        return outboxRepository.findOldest(PageRequest.of(0, batchSize)).stream()
+                .map(event -> new OutboxMessage(event.getId(), event.getEventType(), event.getTrackingNumber(),
+                        event.getOccurredAt(), event.getPayload()))
+                .toList();
+    }
+
+    // Not locked: only the lease holder writes progress, and waiting briefly for a claim is fine here
+    private void completeBatch(final List<OutboxMessage> batch) {
+        outboxRepository.deleteAllByIdInBatch(batch.stream().map(OutboxMessage::getId).toList());
+        final OutboxCheckpointEntity checkpoint = checkpointRepository.findById(RELAY_NAME).orElseThrow();
+        checkpoint.setLastEventId(batch.get(batch.size() - 1).getId());
+        checkpoint.setRelayedCount(checkpoint.getRelayedCount() + batch.size());
+        checkpoint.setUpdatedAt(Instant.now());
+        relayedCounter.increment(batch.size());
+    }
+
+    // Lets any instance retry straight away; if this fails too, the lease simply expires
+    private void releaseLease() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> checkpointRepository.findById(RELAY_NAME)
+                    .filter(checkpoint -> instanceId.equals(checkpoint.getLeaseOwner()))
+                    .ifPresent(checkpoint -> {
+                        checkpoint.setLeaseOwner(null);
+                        checkpoint.setLeasedUntil(null);
+                    }));
+        } catch (RuntimeException e) {
+            logger.debug("Unable to release the outbox lease: {}", e.getMessage());
+        }
+    }
+
+    private void publishWithRetries(final List<OutboxMessage> batch) {
+        long backoffMillis = initialBackoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                sink.publish(batch);
+                return;
+            } catch (Exception e) {
+                if (attempt >= maxAttempts) {
+                    throw new IllegalStateException("Outbox sink rejected batch after " + attempt + " attempts", e);
+                }
+                logger.warn("Outbox sink rejected batch of {} (attempt {}), retrying in {} ms: {}",
+                        batch.size(), attempt, backoffMillis, e.getMessage());
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while retrying outbox delivery", interrupted);
+                }
+                backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.getrosoft.trackingservice.tracking_service.config.DataSourceRouting;
+import com.getrosoft.trackingservice.tracking_service.config.DatabaseAvailability;
+import com.getrosoft.trackingservice.tracking_service.exceptions.ServiceUnavailableException;
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingOutboxService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingSpillJournal;
+import com.getrosoft.trackingservice.tracking_service.utils.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Journal of tracking numbers issued while the write circuit is open.
+ * <p>
+ * Each record is one JSON line appended to {@code journal.ndjson} and forced to disk before the
+ * client gets its number. Appenders only share a read lock, so concurrent fsyncs overlap; the
+ * write lock is taken to compact the file after a replay. Pending records are also kept in memory
+ * and reloaded from the file on startup, so numbers journaled before a crash are still replayed.
+ * <p>
+ * Numbers journaled here carry this instance's node ID ({@code tracking.spill.node-id}), so they
+ * are unique across instances by construction and within the instance through the pending map.
+ * <p>
+ * Replay is idempotent: a record whose number is already in the database with the same customer,
+ * lane, weight, slug and creation time was written by an earlier replay (or by a save that timed
+ * out after committing) and is simply dropped. Any other clash is appended to
+ * {@code dead-letter.ndjson} for reconciliation.
+ */
+@Service
+public class TrackingSpillJournalImpl implements TrackingSpillJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrackingSpillJournalImpl.class);
+
+    private static final String JOURNAL_FILE = "journal.ndjson";
+    private static final String DEAD_LETTER_FILE = "dead-letter.ndjson";
+    private static final int NODE_ID_LENGTH = 2;
+    private static final String NODE_ID_ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    // Thrown for every create once the journal fills during an outage, so built once
+    private static final ServiceUnavailableException JOURNAL_FULL =
+            new ServiceUnavailableException("Database unavailable and spill journal is full");
+
+    private final TrackingNumberRepository repository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final CircuitBreaker writeCircuitBreaker;
+    private final TrackingOutboxService outbox;
+    private final Path directory;
+    private final String nodeId;
+    private final int maxPendingRecords;
+    private final int replayBatchSize;
+    private final Map<String, TrackingNumberEntity> pending = new ConcurrentHashMap<>();
+    private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
+    private final Object writeLock = new Object();
+    private final Object deadLetterLock = new Object();
+    private final Counter replayedCounter;
+    private final Counter deadLetteredCounter;
+    private FileChannel journal;
+
+    public TrackingSpillJournalImpl(TrackingNumberRepository repository,
+                                    EntityManager entityManager,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectMapper objectMapper,
+                                    CircuitBreaker writeCircuitBreaker,
+                                    TrackingOutboxService outbox,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${tracking.spill.directory}") String directory,
+                                    @Value("${tracking.spill.node-id:}") String nodeId,
+                                    @Value("${tracking.spill.max-pending-records:1000000}") int maxPendingRecords,
+                                    @Value("${tracking.spill.replay-batch-size:500}") int replayBatchSize) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.writeCircuitBreaker = writeCircuitBreaker;
+        this.outbox = outbox;
+        this.directory = Paths.get(directory);
+        this.nodeId = resolveNodeId(nodeId);
+        this.maxPendingRecords = maxPendingRecords;
+        this.replayBatchSize = replayBatchSize;
+        this.replayedCounter = meterRegistry.counter("tracking.spill.replayed");
+        this.deadLetteredCounter = meterRegistry.counter("tracking.spill.dead_lettered");
+        Gauge.builder("tracking.spill.pending", pending, Map::size)
+                .description("Journaled tracking numbers not yet written to the database")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        Files.createDirectories(directory);
+        final Path file = directory.resolve(JOURNAL_FILE);
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        final TrackingNumberEntity record = objectMapper.readValue(line, TrackingNumberEntity.class);
+                        pending.put(record.getTrackingNumber(), record);
+                    } catch (JsonProcessingException e) {
+                        // Only the last line can be torn, by a crash in the middle of an append
+                        logger.warn("Skipping unreadable spill journal line: {}", e.getOriginalMessage());
+                    }
+                }
+            }
+            // Start from a clean file so a torn last line cannot swallow the next append
+            this.writeSnapshot();
+        }
+        journal = openJournal(file);
+        if (!pending.isEmpty()) {
+            logger.warn("Recovered {} journaled tracking numbers awaiting replay", pending.size());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        journalLock.writeLock().lock();
+        try {
+            journal.close();
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean append(final TrackingNumberEntity record) {
+        if (pending.size() >= maxPendingRecords) {
+            throw JOURNAL_FULL;
+        }
+        final ByteBuffer line = this.toLine(record);
+        journalLock.readLock().lock();
+        try {
+            // Reserving the number first makes the uniqueness check and the append one atomic step
+            if (pending.putIfAbsent(record.getTrackingNumber(), record) != null) {
+                return false;
+            }
+            try {
+                synchronized (writeLock) {
+                    while (line.hasRemaining()) {
+                        journal.write(line);
+                    }
+                }
+                journal.force(false);
+            } catch (IOException e) {
+                pending.remove(record.getTrackingNumber(), record);
+                throw new UncheckedIOException("Unable to write spill journal", e);
+            }
+            return true;
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isJournaled(final String trackingNumber) {
+        return pending.containsKey(trackingNumber);
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public Optional<TrackingNumberEntity> findJournaled(final String trackingNumber) {
+        return Optional.ofNullable(pending.get(trackingNumber));
+    }
+
+    @Override
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    // The replay doubles as the circuit's trial call, so the circuit closes even without create traffic
+    @Scheduled(fixedDelayString = "${tracking.spill.replay-interval-ms:5000}")
+    @Override
+    public int replayPending() {
+        if (pending.isEmpty() || !writeCircuitBreaker.allowRequest()) {
+            return 0;
+        }
+        final List<TrackingNumberEntity> records = new ArrayList<>(pending.values());
+        int replayed = 0;
+        try {
+            for (int from = 0; from < records.size(); from += replayBatchSize) {
+                replayed += this.replayBatch(records.subList(from, Math.min(from + replayBatchSize, records.size())));
+            }
+            writeCircuitBreaker.recordSuccess();
+            logger.info("Replayed {} journaled tracking numbers, {} pending", replayed, pending.size());
+        } catch (RuntimeException e) {
+            if (!DatabaseAvailability.isOutage(e)) {
+                throw e;
+            }
+            writeCircuitBreaker.recordFailure();
+            logger.warn("Spill journal replay stopped after {} records, database unavailable: {}", replayed, e.getMessage());
+        } finally {
+            if (replayed > 0) {
+                this.compact();
+            }
+        }
+        return replayed;
+    }
+
+    private int replayBatch(final List<TrackingNumberEntity> batch) {
+        final Map<String, TrackingNumberEntity> existing = DataSourceRouting.onPrimary(() -> repository.findAllById(
+                        batch.stream().map(TrackingNumberEntity::getTrackingNumber).toList()))
+                .stream()
+                .collect(Collectors.toMap(TrackingNumberEntity::getTrackingNumber, Function.identity()));
+
+        final List<TrackingNumberEntity> inserts = new ArrayList<>();
+        for (TrackingNumberEntity record : batch) {
+            final TrackingNumberEntity stored = existing.get(record.getTrackingNumber());
+            if (stored == null) {
+                inserts.add(record);
+            } else if (!isSameShipment(record, stored)) {
+                this.deadLetter(record, "Tracking number already issued to another shipment");
+            }
+        }
+
+        int replayed = 0;
+        try {
+            this.persist(inserts);
+            replayed = inserts.size();
+        } catch (RuntimeException e) {
+            if (!DatabaseAvailability.isDuplicateKey(e)) {
+                throw e;
+            }
+            // Another writer took one of the numbers after the check; find out which one by one
+            for (TrackingNumberEntity record : inserts) {
+                try {
+                    this.persist(List.of(record));
+                    replayed++;
+                } catch (RuntimeException conflict) {
+                    if (!DatabaseAvailability.isDuplicateKey(conflict)) {
+                        throw conflict;
+                    }
+                    this.deadLetter(record, "Tracking number inserted concurrently by another writer");
+                }
+            }
+        }
+        replayedCounter.increment(replayed);
+        batch.forEach(record -> pending.remove(record.getTrackingNumber(), record));
+        return batch.size();
+    }
+
+    private void persist(final List<TrackingNumberEntity> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            records.forEach(entityManager::persist);
+            records.forEach(outbox::recordCreated);
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    // Creation times are compared to the millisecond, the coarsest precision a column may keep
+    private static boolean isSameShipment(final TrackingNumberEntity journaled, final TrackingNumberEntity stored) {
+        return Objects.equals(journaled.getCustomerId(), stored.getCustomerId())
+                && Objects.equals(journaled.getOriginCountryId(), stored.getOriginCountryId())
+                && Objects.equals(journaled.getDestinationCountryId(), stored.getDestinationCountryId())
+                && journaled.getWeight() != null && stored.getWeight() != null
+                && journaled.getWeight().compareTo(stored.getWeight()) == 0
+                && Objects.equals(journaled.getCustomerSlug(), stored.getCustomerSlug())
+                && journaled.getCreatedAt() != null && stored.getCreatedAt() != null
+                && journaled.getCreatedAt().truncatedTo(ChronoUnit.MILLIS).equals(stored.getCreatedAt().truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    // Configured IDs must be distinct per instance; a random one only suits a single local instance
+    private static String resolveNodeId(final String configured) {
+        if (configured == null || configured.isBlank()) {
+            final SecureRandom random = new SecureRandom();
+            final StringBuilder generated = new StringBuilder();
+            for (int i = 0; i < NODE_ID_LENGTH; i++) {
+                generated.append(NODE_ID_ALPHABET.charAt(random.nextInt(NODE_ID_ALPHABET.length())));
+            }
+            logger.info("No tracking.spill.node-id configured, journaling under random node ID {}", generated);
+            return generated.toString();
+        }
+        final String nodeId = configured.trim().toUpperCase();
+        if (nodeId.length() > NODE_ID_LENGTH || !nodeId.chars().allMatch(c -> NODE_ID_ALPHABET.indexOf(c) >= 0)) {
+            throw new IllegalArgumentException("tracking.spill.node-id must be one or two letters or digits: " + configured);
+        }
+        return "0".repeat(NODE_ID_LENGTH - nodeId.length()) + nodeId;
+    }
+
+    private void deadLetter(final TrackingNumberEntity record, final String reason) {
+        logger.error("Dead-lettering journaled tracking number {}: {}", record.getTrackingNumber(), reason);
+        final ByteBuffer line = this.toLine(Map.of("reason", reason, "record", record));
+        synchronized (deadLetterLock) {
+            try (FileChannel channel = openJournal(directory.resolve(DEAD_LETTER_FILE))) {
+                while (line.hasRemaining()) {
+                    channel.write(line);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to write spill dead-letter file", e);
+            }
+        }
+        deadLetteredCounter.increment();
+    }
+
+    // Rewrites the journal with only the records still pending
+    private void compact() {
+        journalLock.writeLock().lock();
+        try {
+            this.writeSnapshot();
+            journal.close();
+            journal = openJournal(directory.resolve(JOURNAL_FILE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to compact spill journal", e);
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        final Path temp = directory.resolve(JOURNAL_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (TrackingNumberEntity record : pending.values()) {
+                final ByteBuffer line = this.toLine(record);
+                while (line.hasRemaining()) {
+                    channel.write(line);
+                }
+            }
+            channel.force(false);
+        }
+        Files.move(temp, directory.resolve(JOURNAL_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private ByteBuffer toLine(final Object value) {
+        try {
+            final byte[] json = objectMapper.writeValueAsBytes(value);
+            return ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize journal record", e);
+        }
+    }
+
+    private static FileChannel openJournal(final Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,342 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.getrosoft.trackingservice.tracking_service.exceptions.EventBufferFullException;
+import com.getrosoft.trackingservice.tracking_service.payload.TrackingUpdate;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingUpdateService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes tracking updates to server-sent event subscribers.
+ * <p>
+ * Subscribers are indexed by tracking number and by customer in concurrent maps, so publishing
+ * never takes a lock shared with subscribe or unsubscribe. Each subscriber holds at most one
+ * pending update per tracking number: a newer update replaces the queued one instead of piling up
+ * behind a slow connection, and updates for new keys are dropped once the per-connection cap is
+ * reached. A subscriber has at most one flush task queued on the dispatcher at any time, and a flush
+ * hands its thread back after a few updates, so one busy stream cannot hold a dispatcher thread.
+ * <p>
+ * A send to a client that stopped reading blocks until the servlet container's write timeout, and
+ * the emitter cannot be closed from another thread meanwhile. A subscriber whose send has taken
+ * longer than {@code send-timeout-ms} is therefore evicted: nothing more is queued for it, and the
+ * dispatcher gets an extra thread until the blocked send returns, when the stream is closed.
+ */
+@Service
+public class TrackingUpdateServiceImpl implements TrackingUpdateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrackingUpdateServiceImpl.class);
+
+    private static final String EVENT_NAME = "tracking-update";
+    private static final int UPDATES_PER_TURN = 32;
+    private static final long NOT_SENDING = Long.MIN_VALUE;
+    private static final EventBufferFullException TOO_MANY_SUBSCRIPTIONS =
+            new EventBufferFullException("Too many live tracking subscriptions, retry later");
+
+    private final Map<String, Set<Subscriber>> byTrackingNumber = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<Subscriber>> byCustomer = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger customerSubscriptions = new AtomicInteger();
+    private final ThreadPoolExecutor dispatcher;
+    private final int dispatcherThreads;
+    private final long timeoutMillis;
+    private final int maxSubscribers;
+    private final int maxPendingPerSubscriber;
+    private final long sendTimeoutNanos;
+    private final int maxStalledSends;
+    // Threads blocked in the send of an evicted subscriber, each replaced by an extra dispatcher thread
+    private int stalledSends;
+
+    private final Counter coalescedCounter;
+    private final Counter droppedCounter;
+    private final Counter evictedCounter;
+
+    public TrackingUpdateServiceImpl(MeterRegistry meterRegistry,
+                                     @Value("${tracking.updates.dispatcher-threads:4}") int dispatcherThreads,
+                                     @Value("${tracking.updates.timeout-ms:1800000}") long timeoutMillis,
+                                     @Value("${tracking.updates.max-subscribers:10000}") int maxSubscribers,
+                                     @Value("${tracking.updates.max-pending-per-subscriber:256}") int maxPendingPerSubscriber,
+                                     @Value("${tracking.updates.send-timeout-ms:5000}") long sendTimeoutMillis,
+                                     @Value("${tracking.updates.max-stalled-sends:64}") int maxStalledSends) {
+        final AtomicInteger threadIndex = new AtomicInteger();
+        this.dispatcher = new ThreadPoolExecutor(dispatcherThreads, dispatcherThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "tracking-update-dispatcher-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcherThreads = dispatcherThreads;
+        this.timeoutMillis = timeoutMillis;
+        this.maxSubscribers = maxSubscribers;
+        this.maxPendingPerSubscriber = maxPendingPerSubscriber;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.maxStalledSends = maxStalledSends;
+
+        Gauge.builder("tracking.updates.subscribers", subscribers, Set::size).register(meterRegistry);
+        Gauge.builder("tracking.updates.dispatcher_threads", dispatcher, ThreadPoolExecutor::getPoolSize).register(meterRegistry);
+        this.coalescedCounter = meterRegistry.counter("tracking.updates.coalesced");
+        this.droppedCounter = meterRegistry.counter("tracking.updates.dropped");
+        this.evictedCounter = meterRegistry.counter("tracking.updates.evicted");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        dispatcher.shutdownNow();
+    }
+
+    @Override
+    public SseEmitter subscribe(final Set<String> trackingNumbers, final UUID customerId, final List<TrackingUpdate> initialUpdates) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw TOO_MANY_SUBSCRIPTIONS;
+        }
+        final SseEmitter emitter = this.createEmitter();
+        final Subscriber subscriber = new Subscriber(emitter, trackingNumbers, customerId);
+        emitter.onCompletion(() -> this.unregister(subscriber));
+        emitter.onTimeout(() -> this.unregister(subscriber));
+        emitter.onError(error -> this.unregister(subscriber));
+
+        subscribers.add(subscriber);
+        for (String trackingNumber : trackingNumbers) {
+            byTrackingNumber.computeIfAbsent(trackingNumber, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        if (customerId != null) {
+            byCustomer.computeIfAbsent(customerId, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            customerSubscriptions.incrementAndGet();
+        }
+        initialUpdates.forEach(subscriber::enqueue);
+        return emitter;
+    }
+
+    @Override
+    public void publish(final Collection<TrackingUpdate> updates, final Map<String, UUID> customerIds) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        for (TrackingUpdate update : updates) {
+            final Set<Subscriber> numberSubscribers = byTrackingNumber.get(update.getTrackingNumber());
+            if (numberSubscribers != null) {
+                numberSubscribers.forEach(subscriber -> subscriber.enqueue(update));
+            }
+            final UUID customerId = customerIds.get(update.getTrackingNumber());
+            final Set<Subscriber> customerSubscribers = customerId != null ? byCustomer.get(customerId) : null;
+            if (customerSubscribers != null) {
+                customerSubscribers.forEach(subscriber -> subscriber.enqueue(update));
+            }
+        }
+    }
+
+    @Override
+    public boolean hasCustomerSubscribers() {
+        return customerSubscriptions.get() > 0;
+    }
+
+    // Keeps idle connections alive through proxies and detects clients that went away. A heartbeat
+    // claims the flush flag like a flush does, so only one send per subscriber is ever in progress;
+    // subscribers with a flush already scheduled are busy and need none.
+    @Scheduled(fixedDelayString = "${tracking.updates.heartbeat-interval-ms:15000}")
+    public void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.flushScheduled.compareAndSet(false, true)) {
+                dispatcher.execute(subscriber::heartbeat);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.updates.stall-check-interval-ms:1000}")
+    public void evictStalledSubscribers() {
+        final long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            final long sendStarted = subscriber.sendStartedNanos;
+            if (sendStarted != NOT_SENDING && now - sendStarted > sendTimeoutNanos) {
+                subscriber.evict(sendStarted);
+            }
+        }
+    }
+
+    // Overridden by tests to observe what is sent
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private synchronized boolean addStalledSend() {
+        if (stalledSends >= maxStalledSends) {
+            return false;
+        }
+        stalledSends++;
+        dispatcher.setMaximumPoolSize(dispatcherThreads + stalledSends);
+        dispatcher.setCorePoolSize(dispatcherThreads + stalledSends);
+        return true;
+    }
+
+    private synchronized void removeStalledSend() {
+        stalledSends--;
+        dispatcher.setCorePoolSize(dispatcherThreads + stalledSends);
+        dispatcher.setMaximumPoolSize(dispatcherThreads + stalledSends);
+    }
+
+    private void unregister(final Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        for (String trackingNumber : subscriber.trackingNumbers) {
+            byTrackingNumber.computeIfPresent(trackingNumber, (key, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+        if (subscriber.customerId != null) {
+            byCustomer.computeIfPresent(subscriber.customerId, (key, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+            customerSubscriptions.decrementAndGet();
+        }
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Set<String> trackingNumbers;
+        private final UUID customerId;
+        private final Map<String, TrackingUpdate> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private volatile boolean evicted;
+        private volatile long sendStartedNanos = NOT_SENDING;
+        // Whether an extra dispatcher thread stands in for the one blocked in this subscriber's send
+        private boolean replaced;
+
+        private Subscriber(final SseEmitter emitter, final Set<String> trackingNumbers, final UUID customerId) {
+            this.emitter = emitter;
+            this.trackingNumbers = trackingNumbers;
+            this.customerId = customerId;
+        }
+
+        private void enqueue(final TrackingUpdate update) {
+            if (evicted) {
+                return;
+            }
+            final String key = update.getTrackingNumber();
+            final boolean coalesced = pending.containsKey(key);
+            if (!coalesced && pending.size() >= maxPendingPerSubscriber) {
+                droppedCounter.increment();
+                return;
+            }
+            // An update older than the one already queued is stale and loses the merge
+            pending.merge(key, update, (current, candidate) -> candidate.isNewerThan(current) ? candidate : current);
+            if (coalesced) {
+                coalescedCounter.increment();
+            }
+            if (flushScheduled.compareAndSet(false, true)) {
+                dispatcher.execute(this::flush);
+            }
+        }
+
+        private void flush() {
+            int sent = 0;
+            do {
+                for (String key : pending.keySet()) {
+                    if (sent == UPDATES_PER_TURN) {
+                        // Requeue behind other subscribers' flushes; the flag stays set
+                        dispatcher.execute(this::flush);
+                        return;
+                    }
+                    final TrackingUpdate update = pending.remove(key);
+                    if (update == null) {
+                        continue;
+                    }
+                    if (!this.send(SseEmitter.event().name(EVENT_NAME).data(update, MediaType.APPLICATION_JSON))) {
+                        pending.clear();
+                        flushScheduled.set(false);
+                        return;
+                    }
+                    sent++;
+                }
+                flushScheduled.set(false);
+            } while (!pending.isEmpty() && flushScheduled.compareAndSet(false, true));
+        }
+
+        private void heartbeat() {
+            if (!this.send(SseEmitter.event().comment("heartbeat"))) {
+                pending.clear();
+                flushScheduled.set(false);
+                return;
+            }
+            flushScheduled.set(false);
+            // Updates enqueued during the heartbeat saw the flag set and left their flush to us
+            if (!pending.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+                this.flush();
+            }
+        }
+
+        // Returns false once the stream has been closed
+        private boolean send(final SseEmitter.SseEventBuilder event) {
+            if (evicted) {
+                return false;
+            }
+            Exception failure = null;
+            sendStartedNanos = System.nanoTime();
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                failure = e;
+            }
+            final boolean wasEvicted;
+            synchronized (this) {
+                sendStartedNanos = NOT_SENDING;
+                wasEvicted = evicted;
+                if (replaced) {
+                    removeStalledSend();
+                    replaced = false;
+                }
+            }
+            if (wasEvicted) {
+                // Evicted while blocked; the emitter is free again, so the stream can be closed now
+                emitter.completeWithError(failure != null ? failure : new IOException("Tracking update stream stalled"));
+                return false;
+            }
+            if (failure != null) {
+                logger.debug("Closing tracking update stream: {}", failure.getMessage());
+                unregister(this);
+                emitter.completeWithError(failure);
+                return false;
+            }
+            return true;
+        }
+
+        // Runs while another thread may be blocked in send holding the emitter's lock, so the stream
+        // itself is closed by that thread once its send returns
+        private synchronized void evict(final long observedSendStart) {
+            if (evicted || sendStartedNanos != observedSendStart) {
+                return; // Already evicted, or the send finished after all
+            }
+            evicted = true;
+            evictedCounter.increment();
+            logger.debug("Evicting a tracking update stream whose client stopped reading");
+            pending.clear();
+            unregister(this);
+            replaced = addStalledSend();
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Immutable archive file holding tracking records sorted by tracking number.
+ * <p>
+ * Records are stored in blocks of {@value #ROWS_PER_BLOCK} rows. Inside a block every field is
+ * written as its own column and the block is deflate-compressed, which compresses far better than
+ * row-wise storage because values of one column look alike. The footer holds a sparse index (the
+ * first tracking number and file offset of every block) and a Bloom filter, both of which are kept
+ * in memory once the segment is opened, so a lookup costs at most one block read.
+ * <pre>
+ * [block 0] ... [block n-1] [footer] [long footerOffset] [int magic]
+ * </pre>
+ */
+public final class ArchiveSegment {
+
+    public static final String FILE_EXTENSION = ".tseg";
+
+    private static final int MAGIC = 0x54534731; // "TSG1"
+    private static final int ROWS_PER_BLOCK = 512;
+    private static final int TRAILER_LENGTH = Long.BYTES + Integer.BYTES;
+
+    private final Path path;
+    private final String[] blockFirstKeys;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final BloomFilter bloomFilter;
+    private final String minKey;
+    private final String maxKey;
+    private final long rowCount;
+
+    private ArchiveSegment(final Path path, final String[] blockFirstKeys, final long[] blockOffsets, final int[] blockLengths,
+                           final BloomFilter bloomFilter, final String minKey, final String maxKey, final long rowCount) {
+        this.path = path;
+        this.blockFirstKeys = blockFirstKeys;
+        this.blockOffsets = blockOffsets;
+        this.blockLengths = blockLengths;
+        this.bloomFilter = bloomFilter;
+        this.minKey = minKey;
+        this.maxKey = maxKey;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Writes the records to {@code target} through a temporary file that is synced and atomically
+     * moved into place, so readers never observe a partially written segment.
+     */
+    public static ArchiveSegment write(final Path target, final List<TrackingNumberEntity> records) throws IOException {
+        if (records.isEmpty()) {
+            throw new IllegalArgumentException("Cannot write an empty archive segment");
+        }
+        final List<TrackingNumberEntity> sorted = new ArrayList<>(records);
+        sorted.sort(Comparator.comparing(TrackingNumberEntity::getTrackingNumber));
+
+        final int blockCount = (sorted.size() + ROWS_PER_BLOCK - 1) / ROWS_PER_BLOCK;
+        final String[] firstKeys = new String[blockCount];
+        final long[] offsets = new long[blockCount];
+        final int[] lengths = new int[blockCount];
+        final BloomFilter bloomFilter = BloomFilter.forExpectedKeys(sorted.size());
+
+        // Unique per writer, so two instances writing the same segment never share a temporary file
+        final Path temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long position = 0;
+            for (int block = 0; block < blockCount; block++) {
+                final List<TrackingNumberEntity> rows = sorted.subList(block * ROWS_PER_BLOCK,
+                        Math.min(sorted.size(), (block + 1) * ROWS_PER_BLOCK));
+                rows.forEach(row -> bloomFilter.add(row.getTrackingNumber()));
+                final byte[] compressed = encodeBlock(rows);
+                firstKeys[block] = rows.get(0).getTrackingNumber();
+                offsets[block] = position;
+                lengths[block] = compressed.length;
+                position += writeFully(channel, ByteBuffer.wrap(compressed));
+            }
+
+            final ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+            try (DataOutputStream footer = new DataOutputStream(footerBytes)) {
+                footer.writeInt(blockCount);
+                for (int block = 0; block < blockCount; block++) {
+                    footer.writeUTF(firstKeys[block]);
+                    footer.writeLong(offsets[block]);
+                    footer.writeInt(lengths[block]);
+                }
+                bloomFilter.writeTo(footer);
+                footer.writeUTF(sorted.get(0).getTrackingNumber());
+                footer.writeUTF(sorted.get(sorted.size() - 1).getTrackingNumber());
+                footer.writeLong(sorted.size());
+                footer.writeLong(position);
+                footer.writeInt(MAGIC);
+            }
+            writeFully(channel, ByteBuffer.wrap(footerBytes.toByteArray()));
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return new ArchiveSegment(target, firstKeys, offsets, lengths, bloomFilter,
+                sorted.get(0).getTrackingNumber(), sorted.get(sorted.size() - 1).getTrackingNumber(), sorted.size());
+    }
+
+    /**
+     * Opens an existing segment, reading only its footer.
+     */
+    public static ArchiveSegment open(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < TRAILER_LENGTH) {
+                throw new IOException("Archive segment " + path + " is truncated");
+            }
+            final ByteBuffer trailer = readFully(channel, size - TRAILER_LENGTH, TRAILER_LENGTH);
+            final long footerOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC) {
+                throw new IOException("Archive segment " + path + " has an invalid trailer");
+            }
+            final ByteBuffer footerBuffer = readFully(channel, footerOffset, (int) (size - TRAILER_LENGTH - footerOffset));
+            try (DataInputStream footer = new DataInputStream(new ByteArrayInputStream(footerBuffer.array()))) {
+                final int blockCount = footer.readInt();
+                final String[] firstKeys = new String[blockCount];
+                final long[] offsets = new long[blockCount];
+                final int[] lengths = new int[blockCount];
+                for (int block = 0; block < blockCount; block++) {
+                    firstKeys[block] = footer.readUTF();
+                    offsets[block] = footer.readLong();
+                    lengths[block] = footer.readInt();
+                }
+                final BloomFilter bloomFilter = BloomFilter.readFrom(footer);
+                final String minKey = footer.readUTF();
+                final String maxKey = footer.readUTF();
+                final long rowCount = footer.readLong();
+                return new ArchiveSegment(path, firstKeys, offsets, lengths, bloomFilter, minKey, maxKey, rowCount);
+            }
+        }
+    }
+
+    public boolean mightContain(final String trackingNumber) {
+        return trackingNumber.compareTo(minKey) >= 0 && trackingNumber.compareTo(maxKey) <= 0
+                && bloomFilter.mightContain(trackingNumber);
+    }
+
+    /**
+     * Returns the archived record, or {@code null} when the segment does not contain it.
+     */
+    public TrackingNumberEntity find(final String trackingNumber) throws IOException {
+        if (!this.mightContain(trackingNumber)) {
+            return null;
+        }
+        final int search = Arrays.binarySearch(blockFirstKeys, trackingNumber);
+        final int block = search >= 0 ? search : -search - 2;
+        if (block < 0) {
+            return null;
+        }
+        final ByteBuffer compressed;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            compressed = readFully(channel, blockOffsets[block], blockLengths[block]);
+        }
+        return decodeBlockRow(compressed.array(), trackingNumber);
+    }
+
+    /**
+     * Reads every tracking number in the segment in order, decompressing only the tracking number
+     * column of each block.
+     */
+    public List<String> readTrackingNumbers() throws IOException {
+        final List<String> trackingNumbers = new ArrayList<>((int) rowCount);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (int block = 0; block < blockOffsets.length; block++) {
+                final ByteBuffer compressed = readFully(channel, blockOffsets[block], blockLengths[block]);
+                try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed.array())))) {
+                    final int rows = in.readInt();
+                    for (int i = 0; i < rows; i++) {
+                        trackingNumbers.add(in.readUTF());
+                    }
+                }
+            }
+        }
+        return trackingNumbers;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    private static byte[] encodeBlock(final List<TrackingNumberEntity> rows) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeInt(rows.size());
+            for (TrackingNumberEntity row : rows) {
+                out.writeUTF(row.getTrackingNumber());
+            }
+            for (TrackingNumberEntity row : rows) {
+                out.writeLong(row.getCreatedAt().getEpochSecond());
+            }
+            for (TrackingNumberEntity row : rows) {
+                out.writeInt(row.getCreatedAt().getNano());
+            }
+            for (TrackingNumberEntity row : rows) {
+                out.writeUTF(row.getOriginCountryId());
+            }
+            for (TrackingNumberEntity row : rows) {
+                out.writeUTF(row.getDestinationCountryId());
+            }
+            for (TrackingNumberEntity row : rows) {
+                out.writeUTF(row.getWeight().toPlainString());
+            }
+            for (TrackingNumberEntity row : rows) {
+                out.writeLong(row.getCustomerId().getMostSignificantBits());
+            }
+            for (TrackingNumberEntity row : rows) {
+                out.writeLong(row.getCustomerId().getLeastSignificantBits());
+            }
+            for (TrackingNumberEntity row : rows) {
+                out.writeUTF(row.getCustomerSlug());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    // Reads the tracking number column to find the row, then skips straight to its values in the other columns
+    private static TrackingNumberEntity decodeBlockRow(final byte[] compressed, final String trackingNumber) throws IOException {
+        try (InputStream inflater = new InflaterInputStream(new ByteArrayInputStream(compressed));
+             DataInputStream in = new DataInputStream(inflater)) {
+            final int rows = in.readInt();
+            int match = -1;
+            for (int i = 0; i < rows; i++) {
+                if (in.readUTF().equals(trackingNumber)) {
+                    match = i;
+                }
+            }
+            if (match < 0) {
+                return null;
+            }
+            final long epochSecond = readLongAt(in, rows, match);
+            final int nanos = readIntAt(in, rows, match);
+            final String origin = readUtfAt(in, rows, match);
+            final String destination = readUtfAt(in, rows, match);
+            final BigDecimal weight = new BigDecimal(readUtfAt(in, rows, match));
+            final long mostSignificantBits = readLongAt(in, rows, match);
+            final long leastSignificantBits = readLongAt(in, rows, match);
+            final String slug = readUtfAt(in, rows, match);
+            return new TrackingNumberEntity(trackingNumber, Instant.ofEpochSecond(epochSecond, nanos), origin, destination,
+                    weight, new UUID(mostSignificantBits, leastSignificantBits), slug);
+        }
+    }
+
+    private static long readLongAt(final DataInputStream in, final int rows, final int index) throws IOException {
+        in.skipNBytes((long) index * Long.BYTES);
+        final long value = in.readLong();
+        in.skipNBytes((long) (rows - index - 1) * Long.BYTES);
+        return value;
+    }
+
+    private static int readIntAt(final DataInputStream in, final int rows, final int index) throws IOException {
+        in.skipNBytes((long) index * Integer.BYTES);
+        final int value = in.readInt();
+        in.skipNBytes((long) (rows - index - 1) * Integer.BYTES);
+        return value;
+    }
+
+    private static String readUtfAt(final DataInputStream in, final int rows, final int index) throws IOException {
+        String value = null;
+        for (int i = 0; i < rows; i++) {
+            final String current = in.readUTF();
+            if (i == index) {
+                value = current;
+            }
+        }
+        return value;
+    }
+
+    private static int writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        final int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return length;
+    }
+
+    private static ByteBuffer readFully(final FileChannel channel, final long position, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new IOException("Unexpected end of archive segment");
+            }
+            offset += read;
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,155 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Finds the archive segments that may hold a tracking number without probing every segment.
+ * <p>
+ * Segments are grouped into generations of up to {@code keysPerFilter} tracking numbers, and each
+ * generation has one Bloom filter over all of its keys. A lookup probes one filter per generation
+ * and only looks at the segments of a generation whose filter matches, so the cost of a miss grows
+ * with the number of archived records divided by the generation size, not with the number of
+ * segments. The newest generation keeps taking segments until it is full, then a new one starts.
+ * <p>
+ * A segment opened from disk is only indexed once its tracking numbers have been read; until then
+ * it is pending and probed on its own. The index is replaced as a whole on every change, so a
+ * lookup always sees a consistent state without locking.
+ */
+public final class ArchiveSegmentIndex {
+
+    private record Generation(BloomFilter filter, List<ArchiveSegment> segments, long keyCount) {
+    }
+
+    private record State(List<Generation> generations, List<ArchiveSegment> pending) {
+    }
+
+    private final int keysPerFilter;
+    private volatile State state = new State(List.of(), List.of());
+
+    public ArchiveSegmentIndex(final int keysPerFilter) {
+        if (keysPerFilter <= 0) {
+            throw new IllegalArgumentException("keysPerFilter must be positive");
+        }
+        this.keysPerFilter = keysPerFilter;
+    }
+
+    /**
+     * Adds a segment whose tracking numbers are known, e.g. one this instance has just written.
+     */
+    public synchronized void add(final ArchiveSegment segment, final Collection<String> trackingNumbers) {
+        final State current = state;
+        final List<Generation> generations = new ArrayList<>(current.generations());
+        generations.add(sealed(this.append(generations, this.reopenLast(generations), segment, trackingNumbers)));
+        state = new State(List.copyOf(generations), current.pending());
+    }
+
+    /**
+     * Adds a segment that is probed on its own until {@link #indexPending} reads its tracking numbers.
+     */
+    public synchronized void addPending(final ArchiveSegment segment) {
+        final State current = state;
+        final List<ArchiveSegment> pending = new ArrayList<>(current.pending());
+        pending.add(segment);
+        state = new State(current.generations(), List.copyOf(pending));
+    }
+
+    /**
+     * Reads the tracking numbers of every pending segment and moves it into the generations. A
+     * segment that cannot be read stays pending and is reported to {@code onFailure}.
+     *
+     * @return the number of segments indexed
+     */
+    public synchronized int indexPending(final BiConsumer<ArchiveSegment, IOException> onFailure) {
+        final State current = state;
+        if (current.pending().isEmpty()) {
+            return 0;
+        }
+        final List<Generation> generations = new ArrayList<>(current.generations());
+        final List<ArchiveSegment> stillPending = new ArrayList<>();
+        Generation open = this.reopenLast(generations);
+        for (ArchiveSegment segment : current.pending()) {
+            try {
+                open = this.append(generations, open, segment, segment.readTrackingNumbers());
+            } catch (IOException e) {
+                onFailure.accept(segment, e);
+                stillPending.add(segment);
+            }
+        }
+        if (!open.segments().isEmpty()) {
+            generations.add(sealed(open));
+        }
+        state = new State(List.copyOf(generations), List.copyOf(stillPending));
+        return current.pending().size() - stillPending.size();
+    }
+
+    /**
+     * Segments whose own Bloom filter and key range may contain the tracking number, usually none.
+     */
+    public List<ArchiveSegment> candidates(final String trackingNumber) {
+        final State current = state;
+        List<ArchiveSegment> candidates = List.of();
+        for (Generation generation : current.generations()) {
+            if (generation.filter().mightContain(trackingNumber)) {
+                candidates = collect(candidates, generation.segments(), trackingNumber);
+            }
+        }
+        return collect(candidates, current.pending(), trackingNumber);
+    }
+
+    public boolean isEmpty() {
+        final State current = state;
+        return current.generations().isEmpty() && current.pending().isEmpty();
+    }
+
+    public int generationCount() {
+        return state.generations().size();
+    }
+
+    public int pendingCount() {
+        return state.pending().size();
+    }
+
+    // Takes the newest generation off the list as a private copy that can still take keys
+    private Generation reopenLast(final List<Generation> generations) {
+        if (generations.isEmpty() || generations.get(generations.size() - 1).keyCount() >= keysPerFilter) {
+            return new Generation(BloomFilter.forExpectedKeys(keysPerFilter), new ArrayList<>(), 0);
+        }
+        final Generation last = generations.remove(generations.size() - 1);
+        return new Generation(last.filter().copy(), new ArrayList<>(last.segments()), last.keyCount());
+    }
+
+    // Adds the segment to the open generation, sealing it first when the segment would overfill it
+    private Generation append(final List<Generation> generations, final Generation open,
+                              final ArchiveSegment segment, final Collection<String> trackingNumbers) {
+        Generation target = open;
+        if (target.keyCount() > 0 && target.keyCount() + trackingNumbers.size() > keysPerFilter) {
+            generations.add(sealed(target));
+            target = new Generation(BloomFilter.forExpectedKeys(keysPerFilter), new ArrayList<>(), 0);
+        }
+        trackingNumbers.forEach(target.filter()::add);
+        target.segments().add(segment);
+        return new Generation(target.filter(), target.segments(), target.keyCount() + trackingNumbers.size());
+    }
+
+    private static Generation sealed(final Generation generation) {
+        return new Generation(generation.filter(), List.copyOf(generation.segments()), generation.keyCount());
+    }
+
+    private static List<ArchiveSegment> collect(final List<ArchiveSegment> candidates, final List<ArchiveSegment> segments,
+                                                final String trackingNumber) {
+        List<ArchiveSegment> result = candidates;
+        for (ArchiveSegment segment : segments) {
+            if (segment.mightContain(trackingNumber)) {
+                if (result.isEmpty()) {
+                    result = new ArrayList<>(2);
+                }
+                result.add(segment);
+            }
+        }
+        return result;
+    }
+}
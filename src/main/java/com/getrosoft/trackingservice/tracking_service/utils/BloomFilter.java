@@ -0,0 +1,84 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal Bloom filter over strings, sized for a known number of keys.
+ * Uses double hashing of a 64-bit FNV-1a hash to derive the probe positions.
+ */
+public final class BloomFilter {
+
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASH_FUNCTIONS = 7;
+
+    private final long[] words;
+    private final int hashFunctions;
+
+    private BloomFilter(final long[] words, final int hashFunctions) {
+        this.words = words;
+        this.hashFunctions = hashFunctions;
+    }
+
+    public static BloomFilter forExpectedKeys(final int expectedKeys) {
+        final long bits = Math.max(64L, (long) expectedKeys * BITS_PER_KEY);
+        return new BloomFilter(new long[(int) ((bits + 63) / 64)], HASH_FUNCTIONS);
+    }
+
+    public BloomFilter copy() {
+        return new BloomFilter(words.clone(), hashFunctions);
+    }
+
+    public void add(final String key) {
+        final long hash = hash(key);
+        final int first = (int) hash;
+        final int second = (int) (hash >>> 32);
+        final long bitCount = (long) words.length * 64;
+        for (int i = 0; i < hashFunctions; i++) {
+            final long bit = Math.floorMod(first + (long) i * second, bitCount);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(final String key) {
+        final long hash = hash(key);
+        final int first = (int) hash;
+        final int second = (int) (hash >>> 32);
+        final long bitCount = (long) words.length * 64;
+        for (int i = 0; i < hashFunctions; i++) {
+            final long bit = Math.floorMod(first + (long) i * second, bitCount);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void writeTo(final DataOutputStream out) throws IOException {
+        out.writeInt(hashFunctions);
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    public static BloomFilter readFrom(final DataInputStream in) throws IOException {
+        final int hashFunctions = in.readInt();
+        final long[] words = new long[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        return new BloomFilter(words, hashFunctions);
+    }
+
+    private static long hash(final String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,91 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free ring buffer for many producers and a single consumer.
+ * <p>
+ * Every slot carries a sequence number that tells producers whether the slot is free for the
+ * current lap and tells the consumer whether the element in it has been published. Producers
+ * only contend on one CAS of the tail; {@link #offer(Object)} never blocks and returns
+ * {@code false} when the buffer is full so callers can apply backpressure.
+ */
+public final class BoundedRingBuffer<E> {
+
+    private final int mask;
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Written by the consumer thread only
+    private volatile long head;
+
+    public BoundedRingBuffer(final int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two greater than one");
+        }
+        this.mask = capacity - 1;
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public boolean offer(final E element) {
+        if (element == null) {
+            throw new NullPointerException("element");
+        }
+        long position = tail.get();
+        for (;;) {
+            final int index = (int) position & mask;
+            final long difference = sequences.getAcquire(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.setRelease(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // The slot still holds an element from the previous lap
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Moves up to {@code maxElements} published elements into {@code sink}. Must only be called
+     * from the single consumer thread.
+     */
+    @SuppressWarnings("unchecked")
+    public int drainTo(final Collection<? super E> sink, final int maxElements) {
+        long position = head;
+        int drained = 0;
+        while (drained < maxElements) {
+            final int index = (int) position & mask;
+            if (sequences.getAcquire(index) != position + 1) {
+                break;
+            }
+            final E element = (E) elements[index];
+            elements[index] = null;
+            sequences.setRelease(index, position + mask + 1);
+            position++;
+            sink.add(element);
+            drained++;
+        }
+        head = position;
+        return drained;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,105 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Fixed-size worker pool with a bounded queue, so one workload cannot take threads (and, since a
+ * worker holds at most one database connection, connections) from another.
+ * <p>
+ * A task submitted while every worker is busy and the queue is full is rejected immediately with a
+ * {@link RejectedExecutionException} instead of waiting; the exception is a shared instance without
+ * a stack trace, since rejections come in bursts exactly when the service is short of CPU. A task's
+ * failure completes its future with the exception the task threw, not wrapped in a
+ * {@code CompletionException}. Publishes, tagged with the bulkhead name,
+ * the {@code tracking.bulkhead.active} and {@code tracking.bulkhead.queued} gauges, their limits, a
+ * {@code tracking.bulkhead.rejected} counter and a {@code tracking.bulkhead.queue_wait} timer.
+ */
+public final class Bulkhead implements AutoCloseable {
+
+    private static final RejectedExecutionException REJECTED = new RejectedExecutionException("Bulkhead is full") {
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    };
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejectedCounter;
+    private final Timer queueWaitTimer;
+
+    public Bulkhead(final String name, final int maxConcurrency, final int queueCapacity, final MeterRegistry meterRegistry) {
+        if (maxConcurrency < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Bulkhead concurrency and queue capacity must be positive");
+        }
+        this.name = name;
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            final Thread thread = new Thread(runnable, "bulkhead-" + name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, (rejected, pool) -> {
+            throw REJECTED;
+        });
+        this.executor.prestartAllCoreThreads();
+
+        Gauge.builder("tracking.bulkhead.active", executor, ThreadPoolExecutor::getActiveCount)
+                .tag("bulkhead", name).description("Tasks running in the bulkhead").register(meterRegistry);
+        Gauge.builder("tracking.bulkhead.queued", executor, pool -> pool.getQueue().size())
+                .tag("bulkhead", name).description("Tasks waiting for a bulkhead worker").register(meterRegistry);
+        Gauge.builder("tracking.bulkhead.max_concurrency", executor, ThreadPoolExecutor::getMaximumPoolSize)
+                .tag("bulkhead", name).register(meterRegistry);
+        Gauge.builder("tracking.bulkhead.queue_capacity", () -> queueCapacity)
+                .tag("bulkhead", name).register(meterRegistry);
+        this.rejectedCounter = Counter.builder("tracking.bulkhead.rejected")
+                .tag("bulkhead", name).description("Tasks turned away because the bulkhead was full").register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("tracking.bulkhead.queue_wait")
+                .tag("bulkhead", name).description("Time from submission until a worker picked the task up").register(meterRegistry);
+    }
+
+    /**
+     * Runs the task on a bulkhead worker.
+     *
+     * @throws RejectedExecutionException if all workers are busy and the queue is full
+     */
+    public <T> CompletableFuture<T> supplyAsync(final Supplier<T> task) {
+        final long submittedAt = System.nanoTime();
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                queueWaitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    future.complete(task.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            return future;
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw e;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,68 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive-failure circuit breaker.
+ * <p>
+ * The circuit opens after {@code failureThreshold} failures in a row. While open, calls are refused
+ * except for one trial call per {@code openDurationMillis}; a success closes the circuit again and a
+ * failure keeps it open for another interval. Because a trial is granted by time rather than by a
+ * permit, a trial call that ends without reporting an outcome cannot leave the circuit stuck.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN }
+
+    private static final long CLOSED = -1;
+
+    private final int failureThreshold;
+    private final long openDurationMillis;
+    private final LongSupplier clock;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    // Start of the current open interval, or CLOSED
+    private final AtomicLong openedAt = new AtomicLong(CLOSED);
+
+    public CircuitBreaker(final int failureThreshold, final long openDurationMillis) {
+        this(failureThreshold, openDurationMillis, System::currentTimeMillis);
+    }
+
+    public CircuitBreaker(final int failureThreshold, final long openDurationMillis, final LongSupplier clock) {
+        if (failureThreshold < 1 || openDurationMillis < 1) {
+            throw new IllegalArgumentException("Failure threshold and open duration must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Whether a call may go ahead. Returns true for at most one caller per open interval while the
+     * circuit is open.
+     */
+    public boolean allowRequest() {
+        final long opened = openedAt.get();
+        if (opened == CLOSED) {
+            return true;
+        }
+        final long now = clock.getAsLong();
+        return now - opened >= openDurationMillis && openedAt.compareAndSet(opened, now);
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        openedAt.set(CLOSED);
+    }
+
+    public void recordFailure() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt.set(clock.getAsLong());
+        }
+    }
+
+    public State getState() {
+        return openedAt.get() == CLOSED ? State.CLOSED : State.OPEN;
+    }
+}
@@ -0,0 +1,37 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The value is an ISO 3166-1 alpha-2 or alpha-3 country code known to {@link CountryCodeRegistry},
+ * in any case. {@code null} is valid; combine with {@code @NotBlank} to require a value.
+ */
+@Documented
+@Constraint(validatedBy = CountryCode.Validator.class)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CountryCode {
+
+    String message() default "Unknown country code";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+
+    class Validator implements ConstraintValidator<CountryCode, String> {
+
+        @Override
+        public boolean isValid(String value, ConstraintValidatorContext context) {
+            return value == null || CountryCodeRegistry.isKnown(value);
+        }
+    }
+}
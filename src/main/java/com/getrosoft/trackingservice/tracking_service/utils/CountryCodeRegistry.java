@@ -0,0 +1,160 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import java.util.Locale;
+import java.util.MissingResourceException;
+
+/**
+ * ISO 3166-1 country codes, loaded once from the JDK's locale data when the class is initialised.
+ * <p>
+ * A code is at most three letters, so reading it case-insensitively as a base-27 number (a letter
+ * is 1 to 26, a missing third letter 0) gives every possible code its own slot in a table of
+ * 27^3 entries. That is a perfect hash with no probing and no key comparison: a lookup reads the
+ * characters and one array slot and allocates nothing. Both alpha-2 and alpha-3 codes are
+ * accepted and normalised to the shared upper-case alpha-2 instance held here.
+ * <p>
+ * Each alpha-2 code also has a fixed index, its two letters read as a base-26 number. Lane IDs are
+ * built from these indexes rather than from the position of a code in the JDK's list, so stored
+ * lane IDs stay valid when a JDK update adds or withdraws a country.
+ */
+public final class CountryCodeRegistry {
+
+    private static final int LETTERS = 26;
+    private static final int RADIX = LETTERS + 1;
+    private static final int COUNTRY_INDEXES = LETTERS * LETTERS;
+    // Lane IDs are below this bound, which fits a 4-byte INT column
+    public static final int LANE_IDS = COUNTRY_INDEXES * COUNTRY_INDEXES;
+    // AA is user-assigned and never an ISO country, so lane AA-AA is free to mark rows whose codes
+    // are not known; readers fall back to the codes stored with the row, or to UNKNOWN_COUNTRY
+    public static final int UNKNOWN_LANE = 0;
+    // User-assigned code conventionally meaning "unknown or unspecified"
+    public static final String UNKNOWN_COUNTRY = "ZZ";
+
+    // Alpha-2 index + 1 for every known code, 0 for anything else
+    private static final short[] SLOTS = new short[RADIX * RADIX * RADIX];
+    private static final String[] ALPHA_2 = new String[COUNTRY_INDEXES];
+    private static final int SIZE;
+
+    static {
+        int size = 0;
+        for (String alpha2 : Locale.getISOCountries()) {
+            final int index = (alpha2.charAt(0) - 'A') * LETTERS + (alpha2.charAt(1) - 'A');
+            ALPHA_2[index] = alpha2;
+            SLOTS[key(alpha2)] = (short) (index + 1);
+            final String alpha3 = alpha3Of(alpha2);
+            if (alpha3 != null) {
+                SLOTS[key(alpha3)] = (short) (index + 1);
+            }
+            size++;
+        }
+        SIZE = size;
+    }
+
+    private CountryCodeRegistry() {
+    }
+
+    /**
+     * Whether the code is a known alpha-2 or alpha-3 code, in any case.
+     */
+    public static boolean isKnown(final String code) {
+        return indexOf(code) >= 0;
+    }
+
+    /**
+     * The upper-case alpha-2 code for a known alpha-2 or alpha-3 code. Returns a shared instance,
+     * so normalising an already canonical code allocates nothing.
+     *
+     * @throws IllegalArgumentException if the code is unknown
+     */
+    public static String canonical(final String code) {
+        return ALPHA_2[requireIndex(code)];
+    }
+
+    /**
+     * Compact ID of the lane between two countries, below {@link #LANE_IDS}.
+     *
+     * @throws IllegalArgumentException if either code is unknown
+     */
+    public static int laneId(final String originCountryId, final String destinationCountryId) {
+        return requireIndex(originCountryId) * COUNTRY_INDEXES + requireIndex(destinationCountryId);
+    }
+
+    /**
+     * Whether the ID is a lane between two known countries; false for {@link #UNKNOWN_LANE}.
+     */
+    public static boolean isKnownLane(final int laneId) {
+        return laneId >= 0 && laneId < LANE_IDS
+                && ALPHA_2[laneId / COUNTRY_INDEXES] != null && ALPHA_2[laneId % COUNTRY_INDEXES] != null;
+    }
+
+    public static String originOf(final int laneId) {
+        return countryAt(laneId, laneId / COUNTRY_INDEXES);
+    }
+
+    public static String destinationOf(final int laneId) {
+        return countryAt(laneId, laneId % COUNTRY_INDEXES);
+    }
+
+    /**
+     * Number of countries known, each reachable by its alpha-2 and usually its alpha-3 code.
+     */
+    public static int size() {
+        return SIZE;
+    }
+
+    private static int requireIndex(final String code) {
+        final int index = indexOf(code);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown country code: " + code);
+        }
+        return index;
+    }
+
+    private static int indexOf(final String code) {
+        if (code == null) {
+            return -1;
+        }
+        final int key = key(code);
+        return key < 0 ? -1 : SLOTS[key] - 1;
+    }
+
+    private static String countryAt(final int laneId, final int index) {
+        final String country = laneId >= 0 && laneId < LANE_IDS ? ALPHA_2[index] : null;
+        if (country == null) {
+            throw new IllegalArgumentException("Invalid lane ID: " + laneId);
+        }
+        return country;
+    }
+
+    // Base-27 value of a two- or three-letter code, -1 for anything else
+    private static int key(final String code) {
+        final int length = code.length();
+        if (length < 2 || length > 3) {
+            return -1;
+        }
+        int key = 0;
+        for (int i = 0; i < 3; i++) {
+            int digit = 0;
+            if (i < length) {
+                final char c = code.charAt(i);
+                if (c >= 'A' && c <= 'Z') {
+                    digit = c - 'A' + 1;
+                } else if (c >= 'a' && c <= 'z') {
+                    digit = c - 'a' + 1;
+                } else {
+                    return -1;
+                }
+            }
+            key = key * RADIX + digit;
+        }
+        return key;
+    }
+
+    private static String alpha3Of(final String alpha2) {
+        try {
+            final String alpha3 = new Locale("", alpha2).getISO3Country();
+            return alpha3.length() == 3 ? alpha3 : null;
+        } catch (MissingResourceException e) {
+            return null;
+        }
+    }
+}
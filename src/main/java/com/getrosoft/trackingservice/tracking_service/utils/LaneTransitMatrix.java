@@ -0,0 +1,238 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Per-lane transit statistics kept in flat primitive arrays.
+ * <p>
+ * A lane is the triple (origin country, destination country, weight band). Country codes are
+ * interned into small indexes on first use, so every lane maps to a fixed slot in the arrays and
+ * both updates and lookups are O(1). Mean and variance are maintained incrementally with
+ * Welford's algorithm, which keeps the matrix to three numbers per lane.
+ */
+public final class LaneTransitMatrix {
+
+    // Upper bounds (exclusive, in kilograms) of every weight band but the last, open-ended one
+    private static final BigDecimal[] WEIGHT_BAND_UPPER_BOUNDS = {
+            new BigDecimal("0.5"), new BigDecimal("1"), new BigDecimal("2"), new BigDecimal("5"),
+            new BigDecimal("10"), new BigDecimal("20"), new BigDecimal("50")
+    };
+    public static final int WEIGHT_BANDS = WEIGHT_BAND_UPPER_BOUNDS.length + 1;
+
+    private static final int SNAPSHOT_MAGIC = 0x4C544D31; // "LTM1"
+
+    private final int maxCountries;
+    private final Map<String, Integer> countryIndex = new ConcurrentHashMap<>();
+    private final String[] countries;
+    private final long[] counts;
+    private final double[] meanHours;
+    private final double[] m2;
+    private final StampedLock lock = new StampedLock();
+
+    public LaneTransitMatrix(final int maxCountries) {
+        if (maxCountries <= 0) {
+            throw new IllegalArgumentException("maxCountries must be positive");
+        }
+        this.maxCountries = maxCountries;
+        this.countries = new String[maxCountries];
+        final int slots = maxCountries * maxCountries * WEIGHT_BANDS;
+        this.counts = new long[slots];
+        this.meanHours = new double[slots];
+        this.m2 = new double[slots];
+    }
+
+    public static int weightBand(final BigDecimal weight) {
+        for (int band = 0; band < WEIGHT_BAND_UPPER_BOUNDS.length; band++) {
+            if (weight.compareTo(WEIGHT_BAND_UPPER_BOUNDS[band]) < 0) {
+                return band;
+            }
+        }
+        return WEIGHT_BAND_UPPER_BOUNDS.length;
+    }
+
+    // Inclusive lower bound of a weight band in kilograms
+    public static BigDecimal weightBandLowerBound(final int band) {
+        return band == 0 ? BigDecimal.ZERO : WEIGHT_BAND_UPPER_BOUNDS[band - 1];
+    }
+
+    // Exclusive upper bound of a weight band in kilograms, null for the last, open-ended band
+    public static BigDecimal weightBandUpperBound(final int band) {
+        return band < WEIGHT_BAND_UPPER_BOUNDS.length ? WEIGHT_BAND_UPPER_BOUNDS[band] : null;
+    }
+
+    /**
+     * Folds one observed transit time into the lane's statistics. Observations for countries that
+     * no longer fit in the dictionary are dropped; estimates for them fall back to the default.
+     */
+    public void record(final String originCountryId, final String destinationCountryId, final BigDecimal weight,
+                       final double transitHours) {
+        final long stamp = lock.writeLock();
+        try {
+            final int origin = internCountry(originCountryId);
+            final int destination = internCountry(destinationCountryId);
+            if (origin < 0 || destination < 0) {
+                return;
+            }
+            final int slot = slot(origin, destination, weightBand(weight));
+            final long count = ++counts[slot];
+            final double delta = transitHours - meanHours[slot];
+            meanHours[slot] += delta / count;
+            m2[slot] += delta * (transitHours - meanHours[slot]);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the statistics of a lane, or {@code null} when nothing was recorded for it yet.
+     */
+    public TransitStatistics statistics(final String originCountryId, final String destinationCountryId,
+                                        final BigDecimal weight) {
+        final Integer origin = countryIndex.get(normalize(originCountryId));
+        final Integer destination = countryIndex.get(normalize(destinationCountryId));
+        if (origin == null || destination == null) {
+            return null;
+        }
+        final int slot = slot(origin, destination, weightBand(weight));
+
+        long stamp = lock.tryOptimisticRead();
+        long count = counts[slot];
+        double mean = meanHours[slot];
+        double sumOfSquares = m2[slot];
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                count = counts[slot];
+                mean = meanHours[slot];
+                sumOfSquares = m2[slot];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        final double variance = count > 1 ? sumOfSquares / (count - 1) : 0.0;
+        return new TransitStatistics(count, mean, Math.sqrt(variance));
+    }
+
+    /**
+     * Consistent point-in-time copy, used to publish an immutable view for readers.
+     */
+    public LaneTransitMatrix copy() {
+        final LaneTransitMatrix copy = new LaneTransitMatrix(maxCountries);
+        final long stamp = lock.readLock();
+        try {
+            final int countryCount = countryIndex.size();
+            for (int i = 0; i < countryCount; i++) {
+                copy.countries[i] = countries[i];
+                copy.countryIndex.put(countries[i], i);
+            }
+            System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+            System.arraycopy(meanHours, 0, copy.meanHours, 0, meanHours.length);
+            System.arraycopy(m2, 0, copy.m2, 0, m2.length);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return copy;
+    }
+
+    public void writeTo(final DataOutputStream out) throws IOException {
+        final long stamp = lock.readLock();
+        try {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(maxCountries);
+            out.writeInt(WEIGHT_BANDS);
+            final int countryCount = countryIndex.size();
+            out.writeInt(countryCount);
+            for (int i = 0; i < countryCount; i++) {
+                out.writeUTF(countries[i]);
+            }
+            for (int slot = 0; slot < counts.length; slot++) {
+                out.writeLong(counts[slot]);
+                out.writeDouble(meanHours[slot]);
+                out.writeDouble(m2[slot]);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Reads a snapshot into a matrix of {@code maxCountries} countries, which need not be the size it
+     * was written with. When it is smaller, the countries first seen last are dropped with their lanes.
+     */
+    public static LaneTransitMatrix readFrom(final DataInputStream in, final int maxCountries) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a lane transit matrix snapshot");
+        }
+        final int writtenMaxCountries = in.readInt();
+        if (in.readInt() != WEIGHT_BANDS) {
+            throw new IOException("Snapshot was written with a different weight band layout");
+        }
+        final int countryCount = in.readInt();
+        if (writtenMaxCountries <= 0 || countryCount < 0 || countryCount > writtenMaxCountries) {
+            throw new IOException("Corrupt lane transit matrix snapshot");
+        }
+        final LaneTransitMatrix matrix = new LaneTransitMatrix(maxCountries);
+        final int kept = Math.min(countryCount, maxCountries);
+        for (int i = 0; i < countryCount; i++) {
+            final String country = in.readUTF();
+            if (i < kept) {
+                matrix.countries[i] = country;
+                matrix.countryIndex.put(country, i);
+            }
+        }
+        // Slots are read in the written layout and only those of kept countries are stored
+        for (int origin = 0; origin < writtenMaxCountries; origin++) {
+            for (int destination = 0; destination < writtenMaxCountries; destination++) {
+                for (int band = 0; band < WEIGHT_BANDS; band++) {
+                    final long count = in.readLong();
+                    final double mean = in.readDouble();
+                    final double sumOfSquares = in.readDouble();
+                    if (origin < kept && destination < kept) {
+                        final int slot = matrix.slot(origin, destination, band);
+                        matrix.counts[slot] = count;
+                        matrix.meanHours[slot] = mean;
+                        matrix.m2[slot] = sumOfSquares;
+                    }
+                }
+            }
+        }
+        return matrix;
+    }
+
+    // Must be called with the write lock held
+    private int internCountry(final String countryId) {
+        final String key = normalize(countryId);
+        final Integer existing = countryIndex.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        final int next = countryIndex.size();
+        if (next >= maxCountries) {
+            return -1;
+        }
+        countries[next] = key;
+        countryIndex.put(key, next);
+        return next;
+    }
+
+    private int slot(final int origin, final int destination, final int band) {
+        return (origin * maxCountries + destination) * WEIGHT_BANDS + band;
+    }
+
+    private static String normalize(final String countryId) {
+        return countryId.toUpperCase(Locale.ROOT);
+    }
+
+    public record TransitStatistics(long sampleCount, double meanHours, double standardDeviationHours) {
+    }
+}
@@ -0,0 +1,67 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caps how many lines a noisy log statement writes per second, separately for each key (e.g. the
+ * exception type), so a flood of one failure cannot bury the others or make logging the bottleneck.
+ * Lines over the cap are counted, and the next line that gets through reports how many were
+ * dropped.
+ * <p>
+ * Windows are fixed one-second periods. Each key has its own small lock, taken only on the paths
+ * that log, so an uncontended call is a map lookup and a short critical section.
+ */
+public final class LogRateLimiter {
+
+    /**
+     * Returned by {@link #tryAcquire} when the line should be dropped.
+     */
+    public static final long SUPPRESSED = -1;
+
+    private static final long WINDOW_MILLIS = 1000;
+
+    private final int linesPerSecond;
+    private final ConcurrentMap<Object, Window> windows = new ConcurrentHashMap<>();
+
+    public LogRateLimiter(final int linesPerSecond) {
+        if (linesPerSecond <= 0) {
+            throw new IllegalArgumentException("linesPerSecond must be positive");
+        }
+        this.linesPerSecond = linesPerSecond;
+    }
+
+    /**
+     * @return {@link #SUPPRESSED} if {@code key} has used up this second's lines, otherwise the
+     * number of its lines dropped since the last one that was logged
+     */
+    public long tryAcquire(final Object key, final long nowMillis) {
+        return windows.computeIfAbsent(key, k -> new Window()).tryAcquire(nowMillis / WINDOW_MILLIS, linesPerSecond);
+    }
+
+    public long tryAcquire(final Object key) {
+        return tryAcquire(key, System.currentTimeMillis());
+    }
+
+    private static final class Window {
+
+        private long epoch = Long.MIN_VALUE;
+        private int logged;
+        private long suppressed;
+
+        private synchronized long tryAcquire(final long currentEpoch, final int limit) {
+            if (currentEpoch != epoch) {
+                epoch = currentEpoch;
+                logged = 0;
+            }
+            if (logged >= limit) {
+                suppressed++;
+                return SUPPRESSED;
+            }
+            logged++;
+            final long dropped = suppressed;
+            suppressed = 0;
+            return dropped;
+        }
+    }
+}
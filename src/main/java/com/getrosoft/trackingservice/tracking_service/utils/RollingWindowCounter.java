@@ -0,0 +1,78 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events over a sliding window made of a ring of fixed-width time buckets, e.g. the last
+ * hour as 60 one-minute buckets. The window slides a bucket at a time, so its edge is accurate to
+ * one bucket width.
+ * <p>
+ * Increments are lock-free and contention-free: each bucket is a {@link LongAdder}, and a bucket
+ * whose slot has come round again is replaced by a fresh one with a single CAS instead of being
+ * reset in place, so a late increment can never leak into the wrong period. Buckets are allocated
+ * on first use, so idle counters cost only the ring.
+ */
+public final class RollingWindowCounter {
+
+    private final AtomicReferenceArray<Bucket> buckets;
+    private final int bucketCount;
+    private final long bucketWidthMillis;
+
+    public RollingWindowCounter(final int bucketCount, final long bucketWidthMillis) {
+        if (bucketCount <= 0 || bucketWidthMillis <= 0) {
+            throw new IllegalArgumentException("bucketCount and bucketWidthMillis must be positive");
+        }
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+        this.bucketCount = bucketCount;
+        this.bucketWidthMillis = bucketWidthMillis;
+    }
+
+    public void increment(final long nowMillis) {
+        final long epoch = nowMillis / bucketWidthMillis;
+        final int index = (int) (epoch % bucketCount);
+        Bucket bucket = buckets.get(index);
+        while (bucket == null || bucket.epoch != epoch) {
+            if (bucket != null && bucket.epoch > epoch) {
+                return; // A caller with a stale clock reading; its period has already left the window
+            }
+            final Bucket fresh = new Bucket(epoch);
+            if (buckets.compareAndSet(index, bucket, fresh)) {
+                bucket = fresh;
+            } else {
+                bucket = buckets.get(index);
+            }
+        }
+        bucket.count.increment();
+    }
+
+    /**
+     * Events counted in the window ending at {@code nowMillis}.
+     */
+    public long sum(final long nowMillis) {
+        final long currentEpoch = nowMillis / bucketWidthMillis;
+        final long oldestEpoch = currentEpoch - bucketCount + 1;
+        long total = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            final Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.epoch >= oldestEpoch && bucket.epoch <= currentEpoch) {
+                total += bucket.count.sum();
+            }
+        }
+        return total;
+    }
+
+    public long getWindowMillis() {
+        return bucketCount * bucketWidthMillis;
+    }
+
+    private static final class Bucket {
+
+        private final long epoch;
+        private final LongAdder count = new LongAdder();
+
+        private Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
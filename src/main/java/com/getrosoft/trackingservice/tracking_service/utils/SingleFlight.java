@@ -0,0 +1,72 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into one.
+ * <p>
+ * The first caller for a key runs the loader; callers arriving while it is in flight wait for the
+ * same result (or exception) instead of loading again. Nothing is cached: once the load finishes
+ * the next caller starts a new one. Results are shared between callers and must not be mutated.
+ */
+public final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter loadCounter;
+    private final Counter coalescedCounter;
+    private final Timer coalescedWaitTimer;
+
+    public SingleFlight(final String metricPrefix, final MeterRegistry meterRegistry) {
+        this.loadCounter = meterRegistry.counter(metricPrefix + ".loads");
+        this.coalescedCounter = meterRegistry.counter(metricPrefix + ".coalesced");
+        this.coalescedWaitTimer = meterRegistry.timer(metricPrefix + ".coalesced.wait");
+    }
+
+    public V execute(final K key, final Supplier<V> loader) {
+        final CompletableFuture<V> candidate = new CompletableFuture<>();
+        final CompletableFuture<V> pending = inFlight.putIfAbsent(key, candidate);
+        if (pending == null) {
+            return this.load(key, candidate, loader);
+        }
+
+        coalescedCounter.increment();
+        final long start = System.nanoTime();
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            coalescedWaitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private V load(final K key, final CompletableFuture<V> future, final Supplier<V> loader) {
+        loadCounter.increment();
+        try {
+            final V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Errors too, or the callers waiting on this load would never return
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+}
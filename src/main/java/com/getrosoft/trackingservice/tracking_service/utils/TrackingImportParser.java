@@ -0,0 +1,159 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
+import com.getrosoft.trackingservice.tracking_service.payload.ImportFormat;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reads import records one line at a time, so memory use does not depend on the input size.
+ * Lines that cannot be parsed are returned with an error instead of failing the whole import.
+ * <p>
+ * CSV input starts with a header naming the columns (any order, case-insensitive):
+ * trackingNumber, originCountryId, destinationCountryId, weight, customerId, customerSlug and the
+ * optional createdAt (ISO-8601). Fields may be double-quoted.
+ */
+public final class TrackingImportParser implements Closeable {
+
+    private static final String[] CSV_COLUMNS = {"trackingnumber", "createdat", "origincountryid",
+            "destinationcountryid", "weight", "customerid", "customerslug"};
+    private static final int CREATED_AT = 1;
+
+    private final BufferedReader reader;
+    private final ImportFormat format;
+    private final ObjectMapper objectMapper;
+    private int[] columnIndexes;
+    private long lineNumber;
+
+    public TrackingImportParser(final Reader reader, final ImportFormat format, final ObjectMapper objectMapper) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 64 * 1024);
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Returns the next record, or null at the end of the input. Blank lines are skipped.
+     */
+    public ParsedRecord next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+
+        if (format == ImportFormat.NDJSON) {
+            return this.parseJson(line);
+        }
+        if (columnIndexes == null) {
+            this.readHeader(line);
+            return this.next();
+        }
+        return this.parseCsv(line);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private ParsedRecord parseJson(final String line) {
+        try {
+            return new ParsedRecord(lineNumber, objectMapper.readValue(line, TrackingNumberDto.class), null);
+        } catch (JsonProcessingException e) {
+            return new ParsedRecord(lineNumber, null, e.getOriginalMessage());
+        }
+    }
+
+    private void readHeader(final String line) throws IOException {
+        final List<String> header = splitCsv(line);
+        final Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            positions.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        columnIndexes = new int[CSV_COLUMNS.length];
+        for (int column = 0; column < CSV_COLUMNS.length; column++) {
+            final Integer position = positions.get(CSV_COLUMNS[column]);
+            if (position == null && column != CREATED_AT) {
+                throw new IOException("CSV header is missing the " + CSV_COLUMNS[column] + " column");
+            }
+            columnIndexes[column] = position != null ? position : -1;
+        }
+    }
+
+    private ParsedRecord parseCsv(final String line) {
+        final List<String> fields = splitCsv(line);
+        try {
+            final String createdAt = this.field(fields, CREATED_AT);
+            final String weight = this.field(fields, 4);
+            final String customerId = this.field(fields, 5);
+            final TrackingNumberDto record = TrackingNumberDto.builder()
+                    .trackingNumber(this.field(fields, 0))
+                    .createdAt(createdAt == null || createdAt.isEmpty() ? null : Instant.parse(createdAt))
+                    .originCountryId(this.field(fields, 2))
+                    .destinationCountryId(this.field(fields, 3))
+                    .weight(weight == null || weight.isEmpty() ? null : new BigDecimal(weight))
+                    .customerId(customerId == null || customerId.isEmpty() ? null : UUID.fromString(customerId))
+                    .customerSlug(this.field(fields, 6))
+                    .build();
+            return new ParsedRecord(lineNumber, record, null);
+        } catch (RuntimeException e) {
+            return new ParsedRecord(lineNumber, null, e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    private String field(final List<String> fields, final int column) {
+        final int index = columnIndexes[column];
+        return index >= 0 && index < fields.size() ? fields.get(index).trim() : null;
+    }
+
+    // RFC 4180 style: commas separate fields, double quotes wrap fields and "" escapes a quote
+    static List<String> splitCsv(final String line) {
+        final List<String> fields = new ArrayList<>(8);
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * A parsed line: either a record or the reason it could not be parsed.
+     */
+    public record ParsedRecord(long lineNumber, TrackingNumberDto record, String error) {
+    }
+}
@@ -0,0 +1,245 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import com.getrosoft.trackingservice.tracking_service.payload.DecodedTrackingNumber;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Tracking number formats and their syntactic check.
+ * <p>
+ * Legacy numbers are 14 to 16 uppercase letters and digits: 16 normally, shorter when they were
+ * regenerated after a collision for one-letter country IDs. Checked numbers append a version marker and
+ * an ISO 7064 MOD 37,36 check character to such a 16-character body (18 characters in total). The
+ * check character catches every single-character error and every transposition of adjacent
+ * characters, so typos and scanner noise are rejected without looking the number up.
+ * <p>
+ * Version 1 bodies mix a variable-length weight code with truncated random data and cannot be
+ * taken apart again; they are no longer issued. Later bodies are self-describing, with every field
+ * at a fixed position. Version 3 is issued for every number now, including label runs and numbers
+ * journaled during a database outage:
+ * <pre>
+ *     0-1   origin country, ISO 3166 alpha-2
+ *     2-3   destination country, ISO 3166 alpha-2
+ *     4     weight band, see {@link LaneTransitMatrix#weightBand}
+ *     5-7   creation day, base36 days since {@link #CREATION_EPOCH}
+ *     8-15  random; journaled numbers put the instance's node ID in 8-9
+ * </pre>
+ * Version 2 carried the customer prefix and the creation minute, which left only four random
+ * characters; anyone who knew a shipment's lane, customer and minute could enumerate its number.
+ * Its numbers are still decoded:
+ * <pre>
+ *     0-1   origin country, ISO 3166 alpha-2
+ *     2-3   destination country, ISO 3166 alpha-2
+ *     4-5   customer prefix (the first two hex digits of the customer ID)
+ *     6     weight band
+ *     7-11  creation minute, base36 minutes since {@link #CREATION_EPOCH}
+ *     12-15 random
+ * </pre>
+ * Numbers issued before country codes were validated may carry a shorter code padded with '0'.
+ * {@link #decode} recovers the lane, weight band, creation time and, for version 2, the customer
+ * prefix from the string alone.
+ */
+public final class TrackingNumberFormat {
+
+    public static final int LEGACY_LENGTH = 16;
+    // Collision retries used to emit origin + destination + 12 random characters, with country IDs
+    // as short as one character
+    public static final int LEGACY_MIN_LENGTH = 14;
+    // Checked but not self-describing; no longer issued, still accepted
+    public static final char VERSION_CHECKED = '1';
+    // Self-describing by creation minute; no longer issued, still decoded
+    public static final char VERSION_SELF_DESCRIBING_BY_MINUTE = '2';
+    public static final char VERSION_SELF_DESCRIBING = '3';
+    public static final int CHECKED_LENGTH = LEGACY_LENGTH + 2;
+
+    public static final Instant CREATION_EPOCH = Instant.parse("2024-01-01T00:00:00Z");
+    public static final int SELF_DESCRIBING_RANDOM_LENGTH = 8;
+    // Lane and weight band: the part of a version 3 body that depends only on the request
+    public static final int SELF_DESCRIBING_SEGMENT_LENGTH = 5;
+
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final int MODULUS = ALPHABET.length();
+    private static final int COUNTRY_FIELD_LENGTH = 2;
+    private static final char COUNTRY_PADDING = '0';
+    private static final int WEIGHT_BAND_OFFSET = 4;
+    private static final int CREATION_DAY_OFFSET = 5;
+    private static final int CREATION_DAY_LENGTH = 3;
+    // 36^3 days, about 127 years after the epoch
+    private static final long CREATION_DAY_LIMIT = 46_656L;
+    private static final int MINUTE_LAYOUT_CUSTOMER_PREFIX_OFFSET = 4;
+    private static final int MINUTE_LAYOUT_WEIGHT_BAND_OFFSET = 6;
+    private static final int MINUTE_LAYOUT_CREATION_OFFSET = 7;
+    private static final int MINUTE_LAYOUT_CREATION_LENGTH = 5;
+
+    private TrackingNumberFormat() {
+    }
+
+    /**
+     * Appends the version 1 marker and check character to a 16-character body.
+     */
+    public static String seal(final String body) {
+        return seal(body, VERSION_CHECKED);
+    }
+
+    /**
+     * Appends the version marker and check character to a 16-character body.
+     */
+    public static String seal(final String body, final char version) {
+        if (body.length() != LEGACY_LENGTH || !isAlphanumeric(body, LEGACY_LENGTH)) {
+            throw new IllegalArgumentException("Tracking number body must be " + LEGACY_LENGTH + " uppercase letters and digits");
+        }
+        if (!isKnownVersion(version)) {
+            throw new IllegalArgumentException("Unknown tracking number version: " + version);
+        }
+        final String versioned = body + version;
+        return versioned + ALPHABET.charAt(checkValue(versioned, versioned.length()));
+    }
+
+    /**
+     * Builds a sealed version 3 number. Country IDs may be alpha-2 or alpha-3 codes in any case.
+     *
+     * @throws IllegalArgumentException if a field is out of range or a country code is unknown
+     */
+    public static String encodeSelfDescribing(final String originCountryId, final String destinationCountryId,
+                                              final int weightBand, final Instant createdAt, final String random) {
+        if (weightBand < 0 || weightBand >= LaneTransitMatrix.WEIGHT_BANDS
+                || random.length() != SELF_DESCRIBING_RANDOM_LENGTH) {
+            throw new IllegalArgumentException("Invalid self-describing tracking number fields");
+        }
+        final String body = selfDescribingSegment(originCountryId, destinationCountryId, weightBand)
+                + creationDayField(createdAt) + random;
+        return seal(body, VERSION_SELF_DESCRIBING);
+    }
+
+    /**
+     * The request-dependent fields of a version 3 body. Numbers can only collide with numbers
+     * that share this segment and creation day.
+     */
+    public static String selfDescribingSegment(final String originCountryId, final String destinationCountryId,
+                                               final int weightBand) {
+        return CountryCodeRegistry.canonical(originCountryId) + CountryCodeRegistry.canonical(destinationCountryId)
+                + ALPHABET.charAt(weightBand);
+    }
+
+    /**
+     * Days since {@link #CREATION_EPOCH}, the unit of the version 3 creation field.
+     */
+    public static long creationDay(final Instant createdAt) {
+        final long day = ChronoUnit.DAYS.between(CREATION_EPOCH, createdAt);
+        if (createdAt.isBefore(CREATION_EPOCH) || day >= CREATION_DAY_LIMIT) {
+            throw new IllegalArgumentException("Creation time outside the encodable range: " + createdAt);
+        }
+        return day;
+    }
+
+    /**
+     * Reads the fields of a self-describing number without any lookup. The creation time is
+     * truncated to the day (version 3) or minute (version 2).
+     *
+     * @throws IllegalArgumentException if the ID is malformed or uses an earlier layout
+     */
+    public static DecodedTrackingNumber decode(final String trackingId) {
+        if (!isWellFormed(trackingId)) {
+            throw new IllegalArgumentException("Malformed tracking ID: " + trackingId);
+        }
+        final char version = trackingId.length() == CHECKED_LENGTH ? trackingId.charAt(LEGACY_LENGTH) : 0;
+        if (version != VERSION_SELF_DESCRIBING && version != VERSION_SELF_DESCRIBING_BY_MINUTE) {
+            throw new IllegalArgumentException("Tracking ID " + trackingId + " predates the self-describing layout");
+        }
+        final boolean byMinute = version == VERSION_SELF_DESCRIBING_BY_MINUTE;
+        final int weightBand = valueOf(trackingId.charAt(byMinute ? MINUTE_LAYOUT_WEIGHT_BAND_OFFSET : WEIGHT_BAND_OFFSET));
+        if (weightBand >= LaneTransitMatrix.WEIGHT_BANDS) {
+            throw new IllegalArgumentException("Tracking ID " + trackingId + " has an unknown weight band");
+        }
+        final Instant createdAt = byMinute
+                ? CREATION_EPOCH.plus(base36(trackingId, MINUTE_LAYOUT_CREATION_OFFSET, MINUTE_LAYOUT_CREATION_LENGTH), ChronoUnit.MINUTES)
+                : CREATION_EPOCH.plus(base36(trackingId, CREATION_DAY_OFFSET, CREATION_DAY_LENGTH), ChronoUnit.DAYS);
+        return DecodedTrackingNumber.builder()
+                .trackingNumber(trackingId)
+                .version(version - '0')
+                .originCountryId(countryOf(trackingId, 0))
+                .destinationCountryId(countryOf(trackingId, COUNTRY_FIELD_LENGTH))
+                .customerPrefix(byMinute ? trackingId.substring(MINUTE_LAYOUT_CUSTOMER_PREFIX_OFFSET, MINUTE_LAYOUT_WEIGHT_BAND_OFFSET) : null)
+                .weightBand(weightBand)
+                .weightBandMinKg(LaneTransitMatrix.weightBandLowerBound(weightBand))
+                .weightBandMaxKg(LaneTransitMatrix.weightBandUpperBound(weightBand))
+                .createdAt(createdAt)
+                .build();
+    }
+
+    /**
+     * Whether the ID is a legacy number or a checked number with a correct check character. Does
+     * not allocate, so it is cheap enough to run on every request.
+     */
+    public static boolean isWellFormed(final String trackingId) {
+        if (trackingId == null) {
+            return false;
+        }
+        if (trackingId.length() >= LEGACY_MIN_LENGTH && trackingId.length() <= LEGACY_LENGTH) {
+            return isAlphanumeric(trackingId, trackingId.length());
+        }
+        if (trackingId.length() != CHECKED_LENGTH || !isKnownVersion(trackingId.charAt(LEGACY_LENGTH))
+                || !isAlphanumeric(trackingId, CHECKED_LENGTH)) {
+            return false;
+        }
+        return checkValue(trackingId, CHECKED_LENGTH - 1) == valueOf(trackingId.charAt(CHECKED_LENGTH - 1));
+    }
+
+    private static boolean isKnownVersion(final char version) {
+        return version == VERSION_CHECKED || version == VERSION_SELF_DESCRIBING_BY_MINUTE || version == VERSION_SELF_DESCRIBING;
+    }
+
+    private static String countryOf(final String trackingId, final int offset) {
+        int end = offset + COUNTRY_FIELD_LENGTH;
+        while (end > offset + 1 && trackingId.charAt(end - 1) == COUNTRY_PADDING) {
+            end--;
+        }
+        return trackingId.substring(offset, end);
+    }
+
+    private static String creationDayField(final Instant createdAt) {
+        final String day = Long.toString(creationDay(createdAt), MODULUS).toUpperCase();
+        return "0".repeat(CREATION_DAY_LENGTH - day.length()) + day;
+    }
+
+    private static long base36(final String value, final int offset, final int length) {
+        long result = 0;
+        for (int i = offset; i < offset + length; i++) {
+            result = result * MODULUS + valueOf(value.charAt(i));
+        }
+        return result;
+    }
+
+    // ISO 7064 hybrid system: the check value c makes (p + c) mod 36 == 1 for the running value p
+    private static int checkValue(final CharSequence value, final int length) {
+        int product = MODULUS;
+        for (int i = 0; i < length; i++) {
+            int sum = (product + valueOf(value.charAt(i))) % MODULUS;
+            if (sum == 0) {
+                sum = MODULUS;
+            }
+            product = (sum * 2) % (MODULUS + 1);
+        }
+        return (MODULUS + 1 - product) % MODULUS;
+    }
+
+    private static boolean isAlphanumeric(final CharSequence value, final int length) {
+        for (int i = 0; i < length; i++) {
+            if (valueOf(value.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int valueOf(final char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,82 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Straight-line equivalent of the Bean Validation constraints declared on {@link TrackingNumberDto},
+ * used on the create hot path instead of the reflective validator. Messages match the annotation
+ * messages exactly; when a field breaks several constraints, the first one in declaration order is
+ * reported. Any change to the DTO's constraints must be mirrored here
+ * (see {@code TrackingNumberRequestValidatorTest}).
+ */
+public final class TrackingNumberRequestValidator {
+
+    private static final BigDecimal MIN_WEIGHT = new BigDecimal("0.1");
+
+    private TrackingNumberRequestValidator() {
+    }
+
+    /**
+     * Returns field name to message for every invalid field, or an empty immutable map (without
+     * allocating) when the request is valid.
+     */
+    public static Map<String, String> validate(final TrackingNumberDto dto) {
+        Map<String, String> errors = null;
+
+        final String origin = dto.getOriginCountryId();
+        if (isBlank(origin)) {
+            errors = put(errors, "originCountryId", "Origin country ID cannot be blank");
+        } else if (origin.length() > 3) {
+            errors = put(errors, "originCountryId", "Origin country ID must be at most 3 characters long");
+        } else if (!CountryCodeRegistry.isKnown(origin)) {
+            errors = put(errors, "originCountryId", "Origin country ID must be an ISO 3166 country code");
+        }
+
+        final String destination = dto.getDestinationCountryId();
+        if (isBlank(destination)) {
+            errors = put(errors, "destinationCountryId", "Destination country ID cannot be blank");
+        } else if (destination.length() > 3) {
+            errors = put(errors, "destinationCountryId", "Destination country ID must be at most 3 characters long");
+        } else if (!CountryCodeRegistry.isKnown(destination)) {
+            errors = put(errors, "destinationCountryId", "Destination country ID must be an ISO 3166 country code");
+        }
+
+        final BigDecimal weight = dto.getWeight();
+        if (weight == null) {
+            errors = put(errors, "weight", "Weight is required");
+        } else if (weight.compareTo(MIN_WEIGHT) < 0) { // also covers @Positive
+            errors = put(errors, "weight", "Weight must be at least 0.1");
+        }
+
+        if (dto.getCustomerId() == null) {
+            errors = put(errors, "customerId", "Customer ID is required");
+        }
+
+        final String slug = dto.getCustomerSlug();
+        if (isBlank(slug)) {
+            errors = put(errors, "customerSlug", "Customer slug cannot be blank");
+        } else if (slug.length() > 50) {
+            errors = put(errors, "customerSlug", "Customer slug must be at most 50 characters long");
+        }
+
+        return errors != null ? errors : Collections.emptyMap();
+    }
+
+    // Same rule as @NotBlank: null, empty or only whitespace
+    private static boolean isBlank(final String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static Map<String, String> put(Map<String, String> errors, final String field, final String message) {
+        if (errors == null) {
+            errors = new LinkedHashMap<>(8);
+        }
+        errors.put(field, message);
+        return errors;
+    }
+}
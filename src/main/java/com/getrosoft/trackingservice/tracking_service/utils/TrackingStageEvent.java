@@ -0,0 +1,71 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event timing one stage of a tracking request. Usage:
+ * <pre>
+ *     final TrackingStageEvent event = TrackingStageEvent.start();
+ *     ...
+ *     event.finish(TrackingStageEvent.SAVE, trackingNumber, origin, destination);
+ * </pre>
+ * When no recording has the event enabled, {@code begin}, {@code end} and {@code shouldCommit} are
+ * intrinsics that return immediately, the fields are never set and the allocation is removed by
+ * escape analysis, so instrumented code costs next to nothing.
+ */
+@Name("com.getrosoft.tracking.Stage")
+@Label("Tracking Request Stage")
+@Category({"Tracking Service", "Requests"})
+@Description("Duration of one stage of a tracking number request")
+@StackTrace(false)
+public class TrackingStageEvent extends Event {
+
+    public static final String VALIDATION = "validation";
+    public static final String GENERATION = "generation";
+    public static final String COLLISION_RETRY = "collision-retry";
+    public static final String SAVE = "repository-save";
+    public static final String FIND = "repository-find";
+    public static final String MAPPING = "mapping";
+    public static final String RESPONSE_BUILD = "response-build";
+
+    @Label("Stage")
+    private String stage;
+
+    @Label("Tracking Number")
+    private String trackingNumber;
+
+    @Label("Lane")
+    @Description("Origin and destination country, e.g. US-IN")
+    private String lane;
+
+    @Label("Attempt")
+    @Description("Collision retry number, 0 for other stages")
+    private int attempt;
+
+    public static TrackingStageEvent start() {
+        final TrackingStageEvent event = new TrackingStageEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(final String stage, final String trackingNumber, final String origin, final String destination) {
+        this.finish(stage, trackingNumber, origin, destination, 0);
+    }
+
+    public void finish(final String stage, final String trackingNumber, final String origin, final String destination,
+                       final int attempt) {
+        this.end();
+        if (this.shouldCommit()) {
+            this.stage = stage;
+            this.trackingNumber = trackingNumber;
+            this.lane = origin != null && destination != null ? origin + "-" + destination : null;
+            this.attempt = attempt;
+            this.commit();
+        }
+    }
+}
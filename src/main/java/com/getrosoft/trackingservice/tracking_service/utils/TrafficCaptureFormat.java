@@ -0,0 +1,158 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import com.getrosoft.trackingservice.tracking_service.payload.CapturedRequest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Binary layout of traffic capture files.
+ * <p>
+ * A file starts with a magic number, a format version and the capture start time in epoch
+ * milliseconds. Each record then holds the endpoint ordinal, the start offset, latency and status
+ * as variable-length integers, and the raw parameters as length-prefixed UTF-8 (length 0 marks a
+ * missing parameter, n + 1 a string of n bytes). A typical create request takes about 70 bytes.
+ * Records are appended as requests complete, so they are not in offset order.
+ */
+public final class TrafficCaptureFormat {
+
+    private static final int MAGIC = 0x54524350; // "TRCP"
+    private static final int VERSION = 1;
+
+    private TrafficCaptureFormat() {
+    }
+
+    public static void writeHeader(final DataOutput out, final long startedAtEpochMillis) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(startedAtEpochMillis);
+    }
+
+    /**
+     * Checks the magic number and version and returns the capture start time.
+     */
+    public static long readHeader(final DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a traffic capture file");
+        }
+        final int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported traffic capture version " + version);
+        }
+        return in.readLong();
+    }
+
+    public static void writeRecord(final DataOutput out, final CapturedRequest request) throws IOException {
+        out.writeByte(request.getEndpoint().ordinal());
+        writeVarLong(out, request.getOffsetMicros());
+        writeVarLong(out, request.getLatencyMicros());
+        writeVarLong(out, request.getStatus());
+        for (String parameter : request.getParameters()) {
+            if (parameter == null) {
+                writeVarLong(out, 0);
+            } else {
+                final byte[] bytes = parameter.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, bytes.length + 1L);
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Reads the next record, or returns null at the end of the file. A record cut short by a crash
+     * is treated as the end of the file.
+     */
+    public static CapturedRequest readRecord(final DataInputStream in) throws IOException {
+        final int ordinal = in.read();
+        if (ordinal < 0) {
+            return null;
+        }
+        final CapturedRequest.Endpoint[] endpoints = CapturedRequest.Endpoint.values();
+        if (ordinal >= endpoints.length) {
+            throw new IOException("Unknown endpoint " + ordinal + " in traffic capture");
+        }
+        final CapturedRequest.Endpoint endpoint = endpoints[ordinal];
+        try {
+            final long offsetMicros = readVarLong(in);
+            final long latencyMicros = readVarLong(in);
+            final int status = (int) readVarLong(in);
+            final String[] parameters = new String[endpoint.getParameterNames().size()];
+            for (int i = 0; i < parameters.length; i++) {
+                final int length = (int) readVarLong(in);
+                if (length > 0) {
+                    final byte[] bytes = new byte[length - 1];
+                    in.readFully(bytes);
+                    parameters[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+            return new CapturedRequest(endpoint, offsetMicros, latencyMicros, status, parameters);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a whole capture file, ordered by start offset.
+     */
+    public static Capture read(final Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            final long startedAt = readHeader(in);
+            final List<CapturedRequest> requests = new ArrayList<>();
+            for (CapturedRequest request = readRecord(in); request != null; request = readRecord(in)) {
+                requests.add(request);
+            }
+            requests.sort(Comparator.comparingLong(CapturedRequest::getOffsetMicros));
+            return new Capture(startedAt, requests);
+        }
+    }
+
+    public static void write(final Path file, final long startedAtEpochMillis, final List<CapturedRequest> requests) throws IOException {
+        try (OutputStream stream = Files.newOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            writeHeader(out, startedAtEpochMillis);
+            for (CapturedRequest request : requests) {
+                writeRecord(out, request);
+            }
+        }
+    }
+
+    private static void writeVarLong(final DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(final InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer in traffic capture");
+    }
+
+    public record Capture(long startedAtEpochMillis, List<CapturedRequest> requests) {
+    }
+}
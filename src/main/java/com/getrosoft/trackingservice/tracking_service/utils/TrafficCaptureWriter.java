@@ -0,0 +1,148 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import com.getrosoft.trackingservice.tracking_service.payload.CapturedRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends captured requests to a capture file from a background thread.
+ * <p>
+ * Request threads only offer records to a bounded ring buffer; when the buffer is full or the file
+ * has reached its size limit the record is dropped and counted rather than slowing the request
+ * down. The writer flushes whenever the buffer runs empty, so a crash loses little more than the
+ * records still queued.
+ */
+public final class TrafficCaptureWriter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficCaptureWriter.class);
+
+    private static final int DRAIN_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Path file;
+    private final long startedAtNanos;
+    private final long maxBytes;
+    private final BoundedRingBuffer<CapturedRequest> buffer;
+    private final DataOutputStream out;
+    private final Thread writer;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running = true;
+    private volatile boolean full;
+
+    public TrafficCaptureWriter(final Path file, final int bufferCapacity, final long maxBytes) throws IOException {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.buffer = new BoundedRingBuffer<>(bufferCapacity);
+        this.out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 64 * 1024));
+        TrafficCaptureFormat.writeHeader(out, System.currentTimeMillis());
+        this.startedAtNanos = System.nanoTime();
+        this.writer = new Thread(this::drainLoop, "traffic-capture-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Offset of a {@link System#nanoTime()} reading from the start of the capture.
+     */
+    public long offsetMicros(final long nanoTime) {
+        return TimeUnit.NANOSECONDS.toMicros(nanoTime - startedAtNanos);
+    }
+
+    /**
+     * Queues a record without blocking. Returns false if it was dropped.
+     */
+    public boolean offer(final CapturedRequest request) {
+        if (full || !running || !buffer.offer(request)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void drainLoop() {
+        final List<CapturedRequest> batch = new ArrayList<>(DRAIN_BATCH);
+        boolean dirty = false;
+        while (running || buffer.size() > 0) {
+            if (buffer.drainTo(batch, DRAIN_BATCH) == 0) {
+                if (dirty) {
+                    this.flush();
+                    dirty = false;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            this.write(batch);
+            dirty = true;
+            batch.clear();
+        }
+        this.flush();
+    }
+
+    private void write(final List<CapturedRequest> batch) {
+        for (CapturedRequest request : batch) {
+            if (full) {
+                dropped.incrementAndGet();
+                continue;
+            }
+            try {
+                TrafficCaptureFormat.writeRecord(out, request);
+                written.incrementAndGet();
+                // DataOutputStream counts bytes as an int that saturates, well above any sensible limit
+                if (out.size() >= maxBytes) {
+                    full = true;
+                    logger.warn("Traffic capture {} reached {} bytes; further requests are not captured", file, out.size());
+                }
+            } catch (IOException e) {
+                full = true;
+                logger.error("Traffic capture {} stopped: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            full = true;
+            logger.error("Traffic capture {} stopped: {}", file, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+    }
+}
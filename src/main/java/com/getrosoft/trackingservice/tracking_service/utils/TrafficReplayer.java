@@ -0,0 +1,192 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import com.getrosoft.trackingservice.tracking_service.payload.CapturedRequest;
+import com.getrosoft.trackingservice.tracking_service.payload.ReplayReport;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays captured requests against a running instance and compares the outcomes with the capture.
+ * <p>
+ * Requests are sent in capture order, each at its captured offset divided by the speed factor, so
+ * the lane, customer and hot-ID mix and the arrival pattern are the same on every run. Sending is
+ * open-loop: latency is measured from the moment a request was due, so time spent waiting for an
+ * in-flight slot counts against the server instead of being hidden by a slow replay.
+ * <p>
+ * A capture taken by {@code TrafficCaptureFilter} records server-side latency, from the filter to
+ * the completed response, which excludes the network and any queueing in front of the server. The
+ * replay latency is client-side, so it is also reported from the moment each request was sent; only
+ * that figure is comparable with a server-side baseline, and even then it includes the network.
+ * Saved replay outcomes are client-side throughout, so replaying them against another build compares
+ * like with like.
+ * <p>
+ * Lookups of tracking numbers the target does not hold answer 404 where the capture saw a success.
+ * Those are counted as {@code missingOnTarget} rather than as changed outcomes, so an unseeded
+ * target does not hide real regressions.
+ */
+public final class TrafficReplayer {
+
+    // Every captured endpoint answers 404 only for a tracking number it does not know
+    private static final int NOT_FOUND = 404;
+
+    private final HttpClient client;
+    private final URI target;
+    private final double speed;
+    private final int maxInFlight;
+    private final Duration requestTimeout;
+
+    /**
+     * @param speed       1 replays in real time, 10 ten times faster; 0 sends requests back to back
+     * @param maxInFlight cap on concurrent requests, so a stalled server does not exhaust the client
+     */
+    public TrafficReplayer(final HttpClient client, final URI target, final double speed, final int maxInFlight,
+                           final Duration requestTimeout) {
+        if (speed < 0 || maxInFlight < 1) {
+            throw new IllegalArgumentException("Speed must not be negative and max in-flight must be positive");
+        }
+        this.client = client;
+        this.target = target;
+        this.speed = speed;
+        this.maxInFlight = maxInFlight;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Replays the requests, which must be in offset order, and returns each request's outcome
+     * (replay latency and status, 0 if no response arrived) alongside the comparison.
+     */
+    public Replay replay(final List<CapturedRequest> capture) throws InterruptedException {
+        final CapturedRequest[] outcomes = new CapturedRequest[capture.size()];
+        final long[] responseMicros = new long[capture.size()];
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+        final CountDownLatch done = new CountDownLatch(capture.size());
+        final long firstOffsetMicros = capture.isEmpty() ? 0 : capture.get(0).getOffsetMicros();
+        final long startedAt = System.nanoTime();
+
+        for (int i = 0; i < capture.size(); i++) {
+            final int index = i;
+            final CapturedRequest captured = capture.get(i);
+            final long dueAt = speed > 0
+                    ? startedAt + (long) ((captured.getOffsetMicros() - firstOffsetMicros) * 1000 / speed)
+                    : System.nanoTime();
+            for (long wait = dueAt - System.nanoTime(); wait > 0; wait = dueAt - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            final long sentAt = System.nanoTime();
+            client.sendAsync(this.toHttpRequest(captured), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        final long completedAt = System.nanoTime();
+                        final long latencyMicros = TimeUnit.NANOSECONDS.toMicros(completedAt - dueAt);
+                        responseMicros[index] = TimeUnit.NANOSECONDS.toMicros(completedAt - sentAt);
+                        outcomes[index] = new CapturedRequest(captured.getEndpoint(), captured.getOffsetMicros(),
+                                latencyMicros, failure == null ? response.statusCode() : 0, captured.getParameters());
+                        inFlight.release();
+                        done.countDown();
+                    });
+        }
+        done.await();
+        final double durationSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+        final List<CapturedRequest> replayed = List.of(outcomes);
+        return new Replay(this.compare(capture, replayed, responseMicros, durationSeconds), replayed);
+    }
+
+    private HttpRequest toHttpRequest(final CapturedRequest captured) {
+        final CapturedRequest.Endpoint endpoint = captured.getEndpoint();
+        final StringBuilder query = new StringBuilder();
+        final String[] parameters = captured.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i] == null) {
+                continue;
+            }
+            query.append(query.isEmpty() ? '?' : '&')
+                    .append(endpoint.getParameterNames().get(i))
+                    .append('=')
+                    .append(URLEncoder.encode(parameters[i], StandardCharsets.UTF_8));
+        }
+        return HttpRequest.newBuilder(target.resolve(endpoint.getPath() + query))
+                .timeout(requestTimeout)
+                .method(endpoint.getMethod(), HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    private ReplayReport compare(final List<CapturedRequest> capture, final List<CapturedRequest> replayed,
+                                 final long[] responseMicros, final double durationSeconds) {
+        final Map<CapturedRequest.Endpoint, List<Integer>> byEndpoint = new EnumMap<>(CapturedRequest.Endpoint.class);
+        long transportErrors = 0;
+        for (int i = 0; i < capture.size(); i++) {
+            byEndpoint.computeIfAbsent(capture.get(i).getEndpoint(), endpoint -> new ArrayList<>()).add(i);
+            if (replayed.get(i).getStatus() == 0) {
+                transportErrors++;
+            }
+        }
+
+        final List<ReplayReport.EndpointComparison> endpoints = new ArrayList<>();
+        byEndpoint.forEach((endpoint, indexes) -> {
+            final long[] baselineLatencies = new long[indexes.size()];
+            final long[] replayLatencies = new long[indexes.size()];
+            final long[] responseLatencies = new long[indexes.size()];
+            final Map<Integer, Long> baselineStatuses = new TreeMap<>();
+            final Map<Integer, Long> replayStatuses = new TreeMap<>();
+            final Map<String, Long> changedOutcomes = new TreeMap<>();
+            long missingOnTarget = 0;
+            for (int j = 0; j < indexes.size(); j++) {
+                final CapturedRequest baseline = capture.get(indexes.get(j));
+                final CapturedRequest replay = replayed.get(indexes.get(j));
+                baselineLatencies[j] = baseline.getLatencyMicros();
+                replayLatencies[j] = replay.getLatencyMicros();
+                responseLatencies[j] = responseMicros[indexes.get(j)];
+                baselineStatuses.merge(baseline.getStatus(), 1L, Long::sum);
+                replayStatuses.merge(replay.getStatus(), 1L, Long::sum);
+                if (isSuccess(baseline.getStatus()) && replay.getStatus() == NOT_FOUND) {
+                    missingOnTarget++;
+                } else if (baseline.getStatus() != replay.getStatus()) {
+                    changedOutcomes.merge(baseline.getStatus() + "->" + replay.getStatus(), 1L, Long::sum);
+                }
+            }
+            endpoints.add(ReplayReport.EndpointComparison.builder()
+                    .endpoint(endpoint)
+                    .requests(indexes.size())
+                    .baselineLatency(ReplayReport.LatencySummary.of(baselineLatencies))
+                    .replayLatency(ReplayReport.LatencySummary.of(replayLatencies))
+                    .replayResponseLatency(ReplayReport.LatencySummary.of(responseLatencies))
+                    .baselineStatuses(baselineStatuses)
+                    .replayStatuses(replayStatuses)
+                    .changedOutcomes(changedOutcomes)
+                    .missingOnTarget(missingOnTarget)
+                    .build());
+        });
+
+        return ReplayReport.builder()
+                .target(target.toString())
+                .speed(speed)
+                .requests(capture.size())
+                .durationSeconds(durationSeconds)
+                .transportErrors(transportErrors)
+                .endpoints(endpoints)
+                .build();
+    }
+
+    private static boolean isSuccess(final int status) {
+        return status >= 200 && status < 300;
+    }
+
+    public record Replay(ReplayReport report, List<CapturedRequest> outcomes) {
+    }
+}
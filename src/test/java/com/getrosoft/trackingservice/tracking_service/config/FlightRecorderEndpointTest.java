@@ -0,0 +1,61 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingStageEvent;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecorderEndpointTest {
+
+    @TempDir
+    Path dumpDirectory;
+
+    private FlightRecorderEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        endpoint = new FlightRecorderEndpoint(dumpDirectory.toString(), 60, 10, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        endpoint.stop();
+    }
+
+    @Test
+    void testDump_ContainsStageEvents() throws Exception {
+        // Arrange
+        endpoint.control("start", null, null);
+        TrackingStageEvent event = TrackingStageEvent.start();
+
+        // Act
+        event.finish(TrackingStageEvent.SAVE, "USIN123456789012", "US", "IN");
+        Map<String, Object> status = endpoint.control("dump", null, null);
+
+        // Assert
+        List<RecordedEvent> stageEvents = RecordingFile.readAllEvents(Paths.get((String) status.get("file"))).stream()
+                .filter(recorded -> recorded.getEventType().getName().equals("com.getrosoft.tracking.Stage"))
+                .toList();
+        assertEquals(1, stageEvents.size());
+        assertEquals("repository-save", stageEvents.get(0).getString("stage"));
+        assertEquals("USIN123456789012", stageEvents.get(0).getString("trackingNumber"));
+        assertEquals("US-IN", stageEvents.get(0).getString("lane"));
+    }
+
+    @Test
+    void testDump_RequiresRunningRecording() {
+        assertEquals("NOT_STARTED", endpoint.status().get("state"));
+        assertThrows(InvalidEndpointRequestException.class, () -> endpoint.control("dump", null, null));
+    }
+}
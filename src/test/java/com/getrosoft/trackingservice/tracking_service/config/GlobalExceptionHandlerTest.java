@@ -0,0 +1,105 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.getrosoft.trackingservice.tracking_service.exceptions.DuplicateTrackingNumberException;
+import com.getrosoft.trackingservice.tracking_service.exceptions.EventBufferFullException;
+import com.getrosoft.trackingservice.tracking_service.exceptions.InvalidInputException;
+import com.getrosoft.trackingservice.tracking_service.exceptions.ServiceUnavailableException;
+import com.getrosoft.trackingservice.tracking_service.exceptions.TrackingIdNotFoundException;
+import com.getrosoft.trackingservice.tracking_service.exceptions.TrackingNumberGenerationException;
+import jakarta.validation.ConstraintViolationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlobalExceptionHandlerTest {
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler(1000);
+    private final Logger rootLogger = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        rootLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        rootLogger.detachAppender(appender);
+        appender.stop();
+    }
+
+    @Test
+    void testExpectedFailures_AreLoggedOnceWithoutStackTrace() {
+        List<Supplier<ResponseEntity<?>>> failures = List.of(
+                () -> handler.handleInvalidInputException(new InvalidInputException("Weight is required")),
+                () -> handler.handleInvalidInputException(new InvalidInputException("Validation failed",
+                        Map.of("weight", "Weight is required"))),
+                () -> handler.handleTrackingIdNotFoundException(new TrackingIdNotFoundException("Tracking ID X not found")),
+                () -> handler.handleDuplicateTrackingNumberException(new DuplicateTrackingNumberException("Duplicate")),
+                () -> handler.handleEventBufferFullException(new EventBufferFullException("Buffer full")),
+                () -> handler.handleServiceUnavailableException(new ServiceUnavailableException("Overloaded")),
+                () -> handler.handleIllegalArgumentException(new IllegalArgumentException("Bad argument")),
+                () -> handler.handleConstraintViolation(new ConstraintViolationException("Invalid", Set.of())));
+
+        for (Supplier<ResponseEntity<?>> failure : failures) {
+            // Act
+            appender.list.clear();
+            ResponseEntity<?> response = failure.get();
+
+            // Assert
+            assertTrue(response.getStatusCode().is4xxClientError() || response.getStatusCode().is5xxServerError());
+            assertEquals(1, appender.list.size(), () -> "Logged " + appender.list);
+            ILoggingEvent event = appender.list.get(0);
+            assertEquals(Level.WARN, event.getLevel());
+            assertNull(event.getThrowableProxy(), event.getFormattedMessage());
+        }
+    }
+
+    @Test
+    void testUnexpectedFailures_AreLoggedOnceWithStackTrace() {
+        List<Supplier<ResponseEntity<?>>> failures = List.of(
+                () -> handler.handleTrackingNumberGenerationException(new TrackingNumberGenerationException(
+                        "Error generating tracking number", new IllegalStateException("connection reset"))),
+                () -> handler.handleGeneralException(new IllegalStateException("Unexpected")));
+
+        for (Supplier<ResponseEntity<?>> failure : failures) {
+            // Act
+            appender.list.clear();
+            ResponseEntity<?> response = failure.get();
+
+            // Assert
+            assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+            assertEquals(1, appender.list.size(), () -> "Logged " + appender.list);
+            ILoggingEvent event = appender.list.get(0);
+            assertEquals(Level.ERROR, event.getLevel());
+            assertNotNull(event.getThrowableProxy());
+        }
+    }
+
+    @Test
+    void testWrappedConstraintViolation_IsLoggedOnceAsValidationFailure() {
+        // Act
+        ResponseEntity<?> response = handler.handleGeneralException(
+                new RuntimeException("Wrapped", new ConstraintViolationException("Invalid", Set.of())));
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(1, appender.list.size(), () -> "Logged " + appender.list);
+        assertEquals(Level.WARN, appender.list.get(0).getLevel());
+    }
+}
@@ -0,0 +1,78 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import com.getrosoft.trackingservice.tracking_service.utils.CountryCodeRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LaneBackfillRunnerTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // The table as schema update leaves it: the country columns plus the new lane_id, all null
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:backfill-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("create table tracking_number (tracking_number varchar(18) primary key,"
+                + " origin_country_id varchar(3) not null, destination_country_id varchar(3) not null,"
+                + " lane_id integer)");
+    }
+
+    @Test
+    void testBackfill_FillsLaneIdsInPrimaryKeyRangesAndKeepsCountryColumns() {
+        // Arrange: more rows than one batch, one written by the current release with its lane ID
+        for (int i = 0; i < 5; i++) {
+            insert("US" + i, "US", "IN");
+        }
+        insert("GB0", "gbr", "de");
+        jdbcTemplate.update("insert into tracking_number values ('FR0', 'FR', 'DE', ?)", CountryCodeRegistry.laneId("FR", "DE"));
+        LaneBackfillRunner runner = new LaneBackfillRunner(jdbcTemplate, null, 2, false);
+
+        // Act
+        boolean completed = runner.backfill();
+
+        // Assert
+        assertTrue(completed);
+        assertEquals(5, jdbcTemplate.queryForObject("select count(*) from tracking_number where lane_id = ?",
+                Integer.class, CountryCodeRegistry.laneId("US", "IN")));
+        assertEquals(CountryCodeRegistry.laneId("GB", "DE"), jdbcTemplate.queryForObject(
+                "select lane_id from tracking_number where tracking_number = 'GB0'", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from tracking_number where lane_id is null", Integer.class));
+        assertEquals(List.of("DESTINATION_COUNTRY_ID", "LANE_ID", "ORIGIN_COUNTRY_ID", "TRACKING_NUMBER"), jdbcTemplate.queryForList(
+                "select column_name from information_schema.columns where table_name = 'TRACKING_NUMBER' order by column_name",
+                String.class), "Columns are dropped by a later release, not by the backfill");
+        // A second run finds nothing left to do
+        assertTrue(runner.backfill());
+    }
+
+    @Test
+    void testBackfill_MarksUnknownCodesWithTheUnknownLane() {
+        // Arrange
+        insert("US0", "US", "IN");
+        insert("XX0", "XX", "IN");
+        LaneBackfillRunner runner = new LaneBackfillRunner(jdbcTemplate, null, 100, false);
+
+        // Act
+        boolean completed = runner.backfill();
+
+        // Assert
+        assertFalse(completed);
+        assertEquals(CountryCodeRegistry.UNKNOWN_LANE, jdbcTemplate.queryForObject(
+                "select lane_id from tracking_number where tracking_number = 'XX0'", Integer.class));
+        assertEquals(CountryCodeRegistry.laneId("US", "IN"), jdbcTemplate.queryForObject(
+                "select lane_id from tracking_number where tracking_number = 'US0'", Integer.class));
+        assertFalse(runner.backfill(), "Rows already marked unknown are still reported");
+    }
+
+    private void insert(final String trackingNumber, final String origin, final String destination) {
+        jdbcTemplate.update("insert into tracking_number (tracking_number, origin_country_id, destination_country_id) values (?, ?, ?)",
+                trackingNumber, origin, destination);
+    }
+}
@@ -0,0 +1,118 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReadReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        // Two independent H2 databases stand in for the primary and the replica
+        primary = h2Database("primary");
+        replica = h2Database("replica");
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void testGetConnection_WritesUsePrimary() throws SQLException {
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(primary, List.of(replica));
+
+        assertEquals("primary", whoAmI(routing));
+    }
+
+    @Test
+    void testGetConnection_ReadOnlyTransactionsUseReplica() throws SQLException {
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(primary, List.of(replica));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals("replica", whoAmI(routing));
+    }
+
+    @Test
+    void testGetConnection_ForcedPrimaryOverridesReadOnly() {
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(primary, List.of(replica));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        String target = DataSourceRouting.onPrimary(() -> {
+            try {
+                return whoAmI(routing);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertEquals("primary", target);
+        assertFalse(DataSourceRouting.isPrimaryForced());
+    }
+
+    @Test
+    void testGetConnection_FailsOverToPrimaryAndRecovers() throws SQLException {
+        DataSource flakyReplica = mock(DataSource.class);
+        when(flakyReplica.getConnection())
+                .thenThrow(new SQLException("replica unreachable"))
+                .thenAnswer(invocation -> replica.getConnection());
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(primary, List.of(flakyReplica));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals("primary", whoAmI(routing));
+        assertEquals(0, routing.healthyReplicaCount());
+        assertEquals("primary", whoAmI(routing), "A replica marked down should be skipped");
+
+        routing.checkReplicaHealth();
+
+        assertEquals(1, routing.healthyReplicaCount());
+        assertEquals("replica", whoAmI(routing));
+    }
+
+    @Test
+    void testReadYourWritesWindow_PinsOnlyRecentWrites() {
+        ReadYourWritesWindow window = new ReadYourWritesWindow(true, 60_000);
+        ReadYourWritesWindow disabled = new ReadYourWritesWindow(false, 60_000);
+
+        window.recordWrite("USIN123456789012");
+        disabled.recordWrite("USIN123456789012");
+
+        assertTrue(window.isRecentlyWritten("USIN123456789012"));
+        assertFalse(window.isRecentlyWritten("USIN000000000000"));
+        assertFalse(disabled.isRecentlyWritten("USIN123456789012"));
+    }
+
+    private static DataSource h2Database(String name) throws SQLException {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table node (name varchar(16))");
+            statement.execute("insert into node values ('" + name + "')");
+        }
+        return dataSource;
+    }
+
+    private static String whoAmI(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select name from node")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.getrosoft.trackingservice.tracking_service.config;
+
+import com.getrosoft.trackingservice.tracking_service.payload.CapturedRequest;
+import com.getrosoft.trackingservice.tracking_service.utils.TrafficCaptureFormat;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrafficCaptureFilterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testAsyncRequests_RecordTimeoutsAndErrorsWithTheirFailureStatus() throws Exception {
+        // Arrange
+        TrafficCaptureFilter filter = new TrafficCaptureFilter(new SimpleMeterRegistry(), directory.toString(), 1.0, 16, 1);
+
+        // Act: one request completes normally, one times out and one fails, none setting a status
+        this.runAsync(filter, "INUS000000000001", null);
+        this.runAsync(filter, "INUS000000000002", (listener, response) -> listener.onTimeout(null));
+        this.runAsync(filter, "INUS000000000003", (listener, response) -> listener.onError(null));
+        filter.destroy();
+
+        // Assert
+        List<CapturedRequest> captured = this.readCapture();
+        assertEquals(3, captured.size());
+        assertEquals(List.of(200, 503, 500), captured.stream().map(CapturedRequest::getStatus).toList());
+        assertEquals("INUS000000000002", captured.get(1).getParameters()[0]);
+    }
+
+    @Test
+    void testAsyncRequests_KeepTheStatusSetByErrorHandling() throws Exception {
+        // Arrange
+        TrafficCaptureFilter filter = new TrafficCaptureFilter(new SimpleMeterRegistry(), directory.toString(), 1.0, 16, 1);
+
+        // Act: error handling answered the timeout with its own status
+        this.runAsync(filter, "INUS000000000004", (listener, response) -> {
+            listener.onTimeout(null);
+            response.setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+        });
+        filter.destroy();
+
+        // Assert
+        assertEquals(HttpServletResponse.SC_GATEWAY_TIMEOUT, this.readCapture().get(0).getStatus());
+    }
+
+    private interface Failure {
+        void apply(AsyncListener listener, MockHttpServletResponse response) throws Exception;
+    }
+
+    private void runAsync(TrafficCaptureFilter filter, String trackingId, Failure failure) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/api/tracking-details");
+        request.setParameter("trackingId", trackingId);
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> req.startAsync());
+
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        if (failure != null) {
+            for (AsyncListener listener : asyncContext.getListeners()) {
+                failure.apply(listener, response);
+            }
+        }
+        asyncContext.complete();
+    }
+
+    private List<CapturedRequest> readCapture() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            Path file = files.filter(path -> path.getFileName().toString().endsWith(".bin")).findFirst().orElseThrow();
+            return TrafficCaptureFormat.read(file).requests();
+        }
+    }
+}
@@ -1,21 +1,40 @@
 package com.getrosoft.trackingservice.tracking_service.controller;
 
+import com.getrosoft.trackingservice.tracking_service.config.LogSampler;
+import com.getrosoft.trackingservice.tracking_service.config.TrackingDetailsCachePolicy;
+import com.getrosoft.trackingservice.tracking_service.dto.DeliveryEstimate;
+import com.getrosoft.trackingservice.tracking_service.dto.LatestTrackingStatus;
 import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
+import com.getrosoft.trackingservice.tracking_service.exceptions.InvalidInputException;
+import com.getrosoft.trackingservice.tracking_service.exceptions.ServiceUnavailableException;
+import com.getrosoft.trackingservice.tracking_service.exceptions.TrackingIdNotFoundException;
+import com.getrosoft.trackingservice.tracking_service.payload.DecodedTrackingNumber;
 import com.getrosoft.trackingservice.tracking_service.payload.Priority;
 import com.getrosoft.trackingservice.tracking_service.payload.Status;
 import com.getrosoft.trackingservice.tracking_service.payload.TrackingResponse;
+import com.getrosoft.trackingservice.tracking_service.service.DeliveryEstimateService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingEventService;
 import com.getrosoft.trackingservice.tracking_service.service.TrackingNumberService;
+import com.getrosoft.trackingservice.tracking_service.utils.Bulkhead;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingNumberFormat;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.core.env.StandardEnvironment;
 import org.springframework.http.ResponseEntity;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,12 +44,30 @@ class TrackingNumberControllerTest {
     @Mock
     private TrackingNumberService service;
 
+    @Mock
+    private DeliveryEstimateService deliveryEstimateService;
+
+    @Mock
+    private TrackingEventService trackingEventService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Bulkhead createBulkhead = new Bulkhead("create", 1, 1, meterRegistry);
+    private final Bulkhead lookupBulkhead = new Bulkhead("lookup", 2, 10, meterRegistry);
     private TrackingNumberController controller;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        controller = new TrackingNumberController(service);
+        controller = new TrackingNumberController(service, deliveryEstimateService, trackingEventService,
+                new LogSampler(new StandardEnvironment(), 1), new TrackingDetailsCachePolicy(86400, 60, 30),
+                createBulkhead, lookupBulkhead);
+        when(deliveryEstimateService.estimate(any(), any(), any())).thenReturn(new DeliveryEstimate(3, Priority.STANDARD, 0));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        createBulkhead.close();
+        lookupBulkhead.close();
     }
 
     @Test
@@ -43,7 +80,7 @@ class TrackingNumberControllerTest {
         String customerSlug = "example-customer";
 
         TrackingNumberDto mockDto = TrackingNumberDto.builder()
-                .trackingNumber("TR123456789")
+                .trackingNumber("INUS123456789012")
                 .createdAt(Instant.now())
                 .originCountryId(origin)
                 .destinationCountryId(destination)
@@ -63,17 +100,45 @@ class TrackingNumberControllerTest {
         assertEquals(200, responseEntity.getStatusCodeValue());
         TrackingResponse response = responseEntity.getBody();
         assertNotNull(response);
-        assertEquals("TR123456789", response.getTrackingNumber());
+        assertEquals("INUS123456789012", response.getTrackingNumber());
         assertEquals(Status.SUCCESS, response.getStatus());
         assertEquals(Priority.STANDARD, response.getPriority());
         verify(service, times(1)).createTrackingNumber(any(TrackingNumberDto.class));
     }
 
 
+    @Test
+    void testGetNextTrackingNumberAsync_UsesLaneEstimate() throws Exception {
+        // Arrange
+        UUID customerId = UUID.randomUUID();
+        Instant createdAt = Instant.parse("2024-12-04T10:00:00Z");
+        TrackingNumberDto mockDto = TrackingNumberDto.builder()
+                .trackingNumber("INUS123456789012")
+                .createdAt(createdAt)
+                .originCountryId("US")
+                .destinationCountryId("CA")
+                .weight(BigDecimal.ONE)
+                .customerId(customerId)
+                .customerSlug("example-customer")
+                .build();
+
+        when(service.createTrackingNumber(any(TrackingNumberDto.class))).thenReturn(mockDto);
+        when(deliveryEstimateService.estimate("US", "CA", BigDecimal.ONE)).thenReturn(new DeliveryEstimate(1, Priority.OVERNIGHT, 50));
+
+        // Act
+        TrackingResponse response = controller.getNextTrackingNumberAsync("US", "CA", BigDecimal.ONE, customerId, "example-customer").get().getBody();
+
+        // Assert
+        assertNotNull(response);
+        assertEquals(LocalDate.of(2024, 12, 5), response.getEstimatedDelivery());
+        assertEquals(Priority.OVERNIGHT, response.getPriority());
+    }
+
+
     @Test
     void testGetTrackingDetailsAsync_Success() throws Exception {
         // Arrange
-        String trackingId = "TR123456789";
+        String trackingId = "INUS123456789012";
 
         TrackingNumberDto mockDto = TrackingNumberDto.builder()
                 .trackingNumber(trackingId)
@@ -88,7 +153,7 @@ class TrackingNumberControllerTest {
         when(service.getTrackingDetails(trackingId)).thenReturn(mockDto);
 
         // Act
-        CompletableFuture<ResponseEntity<TrackingResponse>> futureResponse = controller.getTrackingDetailsAsync(trackingId);
+        CompletableFuture<ResponseEntity<TrackingResponse>> futureResponse = controller.getTrackingDetailsAsync(trackingId, null);
         ResponseEntity<TrackingResponse> responseEntity = futureResponse.get();
 
         // Assert
@@ -101,15 +166,138 @@ class TrackingNumberControllerTest {
         verify(service, times(1)).getTrackingDetails(trackingId);
     }
 
+    @Test
+    void testGetTrackingDetailsAsync_ReportsLatestScanStatus() throws Exception {
+        // Arrange
+        String trackingId = "INUS123456789012";
+        TrackingNumberDto mockDto = TrackingNumberDto.builder()
+                .trackingNumber(trackingId)
+                .createdAt(Instant.now())
+                .originCountryId("US")
+                .destinationCountryId("IN")
+                .weight(BigDecimal.valueOf(1.5))
+                .customerId(UUID.randomUUID())
+                .customerSlug("example-customer")
+                .build();
+
+        when(service.getTrackingDetails(trackingId)).thenReturn(mockDto);
+        when(trackingEventService.getLatestStatus(trackingId)).thenReturn(new LatestTrackingStatus(Status.DELIVERED, Instant.now()));
+
+        // Act
+        TrackingResponse response = controller.getTrackingDetailsAsync(trackingId, null).get().getBody();
+
+        // Assert
+        assertNotNull(response);
+        assertEquals(Status.DELIVERED, response.getStatus());
+    }
+
+    @Test
+    void testGetTrackingDetailsAsync_NotModifiedForUnchangedResponse() throws Exception {
+        // Arrange
+        String trackingId = "INUS123456789012";
+        Instant createdAt = Instant.now();
+        TrackingNumberDto mockDto = TrackingNumberDto.builder()
+                .trackingNumber(trackingId)
+                .createdAt(createdAt)
+                .originCountryId("US")
+                .destinationCountryId("IN")
+                .weight(BigDecimal.valueOf(1.5))
+                .customerId(UUID.randomUUID())
+                .customerSlug("example-customer")
+                .build();
+
+        when(service.getTrackingDetails(trackingId)).thenReturn(mockDto);
+        when(trackingEventService.getLatestStatus(trackingId)).thenReturn(new LatestTrackingStatus(Status.DELIVERED, Instant.now()));
+        when(service.findCreatedAt(trackingId)).thenReturn(Optional.of(createdAt));
+        ResponseEntity<TrackingResponse> first = controller.getTrackingDetailsAsync(trackingId, null).get();
+        clearInvocations(service, deliveryEstimateService);
+
+        // Act
+        ResponseEntity<TrackingResponse> second = controller.getTrackingDetailsAsync(trackingId, first.getHeaders().getETag()).get();
+
+        // Assert: the 304 neither loaded and mapped the record nor built an estimate
+        assertEquals(200, first.getStatusCode().value());
+        assertEquals("max-age=86400, public", first.getHeaders().getCacheControl());
+        assertEquals(304, second.getStatusCode().value());
+        assertNull(second.getBody());
+        assertEquals(first.getHeaders().getETag(), second.getHeaders().getETag());
+        verify(service, never()).getTrackingDetails(any());
+        verify(deliveryEstimateService, never()).estimate(any(), any(), any());
+    }
+
+    @Test
+    void testGetTrackingDetailsAsync_RepublishedEstimatesChangeETag() throws Exception {
+        // Arrange
+        String trackingId = "INUS123456789012";
+        Instant createdAt = Instant.now();
+        when(service.getTrackingDetails(trackingId)).thenReturn(TrackingNumberDto.builder()
+                .trackingNumber(trackingId).createdAt(createdAt).originCountryId("US").destinationCountryId("IN")
+                .weight(BigDecimal.valueOf(1.5)).build());
+        when(service.findCreatedAt(trackingId)).thenReturn(Optional.of(createdAt));
+        when(deliveryEstimateService.publishedVersion()).thenReturn(1L);
+        String eTag = controller.getTrackingDetailsAsync(trackingId, null).get().getHeaders().getETag();
+        when(deliveryEstimateService.publishedVersion()).thenReturn(2L);
+
+        // Act
+        ResponseEntity<TrackingResponse> response = controller.getTrackingDetailsAsync(trackingId, eTag).get();
+
+        // Assert
+        assertEquals(200, response.getStatusCode().value());
+        assertNotEquals(eTag, response.getHeaders().getETag());
+    }
+
+    @Test
+    void testGetTrackingDetailsAsync_UnknownIdIsNotFoundEvenForWildcardETag() {
+        // Arrange
+        String trackingId = "INUS123456789012";
+        when(service.findCreatedAt(trackingId)).thenReturn(Optional.empty());
+
+        // Act
+        CompletableFuture<ResponseEntity<TrackingResponse>> futureResponse = controller.getTrackingDetailsAsync(trackingId, "*");
+
+        // Assert
+        ExecutionException exception = assertThrows(ExecutionException.class, futureResponse::get);
+        assertInstanceOf(TrackingIdNotFoundException.class, exception.getCause());
+    }
+
+    @Test
+    void testGetTrackingDetailsAsync_NewScanChangesETag() throws Exception {
+        // Arrange
+        String trackingId = "INUS123456789012";
+        Instant createdAt = Instant.now();
+        String staleETag = TrackingNumberController.trackingDetailsETag(trackingId, createdAt, Status.PENDING, 0);
+        TrackingNumberDto mockDto = TrackingNumberDto.builder()
+                .trackingNumber(trackingId)
+                .createdAt(createdAt)
+                .originCountryId("US")
+                .destinationCountryId("IN")
+                .weight(BigDecimal.valueOf(1.5))
+                .customerId(UUID.randomUUID())
+                .customerSlug("example-customer")
+                .build();
+
+        when(service.getTrackingDetails(trackingId)).thenReturn(mockDto);
+        when(service.findCreatedAt(trackingId)).thenReturn(Optional.of(createdAt));
+        when(trackingEventService.getLatestStatus(trackingId)).thenReturn(new LatestTrackingStatus(Status.IN_TRANSIT, Instant.now()));
+
+        // Act
+        ResponseEntity<TrackingResponse> response = controller.getTrackingDetailsAsync(trackingId, "W/" + staleETag).get();
+
+        // Assert
+        assertEquals(200, response.getStatusCode().value());
+        assertNotEquals(staleETag, response.getHeaders().getETag());
+        assertEquals("max-age=60, public", response.getHeaders().getCacheControl());
+    }
+
     @Test
     void testGetTrackingDetailsAsync_TrackingIdNotFound() throws Exception {
         // Arrange
-        String trackingId = "TR123456789";
+        String trackingId = "INUS123456789012";
 
         when(service.getTrackingDetails(trackingId)).thenThrow(new RuntimeException("Tracking ID not found"));
 
         // Act & Assert
-        CompletableFuture<ResponseEntity<TrackingResponse>> futureResponse = controller.getTrackingDetailsAsync(trackingId);
+        CompletableFuture<ResponseEntity<TrackingResponse>> futureResponse = controller.getTrackingDetailsAsync(trackingId, null);
 
         Exception exception = assertThrows(Exception.class, futureResponse::get);
         assertNotNull(exception);
@@ -120,16 +308,93 @@ class TrackingNumberControllerTest {
     @Test
     void testGetTrackingDetailsAsync_InternalServerError() throws Exception {
         // Arrange
-        String trackingId = "TR123456789";
+        String trackingId = "INUS123456789012";
 
         when(service.getTrackingDetails(trackingId)).thenThrow(new RuntimeException("Internal server error"));
 
         // Act & Assert
-        CompletableFuture<ResponseEntity<TrackingResponse>> futureResponse = controller.getTrackingDetailsAsync(trackingId);
+        CompletableFuture<ResponseEntity<TrackingResponse>> futureResponse = controller.getTrackingDetailsAsync(trackingId, null);
 
         Exception exception = assertThrows(Exception.class, futureResponse::get);
         assertNotNull(exception);
         assertTrue(exception.getCause().getMessage().contains("Internal server error"));
         verify(service, times(1)).getTrackingDetails(trackingId);
     }
+
+    @Test
+    void testGetTrackingDetailsAsync_MalformedIdRejectedBeforeLookup() {
+        // Arrange: one character of a checked tracking number mistyped
+        String trackingId = TrackingNumberFormat.seal("INUS123456789012");
+        String typo = trackingId.substring(0, 5) + (trackingId.charAt(5) == 'X' ? 'Y' : 'X') + trackingId.substring(6);
+
+        // Act & Assert
+        assertThrows(InvalidInputException.class, () -> controller.getTrackingDetailsAsync(typo, null));
+        assertThrows(InvalidInputException.class, () -> controller.getTrackingDetailsAsync("TR123456789", null));
+        verifyNoInteractions(service, trackingEventService);
+    }
+
+    @Test
+    void testDecodeTrackingNumber_NoLookup() {
+        // Arrange
+        String trackingId = TrackingNumberFormat.encodeSelfDescribing("US", "IN", 2,
+                Instant.parse("2026-01-02T03:04:05Z"), "ABCDEFGH");
+
+        // Act
+        ResponseEntity<DecodedTrackingNumber> response = controller.decodeTrackingNumber(trackingId);
+
+        // Assert
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("US", response.getBody().getOriginCountryId());
+        assertEquals("IN", response.getBody().getDestinationCountryId());
+        assertEquals(Instant.parse("2026-01-02T00:00:00Z"), response.getBody().getCreatedAt());
+        assertTrue(response.getHeaders().getCacheControl().contains("immutable"));
+        verifyNoInteractions(service, trackingEventService, deliveryEstimateService);
+    }
+
+    @Test
+    void testDecodeTrackingNumber_EarlierLayoutRejected() {
+        assertThrows(InvalidInputException.class,
+                () -> controller.decodeTrackingNumber(TrackingNumberFormat.seal("INUS123456789012")));
+        assertThrows(InvalidInputException.class, () -> controller.decodeTrackingNumber("INUS123456789012"));
+    }
+
+    @Test
+    void testCreateStormRejectsCreatesButNotLookups() throws Exception {
+        // Arrange: one create runs and one waits, filling the create bulkhead
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        String trackingId = "INUS123456789012";
+        TrackingNumberDto mockDto = TrackingNumberDto.builder()
+                .trackingNumber(trackingId)
+                .createdAt(Instant.now())
+                .originCountryId("US")
+                .destinationCountryId("IN")
+                .weight(BigDecimal.valueOf(1.5))
+                .customerId(UUID.randomUUID())
+                .customerSlug("example-customer")
+                .build();
+        when(service.createTrackingNumber(any(TrackingNumberDto.class))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return mockDto;
+        });
+        when(service.getTrackingDetails(trackingId)).thenReturn(mockDto);
+        UUID customerId = UUID.randomUUID();
+        CompletableFuture<ResponseEntity<TrackingResponse>> running = controller.getNextTrackingNumberAsync("US", "IN", BigDecimal.ONE, customerId, "slug");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ResponseEntity<TrackingResponse>> queued = controller.getNextTrackingNumberAsync("US", "IN", BigDecimal.ONE, customerId, "slug");
+
+        // Act
+        assertThrows(ServiceUnavailableException.class,
+                () -> controller.getNextTrackingNumberAsync("US", "IN", BigDecimal.ONE, customerId, "slug"));
+        ResponseEntity<TrackingResponse> lookup = controller.getTrackingDetailsAsync(trackingId, null).get(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        // Assert
+        assertEquals(200, lookup.getStatusCode().value());
+        assertEquals(200, running.get(5, TimeUnit.SECONDS).getStatusCode().value());
+        assertEquals(200, queued.get(5, TimeUnit.SECONDS).getStatusCode().value());
+        assertEquals(1.0, meterRegistry.get("tracking.bulkhead.rejected").tag("bulkhead", "create").counter().count());
+        assertEquals(0.0, meterRegistry.get("tracking.bulkhead.rejected").tag("bulkhead", "lookup").counter().count());
+    }
 }
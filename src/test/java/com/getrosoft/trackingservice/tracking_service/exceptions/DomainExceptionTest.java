@@ -0,0 +1,69 @@
+package com.getrosoft.trackingservice.tracking_service.exceptions;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DomainExceptionTest {
+
+    private static List<DomainException> everySubclass(final Throwable cause) {
+        return List.of(
+                new InvalidInputException("invalid"),
+                new InvalidInputException("invalid", cause),
+                new InvalidInputException("invalid", Map.of("weight", "Weight is required")),
+                new TrackingIdNotFoundException("not found"),
+                new TrackingIdNotFoundException("not found", cause),
+                new DuplicateTrackingNumberException("duplicate"),
+                new DuplicateTrackingNumberException("duplicate", cause),
+                new EventBufferFullException("full"),
+                new EventBufferFullException("full", cause),
+                new ServiceUnavailableException("unavailable"),
+                new ServiceUnavailableException("unavailable", cause));
+    }
+
+    @Test
+    void testDomainExceptions_CarryNoStackTrace() {
+        for (DomainException exception : everySubclass(new IllegalStateException("cause"))) {
+            assertEquals(0, exception.getStackTrace().length, exception.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void testDomainExceptions_IgnoreSuppressedExceptions() {
+        for (DomainException exception : everySubclass(null)) {
+            exception.addSuppressed(new IllegalStateException("suppressed"));
+            assertEquals(0, exception.getSuppressed().length, exception.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void testDomainExceptions_KeepTheirCause() {
+        IllegalStateException cause = new IllegalStateException("cause");
+        InvalidInputException exception = new InvalidInputException("invalid", cause);
+
+        assertSame(cause, exception.getCause());
+        assertThrows(IllegalStateException.class, () -> exception.initCause(new IllegalStateException("other")));
+    }
+
+    @Test
+    void testDomainExceptions_SharedInstanceStaysEmptyWhenThrownFromAnotherThread() throws Exception {
+        // Arrange
+        TrackingIdNotFoundException shared = new TrackingIdNotFoundException("not found");
+
+        // Act
+        CompletableFuture.runAsync(() -> {
+            try {
+                throw shared;
+            } catch (TrackingIdNotFoundException e) {
+                e.fillInStackTrace();
+            }
+        }).get();
+
+        // Assert
+        assertEquals(0, shared.getStackTrace().length);
+    }
+}
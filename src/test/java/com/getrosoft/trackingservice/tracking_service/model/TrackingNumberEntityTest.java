@@ -0,0 +1,81 @@
+package com.getrosoft.trackingservice.tracking_service.model;
+
+import com.getrosoft.trackingservice.tracking_service.utils.CountryCodeRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackingNumberEntityTest {
+
+    @Test
+    void testEncodeLane_WritesBothRepresentations() {
+        // Arrange
+        TrackingNumberEntity entity = this.entity("usa", "in");
+
+        // Act
+        entity.encodeLane();
+
+        // Assert
+        assertEquals(CountryCodeRegistry.laneId("US", "IN"), entity.getLaneId());
+        assertEquals("US", entity.getOriginCountryId());
+        assertEquals("IN", entity.getDestinationCountryId());
+    }
+
+    @Test
+    void testDecodeLane_ReadsStoredCodesOfRowsNotYetBackfilled() {
+        // Arrange: a row written by an earlier release
+        TrackingNumberEntity entity = this.entity("US", "IN");
+
+        // Act
+        entity.decodeLane();
+
+        // Assert
+        assertNull(entity.getLaneId());
+        assertEquals("US", entity.getOriginCountryId());
+        assertEquals("IN", entity.getDestinationCountryId());
+        assertFalse(entity.isNew());
+    }
+
+    @Test
+    void testDecodeLane_ReadsTheLaneIdOnceTheCountryColumnsAreGone() {
+        // Arrange
+        TrackingNumberEntity entity = this.entity(null, null);
+        ReflectionTestUtils.setField(entity, "laneId", CountryCodeRegistry.laneId("GB", "DE"));
+
+        // Act
+        entity.decodeLane();
+
+        // Assert
+        assertEquals("GB", entity.getOriginCountryId());
+        assertEquals("DE", entity.getDestinationCountryId());
+    }
+
+    @Test
+    void testDecodeLane_UnknownLaneKeepsStoredCodesOrFallsBackToTheSentinel() {
+        // Arrange
+        TrackingNumberEntity withCodes = this.entity("XX", "IN");
+        ReflectionTestUtils.setField(withCodes, "laneId", CountryCodeRegistry.UNKNOWN_LANE);
+        TrackingNumberEntity withoutCodes = this.entity(null, null);
+        ReflectionTestUtils.setField(withoutCodes, "laneId", CountryCodeRegistry.UNKNOWN_LANE);
+
+        // Act
+        withCodes.decodeLane();
+        withoutCodes.decodeLane();
+
+        // Assert
+        assertEquals("XX", withCodes.getOriginCountryId());
+        assertEquals("IN", withCodes.getDestinationCountryId());
+        assertEquals(CountryCodeRegistry.UNKNOWN_COUNTRY, withoutCodes.getOriginCountryId());
+        assertEquals(CountryCodeRegistry.UNKNOWN_COUNTRY, withoutCodes.getDestinationCountryId());
+    }
+
+    private TrackingNumberEntity entity(final String origin, final String destination) {
+        return new TrackingNumberEntity("US01ABCDEFGHIJKL", Instant.now(), origin, destination,
+                BigDecimal.valueOf(1.5), UUID.randomUUID(), "customer-slug");
+    }
+}
@@ -0,0 +1,109 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DeliveryEstimateServiceImplTest {
+
+    private static final Instant CREATED_AT = Instant.parse("2024-12-01T00:00:00Z");
+    private static final BigDecimal WEIGHT = BigDecimal.ONE;
+
+    private final TrackingNumberRepository repository = mock(TrackingNumberRepository.class);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecordDelivery_CountsEachTrackingNumberOnce() {
+        // Arrange
+        DeliveryEstimateServiceImpl service = this.service(64, "", 1000);
+        when(repository.findById("USIN000000000001")).thenReturn(Optional.of(new TrackingNumberEntity(
+                "USIN000000000001", CREATED_AT, "US", "IN", WEIGHT, UUID.randomUUID(), "acme")));
+
+        // Act: the request is retried and a delivered scan for the same number arrives too
+        service.recordDelivery("USIN000000000001", CREATED_AT.plus(Duration.ofHours(48)));
+        service.recordDelivery("USIN000000000001", CREATED_AT.plus(Duration.ofHours(48)));
+        service.recordDelivery("USIN000000000001", "US", "IN", WEIGHT, CREATED_AT, CREATED_AT.plus(Duration.ofHours(50)));
+        service.recordDelivery("USIN000000000002", "US", "IN", WEIGHT, CREATED_AT, CREATED_AT.plus(Duration.ofHours(24)));
+        service.publishStatistics();
+
+        // Assert
+        assertEquals(2, service.estimate("US", "IN", WEIGHT).getSampleCount());
+    }
+
+    @Test
+    void testRecordDelivery_RemembersDeliveriesAcrossTheRollingFilters() {
+        // Arrange: each filter holds two numbers
+        DeliveryEstimateServiceImpl service = this.service(64, "", 2);
+
+        // Act: the first number is still remembered after the newer filter rolled over once
+        for (int i = 1; i <= 4; i++) {
+            this.deliver(service, "USIN00000000000" + i);
+        }
+        this.deliver(service, "USIN000000000001");
+        service.publishStatistics();
+
+        // Assert
+        assertEquals(4, service.estimate("US", "IN", WEIGHT).getSampleCount());
+    }
+
+    @Test
+    void testSnapshot_RestoresDeliveriesAndHonoursMaxCountries() {
+        // Arrange
+        String snapshot = directory.resolve("lanes.bin").toString();
+        DeliveryEstimateServiceImpl before = this.service(4, snapshot, 1000);
+        this.deliver(before, "USIN000000000001");
+        before.recordDelivery("USDE000000000001", "US", "DE", WEIGHT, CREATED_AT, CREATED_AT.plus(Duration.ofHours(24)));
+        before.writeSnapshot();
+
+        // Act: restarted with room for two countries
+        DeliveryEstimateServiceImpl after = this.service(2, snapshot, 1000);
+        after.loadSnapshot();
+        this.deliver(after, "USIN000000000001");
+        after.publishStatistics();
+
+        // Assert
+        assertEquals(1, after.estimate("US", "IN", WEIGHT).getSampleCount());
+        assertEquals(0, after.estimate("US", "DE", WEIGHT).getSampleCount());
+    }
+
+    @Test
+    void testWriteSnapshot_DeletesItsTempFileWhenTheWriteFails() throws Exception {
+        // Arrange: a non-empty directory where the snapshot belongs makes the final move fail
+        Path snapshot = directory.resolve("lanes.bin");
+        Files.createDirectories(snapshot.resolve("occupied"));
+        DeliveryEstimateServiceImpl service = this.service(4, snapshot.toString(), 1000);
+        this.deliver(service, "USIN000000000001");
+
+        // Act
+        service.writeSnapshot();
+
+        // Assert
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(snapshot), files.toList());
+        }
+    }
+
+    private DeliveryEstimateServiceImpl service(int maxCountries, String snapshotPath, int dedupeKeys) {
+        return new DeliveryEstimateServiceImpl(repository, maxCountries, 20, 3, snapshotPath, dedupeKeys);
+    }
+
+    private void deliver(DeliveryEstimateServiceImpl service, String trackingNumber) {
+        service.recordDelivery(trackingNumber, "US", "IN", WEIGHT, CREATED_AT, CREATED_AT.plus(Duration.ofHours(48)));
+    }
+}
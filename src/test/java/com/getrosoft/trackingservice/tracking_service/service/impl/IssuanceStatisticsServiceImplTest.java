@@ -0,0 +1,75 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IssuanceStatisticsServiceImplTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testRecordIssued_RegistersGaugesOnlyForKnownLanes() {
+        // Arrange
+        IssuanceStatisticsServiceImpl statistics = new IssuanceStatisticsServiceImpl(meterRegistry, 10, 10);
+        UUID customerId = UUID.randomUUID();
+
+        // Act: an alpha-3 code joins its alpha-2 lane, made-up codes get no lane
+        statistics.recordIssued("US", "IN", customerId);
+        statistics.recordIssued("usa", "ind", customerId);
+        statistics.recordIssued("Q1", "IN", customerId);
+        statistics.recordIssued("US", "<script>", customerId);
+
+        // Assert
+        assertEquals(4, statistics.total().getLastMinute());
+        assertEquals(Set.of("US-IN"), statistics.byLane().keySet());
+        assertEquals(2, statistics.byLane().get("US-IN").getLastMinute());
+        assertEquals(4, statistics.forCustomer(customerId).getLastMinute());
+        assertEquals(Set.of("all", "US-IN"), this.gaugedLanes());
+    }
+
+    @Test
+    void testRecordIssued_StopsAddingLanesAndCustomersAtTheirCaps() {
+        // Arrange
+        IssuanceStatisticsServiceImpl statistics = new IssuanceStatisticsServiceImpl(meterRegistry, 1, 1);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        // Act
+        statistics.recordIssued("US", "IN", first);
+        statistics.recordIssued("DE", "FR", second);
+        statistics.recordIssued("US", "IN", first);
+
+        // Assert
+        assertEquals(Set.of("US-IN"), statistics.byLane().keySet());
+        assertEquals(2, statistics.forCustomer(first).getLastMinute());
+        assertEquals(0, statistics.forCustomer(second).getLastMinute());
+        assertEquals(Set.of("all", "US-IN"), this.gaugedLanes());
+    }
+
+    @Test
+    void testPruneIdleCustomers_KeepsActiveCustomers() {
+        // Arrange
+        IssuanceStatisticsServiceImpl statistics = new IssuanceStatisticsServiceImpl(meterRegistry, 10, 10);
+        UUID customerId = UUID.randomUUID();
+        statistics.recordIssued("US", "IN", customerId);
+
+        // Act
+        statistics.pruneIdleCustomers();
+
+        // Assert
+        assertEquals(1, statistics.forCustomer(customerId).getLastDay());
+        assertEquals(Set.of(customerId), statistics.topCustomers(10).keySet());
+    }
+
+    private Set<String> gaugedLanes() {
+        return meterRegistry.find("tracking.issued.rolling").gauges().stream()
+                .map(gauge -> gauge.getId().getTag("lane"))
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,148 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import com.getrosoft.trackingservice.tracking_service.service.JobLeaseService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TrackingArchiveServiceImplTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private TrackingNumberRepository repository;
+
+    @Mock
+    private JobLeaseService jobLeaseService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testArchiveEligibleRecords_SkipsWhileAnotherInstanceHoldsTheLease() {
+        // Arrange
+        when(jobLeaseService.tryAcquire(eq("tracking-archive"), any())).thenReturn(false);
+        TrackingArchiveServiceImpl archive = this.archive();
+
+        // Act
+        long archived = archive.archiveEligibleRecords();
+
+        // Assert
+        assertEquals(0, archived);
+        verify(repository, never()).findArchivableAfter(any(), any(), any(), any());
+        verify(repository, never()).deleteAllByIdInBatch(anyIterable());
+    }
+
+    @Test
+    void testArchiveEligibleRecords_ArchivesUnderTheLeaseAndServesLookupsFromTheIndex() {
+        // Arrange
+        TrackingNumberEntity record = new TrackingNumberEntity("USIN000000000001", Instant.parse("2024-01-01T00:00:00Z"),
+                "US", "IN", BigDecimal.ONE, UUID.randomUUID(), "customer");
+        when(jobLeaseService.tryAcquire(eq("tracking-archive"), any())).thenReturn(true);
+        when(repository.findArchivableAfter(any(), any(), any(), any())).thenReturn(List.of(record));
+        TrackingArchiveServiceImpl archive = this.archive();
+
+        // Act
+        long archived = archive.archiveEligibleRecords();
+
+        // Assert
+        assertEquals(1, archived);
+        verify(repository).deleteAllByIdInBatch(List.of("USIN000000000001"));
+        verify(jobLeaseService).release("tracking-archive");
+        assertTrue(archive.isArchived("USIN000000000001"));
+        assertFalse(archive.isArchived("USIN000000000002"));
+    }
+
+    @Test
+    void testRefreshSegments_IndexesSegmentsWrittenByAnotherInstance() {
+        // Arrange: another instance archives a record into the shared directory
+        TrackingNumberEntity record = new TrackingNumberEntity("USIN000000000001", Instant.parse("2024-01-01T00:00:00Z"),
+                "US", "IN", BigDecimal.ONE, UUID.randomUUID(), "customer");
+        when(jobLeaseService.tryAcquire(eq("tracking-archive"), any())).thenReturn(true);
+        when(repository.findArchivableAfter(any(), any(), any(), any())).thenReturn(List.of(record));
+        this.archive().archiveEligibleRecords();
+        TrackingArchiveServiceImpl reader = this.archive();
+
+        // Act
+        reader.refreshSegments();
+
+        // Assert
+        assertEquals(record.getCustomerId(), reader.findArchived("USIN000000000001").orElseThrow().getCustomerId());
+    }
+
+    @Test
+    void testArchiveEligibleRecords_DeletesABatchOnlyOnceOtherInstancesCanHaveIndexedIt() {
+        // Arrange: the next batch is fetched right after the first one was written
+        List<TrackingNumberEntity> firstBatch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            firstBatch.add(new TrackingNumberEntity("USIN00000000000" + i, Instant.parse("2024-01-01T00:00:00Z"),
+                    "US", "IN", BigDecimal.ONE, UUID.randomUUID(), "customer"));
+        }
+        when(jobLeaseService.tryAcquire(eq("tracking-archive"), any())).thenReturn(true);
+        when(repository.findArchivableAfter(any(), any(), any(), any())).thenReturn(firstBatch).thenAnswer(invocation -> {
+            verify(repository, never()).deleteAllByIdInBatch(anyIterable());
+            return List.of();
+        });
+        TrackingArchiveServiceImpl archive = this.archive(200);
+        long startedAt = System.nanoTime();
+
+        // Act
+        long archived = archive.archiveEligibleRecords();
+
+        // Assert
+        assertEquals(10, archived);
+        assertTrue(System.nanoTime() - startedAt >= TimeUnit.MILLISECONDS.toNanos(400), "Waited two rescan intervals");
+        verify(repository).deleteAllByIdInBatch(firstBatch.stream().map(TrackingNumberEntity::getTrackingNumber).toList());
+    }
+
+    @Test
+    void testScheduledArchival_RunsOffTheSchedulerThread() {
+        // Arrange
+        Thread caller = Thread.currentThread();
+        AtomicReference<Thread> archivingThread = new AtomicReference<>();
+        when(jobLeaseService.tryAcquire(eq("tracking-archive"), any())).thenAnswer(invocation -> {
+            archivingThread.set(Thread.currentThread());
+            return false;
+        });
+        TrackingArchiveServiceImpl archive = this.archive();
+
+        // Act
+        archive.scheduledArchival();
+
+        // Assert
+        verify(jobLeaseService, timeout(5000)).release("tracking-archive");
+        assertNotSame(caller, archivingThread.get());
+        archive.shutdown();
+    }
+
+    private TrackingArchiveServiceImpl archive() {
+        return this.archive(0);
+    }
+
+    // Always inside the window, with no pause between batches
+    private TrackingArchiveServiceImpl archive(long rescanIntervalMillis) {
+        return new TrackingArchiveServiceImpl(repository, jobLeaseService, new SimpleMeterRegistry(), true,
+                directory.toString(), 180, 10, 0, 0, 24, 600_000, rescanIntervalMillis, 1000);
+    }
+}
@@ -0,0 +1,206 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
+import com.getrosoft.trackingservice.tracking_service.exceptions.InvalidInputException;
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import com.getrosoft.trackingservice.tracking_service.payload.BulkGenerationReport;
+import com.getrosoft.trackingservice.tracking_service.payload.BulkGenerationRequest;
+import com.getrosoft.trackingservice.tracking_service.payload.ImportFormat;
+import com.getrosoft.trackingservice.tracking_service.repository.OutboxEventRepository;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingArchiveService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingBulkGenerationService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingOutboxService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingSpillJournal;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingImportParser;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingNumberFormat;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:generate",
+        "spring.jpa.show-sql=false",
+        "tracking.spill.directory=target/generate-test-spill",
+        "tracking.generate.batch-size=300",
+        "tracking.generate.parallelism=4",
+        "tracking.generate.buffer-kb=64",
+        "tracking.outbox.relay-interval-ms=3600000"
+})
+class TrackingBulkGenerationServiceImplTest {
+
+    @Autowired
+    private TrackingBulkGenerationService generationService;
+
+    @Autowired
+    private TrackingNumberRepository repository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private TrackingOutboxService outbox;
+
+    @Autowired
+    private TrackingSpillJournal spillJournal;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testGenerate_ReservesAndWritesEveryNumberOnce() throws Exception {
+        // Arrange: a slug with a comma must be quoted in the CSV
+        Path output = directory.resolve("labels.csv");
+        UUID acme = UUID.randomUUID();
+        UUID globex = UUID.randomUUID();
+        BulkGenerationRequest request = BulkGenerationRequest.builder()
+                .output(output)
+                .count(2500)
+                .lanes(List.of(new BulkGenerationRequest.Lane("US", "IN"), new BulkGenerationRequest.Lane("DE", "FR")))
+                .customers(List.of(new BulkGenerationRequest.Customer(acme, "acme"),
+                        new BulkGenerationRequest.Customer(globex, "globex, inc")))
+                .weight(new BigDecimal("0.5"))
+                .build();
+        long before = repository.count();
+        long eventsBefore = outboxEventRepository.count();
+
+        // Act
+        BulkGenerationReport report = generationService.generate(request);
+
+        // Assert
+        assertEquals(2500, report.getGenerated());
+        assertEquals(9, report.getBatches());
+        assertEquals(Files.size(output), report.getBytesWritten());
+        assertEquals(before + 2500, repository.count());
+        assertEquals(eventsBefore + 2500, outboxEventRepository.count());
+
+        Map<String, TrackingNumberDto> written = new HashMap<>();
+        Map<String, Integer> perCombination = new HashMap<>();
+        try (Reader reader = Files.newBufferedReader(output);
+             TrackingImportParser parser = new TrackingImportParser(reader, ImportFormat.CSV, objectMapper)) {
+            TrackingImportParser.ParsedRecord parsed;
+            while ((parsed = parser.next()) != null) {
+                assertNull(parsed.error(), parsed.error());
+                TrackingNumberDto record = parsed.record();
+                assertNull(written.put(record.getTrackingNumber(), record), "Duplicate " + record.getTrackingNumber());
+                assertTrue(TrackingNumberFormat.isWellFormed(record.getTrackingNumber()));
+                assertTrue(repository.existsById(record.getTrackingNumber()));
+                perCombination.merge(record.getOriginCountryId() + "/" + record.getCustomerSlug(), 1, Integer::sum);
+            }
+        }
+        assertEquals(2500, written.size());
+        assertEquals(Map.of("US/acme", 625, "US/globex, inc", 625, "DE/acme", 625, "DE/globex, inc", 625), perCombination);
+    }
+
+    @Test
+    void testGenerate_RejectsInvalidCombinations() {
+        BulkGenerationRequest request = BulkGenerationRequest.builder()
+                .output(directory.resolve("invalid.csv"))
+                .count(10)
+                .lanes(List.of(new BulkGenerationRequest.Lane("USA1", "IN")))
+                .customers(List.of(new BulkGenerationRequest.Customer(UUID.randomUUID(), "acme")))
+                .weight(new BigDecimal("0.5"))
+                .build();
+
+        assertThrows(InvalidInputException.class, () -> generationService.generate(request));
+        assertFalse(Files.exists(directory.resolve("invalid.csv")));
+    }
+
+    @Test
+    void testGenerate_DrawsABatchAgainWhenAConcurrentInsertTakesOneOfItsNumbers() {
+        // Arrange: another writer inserts the first candidate after the batch checked the database. Without
+        // events nothing in the batch goes through a repository, so the conflict surfaces from the flush
+        TrackingArchiveService archiveService = mock(TrackingArchiveService.class);
+        AtomicReference<String> taken = new AtomicReference<>();
+        when(archiveService.isArchived(anyString())).thenAnswer(invocation -> {
+            String trackingNumber = invocation.getArgument(0);
+            if (taken.compareAndSet(null, trackingNumber)) {
+                repository.saveAndFlush(new TrackingNumberEntity(trackingNumber, Instant.now(), "US", "IN",
+                        BigDecimal.ONE, UUID.randomUUID(), "other"));
+            }
+            return false;
+        });
+        TrackingBulkGenerationServiceImpl racing = new TrackingBulkGenerationServiceImpl(repository, archiveService,
+                spillJournal, entityManager, transactionManager, outbox, false, 300, 1, 64, 10);
+        UUID customerId = UUID.randomUUID();
+        BulkGenerationRequest request = BulkGenerationRequest.builder()
+                .output(directory.resolve("raced.csv"))
+                .count(300)
+                .lanes(List.of(new BulkGenerationRequest.Lane("US", "IN")))
+                .customers(List.of(new BulkGenerationRequest.Customer(customerId, "acme")))
+                .weight(new BigDecimal("0.5"))
+                .build();
+
+        // Act
+        BulkGenerationReport report = racing.generate(request);
+
+        // Assert
+        assertEquals(300, report.getGenerated());
+        assertEquals(1, report.getRetriedBatches());
+        assertEquals("other", repository.findById(taken.get()).orElseThrow().getCustomerSlug());
+        assertEquals(300, repository.findAll().stream().filter(record -> customerId.equals(record.getCustomerId())).count());
+    }
+
+    @Test
+    void testGenerate_ReleasesReservedNumbersWhenABatchFails() {
+        // Arrange: the archive fails after a few batches have been reserved and written
+        TrackingArchiveService archiveService = mock(TrackingArchiveService.class);
+        AtomicInteger lookups = new AtomicInteger();
+        when(archiveService.isArchived(anyString())).thenAnswer(invocation -> {
+            if (lookups.incrementAndGet() > 1500) {
+                throw new IllegalStateException("archive unavailable");
+            }
+            return false;
+        });
+        TrackingBulkGenerationServiceImpl failing = new TrackingBulkGenerationServiceImpl(repository, archiveService,
+                spillJournal, entityManager, transactionManager, outbox, true, 300, 4, 64, 10);
+        Path output = directory.resolve("failed.csv");
+        BulkGenerationRequest request = BulkGenerationRequest.builder()
+                .output(output)
+                .count(2500)
+                .lanes(List.of(new BulkGenerationRequest.Lane("US", "IN")))
+                .customers(List.of(new BulkGenerationRequest.Customer(UUID.randomUUID(), "acme")))
+                .weight(new BigDecimal("0.5"))
+                .build();
+        long before = repository.count();
+        long eventsBefore = outboxEventRepository.count();
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> failing.generate(request));
+
+        // Assert
+        assertEquals(before, repository.count());
+        assertEquals(eventsBefore, outboxEventRepository.count());
+        assertFalse(Files.exists(output));
+    }
+}
@@ -0,0 +1,99 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
+import com.getrosoft.trackingservice.tracking_service.payload.CapacityProjection;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackingCapacityPlannerImplTest {
+
+    private TrackingCapacityPlannerImpl planner;
+
+    @BeforeEach
+    void setUp() {
+        // A threshold the birthday bound reaches at 84 issues per segment and day
+        planner = new TrackingCapacityPlannerImpl(new SimpleMeterRegistry(), -Math.expm1(-84 * 83 / (2 * Math.pow(36, 8))), 20, 1000, 60);
+    }
+
+    @Test
+    void testRecordIssue_CrossesThresholdAtTheBirthdayBound() {
+        // Arrange
+        TrackingNumberDto request = new TrackingNumberDto("US", "IN", new BigDecimal("1.5"), UUID.randomUUID(), "heavy");
+
+        // Act
+        for (int i = 0; i < 83; i++) {
+            planner.recordIssue(request, false);
+        }
+        long beforeThreshold = planner.segmentsOverThresholdCount();
+        CapacityProjection before = planner.projections(1).get(0);
+        planner.recordIssue(request, false);
+
+        // Assert
+        assertEquals(0, beforeThreshold);
+        assertEquals(1, before.getRemainingBeforeThreshold());
+        assertEquals(1, planner.segmentsOverThresholdCount());
+        CapacityProjection projection = planner.projections(1).get(0);
+        assertEquals(84, projection.getIssued());
+        assertEquals(Math.pow(36, 8), projection.getSpace());
+        assertEquals(84 * 83 / (2 * Math.pow(36, 8)), projection.getCollisionProbability(), 1e-15);
+        assertEquals(0, projection.getRemainingBeforeThreshold());
+        assertTrue(projection.isOverThreshold());
+    }
+
+    @Test
+    void testProjections_DefaultThresholdIsReachableWithinADay() {
+        // Arrange
+        TrackingCapacityPlannerImpl defaults = new TrackingCapacityPlannerImpl(new SimpleMeterRegistry(), 0.01, 20, 1000, 60);
+        TrackingNumberDto request = new TrackingNumberDto("US", "IN", new BigDecimal("1.5"), UUID.randomUUID(), "busy");
+        defaults.recordIssue(request, false);
+
+        // Act
+        CapacityProjection projection = defaults.projections(1).get(0);
+
+        // Assert: a 1% chance of any collision is reached after roughly 238,000 issues, not 36^8 / 100
+        assertEquals(238_131, projection.getRemainingBeforeThreshold());
+    }
+
+    @Test
+    void testRecordIssue_CrossesThresholdOnObservedCollisions() {
+        // Arrange: this instance issued few numbers, but other instances are filling the same day
+        TrackingNumberDto request = new TrackingNumberDto("US", "IN", new BigDecimal("1.5"), UUID.randomUUID(), "busy");
+
+        // Act
+        for (int i = 0; i < 19; i++) {
+            planner.recordIssue(request, i % 4 == 0);
+        }
+        long beforeMinimumIssues = planner.segmentsOverThresholdCount();
+        planner.recordIssue(request, false);
+
+        // Assert
+        assertEquals(0, beforeMinimumIssues);
+        assertEquals(1, planner.segmentsOverThresholdCount());
+    }
+
+    @Test
+    void testProjections_MostLikelyToCollideFirst() {
+        // Arrange: weights in different bands land in different segments
+        UUID customerId = UUID.randomUUID();
+        TrackingNumberDto light = new TrackingNumberDto("US", "IN", new BigDecimal("1.5"), customerId, "customer");
+        TrackingNumberDto heavy = new TrackingNumberDto("US", "IN", new BigDecimal("999999.99"), customerId, "customer");
+        planner.recordIssue(light, false);
+        planner.recordIssue(heavy, false);
+        planner.recordIssue(heavy, false);
+
+        // Act
+        List<CapacityProjection> projections = planner.projections(10);
+
+        // Assert
+        assertEquals(2, projections.size());
+        assertTrue(projections.get(0).getCollisionProbability() > projections.get(1).getCollisionProbability());
+        assertEquals(2, projections.get(0).getIssued());
+    }
+}
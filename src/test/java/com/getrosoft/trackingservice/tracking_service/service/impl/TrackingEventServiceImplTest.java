@@ -0,0 +1,108 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.getrosoft.trackingservice.tracking_service.dto.LatestTrackingStatus;
+import com.getrosoft.trackingservice.tracking_service.dto.TrackingEventDto;
+import com.getrosoft.trackingservice.tracking_service.model.TrackingEventEntity;
+import com.getrosoft.trackingservice.tracking_service.payload.Status;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingEventRepository;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import com.getrosoft.trackingservice.tracking_service.service.DeliveryEstimateService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingUpdateService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TrackingEventServiceImplTest {
+
+    @Mock
+    private TrackingEventRepository eventRepository;
+
+    @Mock
+    private TrackingNumberRepository trackingNumberRepository;
+
+    @Mock
+    private DeliveryEstimateService deliveryEstimateService;
+
+    @Mock
+    private TrackingUpdateService trackingUpdateService;
+
+    private TrackingEventServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new TrackingEventServiceImpl(eventRepository, trackingNumberRepository, deliveryEstimateService,
+                trackingUpdateService, new SimpleMeterRegistry(), 1024, 100, 1000);
+        service.startWriter();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.stopWriter();
+    }
+
+    @Test
+    void testGetLatestStatus_RemembersNumbersWithoutEvents() {
+        // Arrange
+        when(eventRepository.findFirstByTrackingNumberOrderByEventTimeDesc("USIN000000000001")).thenReturn(Optional.empty());
+
+        // Act
+        LatestTrackingStatus first = service.getLatestStatus("USIN000000000001");
+        LatestTrackingStatus second = service.getLatestStatus("USIN000000000001");
+
+        // Assert
+        assertNull(first);
+        assertNull(second);
+        verify(eventRepository, times(1)).findFirstByTrackingNumberOrderByEventTimeDesc("USIN000000000001");
+    }
+
+    @Test
+    void testGetLatestStatus_ReturnsTheFirstIngestedEventAfterAnEmptyLookup() throws Exception {
+        // Arrange
+        when(eventRepository.findFirstByTrackingNumberOrderByEventTimeDesc("USIN000000000001")).thenReturn(Optional.empty());
+        assertNull(service.getLatestStatus("USIN000000000001"));
+        Instant scannedAt = Instant.parse("2024-12-05T08:30:00Z");
+
+        // Act
+        service.ingest(List.of(new TrackingEventDto("USIN000000000001", Status.IN_TRANSIT, scannedAt, "Mumbai Hub")));
+
+        // Assert
+        verify(eventRepository, timeout(5000)).saveAll(anyList());
+        verify(trackingUpdateService, timeout(5000)).publish(anyCollection(), anyMap());
+        LatestTrackingStatus latest = service.getLatestStatus("USIN000000000001");
+        assertNotNull(latest);
+        assertEquals(Status.IN_TRANSIT, latest.getStatus());
+        assertEquals(scannedAt, latest.getEventTime());
+        verify(eventRepository, times(1)).findFirstByTrackingNumberOrderByEventTimeDesc("USIN000000000001");
+    }
+
+    @Test
+    void testGetLatestStatus_KeepsAStatusWrittenWhileTheLookupRan() {
+        // Arrange: the writer persists an event after the lookup's query found none
+        Instant scannedAt = Instant.parse("2024-12-05T08:30:00Z");
+        when(eventRepository.findFirstByTrackingNumberOrderByEventTimeDesc("USIN000000000001")).thenAnswer(invocation -> {
+            service.ingest(List.of(new TrackingEventDto("USIN000000000001", Status.DELIVERED, scannedAt, "Pune")));
+            verify(trackingUpdateService, timeout(5000)).publish(anyCollection(), anyMap());
+            return Optional.<TrackingEventEntity>empty();
+        });
+
+        // Act
+        service.getLatestStatus("USIN000000000001");
+
+        // Assert
+        LatestTrackingStatus latest = service.getLatestStatus("USIN000000000001");
+        assertNotNull(latest);
+        assertEquals(Status.DELIVERED, latest.getStatus());
+    }
+}
@@ -0,0 +1,246 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.getrosoft.trackingservice.tracking_service.exceptions.InvalidInputException;
+import com.getrosoft.trackingservice.tracking_service.model.JobLeaseEntity;
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import com.getrosoft.trackingservice.tracking_service.payload.ImportFormat;
+import com.getrosoft.trackingservice.tracking_service.payload.ImportReport;
+import com.getrosoft.trackingservice.tracking_service.repository.JobLeaseRepository;
+import com.getrosoft.trackingservice.tracking_service.repository.OutboxEventRepository;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import com.getrosoft.trackingservice.tracking_service.service.JobLeaseService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingArchiveService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingOutboxService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingSpillJournal;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:imports",
+        "spring.jpa.show-sql=false",
+        "tracking.spill.directory=target/import-test-spill",
+        "tracking.outbox.relay-interval-ms=3600000"
+})
+class TrackingImportServiceImplTest {
+
+    private static final UUID CUSTOMER_ID = UUID.fromString("550e8400-e29b-41d4-a716-446655440000");
+
+    @TempDir
+    Path checkpointDirectory;
+
+    @Autowired
+    private TrackingNumberRepository repository;
+
+    @Autowired
+    private JobLeaseRepository jobLeaseRepository;
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    @Autowired
+    private TrackingOutboxService outbox;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final TrackingArchiveService archiveService = mock(TrackingArchiveService.class);
+    private final TrackingSpillJournal spillJournal = mock(TrackingSpillJournal.class);
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAllInBatch();
+        jobLeaseRepository.deleteAllInBatch();
+        outboxEventRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testImport_SkipsDuplicatesWithinTheInputAndAgainstExistingNumbers() {
+        // Arrange
+        repository.saveAndFlush(this.record(1));
+        String input = this.line(1) + this.line(2) + this.line(2) + this.line(3)
+                + "{\"trackingNumber\":\"LEGACY0000000009\",\"originCountryId\":\"XX\",\"destinationCountryId\":\"IN\","
+                + "\"weight\":1,\"customerId\":\"" + CUSTOMER_ID + "\",\"customerSlug\":\"acme\"}\n";
+
+        // Act
+        ImportReport report = this.importer(2, 4).importTrackingNumbers("dedup", this.stream(input), ImportFormat.NDJSON, false);
+
+        // Assert
+        assertEquals(ImportReport.ImportState.COMPLETED, report.getState());
+        assertEquals(2, report.getInserted());
+        assertEquals(2, report.getDuplicates());
+        assertEquals(1, report.getInvalid());
+        assertEquals(3, repository.count());
+        assertEquals(2, outboxEventRepository.count());
+        assertFalse(Files.exists(checkpointDirectory.resolve("dedup.checkpoint")));
+    }
+
+    @Test
+    void testImport_ResumesAFailedJobAfterItsCheckpoint() throws Exception {
+        // Arrange: the third chunk fails on the first run
+        StringBuilder input = new StringBuilder();
+        for (int i = 1; i <= 6; i++) {
+            input.append(this.line(i));
+        }
+        when(archiveService.isArchived(this.trackingNumber(5))).thenThrow(new IllegalStateException("archive unavailable"));
+        ImportReport failed = this.importer(2, 4).importTrackingNumbers("resume", this.stream(input.toString()), ImportFormat.NDJSON, false);
+        assertEquals(ImportReport.ImportState.FAILED, failed.getState());
+        assertEquals(4, failed.getCheckpointLine());
+        assertEquals("4", Files.readString(checkpointDirectory.resolve("resume.checkpoint")));
+        reset(archiveService);
+
+        // Act
+        ImportReport resumed = this.importer(2, 4).importTrackingNumbers("resume", this.stream(input.toString()), ImportFormat.NDJSON, false);
+
+        // Assert
+        assertEquals(ImportReport.ImportState.COMPLETED, resumed.getState());
+        assertEquals(4, resumed.getSkippedBeforeCheckpoint());
+        assertEquals(2, resumed.getInserted());
+        assertEquals(6, repository.count());
+        assertFalse(Files.exists(checkpointDirectory.resolve("resume.checkpoint")));
+    }
+
+    @Test
+    void testImport_CountsNumbersCreatedAfterTheDuplicateCheckAsDuplicates() {
+        // Arrange: another writer creates number 2 while the chunk is being checked
+        when(archiveService.isArchived(this.trackingNumber(2))).thenAnswer(invocation -> {
+            repository.saveAndFlush(this.record(2));
+            return false;
+        });
+        String input = this.line(1) + this.line(2) + this.line(3);
+
+        // Act
+        ImportReport report = this.importer(10, 4).importTrackingNumbers("race", this.stream(input), ImportFormat.NDJSON, false);
+
+        // Assert
+        assertEquals(ImportReport.ImportState.COMPLETED, report.getState());
+        assertEquals(2, report.getInserted());
+        assertEquals(1, report.getDuplicates());
+        assertEquals(3, repository.count());
+        // The rolled-back chunk's events are gone; only the two numbers inserted one by one have one
+        assertEquals(2, outboxEventRepository.count());
+    }
+
+    @Test
+    void testImport_ParserWaitsWhileTheDatabaseIsSlow() throws Exception {
+        // Arrange: the importer stalls on its first chunk
+        StringBuilder input = new StringBuilder();
+        for (int i = 1; i <= 1000; i++) {
+            input.append(this.line(i));
+        }
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        when(archiveService.isArchived(this.trackingNumber(1))).thenAnswer(invocation -> {
+            stalled.countDown();
+            assertTrue(resume.await(10, TimeUnit.SECONDS));
+            return false;
+        });
+        TrackingImportServiceImpl importer = this.importer(10, 1);
+
+        // Act
+        CompletableFuture<ImportReport> running = CompletableFuture.supplyAsync(() ->
+                importer.importTrackingNumbers("backpressure", this.stream(input.toString()), ImportFormat.NDJSON, false));
+        assertTrue(stalled.await(10, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        long linesReadWhileStalled = importer.getProgress("backpressure").getLinesRead();
+        resume.countDown();
+        ImportReport report = running.get(60, TimeUnit.SECONDS);
+
+        // Assert: one chunk importing, one queued and one waiting to be queued
+        assertTrue(linesReadWhileStalled <= 30, "Parser read ahead " + linesReadWhileStalled + " lines");
+        assertEquals(ImportReport.ImportState.COMPLETED, report.getState());
+        assertEquals(1000, report.getInserted());
+    }
+
+    @Test
+    void testImport_RejectsAJobRunningOnAnotherInstance() {
+        // Arrange
+        jobLeaseRepository.saveAndFlush(new JobLeaseEntity("tracking-import:shared", "another-instance",
+                Instant.now().plus(1, ChronoUnit.HOURS)));
+
+        // Act & Assert
+        assertThrows(InvalidInputException.class, () -> this.importer(2, 4)
+                .importTrackingNumbers("shared", this.stream(this.line(1)), ImportFormat.NDJSON, false));
+        assertEquals(0, repository.count());
+        verify(archiveService, never()).isArchived(anyString());
+    }
+
+    @Test
+    void testImport_FailedRestartKeepsTheLeaseOfTheRunningJob() throws Exception {
+        // Arrange: a run of the job is stalled on its first chunk and its checkpoint has become unreadable
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        when(archiveService.isArchived(this.trackingNumber(1))).thenAnswer(invocation -> {
+            stalled.countDown();
+            assertTrue(resume.await(10, TimeUnit.SECONDS));
+            return false;
+        });
+        TrackingImportServiceImpl importer = this.importer(2, 4);
+        CompletableFuture<ImportReport> running = CompletableFuture.supplyAsync(() ->
+                importer.importTrackingNumbers("restarted", this.stream(this.line(1) + this.line(2)), ImportFormat.NDJSON, false));
+        assertTrue(stalled.await(10, TimeUnit.SECONDS));
+        Files.writeString(checkpointDirectory.resolve("restarted.checkpoint"), "corrupt");
+
+        // Act
+        assertThrows(InvalidInputException.class, () -> importer
+                .importTrackingNumbers("restarted", this.stream(this.line(3)), ImportFormat.NDJSON, false));
+
+        // Assert: the running job still holds its lease
+        assertNotNull(jobLeaseRepository.findById("tracking-import:restarted").orElseThrow().getLeaseOwner());
+        resume.countDown();
+        assertEquals(ImportReport.ImportState.COMPLETED, running.get(60, TimeUnit.SECONDS).getState());
+    }
+
+    private TrackingImportServiceImpl importer(int commitSize, int queueChunks) {
+        return new TrackingImportServiceImpl(repository, archiveService, spillJournal, entityManager, transactionManager,
+                objectMapper, jobLeaseService, outbox, true, commitSize, queueChunks, checkpointDirectory.toString(), 3_600_000, 600_000);
+    }
+
+    private InputStream stream(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String line(int i) {
+        return "{\"trackingNumber\":\"" + this.trackingNumber(i) + "\",\"originCountryId\":\"US\",\"destinationCountryId\":\"IN\","
+                + "\"weight\":1.5,\"customerId\":\"" + CUSTOMER_ID + "\",\"customerSlug\":\"acme\"}\n";
+    }
+
+    private TrackingNumberEntity record(int i) {
+        return new TrackingNumberEntity(this.trackingNumber(i), Instant.now(), "US", "IN", new BigDecimal("1.5"), CUSTOMER_ID, "acme");
+    }
+
+    private String trackingNumber(int i) {
+        return String.format("LEGACY%010d", i);
+    }
+}
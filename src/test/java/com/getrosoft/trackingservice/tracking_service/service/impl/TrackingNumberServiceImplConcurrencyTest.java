@@ -0,0 +1,146 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingNumberService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:concurrency",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "tracking.spill.directory=target/concurrency-test-spill",
+        "tracking.outbox.relay-interval-ms=3600000"
+})
+class TrackingNumberServiceImplConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private TrackingNumberService service;
+
+    @Autowired
+    private TrackingNumberRepository repository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAllInBatch();
+    }
+
+    @Test
+    void testCreateTrackingNumber_IsSingleInsertWithItsEvent() {
+        // Arrange
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        TrackingNumberDto requestDto = new TrackingNumberDto("US", "IN", BigDecimal.valueOf(1.5), UUID.randomUUID(), "customer-slug");
+        statistics.clear();
+
+        // Act
+        service.createTrackingNumber(requestDto);
+
+        // Assert
+        // The record and its outbox event; no existence check or merge SELECT before the INSERTs
+        assertEquals(2, statistics.getEntityInsertCount());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testCreateTrackingNumber_ConcurrentCreatesAreUnique() throws Exception {
+        // Arrange: every request falls into the same segment
+        int perThread = 200;
+        UUID customerId = UUID.randomUUID();
+        Set<String> issued = ConcurrentHashMap.newKeySet();
+
+        // Act
+        runConcurrently(() -> {
+            for (int i = 0; i < perThread; i++) {
+                TrackingNumberDto requestDto = new TrackingNumberDto("US", "IN", BigDecimal.valueOf(1.5), customerId, "customer-slug");
+                issued.add(service.createTrackingNumber(requestDto).getTrackingNumber());
+            }
+            return null;
+        });
+
+        // Assert
+        assertEquals(THREADS * perThread, issued.size());
+        assertEquals(THREADS * perThread, repository.count());
+    }
+
+    @Test
+    void testSaveAndFlush_ConcurrentInsertsOfSameNumberAdmitOne() throws Exception {
+        // Arrange
+        UUID customerId = UUID.randomUUID();
+        List<Throwable> unexpected = new ArrayList<>();
+
+        // Act
+        List<Future<Boolean>> results = runConcurrently(() -> {
+            try {
+                repository.saveAndFlush(new TrackingNumberEntity("USIN11AAAAAAAAAA", Instant.now(), "US", "IN",
+                        BigDecimal.valueOf(1.5), customerId, "customer-slug"));
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                return false;
+            } catch (RuntimeException e) {
+                synchronized (unexpected) {
+                    unexpected.add(e);
+                }
+                return false;
+            }
+        });
+
+        // Assert
+        long inserted = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                inserted++;
+            }
+        }
+        assertTrue(unexpected.isEmpty(), () -> "Unexpected failures: " + unexpected);
+        assertEquals(1, inserted);
+        assertEquals(1, repository.count());
+    }
+
+    private static <T> List<Future<T>> runConcurrently(final Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        for (Future<T> future : futures) {
+            future.get();
+        }
+        return futures;
+    }
+}
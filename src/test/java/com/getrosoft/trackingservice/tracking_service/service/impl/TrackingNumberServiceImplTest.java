@@ -1,5 +1,6 @@
 package com.getrosoft.trackingservice.tracking_service.service.impl;
 
+import com.getrosoft.trackingservice.tracking_service.config.ReadYourWritesWindow;
 import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
 import com.getrosoft.trackingservice.tracking_service.exceptions.DuplicateTrackingNumberException;
 import com.getrosoft.trackingservice.tracking_service.exceptions.InvalidInputException;
@@ -7,16 +8,30 @@ import com.getrosoft.trackingservice.tracking_service.exceptions.TrackingIdNotFo
 import com.getrosoft.trackingservice.tracking_service.exceptions.TrackingNumberGenerationException;
 import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
 import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import com.getrosoft.trackingservice.tracking_service.service.IssuanceStatisticsService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingArchiveService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingCapacityPlanner;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingOutboxService;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingSpillJournal;
+import com.getrosoft.trackingservice.tracking_service.utils.CircuitBreaker;
+import com.getrosoft.trackingservice.tracking_service.utils.TrackingNumberFormat;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Path;
 import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.modelmapper.ModelMapper;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.hibernate.exception.ConstraintViolationException;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.time.Instant;
 import java.util.Optional;
 import java.util.Set;
@@ -36,12 +51,40 @@ class TrackingNumberServiceImplTest {
     @Mock
     private Validator validator;
 
+    @Mock
+    private TrackingArchiveService archiveService;
+
+    @Mock
+    private TrackingCapacityPlanner capacityPlanner;
+
+    @Mock
+    private IssuanceStatisticsService issuanceStatistics;
+
+    @Mock
+    private TrackingSpillJournal spillJournal;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TrackingOutboxService outbox;
+
     private TrackingNumberServiceImpl service;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        service = new TrackingNumberServiceImpl(repository, modelMapper, validator);
+        service = new TrackingNumberServiceImpl(repository, modelMapper, validator, new SimpleMeterRegistry(),
+                new ReadYourWritesWindow(false, 2000), archiveService, capacityPlanner,
+                issuanceStatistics, new CircuitBreaker(1, 60_000), spillJournal,
+                transactionManager, outbox, false);
+    }
+
+    private TrackingNumberServiceImpl fastPathService() {
+        return new TrackingNumberServiceImpl(repository, modelMapper, validator, new SimpleMeterRegistry(),
+                new ReadYourWritesWindow(false, 2000), archiveService, capacityPlanner,
+                issuanceStatistics, new CircuitBreaker(1, 60_000), spillJournal,
+                transactionManager, outbox, true);
     }
 
     @Test
@@ -53,8 +96,7 @@ class TrackingNumberServiceImplTest {
         );
 
         when(validator.validate(requestDto)).thenReturn(Set.of());
-        when(repository.existsById(anyString())).thenReturn(false);
-        when(repository.save(any(TrackingNumberEntity.class))).thenReturn(mockEntity);
+        when(repository.saveAndFlush(any(TrackingNumberEntity.class))).thenReturn(mockEntity);
         when(modelMapper.map(any(TrackingNumberEntity.class), eq(TrackingNumberDto.class))).thenReturn(requestDto);
 
         // Act
@@ -62,8 +104,12 @@ class TrackingNumberServiceImplTest {
 
         // Assert
         assertNotNull(result);
-        verify(repository, times(1)).save(any(TrackingNumberEntity.class));
+        // The insert is the uniqueness check; nothing is read first
+        verify(repository, times(1)).saveAndFlush(any(TrackingNumberEntity.class));
+        verify(repository, never()).existsById(anyString());
+        verify(outbox, times(1)).recordCreated(mockEntity);
         verify(validator, times(1)).validate(requestDto);
+        verify(issuanceStatistics, times(1)).recordIssued("IN", "US", requestDto.getCustomerId());
     }
 
     @Test
@@ -89,10 +135,9 @@ class TrackingNumberServiceImplTest {
                 .build();
 
         when(validator.validate(requestDto)).thenReturn(Set.of());
-        when(repository.existsById(anyString()))
-                .thenReturn(true)  // Simulate collision on first attempt
-                .thenReturn(false); // Succeed on second attempt
-        when(repository.save(any(TrackingNumberEntity.class))).thenReturn(mockEntity);
+        when(repository.saveAndFlush(any(TrackingNumberEntity.class)))
+                .thenThrow(duplicateKey())  // Simulate collision on first attempt
+                .thenReturn(mockEntity);    // Succeed on second attempt
         when(modelMapper.map(mockEntity, TrackingNumberDto.class)).thenReturn(expectedDto);
 
         // Act
@@ -102,8 +147,8 @@ class TrackingNumberServiceImplTest {
         assertNotNull(result, "Result should not be null");
         assertEquals(expectedDto.getOriginCountryId(), result.getOriginCountryId());
         assertEquals(expectedDto.getDestinationCountryId(), result.getDestinationCountryId());
-        verify(repository, times(2)).existsById(anyString());
-        verify(repository, times(1)).save(any(TrackingNumberEntity.class));
+        verify(repository, times(2)).saveAndFlush(any(TrackingNumberEntity.class));
+        verify(capacityPlanner, times(1)).recordIssue(requestDto, true);
         verify(modelMapper, times(1)).map(mockEntity, TrackingNumberDto.class);
     }
 
@@ -137,18 +182,115 @@ class TrackingNumberServiceImplTest {
 
 
 
+    @Test
+    void testCreateTrackingNumber_FastPathValidatesWithoutBeanValidation() {
+        // Arrange
+        TrackingNumberServiceImpl fastPathService = this.fastPathService();
+        TrackingNumberDto requestDto = new TrackingNumberDto("ind", "US", BigDecimal.valueOf(2.5), UUID.randomUUID(), "customer-slug");
+        TrackingNumberEntity mockEntity = new TrackingNumberEntity(
+                "INUS123456789012", Instant.now(), "IN", "US", BigDecimal.valueOf(2.5), requestDto.getCustomerId(), "customer-slug"
+        );
+        when(repository.saveAndFlush(any(TrackingNumberEntity.class))).thenReturn(mockEntity);
+        when(modelMapper.map(any(TrackingNumberEntity.class), eq(TrackingNumberDto.class))).thenReturn(requestDto);
+
+        // Act
+        TrackingNumberDto result = fastPathService.createTrackingNumber(requestDto);
+
+        // Assert
+        assertNotNull(result);
+        verify(validator, never()).validate(any());
+        ArgumentCaptor<TrackingNumberEntity> saved = ArgumentCaptor.forClass(TrackingNumberEntity.class);
+        verify(repository, times(1)).saveAndFlush(saved.capture());
+        assertEquals("IN", saved.getValue().getOriginCountryId());
+        verify(issuanceStatistics, times(1)).recordIssued("IN", "US", requestDto.getCustomerId());
+    }
+
+    @Test
+    void testCreateTrackingNumber_FastPathReportsFieldErrors() {
+        // Arrange
+        TrackingNumberServiceImpl fastPathService = this.fastPathService();
+        TrackingNumberDto requestDto = new TrackingNumberDto("XX", "US", BigDecimal.valueOf(0.01), UUID.randomUUID(), "customer-slug");
+
+        // Act & Assert
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> fastPathService.createTrackingNumber(requestDto));
+        assertEquals(Set.of("originCountryId", "weight"), exception.getFieldErrors().keySet());
+        verify(validator, never()).validate(any());
+        verify(repository, never()).saveAndFlush(any(TrackingNumberEntity.class));
+    }
+
     @Test
     void testCreateTrackingNumber_UnexpectedError() {
         // Arrange
         TrackingNumberDto requestDto = new TrackingNumberDto("IN", "US", BigDecimal.valueOf(1.0), UUID.randomUUID(), "customer-slug");
 
         when(validator.validate(requestDto)).thenReturn(Set.of());
-        when(repository.existsById(anyString())).thenThrow(new RuntimeException("Unexpected error"));
+        when(repository.saveAndFlush(any(TrackingNumberEntity.class))).thenThrow(new RuntimeException("Unexpected error"));
 
         // Act & Assert
         TrackingNumberGenerationException exception = assertThrows(TrackingNumberGenerationException.class, () -> service.createTrackingNumber(requestDto));
-        assertTrue(exception.getMessage().contains("Invalid input for tracking number generation"));
-        verify(repository, times(1)).existsById(anyString());
+        assertTrue(exception.getMessage().contains("Error generating tracking number"));
+        verify(repository, times(1)).saveAndFlush(any(TrackingNumberEntity.class));
+    }
+
+    @Test
+    void testCreateTrackingNumber_UnknownCountryIsInvalidInput() {
+        // Arrange: a code the validator let through but the registry does not know
+        TrackingNumberDto requestDto = new TrackingNumberDto("ZZ", "US", BigDecimal.valueOf(1.0), UUID.randomUUID(), "customer-slug");
+        when(validator.validate(requestDto)).thenReturn(Set.of());
+
+        // Act & Assert
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> service.createTrackingNumber(requestDto));
+        assertTrue(exception.getFieldErrors().containsKey("originCountryId"));
+        verify(repository, never()).saveAndFlush(any(TrackingNumberEntity.class));
+    }
+
+    @Test
+    void testCreateTrackingNumber_DatabaseUnavailableJournalsRecord() {
+        // Arrange
+        TrackingNumberDto requestDto = new TrackingNumberDto("IN", "US", BigDecimal.valueOf(1.0), UUID.randomUUID(), "customer-slug");
+
+        when(validator.validate(requestDto)).thenReturn(Set.of());
+        when(repository.saveAndFlush(any(TrackingNumberEntity.class)))
+                .thenThrow(new CannotCreateTransactionException("Connection is not available"));
+        when(spillJournal.append(any(TrackingNumberEntity.class))).thenReturn(true);
+        when(spillJournal.getNodeId()).thenReturn("N1");
+        when(modelMapper.map(any(TrackingNumberEntity.class), eq(TrackingNumberDto.class))).thenReturn(requestDto);
+
+        // Act
+        service.createTrackingNumber(requestDto);
+        service.createTrackingNumber(requestDto);
+
+        // Assert
+        ArgumentCaptor<TrackingNumberEntity> saved = ArgumentCaptor.forClass(TrackingNumberEntity.class);
+        ArgumentCaptor<TrackingNumberEntity> journaled = ArgumentCaptor.forClass(TrackingNumberEntity.class);
+        verify(repository, times(1)).saveAndFlush(saved.capture());
+        verify(spillJournal, times(2)).append(journaled.capture());
+        // The failed save may have committed, so its number is journaled unchanged
+        assertEquals(saved.getValue().getTrackingNumber(), journaled.getAllValues().get(0).getTrackingNumber());
+        // The open circuit sends the second create straight to the journal, under this instance's node ID
+        assertEquals(requestDto.getCustomerId(), journaled.getAllValues().get(1).getCustomerId());
+        String journaledNumber = journaled.getAllValues().get(1).getTrackingNumber();
+        assertEquals("N1", journaledNumber.substring(8, 10));
+        assertEquals(3, TrackingNumberFormat.decode(journaledNumber).getVersion());
+    }
+
+    @Test
+    void testCreateTrackingNumber_OtherIntegrityViolationIsNotRetried() {
+        // Arrange
+        TrackingNumberDto requestDto = new TrackingNumberDto("IN", "US", BigDecimal.valueOf(1.0), UUID.randomUUID(), "customer-slug");
+        when(validator.validate(requestDto)).thenReturn(Set.of());
+        when(repository.saveAndFlush(any(TrackingNumberEntity.class))).thenThrow(new DataIntegrityViolationException("NOT NULL check",
+                new ConstraintViolationException("NOT NULL check", new SQLException("null", "23502"), "insert", ConstraintViolationException.ConstraintKind.OTHER, null)));
+
+        // Act & Assert
+        assertThrows(TrackingNumberGenerationException.class, () -> service.createTrackingNumber(requestDto));
+        verify(repository, times(1)).saveAndFlush(any(TrackingNumberEntity.class));
+    }
+
+    private static DataIntegrityViolationException duplicateKey() {
+        return new DataIntegrityViolationException("Duplicate key", new ConstraintViolationException("Duplicate key",
+                new SQLException("Unique index or primary key violation", "23505"), "insert",
+                ConstraintViolationException.ConstraintKind.UNIQUE, "PRIMARY KEY"));
     }
 
     @Test
@@ -171,6 +313,41 @@ class TrackingNumberServiceImplTest {
         verify(repository, times(1)).findById(trackingId);
     }
 
+    @Test
+    void testGetTrackingDetails_FallsBackToArchive() {
+        // Arrange
+        String trackingId = "INUS123456789012";
+        TrackingNumberEntity archivedEntity = new TrackingNumberEntity(
+                trackingId, Instant.parse("2023-01-01T00:00:00Z"), "IN", "US", BigDecimal.valueOf(2.5), UUID.randomUUID(), "customer-slug"
+        );
+        TrackingNumberDto mockDto = new TrackingNumberDto("IN", "US", BigDecimal.valueOf(2.5), UUID.randomUUID(), "customer-slug");
+
+        when(repository.findById(trackingId)).thenReturn(Optional.empty());
+        when(archiveService.findArchived(trackingId)).thenReturn(Optional.of(archivedEntity));
+        when(modelMapper.map(archivedEntity, TrackingNumberDto.class)).thenReturn(mockDto);
+
+        // Act
+        TrackingNumberDto result = service.getTrackingDetails(trackingId);
+
+        // Assert
+        assertSame(mockDto, result);
+        verify(archiveService, times(1)).findArchived(trackingId);
+    }
+
+    @Test
+    void testFindCreatedAt_ReadsOnlyTheCreationTime() {
+        // Arrange
+        Instant createdAt = Instant.parse("2023-01-01T00:00:00Z");
+        when(repository.findCreatedAtById("INUS123456789012")).thenReturn(Optional.of(createdAt));
+        when(repository.findCreatedAtById("INUS123456789013")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertEquals(Optional.of(createdAt), service.findCreatedAt("INUS123456789012"));
+        assertEquals(Optional.empty(), service.findCreatedAt("INUS123456789013"));
+        verify(repository, never()).findById(any());
+        verifyNoInteractions(modelMapper);
+    }
+
     @Test
     void testGetTrackingDetails_TrackingIdNotFound() {
         // Arrange
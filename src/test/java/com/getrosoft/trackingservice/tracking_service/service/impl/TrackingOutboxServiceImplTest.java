@@ -0,0 +1,182 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
+import com.getrosoft.trackingservice.tracking_service.model.OutboxCheckpointEntity;
+import com.getrosoft.trackingservice.tracking_service.payload.OutboxMessage;
+import com.getrosoft.trackingservice.tracking_service.payload.TrackingNumberCreatedEvent;
+import com.getrosoft.trackingservice.tracking_service.repository.OutboxCheckpointRepository;
+import com.getrosoft.trackingservice.tracking_service.repository.OutboxEventRepository;
+import com.getrosoft.trackingservice.tracking_service.service.OutboxSink;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingNumberService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox",
+        "spring.jpa.show-sql=false",
+        "tracking.spill.directory=target/outbox-test-spill",
+        "tracking.outbox.sink=memory",
+        "tracking.outbox.relay-to-memory=true",
+        "tracking.outbox.relay-interval-ms=3600000"
+})
+class TrackingOutboxServiceImplTest {
+
+    @Autowired
+    private TrackingNumberService trackingNumberService;
+
+    @Autowired
+    private OutboxEventRepository outboxRepository;
+
+    @Autowired
+    private OutboxCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private InMemoryOutboxSink sink;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository.deleteAllInBatch();
+        checkpointRepository.deleteAllInBatch();
+        sink.clear();
+    }
+
+    @Test
+    void testRelayPending_DeliversCreatedEventsInOrderAndRemovesThem() throws Exception {
+        // Arrange: three events, relayed in batches of two
+        List<String> created = List.of(this.create(), this.create(), this.create());
+        TrackingOutboxServiceImpl relay = this.relay(sink, 2);
+
+        // Act
+        int relayed = relay.relayPending();
+
+        // Assert
+        List<OutboxMessage> published = sink.getPublished();
+        assertEquals(3, relayed);
+        assertEquals(created, published.stream().map(OutboxMessage::getTrackingNumber).toList());
+        assertTrue(published.get(0).getId() < published.get(1).getId() && published.get(1).getId() < published.get(2).getId());
+        assertEquals(TrackingNumberCreatedEvent.TYPE, published.get(0).getType());
+        JsonNode data = objectMapper.readTree(published.get(0).getData());
+        assertEquals("US", data.get("originCountryId").asText());
+        assertEquals(0, outboxRepository.count());
+        assertEquals(3, checkpointRepository.findById(TrackingNumberCreatedEvent.TYPE).orElseThrow().getRelayedCount());
+        assertEquals(0, relay.relayPending());
+    }
+
+    @Test
+    void testRelayPending_KeepsEventsWhenSinkFails() {
+        // Arrange
+        this.create();
+        this.create();
+        AtomicInteger attempts = new AtomicInteger();
+        OutboxSink failingSink = batch -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("webhook unavailable");
+        };
+
+        // Act
+        int relayed = this.relay(failingSink, 10).relayPending();
+
+        // Assert
+        assertEquals(0, relayed);
+        assertEquals(3, attempts.get(), "The batch is retried up to max-attempts");
+        assertEquals(2, outboxRepository.count());
+        assertEquals(2, this.relay(sink, 10).relayPending(), "The same events are delivered on the next run");
+    }
+
+    @Test
+    void testRelayPending_HoldsNoCheckpointLockWhilePublishing() {
+        // Arrange: a sink that checks the checkpoint row is free while it delivers
+        this.create();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicBoolean lockable = new AtomicBoolean();
+        OutboxSink probingSink = batch -> lockable.set(Boolean.TRUE.equals(transactionTemplate.execute(
+                status -> checkpointRepository.lockByRelayName(TrackingNumberCreatedEvent.TYPE).isPresent())));
+
+        // Act
+        int relayed = this.relay(probingSink, 10).relayPending();
+
+        // Assert
+        assertEquals(1, relayed);
+        assertTrue(lockable.get(), "The checkpoint row is committed and unlocked before the sink is called");
+        assertNull(checkpointRepository.findById(TrackingNumberCreatedEvent.TYPE).orElseThrow().getLeaseOwner());
+    }
+
+    @Test
+    void testRelayPending_SkipsWhileAnotherInstanceHoldsTheLease() {
+        // Arrange: another instance took the lease and is still within it
+        this.create();
+        checkpointRepository.saveAndFlush(new OutboxCheckpointEntity(TrackingNumberCreatedEvent.TYPE, 0, 0,
+                Instant.now(), "other-instance", Instant.now().plusSeconds(60)));
+
+        // Act
+        int relayed = this.relay(sink, 10).relayPending();
+
+        // Assert
+        assertEquals(0, relayed);
+        assertEquals(1, outboxRepository.count());
+        assertTrue(sink.getPublished().isEmpty());
+    }
+
+    @Test
+    void testRelayPending_TakesOverAnExpiredLease() {
+        // Arrange: the previous holder stopped without releasing its lease
+        this.create();
+        checkpointRepository.saveAndFlush(new OutboxCheckpointEntity(TrackingNumberCreatedEvent.TYPE, 0, 0,
+                Instant.now(), "crashed-instance", Instant.now().minusSeconds(1)));
+
+        // Act
+        int relayed = this.relay(sink, 10).relayPending();
+
+        // Assert
+        assertEquals(1, relayed);
+        assertEquals(0, outboxRepository.count());
+    }
+
+    @Test
+    void testRelayPending_LeavesEventsInTheTableForANonDurableSink() {
+        // Arrange: the memory sink without relay-to-memory
+        this.create();
+        TrackingOutboxServiceImpl relay = new TrackingOutboxServiceImpl(outboxRepository, checkpointRepository, sink,
+                objectMapper, transactionManager, new SimpleMeterRegistry(), true, false, 10, 3, 1, 60_000);
+
+        // Act
+        int relayed = relay.relayPending();
+
+        // Assert
+        assertEquals(0, relayed);
+        assertEquals(1, outboxRepository.count());
+        assertTrue(sink.getPublished().isEmpty());
+    }
+
+    private String create() {
+        TrackingNumberDto requestDto = new TrackingNumberDto("US", "IN", BigDecimal.valueOf(1.5), UUID.randomUUID(), "customer-slug");
+        return trackingNumberService.createTrackingNumber(requestDto).getTrackingNumber();
+    }
+
+    private TrackingOutboxServiceImpl relay(final OutboxSink target, final int batchSize) {
+        return new TrackingOutboxServiceImpl(outboxRepository, checkpointRepository, target, objectMapper,
+                transactionManager, new SimpleMeterRegistry(), true, true, batchSize, 3, 1, 60_000);
+    }
+}
@@ -0,0 +1,104 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingOutboxService;
+import com.getrosoft.trackingservice.tracking_service.utils.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+/**
+ * Replays against a real database. The outbox is mocked so that nothing goes through a repository
+ * inside the replay transaction; a repository save would auto-flush and translate the conflict,
+ * while the replay's own flush surfaces Hibernate's exception untranslated.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:spill-replay",
+        "spring.jpa.show-sql=false",
+        "tracking.spill.directory=target/spill-replay-test",
+        "tracking.outbox.relay-interval-ms=3600000"
+})
+class TrackingSpillJournalImplDatabaseTest {
+
+    private static final UUID CUSTOMER_ID = UUID.fromString("550e8400-e29b-41d4-a716-446655440000");
+
+    @TempDir
+    Path directory;
+
+    @Autowired
+    private TrackingNumberRepository repository;
+
+    private final TrackingOutboxService outbox = mock(TrackingOutboxService.class);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAllInBatch();
+    }
+
+    @Test
+    void testReplayPending_DeadLettersNumbersInsertedConcurrentlyAndReplaysTheRest() throws Exception {
+        // Arrange: another writer inserts one of the numbers between the existence check and the insert
+        TrackingNumberRepository racingRepository = mock(TrackingNumberRepository.class);
+        when(racingRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            repository.saveAndFlush(this.record("USIN11BBBBBBBBBB", UUID.randomUUID()));
+            return List.of();
+        });
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 60_000);
+        TrackingSpillJournalImpl journal = new TrackingSpillJournalImpl(racingRepository, entityManager, transactionManager,
+                objectMapper, circuitBreaker, outbox, new SimpleMeterRegistry(), directory.toString(), "n1", 1000, 10);
+        journal.recover();
+        journal.append(this.record("USIN11AAAAAAAAAA", CUSTOMER_ID));
+        journal.append(this.record("USIN11BBBBBBBBBB", CUSTOMER_ID));
+        journal.append(this.record("USIN11CCCCCCCCCC", CUSTOMER_ID));
+
+        try {
+            // Act
+            int replayed = journal.replayPending();
+
+            // Assert
+            assertEquals(3, replayed);
+            assertEquals(0, journal.pendingCount());
+            assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+            assertEquals(CUSTOMER_ID, repository.findById("USIN11AAAAAAAAAA").orElseThrow().getCustomerId());
+            assertEquals(CUSTOMER_ID, repository.findById("USIN11CCCCCCCCCC").orElseThrow().getCustomerId());
+            assertNotEquals(CUSTOMER_ID, repository.findById("USIN11BBBBBBBBBB").orElseThrow().getCustomerId());
+            String deadLetters = Files.readString(directory.resolve("dead-letter.ndjson"));
+            assertTrue(deadLetters.contains("USIN11BBBBBBBBBB"));
+            assertFalse(deadLetters.contains("USIN11AAAAAAAAAA"));
+        } finally {
+            journal.close();
+        }
+    }
+
+    private TrackingNumberEntity record(final String trackingNumber, final UUID customerId) {
+        return new TrackingNumberEntity(trackingNumber, Instant.parse("2024-12-03T00:00:00Z"), "US", "IN",
+                BigDecimal.valueOf(1.5), customerId, "customer-slug");
+    }
+}
@@ -0,0 +1,198 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import com.getrosoft.trackingservice.tracking_service.repository.TrackingNumberRepository;
+import com.getrosoft.trackingservice.tracking_service.service.TrackingOutboxService;
+import com.getrosoft.trackingservice.tracking_service.utils.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.exception.JDBCConnectionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+class TrackingSpillJournalImplTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private TrackingNumberRepository repository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TrackingOutboxService outbox;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(1, 60_000);
+    private TrackingSpillJournalImpl journal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        journal = this.openJournal();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        journal.close();
+    }
+
+    @Test
+    void testAppend_RejectsNumberAlreadyJournaled() {
+        assertTrue(journal.append(record("USIN11AAAAAAAAAA", UUID.randomUUID())));
+        assertFalse(journal.append(record("USIN11AAAAAAAAAA", UUID.randomUUID())));
+        assertEquals(1, journal.pendingCount());
+    }
+
+    @Test
+    void testRecover_ReloadsJournalAndSkipsTornLine() throws IOException {
+        // Arrange
+        final UUID customerId = UUID.randomUUID();
+        journal.append(record("USIN11AAAAAAAAAA", customerId));
+        journal.append(record("USIN11BBBBBBBBBB", customerId));
+        journal.close();
+        Files.writeString(directory.resolve("journal.ndjson"), "{\"trackingNumber\":\"USIN1", StandardOpenOption.APPEND);
+
+        // Act
+        journal = this.openJournal();
+        journal.append(record("USIN11CCCCCCCCCC", customerId));
+        journal.close();
+        journal = this.openJournal();
+
+        // Assert
+        assertEquals(3, journal.pendingCount());
+        assertEquals(customerId, journal.findJournaled("USIN11BBBBBBBBBB").orElseThrow().getCustomerId());
+    }
+
+    @Test
+    void testReplayPending_InsertsNewRecordsAndDeadLettersConflicts() throws IOException {
+        // Arrange
+        final UUID customerId = UUID.randomUUID();
+        final TrackingNumberEntity fresh = record("USIN11AAAAAAAAAA", customerId);
+        final TrackingNumberEntity alreadyReplayed = record("USIN11BBBBBBBBBB", customerId);
+        final TrackingNumberEntity conflicting = record("USIN11CCCCCCCCCC", customerId);
+        List.of(fresh, alreadyReplayed, conflicting).forEach(journal::append);
+        when(repository.findAllById(anyIterable())).thenReturn(List.of(
+                record("USIN11BBBBBBBBBB", customerId),
+                record("USIN11CCCCCCCCCC", UUID.randomUUID())));
+
+        // Act
+        int replayed = journal.replayPending();
+
+        // Assert
+        assertEquals(3, replayed);
+        assertEquals(0, journal.pendingCount());
+        verify(entityManager, times(1)).persist(fresh);
+        verify(outbox, times(1)).recordCreated(fresh);
+        verify(entityManager, never()).persist(alreadyReplayed);
+        assertTrue(Files.readString(directory.resolve("dead-letter.ndjson")).contains("USIN11CCCCCCCCCC"));
+        assertTrue(Files.readString(directory.resolve("journal.ndjson")).isBlank());
+    }
+
+    @Test
+    void testReplayPending_DeadLettersSameCustomerAndLaneWithOtherShipmentDetails() throws IOException {
+        // Arrange: the stored rows share customer and lane but differ in weight or slug
+        final UUID customerId = UUID.randomUUID();
+        journal.append(record("USIN11AAAAAAAAAA", customerId));
+        journal.append(record("USIN11BBBBBBBBBB", customerId));
+        journal.append(record("USIN11CCCCCCCCCC", customerId));
+        final TrackingNumberEntity heavier = record("USIN11AAAAAAAAAA", customerId);
+        heavier.setWeight(BigDecimal.valueOf(9.5));
+        final TrackingNumberEntity otherSlug = record("USIN11BBBBBBBBBB", customerId);
+        otherSlug.setCustomerSlug("other-slug");
+        final TrackingNumberEntity sameShipment = record("USIN11CCCCCCCCCC", customerId);
+        sameShipment.setWeight(new BigDecimal("1.500"));
+        when(repository.findAllById(anyIterable())).thenReturn(List.of(heavier, otherSlug, sameShipment));
+
+        // Act
+        journal.replayPending();
+
+        // Assert
+        String deadLetters = Files.readString(directory.resolve("dead-letter.ndjson"));
+        assertTrue(deadLetters.contains("USIN11AAAAAAAAAA"));
+        assertTrue(deadLetters.contains("USIN11BBBBBBBBBB"));
+        assertFalse(deadLetters.contains("USIN11CCCCCCCCCC"), "A weight with another scale is the same shipment");
+    }
+
+    @Test
+    void testGetNodeId_NormalisesConfiguredIdAndRejectsInvalidOnes() {
+        assertEquals("N1", journal.getNodeId());
+        assertThrows(IllegalArgumentException.class, () -> new TrackingSpillJournalImpl(repository, entityManager,
+                transactionManager, objectMapper, circuitBreaker, outbox, new SimpleMeterRegistry(), directory.toString(),
+                "node-1", 1000, 2));
+    }
+
+    @Test
+    void testReplayPending_KeepsRecordsWhileDatabaseIsDown() {
+        // Arrange
+        journal.append(record("USIN11AAAAAAAAAA", UUID.randomUUID()));
+        when(repository.findAllById(anyIterable())).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        // Act
+        int replayed = journal.replayPending();
+
+        // Assert
+        assertEquals(0, replayed);
+        assertEquals(1, journal.pendingCount());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(0, journal.replayPending(), "No further attempts until the open interval has passed");
+        verify(repository, times(1)).findAllById(anyIterable());
+    }
+
+    @Test
+    void testReplayPending_OpensTheCircuitWhenTheConnectionDropsDuringFlush() {
+        // Arrange: a flush outside a repository surfaces Hibernate's exception, untranslated
+        journal.append(record("USIN11AAAAAAAAAA", UUID.randomUUID()));
+        when(repository.findAllById(anyIterable())).thenReturn(List.of());
+        doThrow(new JDBCConnectionException("Connection reset", new SQLException("Connection reset", "08S01")))
+                .when(entityManager).flush();
+
+        // Act
+        int replayed = journal.replayPending();
+
+        // Assert
+        assertEquals(0, replayed);
+        assertEquals(1, journal.pendingCount());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private TrackingSpillJournalImpl openJournal() throws IOException {
+        final TrackingSpillJournalImpl opened = new TrackingSpillJournalImpl(repository, entityManager, transactionManager,
+                objectMapper, circuitBreaker, outbox, new SimpleMeterRegistry(), directory.toString(), "n1", 1000, 2);
+        opened.recover();
+        return opened;
+    }
+
+    private static TrackingNumberEntity record(final String trackingNumber, final UUID customerId) {
+        return new TrackingNumberEntity(trackingNumber, Instant.parse("2024-12-03T00:00:00Z"), "US", "IN",
+                BigDecimal.valueOf(1.5), customerId, "customer-slug");
+    }
+}
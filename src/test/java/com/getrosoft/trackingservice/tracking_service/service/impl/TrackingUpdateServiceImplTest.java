@@ -0,0 +1,242 @@
+package com.getrosoft.trackingservice.tracking_service.service.impl;
+
+import com.getrosoft.trackingservice.tracking_service.payload.Status;
+import com.getrosoft.trackingservice.tracking_service.payload.TrackingUpdate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackingUpdateServiceImplTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+    private TrackingUpdateServiceImpl service;
+
+    @AfterEach
+    void tearDown() {
+        emitters.forEach(RecordingEmitter::unblock);
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void testPublish_DeliversInitialThenLiveUpdatesToNumberAndCustomerSubscribers() throws Exception {
+        // Arrange
+        service = this.service(2, 256, 60_000);
+        UUID customerId = UUID.randomUUID();
+        TrackingUpdate initial = this.update("USIN000000000001", Status.PENDING, 0);
+        TrackingUpdate live = this.update("USIN000000000001", Status.IN_TRANSIT, 1);
+        service.subscribe(Set.of("USIN000000000001"), null, List.of(initial));
+        service.subscribe(Set.of(), customerId, List.of());
+        this.await(() -> emitters.get(0).updates().size() == 1);
+
+        // Act
+        service.publish(List.of(live), Map.of("USIN000000000001", customerId));
+
+        // Assert
+        this.await(() -> emitters.get(0).updates().size() == 2 && emitters.get(1).updates().size() == 1);
+        assertEquals(List.of(initial, live), emitters.get(0).updates());
+        assertEquals(List.of(live), emitters.get(1).updates());
+        assertTrue(service.hasCustomerSubscribers());
+    }
+
+    @Test
+    void testPublish_CoalescesAndBoundsUpdatesQueuedBehindASlowClient() throws Exception {
+        // Arrange: the first send blocks, so everything after it queues
+        service = this.service(2, 2, 60_000);
+        service.subscribe(Set.of("A", "B", "C"), null, List.of());
+        RecordingEmitter emitter = emitters.get(0);
+        emitter.block();
+        service.publish(List.of(this.update("A", Status.PENDING, 0)), Map.of());
+        this.await(emitter::isBlocked);
+
+        // Act
+        service.publish(List.of(this.update("A", Status.PENDING, 1), this.update("A", Status.IN_TRANSIT, 2),
+                this.update("B", Status.PENDING, 3), this.update("C", Status.PENDING, 4)), Map.of());
+        emitter.unblock();
+
+        // Assert: A coalesced to its newest update and C did not fit
+        this.await(() -> emitter.updates().size() == 3);
+        List<TrackingUpdate> sent = emitter.updates();
+        assertEquals(Status.IN_TRANSIT, sent.stream().filter(u -> u.getTrackingNumber().equals("A")).reduce((a, b) -> b).orElseThrow().getStatus());
+        assertTrue(sent.stream().noneMatch(u -> u.getTrackingNumber().equals("C")));
+        assertEquals(1.0, meterRegistry.counter("tracking.updates.coalesced").count());
+        assertEquals(1.0, meterRegistry.counter("tracking.updates.dropped").count());
+    }
+
+    @Test
+    void testEvictStalledSubscribers_ReplacesTheBlockedThreadAndClosesTheStreamOnceTheSendReturns() throws Exception {
+        // Arrange: one dispatcher thread, stuck sending to a client that stopped reading
+        service = this.service(1, 256, 50);
+        service.subscribe(Set.of("SLOW"), null, List.of());
+        service.subscribe(Set.of("FAST"), null, List.of());
+        RecordingEmitter slow = emitters.get(0);
+        RecordingEmitter fast = emitters.get(1);
+        slow.block();
+        service.publish(List.of(this.update("SLOW", Status.PENDING, 0)), Map.of());
+        this.await(slow::isBlocked);
+        Thread.sleep(100);
+
+        // Act
+        service.evictStalledSubscribers();
+        service.publish(List.of(this.update("FAST", Status.PENDING, 1), this.update("SLOW", Status.IN_TRANSIT, 2)), Map.of());
+
+        // Assert: other streams keep flowing while the stalled send is still blocked
+        this.await(() -> fast.updates().size() == 1);
+        assertEquals(2.0, meterRegistry.get("tracking.updates.dispatcher_threads").gauge().value());
+        assertEquals(1.0, meterRegistry.counter("tracking.updates.evicted").count());
+        assertEquals(1.0, meterRegistry.get("tracking.updates.subscribers").gauge().value());
+        slow.unblock();
+        this.await(() -> slow.failure != null);
+        assertEquals(1, slow.updates().size());
+        this.await(() -> meterRegistry.get("tracking.updates.dispatcher_threads").gauge().value() == 1.0);
+    }
+
+    @Test
+    void testSendHeartbeats_UpdatesWaitForAHeartbeatInProgress() throws Exception {
+        // Arrange: the heartbeat's send blocks with a free dispatcher thread left over
+        service = this.service(2, 256, 60_000);
+        service.subscribe(Set.of("A"), null, List.of());
+        RecordingEmitter emitter = emitters.get(0);
+        emitter.block();
+        service.sendHeartbeats();
+        this.await(emitter::isBlocked);
+
+        // Act
+        service.publish(List.of(this.update("A", Status.PENDING, 0)), Map.of());
+        Thread.sleep(100);
+        emitter.unblock();
+
+        // Assert: the update was not sent alongside the heartbeat, but followed it
+        this.await(() -> emitter.updates().size() == 1);
+        assertEquals(1, emitter.maxConcurrentSends.get());
+    }
+
+    @Test
+    void testFlush_ClosesTheStreamWhenTheClientHasGone() throws Exception {
+        // Arrange
+        service = this.service(1, 256, 60_000);
+        service.subscribe(Set.of("GONE"), null, List.of());
+        emitters.get(0).disconnect();
+
+        // Act
+        service.publish(List.of(this.update("GONE", Status.PENDING, 0)), Map.of());
+
+        // Assert
+        this.await(() -> emitters.get(0).failure != null);
+        assertEquals(0.0, meterRegistry.get("tracking.updates.subscribers").gauge().value());
+    }
+
+    private TrackingUpdateServiceImpl service(int dispatcherThreads, int maxPending, long sendTimeoutMillis) {
+        return new TrackingUpdateServiceImpl(meterRegistry, dispatcherThreads, 60_000, 100, maxPending, sendTimeoutMillis, 4) {
+            @Override
+            SseEmitter createEmitter() {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    private TrackingUpdate update(String trackingNumber, Status status, long second) {
+        return new TrackingUpdate(trackingNumber, status, Instant.ofEpochSecond(1_700_000_000L + second), "Pune");
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for condition");
+            Thread.sleep(5);
+        }
+    }
+
+    // Records sent updates and can stall like a client that stopped reading
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<TrackingUpdate> updates = new CopyOnWriteArrayList<>();
+        private final AtomicInteger concurrentSends = new AtomicInteger();
+        private final AtomicInteger maxConcurrentSends = new AtomicInteger();
+        private volatile CountDownLatch gate;
+        private volatile boolean blocked;
+        private volatile boolean disconnected;
+        private volatile Throwable failure;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            maxConcurrentSends.accumulateAndGet(concurrentSends.incrementAndGet(), Math::max);
+            try {
+                this.record(builder);
+            } finally {
+                concurrentSends.decrementAndGet();
+            }
+        }
+
+        private void record(SseEventBuilder builder) throws IOException {
+            CountDownLatch current = gate;
+            if (current != null) {
+                blocked = true;
+                try {
+                    current.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                blocked = false;
+            }
+            if (disconnected) {
+                throw new IOException("Broken pipe");
+            }
+            for (ResponseBodyEmitter.DataWithMediaType data : builder.build()) {
+                if (data.getData() instanceof TrackingUpdate update) {
+                    updates.add(update);
+                }
+            }
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            failure = ex;
+        }
+
+        private List<TrackingUpdate> updates() {
+            return new ArrayList<>(updates);
+        }
+
+        private void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        private void unblock() {
+            CountDownLatch current = gate;
+            gate = null;
+            if (current != null) {
+                current.countDown();
+            }
+        }
+
+        private boolean isBlocked() {
+            return blocked;
+        }
+
+        private void disconnect() {
+            disconnected = true;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveSegmentIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testCandidates_GroupsSegmentsIntoGenerationsAndFindsTheOwningSegment() throws Exception {
+        // Arrange: ten segments of 100 numbers, at most 300 numbers per generation
+        ArchiveSegmentIndex index = new ArchiveSegmentIndex(300);
+        List<ArchiveSegment> segments = new ArrayList<>();
+        for (int s = 0; s < 10; s++) {
+            List<TrackingNumberEntity> records = this.records(s * 100, 100);
+            ArchiveSegment segment = ArchiveSegment.write(directory.resolve("segment-" + s + ArchiveSegment.FILE_EXTENSION), records);
+            segments.add(segment);
+
+            // Act
+            index.add(segment, records.stream().map(TrackingNumberEntity::getTrackingNumber).toList());
+        }
+
+        // Assert
+        assertEquals(4, index.generationCount());
+        for (int s = 0; s < 10; s++) {
+            assertTrue(index.candidates(this.trackingNumber(s * 100 + 42)).contains(segments.get(s)));
+        }
+        int misses = 0;
+        for (int i = 0; i < 1000; i++) {
+            misses += index.candidates(this.trackingNumber(1_000_000 + i)).isEmpty() ? 1 : 0;
+        }
+        assertTrue(misses > 950, "Unexpected false positives: " + (1000 - misses));
+    }
+
+    @Test
+    void testIndexPending_ProbesPendingSegmentsUntilTheyAreIndexed() throws Exception {
+        // Arrange
+        ArchiveSegmentIndex index = new ArchiveSegmentIndex(1000);
+        ArchiveSegment segment = ArchiveSegment.write(directory.resolve("pending" + ArchiveSegment.FILE_EXTENSION), this.records(0, 50));
+        index.addPending(segment);
+        assertEquals(List.of(segment), index.candidates(this.trackingNumber(7)));
+
+        // Act
+        int indexed = index.indexPending((failed, e) -> fail(e));
+
+        // Assert
+        assertEquals(1, indexed);
+        assertEquals(0, index.pendingCount());
+        assertEquals(1, index.generationCount());
+        assertEquals(List.of(segment), index.candidates(this.trackingNumber(7)));
+    }
+
+    @Test
+    void testIndexPending_KeepsUnreadableSegmentsPending() throws Exception {
+        // Arrange: the segment file disappears after it was opened
+        ArchiveSegmentIndex index = new ArchiveSegmentIndex(1000);
+        Path file = directory.resolve("gone" + ArchiveSegment.FILE_EXTENSION);
+        index.addPending(ArchiveSegment.write(file, this.records(0, 10)));
+        Files.delete(file);
+        List<IOException> failures = new ArrayList<>();
+
+        // Act
+        int indexed = index.indexPending((failed, e) -> failures.add(e));
+
+        // Assert
+        assertEquals(0, indexed);
+        assertEquals(1, failures.size());
+        assertEquals(1, index.pendingCount());
+        assertEquals(0, index.generationCount());
+    }
+
+    private List<TrackingNumberEntity> records(int first, int count) {
+        List<TrackingNumberEntity> records = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            records.add(new TrackingNumberEntity(this.trackingNumber(i), Instant.ofEpochSecond(1_700_000_000L + i),
+                    "US", "IN", BigDecimal.ONE, UUID.randomUUID(), "customer"));
+        }
+        return records;
+    }
+
+    private String trackingNumber(int i) {
+        return String.format("USIN%012d", i);
+    }
+}
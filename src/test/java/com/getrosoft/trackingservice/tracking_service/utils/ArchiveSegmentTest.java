@@ -0,0 +1,72 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import com.getrosoft.trackingservice.tracking_service.model.TrackingNumberEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveSegmentTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testWriteAndOpen_FindsEveryRecord() throws Exception {
+        List<TrackingNumberEntity> records = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            records.add(new TrackingNumberEntity(String.format("USIN%012d", i * 7919L % 1_000_003), Instant.ofEpochSecond(1_700_000_000L + i, i),
+                    "US", "IN", new BigDecimal("1.5").add(BigDecimal.valueOf(i)), UUID.randomUUID(), "customer-" + i));
+        }
+
+        ArchiveSegment.write(directory.resolve("segment" + ArchiveSegment.FILE_EXTENSION), records);
+        ArchiveSegment segment = ArchiveSegment.open(directory.resolve("segment" + ArchiveSegment.FILE_EXTENSION));
+
+        assertEquals(records.size(), segment.getRowCount());
+        for (TrackingNumberEntity expected : records) {
+            TrackingNumberEntity actual = segment.find(expected.getTrackingNumber());
+            assertNotNull(actual, "Missing " + expected.getTrackingNumber());
+            assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+            assertEquals(expected.getWeight(), actual.getWeight());
+            assertEquals(expected.getCustomerId(), actual.getCustomerId());
+            assertEquals(expected.getCustomerSlug(), actual.getCustomerSlug());
+        }
+    }
+
+    @Test
+    void testFind_ReturnsNullForUnknownNumbers() throws Exception {
+        List<TrackingNumberEntity> records = List.of(
+                new TrackingNumberEntity("USIN000000000001", Instant.now(), "US", "IN", BigDecimal.ONE, UUID.randomUUID(), "a"),
+                new TrackingNumberEntity("USIN000000000003", Instant.now(), "US", "IN", BigDecimal.ONE, UUID.randomUUID(), "b"));
+        ArchiveSegment segment = ArchiveSegment.write(directory.resolve("small" + ArchiveSegment.FILE_EXTENSION), records);
+
+        assertNull(segment.find("USIN000000000002"));
+        assertNull(segment.find("AAAA000000000000"));
+        assertFalse(segment.mightContain("ZZZZ000000000000"));
+    }
+
+    @Test
+    void testWrite_LeavesNoTemporaryFilesAndReadsBackTrackingNumbers() throws Exception {
+        List<TrackingNumberEntity> records = List.of(
+                new TrackingNumberEntity("USIN000000000002", Instant.now(), "US", "IN", BigDecimal.ONE, UUID.randomUUID(), "a"),
+                new TrackingNumberEntity("USIN000000000001", Instant.now(), "US", "IN", BigDecimal.ONE, UUID.randomUUID(), "b"));
+
+        ArchiveSegment first = ArchiveSegment.write(directory.resolve("same" + ArchiveSegment.FILE_EXTENSION), records);
+        ArchiveSegment.write(directory.resolve("same" + ArchiveSegment.FILE_EXTENSION), records);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of("same" + ArchiveSegment.FILE_EXTENSION),
+                    files.map(file -> file.getFileName().toString()).toList());
+        }
+        assertEquals(List.of("USIN000000000001", "USIN000000000002"), first.readTrackingNumbers());
+    }
+}
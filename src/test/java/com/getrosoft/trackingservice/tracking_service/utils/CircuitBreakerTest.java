@@ -0,0 +1,66 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(3, 5000, now::get);
+
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        assertTrue(circuitBreaker.allowRequest(), "A success resets the failure count");
+
+        circuitBreaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    void testAllowsOneTrialPerOpenInterval() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.recordFailure();
+        }
+
+        // Act
+        now.addAndGet(5000);
+        boolean firstTrial = circuitBreaker.allowRequest();
+        boolean concurrentTrial = circuitBreaker.allowRequest();
+        now.addAndGet(5000);
+        boolean nextTrial = circuitBreaker.allowRequest();
+
+        // Assert
+        assertTrue(firstTrial);
+        assertFalse(concurrentTrial);
+        assertTrue(nextTrial, "A trial that never reports back must not keep the circuit shut");
+    }
+
+    @Test
+    void testTrialOutcomeClosesOrReopens() {
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.recordFailure();
+        }
+        now.addAndGet(5000);
+        assertTrue(circuitBreaker.allowRequest());
+
+        circuitBreaker.recordFailure();
+        assertFalse(circuitBreaker.allowRequest(), "A failed trial starts a new open interval");
+
+        now.addAndGet(5000);
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+}
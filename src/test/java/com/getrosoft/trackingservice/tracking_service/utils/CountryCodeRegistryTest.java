@@ -0,0 +1,60 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountryCodeRegistryTest {
+
+    @Test
+    void testCanonical_NormalisesAlpha2AndAlpha3CodesInAnyCase() {
+        assertSame(CountryCodeRegistry.canonical("US"), CountryCodeRegistry.canonical("us"));
+        assertEquals("US", CountryCodeRegistry.canonical("usa"));
+        assertEquals("AT", CountryCodeRegistry.canonical("AUT"));
+        assertEquals("AU", CountryCodeRegistry.canonical("AUS"));
+        assertEquals("IN", CountryCodeRegistry.canonical("Ind"));
+    }
+
+    @Test
+    void testIsKnown_RejectsAnythingButIsoCodes() {
+        assertFalse(CountryCodeRegistry.isKnown(null));
+        assertFalse(CountryCodeRegistry.isKnown(""));
+        assertFalse(CountryCodeRegistry.isKnown("U"));
+        assertFalse(CountryCodeRegistry.isKnown("XX"));
+        assertFalse(CountryCodeRegistry.isKnown("U1"));
+        assertFalse(CountryCodeRegistry.isKnown("USAX"));
+        assertThrows(IllegalArgumentException.class, () -> CountryCodeRegistry.canonical("ZZZ"));
+    }
+
+    @Test
+    void testIsKnown_CoversEveryJdkCountry() {
+        for (String country : Locale.getISOCountries()) {
+            assertEquals(country, CountryCodeRegistry.canonical(country.toLowerCase(Locale.ROOT)));
+        }
+        assertEquals(Locale.getISOCountries().length, CountryCodeRegistry.size());
+    }
+
+    @Test
+    void testLaneId_RoundTripsAndIsIndependentOfTheJdkList() {
+        int laneId = CountryCodeRegistry.laneId("usa", "in");
+
+        assertEquals("US", CountryCodeRegistry.originOf(laneId));
+        assertEquals("IN", CountryCodeRegistry.destinationOf(laneId));
+        // Letters read as base 26: U=20, S=18, I=8, N=13
+        assertEquals((20 * 26 + 18) * 676 + (8 * 26 + 13), laneId);
+        assertTrue(laneId < CountryCodeRegistry.LANE_IDS);
+        assertThrows(IllegalArgumentException.class, () -> CountryCodeRegistry.originOf(0));
+        assertThrows(IllegalArgumentException.class, () -> CountryCodeRegistry.laneId("US", "XX"));
+    }
+
+    @Test
+    void testIsKnownLane_ReservesTheUnknownLane() {
+        assertTrue(CountryCodeRegistry.isKnownLane(CountryCodeRegistry.laneId("US", "IN")));
+        assertFalse(CountryCodeRegistry.isKnownLane(CountryCodeRegistry.UNKNOWN_LANE));
+        assertFalse(CountryCodeRegistry.isKnownLane(-1));
+        assertFalse(CountryCodeRegistry.isKnownLane(CountryCodeRegistry.LANE_IDS));
+        assertFalse(CountryCodeRegistry.isKnown(CountryCodeRegistry.UNKNOWN_COUNTRY));
+    }
+}
@@ -0,0 +1,99 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LaneTransitMatrixTest {
+
+    @Test
+    void testRecord_MaintainsMeanAndStandardDeviation() {
+        LaneTransitMatrix matrix = new LaneTransitMatrix(8);
+
+        matrix.record("US", "IN", new BigDecimal("1.5"), 48);
+        matrix.record("us", "in", new BigDecimal("1.2"), 72);
+        matrix.record("US", "IN", new BigDecimal("1.9"), 96);
+
+        LaneTransitMatrix.TransitStatistics statistics = matrix.statistics("US", "IN", new BigDecimal("1.0"));
+        assertNotNull(statistics);
+        assertEquals(3, statistics.sampleCount());
+        assertEquals(72.0, statistics.meanHours(), 1e-9);
+        assertEquals(24.0, statistics.standardDeviationHours(), 1e-9);
+    }
+
+    @Test
+    void testStatistics_SeparatesWeightBandsAndDirections() {
+        LaneTransitMatrix matrix = new LaneTransitMatrix(8);
+
+        matrix.record("US", "IN", new BigDecimal("1.5"), 48);
+
+        assertNull(matrix.statistics("US", "IN", new BigDecimal("30")));
+        assertNull(matrix.statistics("IN", "US", new BigDecimal("1.5")));
+        assertNull(matrix.statistics("US", "DE", new BigDecimal("1.5")));
+    }
+
+    @Test
+    void testRecord_DropsCountriesBeyondCapacity() {
+        LaneTransitMatrix matrix = new LaneTransitMatrix(2);
+
+        matrix.record("US", "IN", BigDecimal.ONE, 48);
+        matrix.record("US", "DE", BigDecimal.ONE, 48);
+
+        assertNotNull(matrix.statistics("US", "IN", BigDecimal.ONE));
+        assertNull(matrix.statistics("US", "DE", BigDecimal.ONE));
+    }
+
+    @Test
+    void testSnapshot_RoundTrip() throws Exception {
+        LaneTransitMatrix matrix = new LaneTransitMatrix(4);
+        matrix.record("US", "IN", BigDecimal.ONE, 50);
+        matrix.record("US", "IN", BigDecimal.ONE, 70);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        matrix.writeTo(new DataOutputStream(bytes));
+        LaneTransitMatrix restored = LaneTransitMatrix.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 4);
+
+        LaneTransitMatrix.TransitStatistics statistics = restored.statistics("US", "IN", BigDecimal.ONE);
+        assertNotNull(statistics);
+        assertEquals(2, statistics.sampleCount());
+        assertEquals(60.0, statistics.meanHours(), 1e-9);
+    }
+
+    @Test
+    void testSnapshot_RestoresIntoTheConfiguredCapacity() throws Exception {
+        // Arrange: written with room for four countries, restored with room for two, then eight
+        LaneTransitMatrix matrix = new LaneTransitMatrix(4);
+        matrix.record("US", "IN", BigDecimal.ONE, 48);
+        matrix.record("US", "DE", BigDecimal.ONE, 24);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        matrix.writeTo(new DataOutputStream(bytes));
+
+        // Act
+        LaneTransitMatrix smaller = LaneTransitMatrix.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 2);
+        LaneTransitMatrix larger = LaneTransitMatrix.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 8);
+
+        // Assert: the country seen last is dropped, and the smaller matrix still takes no new ones
+        assertEquals(48.0, smaller.statistics("US", "IN", BigDecimal.ONE).meanHours(), 1e-9);
+        assertNull(smaller.statistics("US", "DE", BigDecimal.ONE));
+        smaller.record("US", "FR", BigDecimal.ONE, 12);
+        assertNull(smaller.statistics("US", "FR", BigDecimal.ONE));
+
+        assertEquals(24.0, larger.statistics("US", "DE", BigDecimal.ONE).meanHours(), 1e-9);
+        larger.record("US", "FR", BigDecimal.ONE, 12);
+        assertEquals(1, larger.statistics("US", "FR", BigDecimal.ONE).sampleCount());
+        assertEquals(1, larger.statistics("US", "IN", BigDecimal.ONE).sampleCount());
+    }
+
+    @Test
+    void testWeightBand_Boundaries() {
+        assertEquals(0, LaneTransitMatrix.weightBand(new BigDecimal("0.1")));
+        assertEquals(1, LaneTransitMatrix.weightBand(new BigDecimal("0.5")));
+        assertEquals(LaneTransitMatrix.WEIGHT_BANDS - 1, LaneTransitMatrix.weightBand(new BigDecimal("999")));
+    }
+}
@@ -0,0 +1,43 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogRateLimiterTest {
+
+    @Test
+    void testTryAcquire_SuppressesLinesOverTheLimitAndReportsThemLater() {
+        // Arrange
+        LogRateLimiter limiter = new LogRateLimiter(2);
+        long start = 1_700_000_000_000L;
+
+        // Act & Assert
+        assertEquals(0, limiter.tryAcquire("key", start));
+        assertEquals(0, limiter.tryAcquire("key", start + 100));
+        assertEquals(LogRateLimiter.SUPPRESSED, limiter.tryAcquire("key", start + 200));
+        assertEquals(LogRateLimiter.SUPPRESSED, limiter.tryAcquire("key", start + 900));
+        // A new second: the first line reports the two that were dropped
+        assertEquals(2, limiter.tryAcquire("key", start + 1000));
+        assertEquals(0, limiter.tryAcquire("key", start + 1001));
+    }
+
+    @Test
+    void testTryAcquire_KeysHaveSeparateBudgets() {
+        // Arrange
+        LogRateLimiter limiter = new LogRateLimiter(1);
+        long now = 1_700_000_000_000L;
+
+        // Act
+        limiter.tryAcquire(IllegalStateException.class, now);
+
+        // Assert
+        assertEquals(LogRateLimiter.SUPPRESSED, limiter.tryAcquire(IllegalStateException.class, now));
+        assertEquals(0, limiter.tryAcquire(IllegalArgumentException.class, now));
+    }
+
+    @Test
+    void testConstructor_RejectsNonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new LogRateLimiter(0));
+    }
+}
@@ -0,0 +1,68 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollingWindowCounterTest {
+
+    @Test
+    void testSum_CountsOnlyBucketsInsideWindow() {
+        RollingWindowCounter counter = new RollingWindowCounter(60, 1000);
+        long start = 1_700_000_000_000L;
+
+        counter.increment(start);
+        counter.increment(start + 500);
+        counter.increment(start + 30_000);
+
+        assertEquals(3, counter.sum(start + 30_000));
+        assertEquals(3, counter.sum(start + 59_999));
+        // The first second has left the window
+        assertEquals(1, counter.sum(start + 60_000));
+        assertEquals(0, counter.sum(start + 90_000));
+    }
+
+    @Test
+    void testIncrement_ReusedSlotStartsFromZero() {
+        RollingWindowCounter counter = new RollingWindowCounter(10, 1000);
+        long start = 1_700_000_000_000L;
+        for (int i = 0; i < 5; i++) {
+            counter.increment(start);
+        }
+
+        // Same slot, one full rotation later
+        counter.increment(start + 10_000);
+
+        assertEquals(1, counter.sum(start + 10_000));
+    }
+
+    @Test
+    void testIncrement_ConcurrentUpdatesAreNotLost() throws Exception {
+        RollingWindowCounter counter = new RollingWindowCounter(60, 1000);
+        long now = 1_700_000_000_000L;
+        int threads = 8;
+        int perThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    counter.increment(now + (i % 3) * 1000);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals((long) threads * perThread, counter.sum(now + 2000));
+    }
+}
@@ -0,0 +1,102 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void testExecute_ConcurrentCallersShareOneLoad() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test.lookup", registry);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> singleFlight.execute("key", () -> {
+            loads.incrementAndGet();
+            loaderStarted.countDown();
+            awaitQuietly(releaseLoader);
+            return "value";
+        })));
+        assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < callers; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                loads.incrementAndGet();
+                return "other";
+            })));
+        }
+        // Give the late arrivals time to attach to the pending load
+        while (registry.counter("test.lookup.coalesced").count() < callers - 1) {
+            Thread.sleep(5);
+        }
+        releaseLoader.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("value", result.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, loads.get());
+        assertEquals(1.0, registry.counter("test.lookup.loads").count());
+    }
+
+    @Test
+    void testExecute_SharesExceptionsAndDoesNotCache() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test.lookup", new SimpleMeterRegistry());
+
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("key", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals("second", singleFlight.execute("key", () -> "second"));
+    }
+
+    @Test
+    void testExecute_ReleasesWaitingCallersWhenTheLoaderThrowsAnError() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test.lookup", registry);
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<String> loading = executor.submit(() -> singleFlight.execute("key", () -> {
+            loaderStarted.countDown();
+            awaitQuietly(releaseLoader);
+            throw new StackOverflowError("boom");
+        }));
+        assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+        Future<String> waiting = executor.submit(() -> singleFlight.execute("key", () -> "other"));
+        while (registry.counter("test.lookup.coalesced").count() < 1) {
+            Thread.sleep(5);
+        }
+        releaseLoader.countDown();
+
+        ExecutionException loaderFailure = assertThrows(ExecutionException.class, () -> loading.get(5, TimeUnit.SECONDS));
+        ExecutionException waiterFailure = assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertInstanceOf(StackOverflowError.class, loaderFailure.getCause());
+        assertInstanceOf(StackOverflowError.class, waiterFailure.getCause());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.getrosoft.trackingservice.tracking_service.payload.ImportFormat;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackingImportParserTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void testNext_ParsesCsvWithReorderedColumns() throws IOException {
+        String csv = """
+                customerSlug,trackingNumber,weight,originCountryId,destinationCountryId,customerId,createdAt
+                "acme, inc",LEGACY0001,1.5,US,IN,550e8400-e29b-41d4-a716-446655440000,2023-01-01T00:00:00Z
+
+                plain,LEGACY0002,2,US,CA,550e8400-e29b-41d4-a716-446655440000,
+                """;
+        TrackingImportParser parser = new TrackingImportParser(new StringReader(csv), ImportFormat.CSV, objectMapper);
+
+        TrackingImportParser.ParsedRecord first = parser.next();
+        TrackingImportParser.ParsedRecord second = parser.next();
+
+        assertNull(first.error());
+        assertEquals(2, first.lineNumber());
+        assertEquals("LEGACY0001", first.record().getTrackingNumber());
+        assertEquals("acme, inc", first.record().getCustomerSlug());
+        assertEquals(new BigDecimal("1.5"), first.record().getWeight());
+        assertEquals(Instant.parse("2023-01-01T00:00:00Z"), first.record().getCreatedAt());
+        assertEquals(UUID.fromString("550e8400-e29b-41d4-a716-446655440000"), first.record().getCustomerId());
+        assertEquals(4, second.lineNumber());
+        assertNull(second.record().getCreatedAt());
+        assertNull(parser.next());
+    }
+
+    @Test
+    void testNext_ReportsUnparseableLines() throws IOException {
+        String ndjson = """
+                {"trackingNumber":"LEGACY0001","originCountryId":"US","destinationCountryId":"IN","weight":1.5,"customerId":"550e8400-e29b-41d4-a716-446655440000","customerSlug":"a"}
+                {"trackingNumber":
+                {"trackingNumber":"LEGACY0003","customerId":"not-a-uuid"}
+                """;
+        TrackingImportParser parser = new TrackingImportParser(new StringReader(ndjson), ImportFormat.NDJSON, objectMapper);
+
+        List<TrackingImportParser.ParsedRecord> records = List.of(parser.next(), parser.next(), parser.next());
+
+        assertNull(records.get(0).error());
+        assertEquals("LEGACY0001", records.get(0).record().getTrackingNumber());
+        assertNotNull(records.get(1).error());
+        assertNotNull(records.get(2).error());
+        assertNull(parser.next());
+    }
+
+    @Test
+    void testNext_RejectsCsvWithoutRequiredColumns() {
+        TrackingImportParser parser = new TrackingImportParser(new StringReader("trackingNumber,weight\nX,1\n"), ImportFormat.CSV, objectMapper);
+
+        assertThrows(IOException.class, parser::next);
+    }
+
+    @Test
+    void testSplitCsv_HandlesEscapedQuotes() {
+        assertEquals(List.of("a", "say \"hi\"", ""), TrackingImportParser.splitCsv("a,\"say \"\"hi\"\"\","));
+    }
+}
@@ -0,0 +1,157 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import com.getrosoft.trackingservice.tracking_service.payload.DecodedTrackingNumber;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackingNumberFormatTest {
+
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final String BODY = "USIN5555D715O0Z9";
+
+    @Test
+    void testSeal_AppendsVersionAndValidCheckCharacter() {
+        String trackingNumber = TrackingNumberFormat.seal(BODY);
+
+        assertEquals(TrackingNumberFormat.CHECKED_LENGTH, trackingNumber.length());
+        assertTrue(trackingNumber.startsWith(BODY + TrackingNumberFormat.VERSION_CHECKED));
+        assertTrue(TrackingNumberFormat.isWellFormed(trackingNumber));
+    }
+
+    @Test
+    void testIsWellFormed_DetectsEverySingleCharacterError() {
+        String trackingNumber = TrackingNumberFormat.seal(BODY);
+
+        for (int position = 0; position < trackingNumber.length(); position++) {
+            for (char replacement : ALPHABET.toCharArray()) {
+                if (replacement == trackingNumber.charAt(position)) {
+                    continue;
+                }
+                String typo = trackingNumber.substring(0, position) + replacement + trackingNumber.substring(position + 1);
+                assertFalse(TrackingNumberFormat.isWellFormed(typo), typo);
+            }
+        }
+    }
+
+    @Test
+    void testIsWellFormed_DetectsAdjacentTranspositions() {
+        String trackingNumber = TrackingNumberFormat.seal(BODY);
+
+        for (int position = 0; position < trackingNumber.length() - 1; position++) {
+            char[] chars = trackingNumber.toCharArray();
+            if (chars[position] == chars[position + 1]) {
+                continue;
+            }
+            char swapped = chars[position];
+            chars[position] = chars[position + 1];
+            chars[position + 1] = swapped;
+            assertFalse(TrackingNumberFormat.isWellFormed(new String(chars)), new String(chars));
+        }
+    }
+
+    @Test
+    void testIsWellFormed_LegacyAndMalformedIds() {
+        assertTrue(TrackingNumberFormat.isWellFormed(BODY), "Legacy numbers carry no check character");
+        assertFalse(TrackingNumberFormat.isWellFormed(null));
+        assertFalse(TrackingNumberFormat.isWellFormed(""));
+        assertFalse(TrackingNumberFormat.isWellFormed("usin5555d715o0z9"));
+        assertFalse(TrackingNumberFormat.isWellFormed("USIN5555D715O"), "Shorter than any number ever issued");
+        assertFalse(TrackingNumberFormat.isWellFormed("' OR 1=1 --------"));
+        // Right length, unknown version marker
+        String checked = TrackingNumberFormat.seal(BODY);
+        assertFalse(TrackingNumberFormat.isWellFormed(BODY + "3" + checked.charAt(17)));
+    }
+
+    @Test
+    void testIsWellFormed_AcceptsShortLegacyCollisionRetries() {
+        // origin + destination + 12 random characters, with one- to two-character country IDs
+        assertTrue(TrackingNumberFormat.isWellFormed("UI5555D715O0Z9"));
+        assertTrue(TrackingNumberFormat.isWellFormed("USI5555D715O0Z9"));
+        assertFalse(TrackingNumberFormat.isWellFormed("UI5555D715o0Z9"));
+        assertThrows(IllegalArgumentException.class, () -> TrackingNumberFormat.decode("UI5555D715O0Z9"));
+    }
+
+    @Test
+    void testSeal_RejectsInvalidBody() {
+        assertThrows(IllegalArgumentException.class, () -> TrackingNumberFormat.seal("USIN5555"));
+        assertThrows(IllegalArgumentException.class, () -> TrackingNumberFormat.seal("usin5555d715o0z9"));
+    }
+
+    @Test
+    void testDecode_ReadsEveryFieldBack() {
+        // Arrange
+        Instant createdAt = Instant.parse("2026-03-14T15:09:26.535Z");
+        String trackingNumber = TrackingNumberFormat.encodeSelfDescribing("us", "in", 3, createdAt, "K4X7P2QZ");
+
+        // Act
+        DecodedTrackingNumber decoded = TrackingNumberFormat.decode(trackingNumber);
+
+        // Assert
+        assertTrue(TrackingNumberFormat.isWellFormed(trackingNumber));
+        assertEquals(TrackingNumberFormat.VERSION_SELF_DESCRIBING, trackingNumber.charAt(16));
+        assertEquals("K4X7P2QZ", trackingNumber.substring(8, 16), "Eight random characters end the body");
+        assertEquals(3, decoded.getVersion());
+        assertEquals("US", decoded.getOriginCountryId());
+        assertEquals("IN", decoded.getDestinationCountryId());
+        assertNull(decoded.getCustomerPrefix());
+        assertEquals(3, decoded.getWeightBand());
+        assertEquals(new BigDecimal("2"), decoded.getWeightBandMinKg());
+        assertEquals(new BigDecimal("5"), decoded.getWeightBandMaxKg());
+        assertEquals(Instant.parse("2026-03-14T00:00:00Z"), decoded.getCreatedAt());
+    }
+
+    @Test
+    void testDecode_StillReadsMinuteLayoutNumbers() {
+        // Version 2: lane, customer prefix 5A, band 3, minute 1 after the epoch, four random characters
+        String trackingNumber = TrackingNumberFormat.seal("USIN5A3" + "00001" + "K4X7", TrackingNumberFormat.VERSION_SELF_DESCRIBING_BY_MINUTE);
+
+        DecodedTrackingNumber decoded = TrackingNumberFormat.decode(trackingNumber);
+
+        assertEquals(2, decoded.getVersion());
+        assertEquals("US", decoded.getOriginCountryId());
+        assertEquals("5A", decoded.getCustomerPrefix());
+        assertEquals(3, decoded.getWeightBand());
+        assertEquals(TrackingNumberFormat.CREATION_EPOCH.plusSeconds(60), decoded.getCreatedAt());
+    }
+
+    @Test
+    void testDecode_PaddedCountryCodesAndOpenEndedBand() {
+        // Issued before country codes were validated
+        String trackingNumber = TrackingNumberFormat.seal("D0FR007" + "00000" + "0000", TrackingNumberFormat.VERSION_SELF_DESCRIBING_BY_MINUTE);
+
+        DecodedTrackingNumber decoded = TrackingNumberFormat.decode(trackingNumber);
+
+        assertEquals("D", decoded.getOriginCountryId());
+        assertEquals("FR", decoded.getDestinationCountryId());
+        assertNull(decoded.getWeightBandMaxKg());
+        assertEquals(TrackingNumberFormat.CREATION_EPOCH, decoded.getCreatedAt());
+    }
+
+    @Test
+    void testEncodeSelfDescribing_NormalisesAlpha3AndRejectsUnknownCountries() {
+        String trackingNumber = TrackingNumberFormat.encodeSelfDescribing("aut", "FRA", 0,
+                TrackingNumberFormat.CREATION_EPOCH, "00000000");
+
+        assertTrue(trackingNumber.startsWith("ATFR"), trackingNumber);
+        assertThrows(IllegalArgumentException.class, () -> TrackingNumberFormat.encodeSelfDescribing("D", "FR", 0,
+                TrackingNumberFormat.CREATION_EPOCH, "00000000"));
+        assertThrows(IllegalArgumentException.class, () -> TrackingNumberFormat.encodeSelfDescribing("US", "IN", 0,
+                TrackingNumberFormat.CREATION_EPOCH, "0000"), "Fewer than eight random characters");
+    }
+
+    @Test
+    void testDecode_RejectsEarlierLayoutsAndMalformedIds() {
+        assertThrows(IllegalArgumentException.class, () -> TrackingNumberFormat.decode(BODY));
+        assertThrows(IllegalArgumentException.class, () -> TrackingNumberFormat.decode(TrackingNumberFormat.seal(BODY)));
+        assertThrows(IllegalArgumentException.class, () -> TrackingNumberFormat.decode("TR123456789"));
+        // Correct check character, but a weight band that was never issued
+        assertThrows(IllegalArgumentException.class,
+                () -> TrackingNumberFormat.decode(TrackingNumberFormat.seal("USINZ000K4X7P2QZ", TrackingNumberFormat.VERSION_SELF_DESCRIBING)));
+        assertThrows(IllegalArgumentException.class, () -> TrackingNumberFormat.encodeSelfDescribing("US", "IN", 0,
+                Instant.parse("2023-12-31T23:59:00Z"), "K4X7P2QZ"));
+    }
+}
@@ -1,126 +1,52 @@
 package com.getrosoft.trackingservice.tracking_service.utils;
 
+import com.getrosoft.trackingservice.tracking_service.payload.DecodedTrackingNumber;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
-import java.util.UUID;
+import java.time.Instant;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class TrackingNumberGeneratorUtilTest {
 
     @Test
-    void testGenerateTrackingNumber_ValidInputs() {
-        // Valid inputs
-        String origin = "IN";
-        String destination = "US";
-        BigDecimal weight = new BigDecimal("2.5");
-        UUID customerId = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
-        String customerSlug = "example-customer";
-
-        // Generate tracking number
-        String trackingNumber = TrackingNumberGeneratorUtil.generateTrackingNumber(origin, destination, weight, customerId, customerSlug);
-
-        // Validate tracking number
-        assertNotNull(trackingNumber, "Tracking number should not be null");
-        assertEquals(16, trackingNumber.length(), "Tracking number should be exactly 16 characters");
-        assertTrue(trackingNumber.matches("^[A-Z0-9]{16}$"), "Tracking number should match the regex pattern");
-    }
-
-    @Test
-    void testGenerateTrackingNumber_EmptyOriginDestination() {
-        // Empty origin and destination inputs
-        String origin = "I";
-        String destination = "U";
-        BigDecimal weight = new BigDecimal("1.5");
-        UUID customerId = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
-        String customerSlug = "example-customer";
-
-        // Generate tracking number
-        String trackingNumber = TrackingNumberGeneratorUtil.generateTrackingNumber(origin, destination, weight, customerId, customerSlug);
-
-        // Validate tracking number
-        assertNotNull(trackingNumber, "Tracking number should not be null");
-        assertEquals(16, trackingNumber.length(), "Tracking number should be exactly 16 characters");
-    }
-
-    @Test
-    void testGenerateTrackingNumber_LongOriginDestination() {
-        // Long origin and destination inputs
-        String origin = "INDIA";
-        String destination = "UNITEDSTATES";
-        BigDecimal weight = new BigDecimal("3.0");
-        UUID customerId = UUID.randomUUID();
-        String customerSlug = "logistics-company";
-
-        // Generate tracking number
-        String trackingNumber = TrackingNumberGeneratorUtil.generateTrackingNumber(origin, destination, weight, customerId, customerSlug);
-
-        // Validate tracking number
-        assertNotNull(trackingNumber, "Tracking number should not be null");
-        assertEquals(16, trackingNumber.length(), "Tracking number should be exactly 16 characters");
-    }
-
-    @Test
-    void testGenerateTrackingNumber_ZeroWeight() {
-        // Test with zero weight
-        String origin = "JP";
-        String destination = "CN";
-        BigDecimal weight = BigDecimal.ZERO;
-        UUID customerId = UUID.randomUUID();
-        String customerSlug = "zero-weight-test";
-
-        // Generate tracking number
-        String trackingNumber = TrackingNumberGeneratorUtil.generateTrackingNumber(origin, destination, weight, customerId, customerSlug);
-
-        // Validate tracking number
-        assertNotNull(trackingNumber, "Tracking number should not be null");
-        assertEquals(16, trackingNumber.length(), "Tracking number should be exactly 16 characters");
+    void testGenerateSelfDescribingTrackingNumber_FixedFieldPositions() {
+        Instant createdAt = Instant.parse("2026-03-14T15:09:26Z");
+
+        String first = TrackingNumberGeneratorUtil.generateSelfDescribingTrackingNumber("IN", "US", new BigDecimal("2.5"), createdAt);
+        String second = TrackingNumberGeneratorUtil.generateSelfDescribingTrackingNumber("IN", "US", new BigDecimal("4.9"), createdAt);
+
+        assertEquals(18, first.length(), "Self-describing tracking number should be 18 characters");
+        assertEquals('3', first.charAt(16), "Self-describing tracking number should carry version 3");
+        assertTrue(TrackingNumberFormat.isWellFormed(first), "Check character should validate");
+        assertEquals(TrackingNumberGeneratorUtil.selfDescribingLayoutSegment("IN", "US", new BigDecimal("2.5")),
+                first.substring(0, 5), "Segment should lead the number");
+        assertEquals(first.substring(0, 8), second.substring(0, 8), "Weights in the same band should share every fixed field");
+        assertEquals(Math.pow(36, 8), TrackingNumberGeneratorUtil.selfDescribingLayoutSpacePerDay());
     }
 
     @Test
-    void testGenerateTrackingNumber_HighWeight() {
-        // Test with very high weight
-        String origin = "UK";
-        String destination = "DE";
-        BigDecimal weight = new BigDecimal("999999.99");
-        UUID customerId = UUID.randomUUID();
-        String customerSlug = "heavy-weight-test";
+    void testGenerateSelfDescribingTrackingNumber_CanonicalisesCountryCodes() {
+        Instant createdAt = Instant.parse("2026-03-14T15:09:26Z");
 
-        // Generate tracking number
-        String trackingNumber = TrackingNumberGeneratorUtil.generateTrackingNumber(origin, destination, weight, customerId, customerSlug);
+        String trackingNumber = TrackingNumberGeneratorUtil.generateSelfDescribingTrackingNumber("ind", "usa", new BigDecimal("2.5"), createdAt);
 
-        // Validate tracking number
-        assertNotNull(trackingNumber, "Tracking number should not be null");
-        assertEquals(16, trackingNumber.length(), "Tracking number should be exactly 16 characters");
+        assertEquals("INUS", trackingNumber.substring(0, 4), "Alpha-3 codes should be stored as alpha-2");
+        assertThrows(IllegalArgumentException.class, () -> TrackingNumberGeneratorUtil.generateSelfDescribingTrackingNumber(
+                "Q1", "US", new BigDecimal("2.5"), createdAt));
     }
 
     @Test
-    void testGenerateTrackingNumber_InvalidRegex() {
-        // Test invalid regex validation
-        String origin = "IN";
-        String destination = "US";
-        BigDecimal weight = new BigDecimal("1.5");
-        UUID customerId = UUID.randomUUID();
-        String customerSlug = "regex-test";
+    void testGenerateJournaledTrackingNumber_IsSelfDescribingAndCarriesTheNodeId() {
+        Instant createdAt = Instant.parse("2026-03-14T15:09:26Z");
 
-        // Generate tracking number
-        String trackingNumber = TrackingNumberGeneratorUtil.generateTrackingNumber(origin, destination, weight, customerId, customerSlug);
-
-        // Modify tracking number to make it invalid
-        String invalidTrackingNumber = trackingNumber.toLowerCase();
-
-        // Validate against regex
-        assertFalse(invalidTrackingNumber.matches("^[A-Z0-9]{16}$"), "Tracking number should not match the regex pattern if altered");
-    }
-
-    @Test
-    void testGenerateTrackingNumber_NullInputs() {
-        // Test with null inputs
-        Exception exception = assertThrows(NullPointerException.class, () -> {
-            TrackingNumberGeneratorUtil.generateTrackingNumber(null, null, null, null, null);
-        });
+        String trackingNumber = TrackingNumberGeneratorUtil.generateJournaledTrackingNumber("IN", "US", new BigDecimal("2.5"), createdAt, "N1");
 
-        assertEquals("Cannot invoke \"String.toUpperCase()\" because \"originCountryId\" is null", exception.getMessage());
+        assertEquals("N1", trackingNumber.substring(8, 10), "Node ID should lead the random part");
+        DecodedTrackingNumber decoded = TrackingNumberFormat.decode(trackingNumber);
+        assertEquals(3, decoded.getVersion());
+        assertEquals("IN", decoded.getOriginCountryId());
+        assertEquals(Instant.parse("2026-03-14T00:00:00Z"), decoded.getCreatedAt());
     }
 }
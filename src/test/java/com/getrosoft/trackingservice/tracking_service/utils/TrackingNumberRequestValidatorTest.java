@@ -0,0 +1,70 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import com.getrosoft.trackingservice.tracking_service.dto.TrackingNumberDto;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackingNumberRequestValidatorTest {
+
+    private static ValidatorFactory validatorFactory;
+    private static Validator beanValidator;
+
+    @BeforeAll
+    static void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        beanValidator = validatorFactory.getValidator();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void testValidate_ValidRequestHasNoErrors() {
+        TrackingNumberDto dto = new TrackingNumberDto("US", "IN", new BigDecimal("1.5"), UUID.randomUUID(), "example-customer");
+
+        assertTrue(TrackingNumberRequestValidator.validate(dto).isEmpty());
+    }
+
+    @Test
+    void testValidate_MatchesBeanValidation() {
+        UUID customerId = UUID.randomUUID();
+        List<TrackingNumberDto> requests = List.of(
+                new TrackingNumberDto(null, "IN", new BigDecimal("1.5"), customerId, "slug"),
+                new TrackingNumberDto("   ", "", new BigDecimal("1.5"), customerId, "slug"),
+                new TrackingNumberDto("USAX", "INDIA", new BigDecimal("1.5"), customerId, "slug"),
+                new TrackingNumberDto("XX", "usa", new BigDecimal("1.5"), customerId, "slug"),
+                new TrackingNumberDto("us", "ZZZ", new BigDecimal("1.5"), customerId, "slug"),
+                new TrackingNumberDto("US", "IN", null, null, null),
+                new TrackingNumberDto("US", "IN", new BigDecimal("0.1"), customerId, "x".repeat(50)),
+                new TrackingNumberDto("US", "IN", new BigDecimal("0.09"), customerId, "x".repeat(51)),
+                new TrackingNumberDto("US", "IN", new BigDecimal("-3"), customerId, " ")
+        );
+
+        for (TrackingNumberDto dto : requests) {
+            Map<String, String> fastErrors = TrackingNumberRequestValidator.validate(dto);
+            Map<String, Set<String>> beanErrors = beanValidator.validate(dto).stream()
+                    .collect(Collectors.groupingBy(violation -> violation.getPropertyPath().toString(),
+                            Collectors.mapping(ConstraintViolation::getMessage, Collectors.toSet())));
+
+            assertEquals(beanErrors.keySet(), fastErrors.keySet(), "Fields differ for " + dto);
+            fastErrors.forEach((field, message) ->
+                    assertTrue(beanErrors.get(field).contains(message), "Unexpected message for " + field + ": " + message));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import com.getrosoft.trackingservice.tracking_service.payload.CapturedRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrafficCaptureFormatTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testWriter_RoundTripsRecordsInOffsetOrder() throws IOException {
+        // Arrange
+        Path file = directory.resolve("capture.bin");
+        CapturedRequest create = new CapturedRequest(CapturedRequest.Endpoint.NEXT_TRACKING_NUMBER, 2_000, 1_500, 200,
+                new String[]{"US", "IN", "1.5", "550e8400-e29b-41d4-a716-446655440000", "acme"});
+        CapturedRequest lookup = new CapturedRequest(CapturedRequest.Endpoint.TRACKING_DETAILS, 1_000, 300, 404,
+                new String[]{"USIN5555D715O0Z91J"});
+        CapturedRequest delivery = new CapturedRequest(CapturedRequest.Endpoint.DELIVERIES, 3_000, 90, 400,
+                new String[]{"bad id ü", null});
+
+        // Act: records arrive in completion order, not start order
+        try (TrafficCaptureWriter writer = new TrafficCaptureWriter(file, 16, Long.MAX_VALUE)) {
+            assertTrue(writer.offer(create));
+            assertTrue(writer.offer(lookup));
+            assertTrue(writer.offer(delivery));
+        }
+        List<CapturedRequest> read = TrafficCaptureFormat.read(file).requests();
+
+        // Assert
+        assertEquals(3, read.size());
+        assertSame(CapturedRequest.Endpoint.TRACKING_DETAILS, read.get(0).getEndpoint());
+        assertEquals(404, read.get(0).getStatus());
+        assertEquals(1_500, read.get(1).getLatencyMicros());
+        assertArrayEquals(create.getParameters(), read.get(1).getParameters());
+        assertEquals(Arrays.asList("bad id ü", null), Arrays.asList(read.get(2).getParameters()));
+    }
+
+    @Test
+    void testRead_IgnoresRecordCutShort() throws IOException {
+        // Arrange
+        Path file = directory.resolve("capture.bin");
+        try (TrafficCaptureWriter writer = new TrafficCaptureWriter(file, 16, Long.MAX_VALUE)) {
+            writer.offer(new CapturedRequest(CapturedRequest.Endpoint.TRACKING_DETAILS, 10, 20, 200, new String[]{"INUS123456789012"}));
+            writer.offer(new CapturedRequest(CapturedRequest.Endpoint.TRACKING_DETAILS, 30, 20, 200, new String[]{"INUS123456789013"}));
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+
+        // Act
+        List<CapturedRequest> read = TrafficCaptureFormat.read(file).requests();
+
+        // Assert
+        assertEquals(1, read.size());
+        assertEquals("INUS123456789012", read.get(0).getParameters()[0]);
+    }
+
+    @Test
+    void testWriter_DropsRecordsOnceFileIsFull() throws IOException {
+        // Arrange
+        Path file = directory.resolve("capture.bin");
+        CapturedRequest lookup = new CapturedRequest(CapturedRequest.Endpoint.TRACKING_DETAILS, 10, 20, 200, new String[]{"INUS123456789012"});
+
+        // Act: the header and first record already exceed the limit
+        TrafficCaptureWriter writer = new TrafficCaptureWriter(file, 16, 20);
+        writer.offer(lookup);
+        writer.close();
+        boolean acceptedAfterClose = writer.offer(lookup);
+
+        // Assert
+        assertFalse(acceptedAfterClose);
+        assertEquals(1, writer.getWritten());
+        assertEquals(1, writer.getDropped());
+        assertEquals(1, TrafficCaptureFormat.read(file).requests().size());
+    }
+}
@@ -0,0 +1,100 @@
+package com.getrosoft.trackingservice.tracking_service.utils;
+
+import com.getrosoft.trackingservice.tracking_service.payload.CapturedRequest;
+import com.getrosoft.trackingservice.tracking_service.payload.ReplayReport;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrafficReplayerTest {
+
+    private HttpServer server;
+    private final List<String> received = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Stand-in service: known tracking IDs are found, everything else is not
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1/api/", exchange -> {
+            received.add(exchange.getRequestMethod() + " " + exchange.getRequestURI());
+            String query = exchange.getRequestURI().getRawQuery();
+            int status = query != null && query.contains("INUS123456789012") ? 200 : 404;
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testReplay_SendsCapturedRequestsAndComparesOutcomes() throws InterruptedException {
+        // Arrange
+        List<CapturedRequest> capture = List.of(
+                new CapturedRequest(CapturedRequest.Endpoint.TRACKING_DETAILS, 0, 1_000, 200, new String[]{"INUS123456789012"}),
+                new CapturedRequest(CapturedRequest.Endpoint.TRACKING_DETAILS, 100_000, 2_000, 200, new String[]{"INUS999999999999"}),
+                new CapturedRequest(CapturedRequest.Endpoint.DELIVERIES, 200_000, 3_000, 202, new String[]{"INUS123456789012", null}));
+        TrafficReplayer replayer = new TrafficReplayer(HttpClient.newHttpClient(),
+                URI.create("http://localhost:" + server.getAddress().getPort()), 1.0, 4, Duration.ofSeconds(5));
+
+        // Act
+        long startedAt = System.nanoTime();
+        TrafficReplayer.Replay replay = replayer.replay(capture);
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+
+        // Assert
+        assertTrue(elapsedMillis >= 200, "Requests are paced by their captured offsets");
+        // Open-loop sending does not wait for earlier responses, so arrival order is not guaranteed
+        assertEquals(Set.of("GET /v1/api/tracking-details?trackingId=INUS123456789012",
+                "GET /v1/api/tracking-details?trackingId=INUS999999999999",
+                "POST /v1/api/deliveries?trackingId=INUS123456789012"), Set.copyOf(received));
+        assertEquals(List.of(200, 404, 200), replay.outcomes().stream().map(CapturedRequest::getStatus).toList());
+
+        ReplayReport report = replay.report();
+        assertEquals(3, report.getRequests());
+        assertEquals(0, report.getTransportErrors());
+        ReplayReport.EndpointComparison lookups = report.getEndpoints().get(0);
+        assertSame(CapturedRequest.Endpoint.TRACKING_DETAILS, lookups.getEndpoint());
+        assertEquals(Map.of(200, 2L), lookups.getBaselineStatuses());
+        // The target does not hold the second number; that is reported apart from real changes
+        assertEquals(Map.of(), lookups.getChangedOutcomes());
+        assertEquals(1, lookups.getMissingOnTarget());
+        assertTrue(lookups.getReplayResponseLatency().maxMicros() <= lookups.getReplayLatency().maxMicros());
+        assertEquals(2_000, lookups.getBaselineLatency().maxMicros());
+        assertEquals(Map.of("202->200", 1L), report.getEndpoints().get(1).getChangedOutcomes());
+    }
+
+    @Test
+    void testLatencySummary_UsesNearestRank() {
+        // Arrange
+        long[] latencies = new long[100];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = 100 - i;
+        }
+
+        // Act
+        ReplayReport.LatencySummary summary = ReplayReport.LatencySummary.of(latencies);
+
+        // Assert
+        assertEquals(50, summary.p50Micros());
+        assertEquals(90, summary.p90Micros());
+        assertEquals(99, summary.p99Micros());
+        assertEquals(100, summary.maxMicros());
+    }
+}